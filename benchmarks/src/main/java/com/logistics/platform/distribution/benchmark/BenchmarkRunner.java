@@ -0,0 +1,51 @@
+package com.logistics.platform.distribution.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口，参数与 org.openjdk.jmh.Main 相同
+ * 未指定 -rf/-rff 时结果以JSON写入 jmh-result.json（可用 -Dbench.result 修改路径），
+ * 每个版本发布前运行一次并保存结果，用 JMH Visualizer 等工具对比即可发现性能回退
+ * <pre>
+ * mvn -pl benchmarks -am package -DskipTests
+ * java -jar benchmarks/target/benchmarks.jar                       # 全部
+ * java -jar benchmarks/target/benchmarks.jar WaybillCacheBenchmark # 按类名正则过滤
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        run(new CommandLineOptions(args));
+    }
+
+    /**
+     * 只运行指定类中的基准测试，供各基准测试类的main方法在IDE中直接运行
+     * @param args 附加的JMH参数，如 -prof gc
+     */
+    public static void run(Class<?> benchmark, String... args) throws RunnerException, CommandLineOptionException {
+        String[] withInclude = new String[args.length + 1];
+        System.arraycopy(args, 0, withInclude, 0, args.length);
+        withInclude[args.length] = "\\." + benchmark.getSimpleName() + "\\.";
+        run(new CommandLineOptions(withInclude));
+    }
+
+    private static void run(CommandLineOptions options) throws RunnerException {
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!options.getResult().hasValue()) {
+            builder.result(System.getProperty("bench.result", "jmh-result.json"));
+        }
+        new Runner(builder.build()).run();
+    }
+}
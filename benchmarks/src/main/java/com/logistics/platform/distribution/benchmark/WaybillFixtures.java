@@ -0,0 +1,44 @@
+package com.logistics.platform.distribution.benchmark;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 基准测试共用的运单数据，字段长度与线上典型运单相当
+ */
+public final class WaybillFixtures {
+
+    private WaybillFixtures() {
+    }
+
+    public static Waybill newWaybill() {
+        return newWaybill(370155861609279488L);
+    }
+
+    public static Waybill newWaybill(long id) {
+        Waybill waybill = new Waybill();
+        waybill.setId(id);
+        waybill.setWaybillNo("WB" + id);
+        waybill.setCustomerId(1001L);
+        waybill.setSenderName("张三");
+        waybill.setSenderPhone("13800138000");
+        waybill.setSenderAddress("北京市海淀区中关村大街1号");
+        waybill.setReceiverName("李四");
+        waybill.setReceiverPhone("13900139000");
+        waybill.setReceiverAddress("上海市浦东新区世纪大道100号");
+        waybill.setGoodsType("电子产品");
+        waybill.setWeight(new BigDecimal("2.50"));
+        waybill.setVolume(new BigDecimal("0.0125"));
+        waybill.setAmount(new BigDecimal("50.00"));
+        waybill.setStatus(WaybillStatus.DELIVERING);
+        waybill.setWarehouseId(3L);
+        waybill.setDeliverymanId(7L);
+        waybill.setEstimatedArrivalTime(LocalDateTime.of(2025, 12, 6, 18, 0));
+        waybill.setCreateTime(LocalDateTime.of(2025, 12, 4, 15, 30));
+        waybill.setUpdateTime(LocalDateTime.of(2025, 12, 5, 9, 15));
+        return waybill;
+    }
+}
@@ -0,0 +1,150 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platform.distribution.benchmark.WaybillFixtures;
+import com.logistics.platform.distribution.waybill.config.RedisConfig;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * getByWaybillNo 的缓存查找：L1命中、L1未命中由Redis返回、运单不存在由Redis空值标记返回
+ * 默认启动嵌入式Redis（与基准测试共用CPU，L2的数值只用于版本间对比）；
+ * -Dbench.redis.host -Dbench.redis.port 可指向独立Redis，运行后留下的键30分钟内自动过期
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillCacheBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaybillCacheBenchmark {
+
+    private static final long BASE_ID = 370155861609279488L;
+
+    @Param({"json", "binary"})
+    String format;
+
+    @Param({"10000"})
+    int waybills;
+
+    private RedisServer redisServer;
+    private LettuceConnectionFactory connectionFactory;
+    private WaybillCache waybillCache;
+    //模拟数据库，只在两级缓存都未命中时访问
+    private final Map<String, Waybill> database = new HashMap<>();
+    private final Function<String, Optional<Waybill>> loader = waybillNo -> Optional.ofNullable(database.get(waybillNo));
+
+    @Setup
+    public void setup() throws IOException {
+        String host = System.getProperty("bench.redis.host");
+        int port;
+        if (host == null) {
+            host = "localhost";
+            port = freePort();
+            redisServer = new RedisServer(port);
+            redisServer.start();
+        } else {
+            port = Integer.getInteger("bench.redis.port", 6379);
+        }
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        connectionFactory.afterPropertiesSet();
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        waybillCache = new WaybillCache(Caffeine.newBuilder().maximumSize(waybills * 2L).build(),
+                new RedisConfig().redisTemplate(connectionFactory, format), stringRedisTemplate,
+                new WaybillBloomFilter(stringRedisTemplate, waybills * 10L, 0.001), Runnable::run, 1.0);
+
+        List<Waybill> batch = new ArrayList<>();
+        for (int i = 0; i < waybills; i++) {
+            Waybill waybill = WaybillFixtures.newWaybill(BASE_ID + i);
+            database.put(waybill.getWaybillNo(), waybill);
+            batch.add(waybill);
+            if (batch.size() == 1000) {
+                waybillCache.putAll(batch);
+                batch.clear();
+            }
+        }
+        waybillCache.putAll(batch);
+        //不存在的运单各查一次，写入空值标记
+        for (int i = 0; i < waybills; i++) {
+            waybillCache.get(absentNo(i), loader);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connectionFactory.destroy();
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @Benchmark
+    public Optional<Waybill> localHit() {
+        return waybillCache.get(existingNo(), loader);
+    }
+
+    /**
+     * 先失效L1再查询，包含一次管道往返和反序列化
+     */
+    @Benchmark
+    public Optional<Waybill> redisHit() {
+        String waybillNo = existingNo();
+        waybillCache.invalidateLocal(waybillNo);
+        return waybillCache.get(waybillNo, loader);
+    }
+
+    @Benchmark
+    public Optional<Waybill> redisNullMarker() {
+        String waybillNo = absentNo(ThreadLocalRandom.current().nextInt(waybills));
+        waybillCache.invalidateLocal(waybillNo);
+        return waybillCache.get(waybillNo, loader);
+    }
+
+    private String existingNo() {
+        return "WB" + (BASE_ID + ThreadLocalRandom.current().nextInt(waybills));
+    }
+
+    private static String absentNo(int i) {
+        return "WB" + (BASE_ID - 1 - i);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillCacheBenchmark.class, args);
+    }
+}
@@ -0,0 +1,121 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import brave.Tracing;
+import brave.sampler.Sampler;
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.micrometer.tracing.brave.bridge.BraveBaggageManager;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 埋点开销：与 WaybillServiceImpl 上 @Observed 的处理方式相同（不含AOP代理本身）
+ * baseline 为被测方法本身（约一次L1缓存命中的耗时），其余各项减去 baseline 即每次调用增加的开销
+ * traced 按采样率区分：未采样的请求只生成traceId并传递，采样的请求额外记录span（本测试不上报）
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar ObservationOverheadBenchmark，加 -prof gc 可查看分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservationOverheadBenchmark {
+
+    //模拟被测方法的工作量
+    private static final long WORK_TOKENS = 50;
+
+    private PrometheusMeterRegistry meterRegistry;
+    private Timer timer;
+    private ObservationRegistry metricsOnly;
+
+    @Setup
+    public void setup() {
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        //与观测产生的 waybill.service 标签不同，Prometheus要求同名指标标签一致，因此另起名称
+        timer = Timer.builder("waybill.service.timer")
+                .tag("method", "getByWaybillNo")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        metricsOnly = ObservationRegistry.create();
+        metricsOnly.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Traced {
+        @Param({"0.0", "0.1", "1.0"})
+        float sampling;
+
+        private Tracing tracing;
+        private ObservationRegistry registry;
+
+        @Setup
+        public void setup(ObservationOverheadBenchmark benchmark) {
+            tracing = Tracing.newBuilder().sampler(Sampler.create(sampling)).build();
+            BraveTracer tracer = new BraveTracer(tracing.tracer(),
+                    new BraveCurrentTraceContext(tracing.currentTraceContext()), new BraveBaggageManager());
+            registry = ObservationRegistry.create();
+            registry.observationConfig()
+                    .observationHandler(new DefaultMeterObservationHandler(benchmark.meterRegistry))
+                    .observationHandler(new DefaultTracingObservationHandler(tracer));
+        }
+
+        @TearDown
+        public void tearDown() {
+            tracing.close();
+        }
+    }
+
+    @Benchmark
+    public void baseline() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+    }
+
+    @Benchmark
+    public void timer() {
+        timer.record(() -> Blackhole.consumeCPU(WORK_TOKENS));
+    }
+
+    @Benchmark
+    public void observation() {
+        observe(metricsOnly);
+    }
+
+    @Benchmark
+    public void traced(Traced traced) {
+        observe(traced.registry);
+    }
+
+    private static void observe(ObservationRegistry registry) {
+        Observation.createNotStarted("waybill.service", registry)
+                .lowCardinalityKeyValue("method", "getByWaybillNo")
+                .observe(() -> Blackhole.consumeCPU(WORK_TOKENS));
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(ObservationOverheadBenchmark.class, args);
+    }
+}
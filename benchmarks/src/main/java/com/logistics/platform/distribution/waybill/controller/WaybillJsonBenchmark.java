@@ -0,0 +1,87 @@
+package com.logistics.platform.distribution.waybill.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platform.distribution.benchmark.WaybillFixtures;
+import com.logistics.platform.distribution.waybill.dto.WaybillPage;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器的请求/响应JSON映射：单条运单（查询、创建）和分页结果
+ * ObjectMapper 按 Spring Boot 默认配置构造，与 MappingJackson2HttpMessageConverter 使用的一致
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaybillJsonBenchmark {
+
+    //GET /waybill 的 pageSize
+    @Param({"20", "100"})
+    int pageSize;
+
+    private ObjectMapper objectMapper;
+    private Waybill waybill;
+    private WaybillPage page;
+    private byte[] requestBody;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        waybill = WaybillFixtures.newWaybill();
+        List<Waybill> items = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            items.add(WaybillFixtures.newWaybill(waybill.getId() + i));
+        }
+        page = new WaybillPage(items, items.get(items.size() - 1).getId(), true);
+        requestBody = objectMapper.writeValueAsBytes(waybill);
+    }
+
+    //GET /waybill/{waybillNo}
+    @Benchmark
+    public byte[] writeWaybill() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(waybill);
+    }
+
+    //GET /waybill
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    //POST /waybill
+    @Benchmark
+    public Waybill readWaybill() throws IOException {
+        return objectMapper.readValue(requestBody, Waybill.class);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillJsonBenchmark.class, args);
+    }
+}
@@ -0,0 +1,69 @@
+package com.logistics.platform.distribution.waybill.entity;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态更新热点路径上的解析+校验：legacy 为改造前的 Stream 遍历 + HashMap<Set> 实现
+ * 加 -prof gc 可对比每次操作的分配字节数（改造后应为0）
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillStatusBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaybillStatusBenchmark {
+
+    private static final Map<WaybillStatus, Set<WaybillStatus>> LEGACY_TRANSITIONS = new HashMap<>();
+
+    static {
+        LEGACY_TRANSITIONS.put(WaybillStatus.CREATED, Set.of(WaybillStatus.PICKED, WaybillStatus.CANCELLED));
+        LEGACY_TRANSITIONS.put(WaybillStatus.PICKED, Set.of(WaybillStatus.DELIVERING, WaybillStatus.CANCELLED));
+        LEGACY_TRANSITIONS.put(WaybillStatus.DELIVERING, Set.of(WaybillStatus.DELIVERED, WaybillStatus.CANCELLED));
+        LEGACY_TRANSITIONS.put(WaybillStatus.DELIVERED, Set.of());
+        LEGACY_TRANSITIONS.put(WaybillStatus.CANCELLED, Set.of());
+    }
+
+    // 请求中常见的大写、小写写法，CANCELLED 为枚举中最后一个常量（遍历最久）
+    @Param({"DELIVERING", "delivering", "CANCELLED"})
+    String target;
+
+    WaybillStatus current = WaybillStatus.PICKED;
+
+    @Benchmark
+    public boolean legacy() {
+        WaybillStatus status = Arrays.stream(WaybillStatus.values())
+                .filter(s -> s.name().equalsIgnoreCase(target))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("无效的运单状态：" + target));
+        return LEGACY_TRANSITIONS.get(current).contains(status);
+    }
+
+    @Benchmark
+    public boolean stateMachine() {
+        return current.canTransitionTo(WaybillStatus.fromString(target));
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillStatusBenchmark.class, "-prof", "gc");
+    }
+}
@@ -0,0 +1,62 @@
+package com.logistics.platform.distribution.waybill.generator;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运单号生成基准测试：对比原先的 时间戳+随机数 方案
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillNoGeneratorBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaybillNoGeneratorBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final WaybillNoGenerator generator = new WaybillNoGenerator(1);
+
+    @Benchmark
+    public String legacyTimestampRandom() {
+        return "WB" + LocalDateTime.now().format(FORMATTER) + (int) (Math.random() * 1000);
+    }
+
+    @Benchmark
+    public String snowflakeSingleThread() {
+        return generator.nextWaybillNo();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String snowflakeContended() {
+        return generator.nextWaybillNo();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long snowflakeIdContended() {
+        return generator.nextId();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillNoGeneratorBenchmark.class, args);
+    }
+}
@@ -0,0 +1,117 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 状态日志写入吞吐和时间线查询延迟，需要真实MySQL（先执行 db/waybill_status_log.sql 建表）
+ * 连接参数通过系统属性指定：-Dbench.jdbc.url -Dbench.jdbc.username -Dbench.jdbc.password
+ * 首次运行按 seedWaybills 预填数据，验证千万级日志时可调大该参数（只在表为空时预填）
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillStatusLogBenchmark
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WaybillStatusLogBenchmark {
+
+    private static final WaybillStatus[] CHAIN = {WaybillStatus.CREATED, WaybillStatus.PICKED,
+            WaybillStatus.DELIVERING, WaybillStatus.DELIVERED};
+
+    @Param({"1000"})
+    int batchSize;
+
+    @Param({"100000"})
+    int seedWaybills;
+
+    private WaybillStatusLogRepository repository;
+
+    @Setup
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                System.getProperty("bench.jdbc.url", "jdbc:mysql://localhost:3306/ldmp?useSSL=false" +
+                        "&serverTimezone=UTC&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true"),
+                System.getProperty("bench.jdbc.username", "root"),
+                System.getProperty("bench.jdbc.password", "1234"));
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        repository = new WaybillStatusLogRepository(jdbcTemplate);
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM waybill_status_log", Long.class);
+        if (count != null && count == 0) {
+            List<WaybillStatusLog> logs = new ArrayList<>(batchSize);
+            for (int i = 0; i < seedWaybills; i++) {
+                addChain(logs, waybillNo(i));
+                if (logs.size() >= batchSize) {
+                    repository.batchAppend(logs);
+                    logs.clear();
+                }
+            }
+            if (!logs.isEmpty()) {
+                repository.batchAppend(logs);
+            }
+        }
+    }
+
+    /**
+     * 批量追加，每次写入 batchSize 条，吞吐×batchSize 即每秒写入日志条数
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public int[] batchAppend() {
+        List<WaybillStatusLog> logs = new ArrayList<>(batchSize);
+        while (logs.size() < batchSize) {
+            addChain(logs, "WB" + System.nanoTime() + ThreadLocalRandom.current().nextInt(1000));
+        }
+        return repository.batchAppend(logs);
+    }
+
+    /**
+     * 随机运单的时间线查询，走 idx_waybill_no_id 索引
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Threads(8)
+    public List<WaybillStatusLog> findTimeline() {
+        return repository.findTimeline(waybillNo(ThreadLocalRandom.current().nextInt(seedWaybills)));
+    }
+
+    private static String waybillNo(int i) {
+        return "WB" + (100000000L + i);
+    }
+
+    private static void addChain(List<WaybillStatusLog> logs, String waybillNo) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int step = 1; step < CHAIN.length; step++) {
+            logs.add(WaybillStatusLog.of(waybillNo, CHAIN[step - 1], CHAIN[step], now, now));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillStatusLogBenchmark.class, args);
+    }
+}
@@ -0,0 +1,142 @@
+package com.logistics.platform.distribution.waybill.search;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platform.distribution.benchmark.WaybillFixtures;
+import com.logistics.platform.distribution.waybill.dto.WaybillSearchHit;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 运单搜索延迟：临时目录中建 waybills 条随机运单的索引（姓名、电话、地址随机组合），
+ * 分别测电话尾号、电话前缀、地址分词和带状态过滤的查询，每次取前20条
+ * 建索引耗时较长，验证千万级时调大 waybills 并相应增大堆（-jvmArgs -Xmx8g）
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class WaybillSearchBenchmark {
+
+    private static final String[] SURNAMES = {"张", "王", "李", "赵", "刘", "陈", "杨", "黄", "周", "吴"};
+    private static final String[] GIVEN_NAMES = {"伟", "芳", "娜", "敏", "静", "磊", "洋", "勇", "军", "杰", "强", "丽"};
+    private static final String[] CITIES = {"北京市海淀区", "上海市浦东新区", "广州市天河区", "深圳市南山区", "杭州市西湖区",
+            "成都市武侯区", "武汉市洪山区", "南京市鼓楼区"};
+    private static final String[] ROADS = {"中关村大街", "世纪大道", "体育西路", "科技园路", "文三路", "人民南路", "珞喻路",
+            "中山北路"};
+    private static final String[] GOODS = {"电子产品", "生鲜", "文件", "服装", "图书", "日用品"};
+    private static final int LIMIT = 20;
+
+    @Param({"1000000"})
+    int waybills;
+
+    private Path dir;
+    private WaybillSearchIndex index;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("waybill-search-bench");
+        index = WaybillSearchIndex.open(dir);
+        Random random = new Random(42);
+        List<Waybill> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < waybills; i++) {
+            Waybill waybill = WaybillFixtures.newWaybill(370155861609279488L + i);
+            waybill.setSenderName(name(random));
+            waybill.setSenderPhone(phone(random));
+            waybill.setReceiverName(name(random));
+            waybill.setReceiverPhone(phone(random));
+            waybill.setReceiverAddress(CITIES[random.nextInt(CITIES.length)] + ROADS[random.nextInt(ROADS.length)]
+                    + (1 + random.nextInt(500)) + "号");
+            waybill.setGoodsType(GOODS[random.nextInt(GOODS.length)]);
+            waybill.setStatus(WaybillStatus.values()[random.nextInt(WaybillStatus.values().length)]);
+            batch.add(waybill);
+            if (batch.size() == 10_000) {
+                index.index(batch);
+                batch.clear();
+            }
+        }
+        index.index(batch);
+        index.commit(Map.of());
+        index.refresh();
+    }
+
+    private static String name(Random random) {
+        return SURNAMES[random.nextInt(SURNAMES.length)] + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)];
+    }
+
+    private static String phone(Random random) {
+        return "1" + (30 + random.nextInt(60)) + String.format("%08d", random.nextInt(100_000_000));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * 电话尾号4位，每次随机
+     */
+    @Benchmark
+    public List<WaybillSearchHit> phoneSuffix() {
+        return index.search(String.format("%04d", ThreadLocalRandom.current().nextInt(10_000)), null, LIMIT);
+    }
+
+    /**
+     * 电话前7位（号段+地区）
+     */
+    @Benchmark
+    public List<WaybillSearchHit> phonePrefix() {
+        return index.search("1" + (30 + ThreadLocalRandom.current().nextInt(60))
+                + String.format("%04d", ThreadLocalRandom.current().nextInt(10_000)), null, LIMIT);
+    }
+
+    @Benchmark
+    public List<WaybillSearchHit> address() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.search(CITIES[random.nextInt(CITIES.length)] + ROADS[random.nextInt(ROADS.length)], null, LIMIT);
+    }
+
+    @Benchmark
+    public List<WaybillSearchHit> nameWithStatus() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.search(SURNAMES[random.nextInt(SURNAMES.length)] + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)],
+                WaybillStatus.DELIVERING, LIMIT);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillSearchBenchmark.class, args);
+    }
+}
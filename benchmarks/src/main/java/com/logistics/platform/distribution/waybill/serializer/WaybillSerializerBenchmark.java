@@ -0,0 +1,73 @@
+package com.logistics.platform.distribution.waybill.serializer;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platform.distribution.benchmark.WaybillFixtures;
+import com.logistics.platform.distribution.waybill.config.RedisConfig;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运单缓存序列化基准测试：RedisConfig 中两种写入格式的编解码耗时，每条缓存的字节数在启动时打印
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillSerializerBenchmark，加 -prof gc 可查看每次操作的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WaybillSerializerBenchmark {
+
+    private WaybillRedisSerializer jsonSerializer;
+    private WaybillRedisSerializer binarySerializer;
+    private Waybill waybill;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+
+    @Setup
+    public void setup() {
+        jsonSerializer = RedisConfig.waybillSerializer("json");
+        binarySerializer = RedisConfig.waybillSerializer("binary");
+        waybill = WaybillFixtures.newWaybill();
+        jsonBytes = jsonSerializer.serialize(waybill);
+        binaryBytes = binarySerializer.serialize(waybill);
+        System.out.printf("%nbytes/entry: json=%d binary=%d%n", jsonBytes.length, binaryBytes.length);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(waybill);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize(waybill);
+    }
+
+    @Benchmark
+    public Waybill jsonDeserialize() {
+        return jsonSerializer.deserialize(jsonBytes);
+    }
+
+    @Benchmark
+    public Waybill binaryDeserialize() {
+        return binarySerializer.deserialize(binaryBytes);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillSerializerBenchmark.class, args);
+    }
+}
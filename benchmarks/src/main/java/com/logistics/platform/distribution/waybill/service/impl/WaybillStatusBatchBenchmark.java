@@ -0,0 +1,230 @@
+package com.logistics.platform.distribution.waybill.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platform.distribution.waybill.cache.WaybillCache;
+import com.logistics.platform.distribution.waybill.dto.WaybillBatchResult;
+import com.logistics.platform.distribution.waybill.dto.WaybillStatusEvent;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.outbox.WaybillOutbox;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillOutboxRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillStatusLogRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 批量状态更新与逐条调用的对比：数据库和Redis用内存实现，每次网络往返按 rttMicros 计时
+ * 逐条路径每个事件约6次往返（读缓存、条件更新、写状态日志、写发件箱、DEL、PUBLISH），批量路径每1000条约5次
+ * 只反映往返次数的差异，真实吞吐以压测环境为准
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillStatusBatchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WaybillStatusBatchBenchmark {
+
+    @Param({"100", "1000"})
+    int events;
+
+    @Param({"200"})
+    long rttMicros;
+
+    private final Map<String, WaybillStatus> table = new ConcurrentHashMap<>();
+    private List<WaybillStatusEvent> batch;
+    private WaybillServiceImpl waybillService;
+
+    @Setup
+    public void setup() {
+        batch = new ArrayList<>(events);
+        for (int i = 0; i < events; i++) {
+            batch.add(new WaybillStatusEvent("WB" + (1000 + i), "PICKED", LocalDateTime.now()));
+        }
+        WaybillRepository waybillRepository = mock(WaybillRepository.class, withSettings().stubOnly());
+        when(waybillRepository.findByWaybillNo(anyString())).thenAnswer(invocation -> {
+            roundTrip();
+            return Optional.of(row(invocation.getArgument(0)));
+        });
+        waybillService = new WaybillServiceImpl(waybillRepository, new InMemoryJdbcRepository(),
+                new InMemoryCache(), null, null, new InMemoryStatusLogRepository(),
+                TransactionOperations.withoutTransaction(),
+                new WaybillOutbox(new InMemoryOutboxRepository(), new ObjectMapper().registerModule(new JavaTimeModule())));
+    }
+
+    //每次调用前把运单重置为CREATED
+    @Setup(Level.Invocation)
+    public void reset() {
+        for (WaybillStatusEvent event : batch) {
+            table.put(event.getWaybillNo(), WaybillStatus.CREATED);
+        }
+    }
+
+    @Benchmark
+    public int perItem() {
+        int updated = 0;
+        for (WaybillStatusEvent event : batch) {
+            waybillService.updateWaybillStatus(event.getWaybillNo(), event.getStatus());
+            updated++;
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public WaybillBatchResult batch() {
+        return waybillService.batchUpdateWaybillStatus(batch);
+    }
+
+    private void roundTrip() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(rttMicros));
+    }
+
+    private Waybill row(String waybillNo) {
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo(waybillNo);
+        waybill.setStatus(table.get(waybillNo));
+        return waybill;
+    }
+
+    private class InMemoryJdbcRepository extends WaybillJdbcRepository {
+        InMemoryJdbcRepository() {
+            super(null);
+        }
+
+        @Override
+        public int updateStatus(String waybillNo, WaybillStatus expected, WaybillStatus target,
+                                LocalDateTime updateTime, LocalDateTime actualArrivalTime) {
+            roundTrip();
+            return table.replace(waybillNo, expected, target) ? 1 : 0;
+        }
+
+        @Override
+        public Map<String, WaybillStatus> findStatuses(Collection<String> waybillNos) {
+            //每1000个运单号一次IN查询
+            for (int i = 0; i < waybillNos.size(); i += 1000) {
+                roundTrip();
+            }
+            Map<String, WaybillStatus> statuses = new HashMap<>();
+            for (String waybillNo : waybillNos) {
+                statuses.put(waybillNo, table.get(waybillNo));
+            }
+            return statuses;
+        }
+
+        @Override
+        public int[] batchUpdateStatus(List<StatusChange> changes) {
+            roundTrip();
+            int[] counts = new int[changes.size()];
+            for (int i = 0; i < counts.length; i++) {
+                StatusChange change = changes.get(i);
+                counts[i] = table.replace(change.getWaybillNo(), change.getExpected(), change.getTarget()) ? 1 : 0;
+            }
+            return counts;
+        }
+    }
+
+    //状态日志与条件更新在同一事务中，多一次往返
+    private class InMemoryStatusLogRepository extends WaybillStatusLogRepository {
+        InMemoryStatusLogRepository() {
+            super(null);
+        }
+
+        @Override
+        public int append(WaybillStatusLog log) {
+            roundTrip();
+            return 1;
+        }
+
+        @Override
+        public int[] batchAppend(List<WaybillStatusLog> logs) {
+            roundTrip();
+            return new int[logs.size()];
+        }
+    }
+
+    private class InMemoryOutboxRepository extends WaybillOutboxRepository {
+        InMemoryOutboxRepository() {
+            super(null);
+        }
+
+        @Override
+        public int append(WaybillOutboxEvent event) {
+            roundTrip();
+            return 1;
+        }
+
+        @Override
+        public int[] batchAppend(List<WaybillOutboxEvent> events) {
+            roundTrip();
+            return new int[events.size()];
+        }
+    }
+
+    private class InMemoryCache extends WaybillCache {
+        InMemoryCache() {
+            super(null, null, null, null, null, 1.0);
+        }
+
+        @Override
+        public Optional<Waybill> get(String waybillNo, Function<String, Optional<Waybill>> loader) {
+            roundTrip();
+            return Optional.of(row(waybillNo));
+        }
+
+        @Override
+        public void evict(String waybillNo) {
+            //DEL + PUBLISH
+            roundTrip();
+            roundTrip();
+        }
+
+        @Override
+        public void evictAll(Collection<String> waybillNos) {
+            roundTrip();
+            for (int i = 0; i < waybillNos.size(); i += 500) {
+                roundTrip();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillStatusBatchBenchmark.class, args);
+    }
+}
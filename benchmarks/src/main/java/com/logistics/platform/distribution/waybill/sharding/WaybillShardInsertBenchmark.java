@@ -0,0 +1,112 @@
+package com.logistics.platform.distribution.waybill.sharding;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platform.distribution.benchmark.WaybillFixtures;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分表数对并发批量插入吞吐的影响：8个线程各自批量插入，运单按桶取模均匀分布到 tables 张分表
+ * 默认使用H2内存库（每组参数重建分表），只反映同一张表上索引和锁竞争的差异；
+ * 指定 -Dbench.jdbc.url（及 username/password）时改用真实MySQL，需先执行 db/waybill_shard.sql 建好分表，不会清理数据
+ * 吞吐×batchSize 即每秒插入运单数
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillShardInsertBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class WaybillShardInsertBenchmark {
+
+    private static final int THREADS = 8;
+
+    @Param({"1", "2", "4"})
+    int tables;
+
+    @Param({"100"})
+    int batchSize;
+
+    private final WaybillNoGenerator generator = new WaybillNoGenerator(1);
+    private HikariDataSource dataSource;
+    private WaybillJdbcRepository repository;
+    private boolean embedded;
+
+    @Setup
+    public void setup() {
+        String url = System.getProperty("bench.jdbc.url");
+        embedded = url == null;
+        dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(THREADS);
+        if (embedded) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:shard-insert;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        } else {
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(System.getProperty("bench.jdbc.username", "root"));
+            dataSource.setPassword(System.getProperty("bench.jdbc.password", "1234"));
+        }
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (embedded) {
+            for (int shard = 0; shard < tables; shard++) {
+                jdbcTemplate.execute("CREATE TABLE " + WaybillShardRouter.tableName(shard) + " (id BIGINT PRIMARY KEY, " +
+                        "waybill_no VARCHAR(32) NOT NULL UNIQUE, customer_id BIGINT, sender_name VARCHAR(64), " +
+                        "sender_phone VARCHAR(32), sender_address VARCHAR(255), receiver_name VARCHAR(64), " +
+                        "receiver_phone VARCHAR(32), receiver_address VARCHAR(255), goods_type VARCHAR(32), " +
+                        "weight DECIMAL(10,2), volume DECIMAL(10,4), amount DECIMAL(10,2), status INT, " +
+                        "warehouse_id BIGINT, deliveryman_id BIGINT, estimated_arrival_time TIMESTAMP, " +
+                        "actual_arrival_time TIMESTAMP, create_time TIMESTAMP, update_time TIMESTAMP)");
+                jdbcTemplate.execute("CREATE INDEX idx_" + WaybillShardRouter.tableName(shard) + "_customer ON " +
+                        WaybillShardRouter.tableName(shard) + " (customer_id)");
+            }
+        }
+        repository = new WaybillJdbcRepository(jdbcTemplate, WaybillShardRouter.modulo(tables), null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (embedded) {
+            new JdbcTemplate(dataSource).execute("DROP ALL OBJECTS");
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(THREADS)
+    public int[] batchInsert() {
+        List<Waybill> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            long id = generator.nextId();
+            Waybill waybill = WaybillFixtures.newWaybill(id);
+            waybill.setWaybillNo(WaybillNoGenerator.toWaybillNo(id));
+            batch.add(waybill);
+        }
+        return repository.batchInsert(batch);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillShardInsertBenchmark.class, args);
+    }
+}
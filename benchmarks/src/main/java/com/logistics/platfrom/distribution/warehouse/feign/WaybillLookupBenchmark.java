@@ -0,0 +1,176 @@
+package com.logistics.platfrom.distribution.warehouse.feign;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 扫描入库中调用运单服务的吞吐：scanners 个扫描线程各自查询运单再更新状态，每次调用共 SCANS 个包裹，结果为每秒完成的包裹数
+ * direct 为改造前逐个 GET /waybill/{no}，batched 经 BatchingWaybillClient 合并为 /waybill/batch-get（最多 maxConcurrentBatches 批在途）
+ * 运单服务用内存实现模拟：每次调用耗时 rttMicros 加每个运单 PER_ITEM_MICROS，同时处理的请求数不超过 CONNECTIONS（连接池上限），
+ * 实际收益取决于线上的往返耗时，可用 -p rttMicros=... 调整
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WaybillLookupBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class WaybillLookupBenchmark {
+
+    private static final int SCANS = 2000;
+    private static final int CONNECTIONS = 32;
+    private static final long PER_ITEM_MICROS = 20;
+
+    @Param({"1", "16", "64"})
+    int scanners;
+
+    @Param({"2000"})
+    long rttMicros;
+
+    @Param({"8"})
+    int maxConcurrentBatches;
+
+    private final AtomicLong waybillSeq = new AtomicLong();
+    private SimulatedWaybillService waybillService;
+    private BatchingWaybillClient batchingClient;
+    private ExecutorService fetchExecutor;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() {
+        waybillService = new SimulatedWaybillService(rttMicros);
+        fetchExecutor = Executors.newFixedThreadPool(maxConcurrentBatches);
+        batchingClient = new BatchingWaybillClient(waybillService, new CircuitBreaker() {
+            @Override
+            public <T> T run(Supplier<T> toRun, Function<Throwable, T> fallback) {
+                return toRun.get();
+            }
+        }, Caffeine.newBuilder().maximumSize(50_000).expireAfterWrite(Duration.ofSeconds(10)).build(),
+                200, maxConcurrentBatches, fetchExecutor);
+        executor = Executors.newFixedThreadPool(scanners);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fetchExecutor.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCANS)
+    public void direct() throws InterruptedException, ExecutionException {
+        scan(waybillNo -> {
+            waybillService.getWaybillByNo(waybillNo);
+            waybillService.updateWaybillStatus(waybillNo, "PICKED");
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCANS)
+    public void batched() throws InterruptedException, ExecutionException {
+        scan(waybillNo -> {
+            batchingClient.get(waybillNo).orElseThrow();
+            batchingClient.updateStatus(waybillNo, "PICKED");
+        });
+    }
+
+    private void scan(Consumer<String> inbound) throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>(scanners);
+        for (int scanner = 0; scanner < scanners; scanner++) {
+            int parcels = SCANS / scanners + (scanner < SCANS % scanners ? 1 : 0);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < parcels; i++) {
+                    inbound.accept("SF" + waybillSeq.incrementAndGet());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    //每个运单号都存在，按调用耗时和连接数上限模拟远程调用
+    private static final class SimulatedWaybillService implements WaybillServiceFeignClient {
+
+        private final long rttNanos;
+        private final Semaphore connections = new Semaphore(CONNECTIONS);
+
+        private SimulatedWaybillService(long rttMicros) {
+            this.rttNanos = TimeUnit.MICROSECONDS.toNanos(rttMicros);
+        }
+
+        @Override
+        public WaybillDTO getWaybillByNo(String waybillNo) {
+            call(1);
+            return waybill(waybillNo, "CREATED");
+        }
+
+        @Override
+        public List<WaybillDTO> getWaybillsByNos(List<String> waybillNos) {
+            call(waybillNos.size());
+            List<WaybillDTO> waybills = new ArrayList<>(waybillNos.size());
+            for (String waybillNo : waybillNos) {
+                waybills.add(waybill(waybillNo, "CREATED"));
+            }
+            return waybills;
+        }
+
+        @Override
+        public WaybillDTO updateWaybillStatus(String waybillNo, String status) {
+            call(1);
+            return waybill(waybillNo, status);
+        }
+
+        private void call(int items) {
+            connections.acquireUninterruptibly();
+            try {
+                LockSupport.parkNanos(rttNanos + TimeUnit.MICROSECONDS.toNanos(PER_ITEM_MICROS) * items);
+            } finally {
+                connections.release();
+            }
+        }
+
+        private static WaybillDTO waybill(String waybillNo, String status) {
+            WaybillDTO waybill = new WaybillDTO();
+            waybill.setWaybillNo(waybillNo);
+            waybill.setStatus(status);
+            return waybill;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WaybillLookupBenchmark.class, args);
+    }
+}
@@ -0,0 +1,154 @@
+package com.logistics.platfrom.distribution.warehouse.inventory;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 库存引擎在并发扫描下的吞吐：scanners 个扫描线程同时对随机库位做完整的入库（预占+确认）和出库（预占+确认），
+ * 每次调用共 SCANS 个包裹，结果为每秒完成的包裹数；locations=1 时全部扫描争用同一库位行，对比分散到多个库位时的差异
+ * 默认使用H2内存库，只反映行锁排队的趋势；指定 -Dbench.jdbc.url（及 username/password）时改用真实MySQL，
+ * 需先执行 warehouse-service 的 db/inventory.sql 建表，结束时删除本次插入的库位、库存和库位计数变更
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar InventoryContentionBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class InventoryContentionBenchmark {
+
+    private static final int SCANS = 1000;
+
+    @Param({"1", "4", "16", "64"})
+    int scanners;
+
+    @Param({"1", "64"})
+    int locations;
+
+    private final AtomicLong waybillSeq = new AtomicLong();
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private InventoryEngine engine;
+    private ExecutorService executor;
+    private boolean embedded;
+    private long warehouseId;
+    private long[] locationIds;
+
+    @Setup
+    public void setup() {
+        String url = System.getProperty("bench.jdbc.url");
+        embedded = url == null;
+        dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(scanners);
+        if (embedded) {
+            dataSource.setJdbcUrl("jdbc:h2:mem:inventory;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;" +
+                    "LOCK_TIMEOUT=60000");
+        } else {
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(System.getProperty("bench.jdbc.username", "root"));
+            dataSource.setPassword(System.getProperty("bench.jdbc.password", "1234"));
+        }
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        if (embedded) {
+            jdbcTemplate.execute("CREATE TABLE storage_location (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "warehouse_id BIGINT NOT NULL, location_code VARCHAR(32) NOT NULL, zone VARCHAR(16), " +
+                    "capacity INT NOT NULL, occupied INT NOT NULL DEFAULT 0, reserved INT NOT NULL DEFAULT 0, " +
+                    "max_weight DECIMAL(10,2), max_volume DECIMAL(10,4))");
+            jdbcTemplate.execute("CREATE TABLE inventory (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "warehouse_id BIGINT NOT NULL, location_id BIGINT NOT NULL, " +
+                    "waybill_no VARCHAR(32) NOT NULL UNIQUE, status TINYINT NOT NULL, weight DECIMAL(10,2), " +
+                    "volume DECIMAL(10,4), inbound_time TIMESTAMP, create_time TIMESTAMP NOT NULL, " +
+                    "update_time TIMESTAMP NOT NULL)");
+            jdbcTemplate.execute("CREATE TABLE inventory_change (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "location_id BIGINT NOT NULL, reserved_delta INT NOT NULL, occupied_delta INT NOT NULL, " +
+                    "create_time TIMESTAMP NOT NULL)");
+        }
+        //每组参数使用单独的仓库ID，真实库中不与已有数据冲突
+        warehouseId = System.currentTimeMillis();
+        locationIds = new long[locations];
+        for (int i = 0; i < locations; i++) {
+            jdbcTemplate.update("INSERT INTO storage_location (warehouse_id, location_code, capacity, occupied, " +
+                    "reserved) VALUES (?, ?, ?, 0, 0)", warehouseId, "BENCH-" + i, Integer.MAX_VALUE / 2);
+            locationIds[i] = jdbcTemplate.queryForObject("SELECT id FROM storage_location WHERE warehouse_id = ? " +
+                    "AND location_code = ?", Long.class, warehouseId, "BENCH-" + i);
+        }
+        engine = new InventoryEngine(new InventoryJdbcRepository(jdbcTemplate),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+        executor = Executors.newFixedThreadPool(scanners);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        if (embedded) {
+            jdbcTemplate.execute("DROP ALL OBJECTS");
+        } else {
+            jdbcTemplate.update("DELETE FROM inventory WHERE warehouse_id = ?", warehouseId);
+            jdbcTemplate.update("DELETE FROM inventory_change WHERE location_id IN " +
+                    "(SELECT id FROM storage_location WHERE warehouse_id = ?)", warehouseId);
+            jdbcTemplate.update("DELETE FROM storage_location WHERE warehouse_id = ?", warehouseId);
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCANS)
+    public void inboundOutbound() throws InterruptedException, ExecutionException {
+        List<Future<?>> futures = new ArrayList<>(scanners);
+        for (int scanner = 0; scanner < scanners; scanner++) {
+            int parcels = SCANS / scanners + (scanner < SCANS % scanners ? 1 : 0);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < parcels; i++) {
+                    scan();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    private void scan() {
+        String waybillNo = "BENCH" + warehouseId + "-" + waybillSeq.incrementAndGet();
+        long locationId = locationIds[ThreadLocalRandom.current().nextInt(locationIds.length)];
+        engine.reserveInbound(warehouseId, locationId, waybillNo, BigDecimal.ONE, BigDecimal.ONE);
+        engine.confirmInbound(waybillNo);
+        engine.reserveOutbound(waybillNo);
+        engine.confirmOutbound(waybillNo);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(InventoryContentionBenchmark.class, args);
+    }
+}
@@ -0,0 +1,136 @@
+package com.logistics.platfrom.distribution.warehouse.location;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上架分配库位的延迟：一个仓库 slots 个库位，6个库区 × 8种体积 × 5种承重规格，每个库位4个空位、随机已占用一部分
+ * 每次按随机重量、体积分配一个库位后立即归还，使空位数保持稳定；
+ * linearScan 为对照，逐个比较全部库位找最佳适配，相当于每个包裹扫描一次库位表
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar FreeSlotIndexBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class FreeSlotIndexBenchmark {
+
+    private static final long WAREHOUSE_ID = 1;
+    private static final String[] ZONES = {"A", "B", "C", "D", "E", "F"};
+    //体积上限(m³)，承重上限(kg)
+    private static final double[] VOLUMES = {0.005, 0.01, 0.02, 0.05, 0.1, 0.2, 0.5, 1.0};
+    private static final double[] WEIGHTS = {2, 5, 10, 20, 50};
+    private static final int CAPACITY = 4;
+
+    @Param({"10000", "100000", "1000000"})
+    int slots;
+
+    private FreeSlotIndex index;
+    private List<StorageLocation> locations;
+    private int[] free;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        locations = new ArrayList<>(slots);
+        free = new int[slots];
+        for (int i = 0; i < slots; i++) {
+            StorageLocation location = new StorageLocation();
+            location.setId((long) i);
+            location.setWarehouseId(WAREHOUSE_ID);
+            location.setLocationCode("L" + i);
+            location.setZone(ZONES[random.nextInt(ZONES.length)]);
+            location.setCapacity(CAPACITY);
+            location.setOccupied(random.nextInt(CAPACITY + 1));
+            location.setReserved(0);
+            location.setMaxVolume(BigDecimal.valueOf(VOLUMES[random.nextInt(VOLUMES.length)]));
+            location.setMaxWeight(BigDecimal.valueOf(WEIGHTS[random.nextInt(WEIGHTS.length)]));
+            locations.add(location);
+            free[i] = CAPACITY - location.getOccupied();
+        }
+        index = new FreeSlotIndex();
+        index.load(locations);
+    }
+
+    private static BigDecimal randomWeight(ThreadLocalRandom random) {
+        return BigDecimal.valueOf(random.nextInt(1, 40_000), 3);
+    }
+
+    private static BigDecimal randomVolume(ThreadLocalRandom random) {
+        return BigDecimal.valueOf(random.nextInt(1, 800_000), 6);
+    }
+
+    @Benchmark
+    public Long allocateRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long locationId = index.allocate(WAREHOUSE_ID, null, randomWeight(random), randomVolume(random));
+        if (locationId != null) {
+            index.release(locationId);
+        }
+        return locationId;
+    }
+
+    @Benchmark
+    public Long allocateReleaseInZone() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long locationId = index.allocate(WAREHOUSE_ID, ZONES[random.nextInt(ZONES.length)], randomWeight(random),
+                randomVolume(random));
+        if (locationId != null) {
+            index.release(locationId);
+        }
+        return locationId;
+    }
+
+    /**
+     * 8个扫描线程同时分配同一仓库，观察仓库锁的排队
+     */
+    @Benchmark
+    @Threads(8)
+    public Long allocateReleaseContended() {
+        return allocateRelease();
+    }
+
+    @Benchmark
+    public Long linearScan() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        BigDecimal weight = randomWeight(random);
+        BigDecimal volume = randomVolume(random);
+        StorageLocation best = null;
+        for (int i = 0; i < slots; i++) {
+            StorageLocation location = locations.get(i);
+            if (free[i] > 0 && location.getMaxVolume().compareTo(volume) >= 0
+                    && location.getMaxWeight().compareTo(weight) >= 0
+                    && (best == null || location.getMaxVolume().compareTo(best.getMaxVolume()) < 0)) {
+                best = location;
+            }
+        }
+        return best == null ? null : best.getId();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(FreeSlotIndexBenchmark.class, args);
+    }
+}
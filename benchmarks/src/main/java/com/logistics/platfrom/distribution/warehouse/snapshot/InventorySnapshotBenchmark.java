@@ -0,0 +1,98 @@
+package com.logistics.platfrom.distribution.warehouse.snapshot;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platfrom.distribution.warehouse.entity.InventorySnapshot;
+import com.logistics.platfrom.distribution.warehouse.repository.InventorySnapshotJdbcRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 看板读取一个仓库库存统计的耗时：scan 为按仓库对 storage_location 现场汇总（原做法，随库位数线性增长），
+ * snapshot 为按主键读取 inventory_snapshot 的一行；仓库有 locations 个库位，另有同样多库位的其他仓库
+ * H2内存库，不含行锁和磁盘IO，真实库上现场汇总还会与入库出库的条件更新争用
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar InventorySnapshotBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InventorySnapshotBenchmark {
+
+    private static final long WAREHOUSE_ID = 1;
+
+    @Param({"10000", "100000"})
+    int locations;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private InventorySnapshotJdbcRepository snapshotJdbcRepository;
+
+    @Setup
+    public void setup() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:snapshot;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE storage_location (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "warehouse_id BIGINT NOT NULL, location_code VARCHAR(32) NOT NULL, capacity INT NOT NULL, " +
+                "occupied INT NOT NULL DEFAULT 0, reserved INT NOT NULL DEFAULT 0)");
+        jdbcTemplate.execute("CREATE INDEX idx_warehouse_id ON storage_location (warehouse_id)");
+        jdbcTemplate.execute("CREATE TABLE inventory_snapshot (warehouse_id BIGINT PRIMARY KEY, " +
+                "location_count INT NOT NULL DEFAULT 0, capacity BIGINT NOT NULL DEFAULT 0, " +
+                "occupied BIGINT NOT NULL DEFAULT 0, reserved BIGINT NOT NULL DEFAULT 0, reconcile_time TIMESTAMP, " +
+                "update_time TIMESTAMP NOT NULL)");
+        List<Object[]> rows = new ArrayList<>(locations * 2);
+        for (long warehouseId = WAREHOUSE_ID; warehouseId <= WAREHOUSE_ID + 1; warehouseId++) {
+            for (int i = 0; i < locations; i++) {
+                rows.add(new Object[]{warehouseId, "A-" + i, 20, i % 20, i % 3});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO storage_location (warehouse_id, location_code, capacity, occupied, " +
+                "reserved) VALUES (?, ?, ?, ?, ?)", rows);
+        jdbcTemplate.update("INSERT INTO inventory_snapshot (warehouse_id, location_count, capacity, occupied, " +
+                "reserved, update_time) SELECT warehouse_id, COUNT(*), SUM(capacity), SUM(occupied), SUM(reserved), " +
+                "NOW() FROM storage_location WHERE warehouse_id = ? GROUP BY warehouse_id", WAREHOUSE_ID);
+        snapshotJdbcRepository = new InventorySnapshotJdbcRepository(jdbcTemplate);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> scan() {
+        return jdbcTemplate.queryForMap("SELECT COUNT(*), SUM(capacity), SUM(occupied), SUM(reserved) " +
+                "FROM storage_location WHERE warehouse_id = ?", WAREHOUSE_ID);
+    }
+
+    @Benchmark
+    public InventorySnapshot snapshot() {
+        return snapshotJdbcRepository.findSnapshot(WAREHOUSE_ID).orElseThrow();
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(InventorySnapshotBenchmark.class, args);
+    }
+}
@@ -0,0 +1,96 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import com.logistics.platform.distribution.benchmark.BenchmarkRunner;
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 波次规划耗时：合成 layout（巷道数x每巷道货位数）的仓库，orders 个在库包裹随机分布在各库位，
+ * 随机分配到 AREAS 个区县、deliverymen 个配送员和当天10小时内的预计送达时间，按2小时时间段、每波次200件规划
+ * parallel=false 为串行分组和排序，对比并行的收益（取决于CPU核数）
+ * 运行：执行main方法，或 java -jar benchmarks/target/benchmarks.jar WavePlannerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WavePlannerBenchmark {
+
+    private static final String[] AREAS = {"北京市海淀区", "北京市朝阳区", "北京市东城区", "北京市西城区", "北京市丰台区",
+            "北京市昌平区"};
+
+    @Param({"10000", "100000"})
+    int orders;
+
+    @Param({"20x50", "100x100"})
+    String layout;
+
+    @Param({"20"})
+    int deliverymen;
+
+    @Param({"true", "false"})
+    boolean parallel;
+
+    private WarehouseLayout warehouseLayout;
+    private List<WaveOrder> waveOrders;
+    private WavePlanner planner;
+
+    @Setup
+    public void setup() {
+        String[] size = layout.split("x");
+        int aisles = Integer.parseInt(size[0]);
+        int bays = Integer.parseInt(size[1]);
+        List<StorageLocation> locations = new ArrayList<>(aisles * bays);
+        for (int aisle = 1; aisle <= aisles; aisle++) {
+            for (int bay = 1; bay <= bays; bay++) {
+                StorageLocation location = new StorageLocation();
+                location.setId(aisle * 100_000L + bay);
+                location.setWarehouseId(1L);
+                location.setZone(aisle <= aisles / 2 ? "A" : "B");
+                location.setLocationCode(String.format("%s-%03d-%03d", aisle <= aisles / 2 ? "A" : "B", aisle, bay));
+                locations.add(location);
+            }
+        }
+        warehouseLayout = WarehouseLayout.of(locations);
+
+        Random random = new Random(42);
+        LocalDateTime morning = LocalDateTime.of(2025, 6, 1, 8, 0);
+        waveOrders = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            long locationId = (1 + random.nextInt(aisles)) * 100_000L + 1 + random.nextInt(bays);
+            waveOrders.add(new WaveOrder("SF" + (1_000_000_000L + i), locationId, AREAS[random.nextInt(AREAS.length)],
+                    (long) random.nextInt(deliverymen), morning.plusMinutes(random.nextInt(600))));
+        }
+        planner = new WavePlanner(Duration.ofHours(2), 200, parallel);
+    }
+
+    @Benchmark
+    public List<Wave> plan() {
+        return planner.plan("BENCH", 1L, waveOrders, warehouseLayout);
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        BenchmarkRunner.run(WavePlannerBenchmark.class, args);
+    }
+}
@@ -0,0 +1,181 @@
+package com.logistics.platform.distribution.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 固定速率（开放模型）压测：按 rate 计算每个请求的计划发送时间，延迟从计划时间算起，
+ * 服务变慢导致请求积压时排队时间也计入延迟，避免协调遗漏（coordinated omission）使高分位失真
+ * 每次请求按权重随机选择一个操作，各操作分别记录延迟直方图
+ */
+public class LoadTest {
+
+    //超过1分钟的延迟按1分钟记录
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final int rate;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final List<Operation> operations = new ArrayList<>();
+    private int totalWeight;
+
+    /**
+     * @param rate        每秒请求数
+     * @param warmup      预热时长，期间的请求不计入统计
+     * @param duration    统计时长
+     * @param maxInFlight 同时未完成的请求上限，达到上限后后续请求排队（排队时间计入延迟）
+     */
+    public LoadTest(int rate, Duration warmup, Duration duration, int maxInFlight) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("压测速率必须大于0");
+        }
+        this.rate = rate;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * @param call 发起一次请求，返回的结果为false或异常结束时计为失败
+     */
+    public LoadTest operation(String name, int weight, Supplier<CompletableFuture<Boolean>> call) {
+        if (weight > 0) {
+            operations.add(new Operation(name, weight, call));
+            totalWeight += weight;
+        }
+        return this;
+    }
+
+    public List<OperationResult> run() throws InterruptedException {
+        if (operations.isEmpty()) {
+            throw new IllegalStateException("没有可执行的操作");
+        }
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        for (long intended = start; intended < end; intended += intervalNanos) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            Operation operation = pick();
+            long scheduledAt = intended;
+            CompletableFuture<Boolean> future;
+            try {
+                future = operation.call.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((ok, error) -> {
+                inFlight.release();
+                if (scheduledAt >= measureFrom) {
+                    operation.record(System.nanoTime() - scheduledAt, error == null && Boolean.TRUE.equals(ok));
+                }
+            });
+        }
+        //等待已发出的请求完成，超时未完成的不计入统计
+        if (inFlight.tryAcquire(maxInFlight, 30, TimeUnit.SECONDS)) {
+            inFlight.release(maxInFlight);
+        }
+
+        double seconds = duration.toNanos() / 1e9;
+        List<OperationResult> results = new ArrayList<>();
+        for (Operation operation : operations) {
+            results.add(new OperationResult(operation.name, operation.recorder.getIntervalHistogram(),
+                    operation.errors.sum(), seconds));
+        }
+        return results;
+    }
+
+    private Operation pick() {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Operation operation : operations) {
+            r -= operation.weight;
+            if (r < 0) {
+                return operation;
+            }
+        }
+        return operations.get(operations.size() - 1);
+    }
+
+    private static final class Operation {
+        private final String name;
+        private final int weight;
+        private final Supplier<CompletableFuture<Boolean>> call;
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, 3);
+        private final LongAdder errors = new LongAdder();
+
+        private Operation(String name, int weight, Supplier<CompletableFuture<Boolean>> call) {
+            this.name = name;
+            this.weight = weight;
+            this.call = call;
+        }
+
+        private void record(long latencyNanos, boolean success) {
+            recorder.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE_NANOS));
+            if (!success) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * 单个操作的统计结果，延迟单位为纳秒
+     */
+    public record OperationResult(String name, Histogram histogram, long errors, double seconds) {
+
+        public double throughput() {
+            return histogram.getTotalCount() / seconds;
+        }
+
+        /**
+         * 写出HdrHistogram百分位分布文件（毫秒），可用 HdrHistogram Plotter 绘图或与历史结果叠加对比
+         */
+        public void writePercentiles(Path directory) throws IOException {
+            Files.createDirectories(directory);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(name + ".hgrm")))) {
+                histogram.outputPercentileDistribution(out, 1_000_000.0);
+            }
+        }
+    }
+
+    /**
+     * 各操作的吞吐量和延迟分位（毫秒）
+     */
+    public static void printReport(List<OperationResult> results, PrintStream out) {
+        out.printf("%-12s %10s %8s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "count", "errors", "req/s", "p50", "p90", "p99", "p99.9", "max");
+        for (OperationResult result : results) {
+            Histogram h = result.histogram();
+            out.printf("%-12s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    result.name(), h.getTotalCount(), result.errors(), result.throughput(),
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)),
+                    millis(h.getMaxValue()));
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
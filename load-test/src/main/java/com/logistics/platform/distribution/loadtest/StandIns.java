@@ -0,0 +1,48 @@
+package com.logistics.platform.distribution.loadtest;
+
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Map;
+
+/**
+ * 压测用的外部依赖替身：嵌入式Redis在随机空闲端口启动，MySQL由 application-loadtest.yml 中的H2代替，Nacos关闭
+ * 各服务启动时传入 {@link #properties()} 即可连接到替身
+ */
+public class StandIns implements AutoCloseable {
+
+    private final RedisServer redisServer;
+    private final int redisPort;
+
+    private StandIns(RedisServer redisServer, int redisPort) {
+        this.redisServer = redisServer;
+        this.redisPort = redisPort;
+    }
+
+    public static StandIns start() throws IOException {
+        int port = freePort();
+        RedisServer redisServer = new RedisServer(port);
+        redisServer.start();
+        return new StandIns(redisServer, port);
+    }
+
+    /**
+     * 启动服务时需要覆盖的配置
+     */
+    public Map<String, Object> properties() {
+        return Map.of("spring.data.redis.host", "localhost",
+                "spring.data.redis.port", redisPort);
+    }
+
+    @Override
+    public void close() throws IOException {
+        redisServer.stop();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.logistics.platform.distribution.loadtest.waybill;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistics.platform.distribution.loadtest.LoadTest;
+import com.logistics.platform.distribution.loadtest.StandIns;
+import com.logistics.platform.distribution.waybill.WaybillServiceApplication;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 运单服务压测：创建、查询、状态流转按比例混合
+ * 默认在本进程内以 loadtest 配置启动运单服务（H2 + 嵌入式Redis，不连接Nacos），也可通过 loadtest.base-url 压测已部署的实例
+ * 参数（系统属性）：
+ * <pre>
+ * loadtest.rate          每秒请求数，默认500
+ * loadtest.warmup        预热时长，默认15s
+ * loadtest.duration      统计时长，默认60s
+ * loadtest.mix           操作比例，默认 create=10,get=80,transition=10
+ * loadtest.seed          预先批量创建的运单数，默认10000
+ * loadtest.max-in-flight 同时未完成的请求上限，默认10000
+ * loadtest.output        百分位分布文件目录，默认 loadtest-results
+ * loadtest.base-url      被测实例地址，不指定时在本进程内启动
+ * </pre>
+ * 运行：mvn -pl load-test -am package -DskipTests 后执行本类main方法
+ */
+public class WaybillLoadTest {
+
+    private static final WaybillStatus[] CHAIN = {WaybillStatus.CREATED, WaybillStatus.PICKED,
+            WaybillStatus.DELIVERING, WaybillStatus.DELIVERED};
+    //查询从最近创建的运单中随机选取
+    private static final int RECENT_CAPACITY = 100_000;
+    private static final int SEED_BATCH_SIZE = 500;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2))
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String baseUrl;
+    private final AtomicReferenceArray<String> recent = new AtomicReferenceArray<>(RECENT_CAPACITY);
+    private final AtomicLong created = new AtomicLong();
+    //尚未到达终态的运单及其在 CHAIN 中的位置
+    private final ConcurrentLinkedQueue<InTransit> inTransit = new ConcurrentLinkedQueue<>();
+
+    private record InTransit(String waybillNo, int step) {
+    }
+
+    public WaybillLoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("loadtest.base-url");
+        if (baseUrl != null) {
+            run(baseUrl);
+            return;
+        }
+        try (StandIns standIns = StandIns.start();
+             ConfigurableApplicationContext context = new SpringApplicationBuilder(WaybillServiceApplication.class)
+                     .profiles("loadtest")
+                     .properties(standIns.properties())
+                     .run("--server.port=0")) {
+            run("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+        }
+    }
+
+    private static void run(String baseUrl) throws Exception {
+        WaybillLoadTest test = new WaybillLoadTest(baseUrl);
+        test.seed(Integer.getInteger("loadtest.seed", 10_000));
+
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", "create=10,get=80,transition=10"));
+        List<LoadTest.OperationResult> results = new LoadTest(
+                Integer.getInteger("loadtest.rate", 500),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.warmup", "15s")),
+                DurationStyle.detectAndParse(System.getProperty("loadtest.duration", "60s")),
+                Integer.getInteger("loadtest.max-in-flight", 10_000))
+                .operation("create", mix.getOrDefault("create", 0), test::create)
+                .operation("get", mix.getOrDefault("get", 0), test::get)
+                .operation("transition", mix.getOrDefault("transition", 0), test::transition)
+                .run();
+
+        LoadTest.printReport(results, System.out);
+        Path output = Path.of(System.getProperty("loadtest.output", "loadtest-results"));
+        for (LoadTest.OperationResult result : results) {
+            result.writePercentiles(output);
+        }
+    }
+
+    /**
+     * 压测前批量创建运单，保证查询和流转有足够的数据
+     */
+    private void seed(int count) throws Exception {
+        for (int done = 0; done < count; done += SEED_BATCH_SIZE) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = 0; i < Math.min(SEED_BATCH_SIZE, count - done); i++) {
+                body.append(i == 0 ? "" : ",").append(newWaybillJson());
+            }
+            body.append(']');
+            HttpResponse<String> response = httpClient.send(post("/waybill/batch", body.toString()),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("预建运单失败：" + response.statusCode() + " " + response.body());
+            }
+            for (JsonNode item : objectMapper.readTree(response.body()).path("items")) {
+                if (item.path("success").asBoolean()) {
+                    track(item.path("waybillNo").asText());
+                }
+            }
+        }
+    }
+
+    // POST /waybill
+    private CompletableFuture<Boolean> create() {
+        return httpClient.sendAsync(post("/waybill", newWaybillJson()), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        return false;
+                    }
+                    try {
+                        track(objectMapper.readTree(response.body()).path("waybillNo").asText());
+                        return true;
+                    } catch (Exception e) {
+                        return false;
+                    }
+                });
+    }
+
+    // GET /waybill/{waybillNo}
+    private CompletableFuture<Boolean> get() {
+        long count = Math.min(created.get(), RECENT_CAPACITY);
+        String waybillNo = recent.get((int) ThreadLocalRandom.current().nextLong(count));
+        if (waybillNo == null) {
+            //计数已增加但运单号尚未写入
+            waybillNo = recent.get(0);
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/waybill/" + waybillNo)).GET().build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> response.statusCode() == 200);
+    }
+
+    // PUT /waybill/status/{waybillNo}，每个运单依次流转到下一状态，到达终态后不再参与
+    private CompletableFuture<Boolean> transition() {
+        InTransit next = inTransit.poll();
+        if (next == null) {
+            //所有运单都已到达终态，改为创建新运单
+            return create();
+        }
+        WaybillStatus target = CHAIN[next.step() + 1];
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/waybill/status/" + next.waybillNo()
+                        + "?status=" + target.name()))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(response -> {
+                    boolean ok = response.statusCode() == 200;
+                    int step = ok ? next.step() + 1 : next.step();
+                    if (step + 1 < CHAIN.length) {
+                        inTransit.offer(new InTransit(next.waybillNo(), step));
+                    }
+                    return ok;
+                });
+    }
+
+    private void track(String waybillNo) {
+        long index = created.getAndIncrement();
+        recent.set((int) (index % RECENT_CAPACITY), waybillNo);
+        inTransit.offer(new InTransit(waybillNo, 0));
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private String newWaybillJson() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> waybill = new HashMap<>();
+        waybill.put("customerId", random.nextLong(1, 10_000));
+        waybill.put("senderName", "张三");
+        waybill.put("senderPhone", "138" + (10_000_000 + random.nextInt(90_000_000)));
+        waybill.put("senderAddress", "北京市海淀区中关村大街" + random.nextInt(1, 200) + "号");
+        waybill.put("receiverName", "李四");
+        waybill.put("receiverPhone", "139" + (10_000_000 + random.nextInt(90_000_000)));
+        waybill.put("receiverAddress", "上海市浦东新区世纪大道" + random.nextInt(1, 200) + "号");
+        waybill.put("goodsType", "电子产品");
+        waybill.put("weight", random.nextInt(1, 3000) / 100.0);
+        waybill.put("amount", random.nextInt(1000, 20000) / 100.0);
+        waybill.put("warehouseId", random.nextLong(1, 20));
+        try {
+            return objectMapper.writeValueAsString(waybill);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //格式：create=10,get=80,transition=10
+    private static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String part : mix.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("无效的操作比例：" + mix);
+            }
+            weights.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+        return weights;
+    }
+}
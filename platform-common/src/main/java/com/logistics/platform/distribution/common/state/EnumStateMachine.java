@@ -0,0 +1,175 @@
+package com.logistics.platform.distribution.common.state;
+
+import java.lang.reflect.Array;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 基于枚举的状态机，构建后不可变，可在多线程间共享
+ * 流转规则按状态序号存为位掩码，判断是否允许流转只需一次数组访问和一次位运算；
+ * 名称按忽略大小写的开放寻址哈希表查找；两者都不分配对象
+ * 用法（通常放在状态枚举自己的静态字段中）：
+ * <pre>
+ * EnumStateMachine.builder(WaybillStatus.class)
+ *         .allow(CREATED, PICKED, CANCELLED)
+ *         .allow(PICKED, DELIVERING, CANCELLED)
+ *         .build();
+ * </pre>
+ * @param <S> 状态枚举，最多64个常量
+ */
+public final class EnumStateMachine<S extends Enum<S>> {
+
+    private static final int MAX_STATES = Long.SIZE;
+    //foldedHash 遇到非ASCII字符时的返回值，正常哈希值已去掉符号位
+    private static final int NON_ASCII = Integer.MIN_VALUE;
+
+    private final Class<S> type;
+    //transitions[from.ordinal()] 的第 to.ordinal() 位为1表示允许 from→to
+    private final long[] transitions;
+    //名称哈希表，容量为2的幂且至少是状态数的2倍，线性探测
+    private final S[] nameTable;
+    private final int nameMask;
+
+    private EnumStateMachine(Class<S> type, long[] transitions) {
+        this.type = type;
+        this.transitions = transitions;
+        S[] states = type.getEnumConstants();
+        int capacity = Integer.highestOneBit(states.length * 2 + 1) << 1;
+        @SuppressWarnings("unchecked")
+        S[] table = (S[]) Array.newInstance(type, capacity);
+        this.nameTable = table;
+        this.nameMask = capacity - 1;
+        for (S state : states) {
+            int slot = foldedHash(state.name()) & nameMask;
+            while (nameTable[slot] != null) {
+                slot = (slot + 1) & nameMask;
+            }
+            nameTable[slot] = state;
+        }
+    }
+
+    public static <S extends Enum<S>> Builder<S> builder(Class<S> type) {
+        return new Builder<>(type);
+    }
+
+    /**
+     * 是否允许从 from 流转到 to，任一为null时返回false
+     */
+    public boolean canTransition(S from, S to) {
+        if (from == null || to == null) {
+            return false;
+        }
+        return (transitions[from.ordinal()] & (1L << to.ordinal())) != 0;
+    }
+
+    /**
+     * 终态：不允许流转到任何状态
+     */
+    public boolean isTerminal(S state) {
+        return transitions[state.ordinal()] == 0;
+    }
+
+    /**
+     * 允许流转到的状态（每次返回新集合，不用于热点路径）
+     */
+    public Set<S> targetsOf(S state) {
+        EnumSet<S> targets = EnumSet.noneOf(type);
+        long mask = transitions[state.ordinal()];
+        for (S candidate : type.getEnumConstants()) {
+            if ((mask & (1L << candidate.ordinal())) != 0) {
+                targets.add(candidate);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * 按名称查找状态，忽略大小写，与 name().equalsIgnoreCase 的结果一致
+     * @return 对应的状态，不存在或为null时返回null
+     */
+    public S parse(CharSequence name) {
+        if (name == null) {
+            return null;
+        }
+        int hash = foldedHash(name);
+        if (hash == NON_ASCII) {
+            return parseSlow(name.toString());
+        }
+        for (int slot = hash & nameMask; ; slot = (slot + 1) & nameMask) {
+            S state = nameTable[slot];
+            if (state == null) {
+                return null;
+            }
+            if (equalsIgnoreCase(state.name(), name)) {
+                return state;
+            }
+        }
+    }
+
+    //含非ASCII字符时（如土耳其语的ı）equalsIgnoreCase的大小写折叠与ASCII不同，退回逐个比较
+    private S parseSlow(String name) {
+        for (S state : type.getEnumConstants()) {
+            if (state.name().equalsIgnoreCase(name)) {
+                return state;
+            }
+        }
+        return null;
+    }
+
+    //ASCII字母统一转大写后的哈希
+    private static int foldedHash(CharSequence s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) {
+                return NON_ASCII;
+            }
+            h = 31 * h + upper(c);
+        }
+        return h & Integer.MAX_VALUE;
+    }
+
+    private static boolean equalsIgnoreCase(String name, CharSequence s) {
+        if (name.length() != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (upper(name.charAt(i)) != upper(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+
+    public static final class Builder<S extends Enum<S>> {
+        private final Class<S> type;
+        private final long[] transitions;
+
+        private Builder(Class<S> type) {
+            if (type.getEnumConstants().length > MAX_STATES) {
+                throw new IllegalArgumentException("状态数超过" + MAX_STATES + "个：" + type.getName());
+            }
+            this.type = type;
+            this.transitions = new long[type.getEnumConstants().length];
+        }
+
+        /**
+         * 允许 from 流转到 targets 中的每个状态；未声明任何流转的状态即为终态
+         */
+        @SafeVarargs
+        public final Builder<S> allow(S from, S... targets) {
+            for (S target : targets) {
+                transitions[from.ordinal()] |= 1L << target.ordinal();
+            }
+            return this;
+        }
+
+        public EnumStateMachine<S> build() {
+            return new EnumStateMachine<>(type, transitions.clone());
+        }
+    }
+}
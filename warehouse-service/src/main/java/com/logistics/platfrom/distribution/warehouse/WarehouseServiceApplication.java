@@ -0,0 +1,16 @@
+package com.logistics.platfrom.distribution.warehouse;
+
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.cloud.openfeign.EnableFeignClients;
+
+@SpringBootApplication
+@EnableDiscoveryClient
+@EnableFeignClients
+public class WarehouseServiceApplication {
+    public static void main(String[] args) {
+        SpringApplication.run(WarehouseServiceApplication.class, args);
+    }
+}
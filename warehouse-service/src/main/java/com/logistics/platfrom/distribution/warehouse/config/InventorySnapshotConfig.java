@@ -0,0 +1,37 @@
+package com.logistics.platfrom.distribution.warehouse.config;
+
+import com.logistics.platfrom.distribution.warehouse.repository.InventorySnapshotJdbcRepository;
+import com.logistics.platfrom.distribution.warehouse.snapshot.InventorySnapshotter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+
+@Configuration
+public class InventorySnapshotConfig {
+
+    @Bean
+    public InventorySnapshotter inventorySnapshotter(
+            @Value("${warehouse.snapshot.apply-batch-size:1000}") int applyBatchSize,
+            @Value("${warehouse.snapshot.apply-lag:2s}") Duration applyLag,
+            @Value("${warehouse.snapshot.reconcile-chunk-size:500}") int chunkSize,
+            @Value("${warehouse.snapshot.reconcile-chunk-pause:50ms}") Duration chunkPause,
+            @Value("${warehouse.snapshot.retention:1h}") Duration retention,
+            InventorySnapshotJdbcRepository inventorySnapshotJdbcRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
+        InventorySnapshotter snapshotter = new InventorySnapshotter(inventorySnapshotJdbcRepository,
+                transactionManager, applyBatchSize, applyLag, chunkSize, chunkPause, retention);
+        FunctionCounter.builder("warehouse.snapshot.changes", snapshotter, InventorySnapshotter::getAppliedChanges)
+                .description("合并到库存汇总的库位计数变更数")
+                .register(meterRegistry);
+        FunctionCounter.builder("warehouse.snapshot.corrections", snapshotter, InventorySnapshotter::getCorrections)
+                .description("对账时修正库存汇总的次数")
+                .register(meterRegistry);
+        return snapshotter;
+    }
+}
@@ -0,0 +1,34 @@
+package com.logistics.platfrom.distribution.warehouse.config;
+
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.location.FreeSlotIndex;
+import com.logistics.platfrom.distribution.warehouse.location.SlotAllocator;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SlotAllocationConfig {
+
+    @Bean
+    public FreeSlotIndex freeSlotIndex() {
+        return new FreeSlotIndex();
+    }
+
+    /**
+     * 启动时加载空闲库位索引，加载失败时索引为空，指定库位的入库不受影响，等下次定时重建
+     */
+    @Bean
+    public SlotAllocator slotAllocator(
+            @Value("${warehouse.slot-index.max-attempts:5}") int maxAttempts,
+            FreeSlotIndex freeSlotIndex,
+            InventoryJdbcRepository inventoryJdbcRepository,
+            InventoryEngine inventoryEngine) {
+        SlotAllocator allocator = new SlotAllocator(freeSlotIndex, inventoryJdbcRepository, inventoryEngine, maxAttempts);
+        allocator.rebuild();
+        return allocator;
+    }
+}
@@ -0,0 +1,36 @@
+package com.logistics.platfrom.distribution.warehouse.config;
+
+import com.logistics.platfrom.distribution.warehouse.feign.BatchingWaybillClient;
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.StorageLocationRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.WarahouseRepository;
+import com.logistics.platfrom.distribution.warehouse.wave.WavePlanner;
+import com.logistics.platfrom.distribution.warehouse.wave.WaveService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+
+@Configuration
+public class WavePlanningConfig {
+
+    @Bean
+    public WavePlanner wavePlanner(
+            @Value("${warehouse.wave.time-window:2h}") Duration timeWindow,
+            @Value("${warehouse.wave.max-wave-size:200}") int maxWaveSize) {
+        return new WavePlanner(timeWindow, maxWaveSize, true);
+    }
+
+    @Bean
+    public WaveService waveService(WavePlanner wavePlanner, WarahouseRepository warehouseRepository,
+                                   StorageLocationRepository storageLocationRepository,
+                                   InventoryJdbcRepository inventoryJdbcRepository, InventoryEngine inventoryEngine,
+                                   BatchingWaybillClient batchingWaybillClient,
+                                   TransactionOperations transactionOperations) {
+        return new WaveService(wavePlanner, warehouseRepository, storageLocationRepository, inventoryJdbcRepository,
+                inventoryEngine, batchingWaybillClient, transactionOperations);
+    }
+}
@@ -0,0 +1,99 @@
+package com.logistics.platfrom.distribution.warehouse.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logistics.platfrom.distribution.warehouse.feign.BatchingWaybillClient;
+import com.logistics.platfrom.distribution.warehouse.feign.WaybillDTO;
+import com.logistics.platfrom.distribution.warehouse.feign.WaybillServiceFeignClient;
+import feign.FeignException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JCircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class WaybillClientConfig {
+
+    private static final String WAYBILL_SERVICE = "waybill-service";
+
+    /**
+     * 合并查询的批次数和经远程查询的运单数通过 warehouse.waybill.batches / warehouse.waybill.lookups 暴露，
+     * 短时缓存命中率通过 cache.gets{cache=waybill.client} 暴露，熔断器状态通过 resilience4j.circuitbreaker.* 暴露
+     */
+    @Bean
+    public BatchingWaybillClient batchingWaybillClient(
+            @Value("${warehouse.waybill-client.max-batch-size:200}") int maxBatchSize,
+            @Value("${warehouse.waybill-client.max-concurrent-batches:8}") int maxConcurrentBatches,
+            @Value("${warehouse.waybill-client.cache.maximum-size:50000}") long maximumSize,
+            @Value("${warehouse.waybill-client.cache.expire-after-write:10s}") Duration expireAfterWrite,
+            WaybillServiceFeignClient waybillServiceFeignClient,
+            CircuitBreakerFactory<?, ?> circuitBreakerFactory,
+            MeterRegistry meterRegistry) {
+        Cache<String, WaybillDTO> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "waybill.client");
+
+        BatchingWaybillClient client = new BatchingWaybillClient(waybillServiceFeignClient,
+                circuitBreakerFactory.create(WAYBILL_SERVICE), cache, maxBatchSize, maxConcurrentBatches,
+                ExecutorServiceMetrics.monitor(meterRegistry, fetchExecutor(maxConcurrentBatches), "warehouse.waybill.fetch"));
+        FunctionCounter.builder("warehouse.waybill.batches", client, BatchingWaybillClient::getBatchCount)
+                .description("合并后实际发出的批量查询次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("warehouse.waybill.lookups", client, BatchingWaybillClient::getRemoteLookupCount)
+                .description("经批量查询远程查询的运单数")
+                .register(meterRegistry);
+        return client;
+    }
+
+    /**
+     * 运单服务的熔断参数：最近 sliding-window-size 次调用中失败或慢调用占比超过阈值时打开，
+     * 运单不存在等4xx不算失败；超时比Feign的连接+读取超时略长，由Feign先超时
+     */
+    @Bean
+    public Customizer<Resilience4JCircuitBreakerFactory> waybillServiceCircuitBreaker(
+            @Value("${warehouse.waybill-client.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${warehouse.waybill-client.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${warehouse.waybill-client.circuit-breaker.slow-call-duration:1s}") Duration slowCallDuration,
+            @Value("${warehouse.waybill-client.circuit-breaker.wait-duration-in-open-state:10s}") Duration waitDurationInOpenState,
+            @Value("${warehouse.waybill-client.circuit-breaker.timeout:5s}") Duration timeout) {
+        return factory -> factory.configure(builder -> builder
+                .circuitBreakerConfig(CircuitBreakerConfig.custom()
+                        .slidingWindowSize(slidingWindowSize)
+                        .minimumNumberOfCalls(Math.min(slidingWindowSize, 20))
+                        .failureRateThreshold(failureRateThreshold)
+                        .slowCallDurationThreshold(slowCallDuration)
+                        .slowCallRateThreshold(failureRateThreshold)
+                        .waitDurationInOpenState(waitDurationInOpenState)
+                        .permittedNumberOfCallsInHalfOpenState(5)
+                        .ignoreExceptions(FeignException.FeignClientException.class)
+                        .build())
+                .timeLimiterConfig(TimeLimiterConfig.custom().timeoutDuration(timeout).build()), WAYBILL_SERVICE);
+    }
+
+    //每个在途批次占一个线程，在途批次数有上限，队列只是兜底
+    private static ThreadPoolExecutor fetchExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads), runnable -> {
+            Thread thread = new Thread(runnable, "waybill-batch-fetch-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
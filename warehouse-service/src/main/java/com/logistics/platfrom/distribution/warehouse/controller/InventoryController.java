@@ -1,4 +1,47 @@
 package com.logistics.platfrom.distribution.warehouse.controller;
 
+import com.logistics.platfrom.distribution.warehouse.entity.Inventory;
+import com.logistics.platfrom.distribution.warehouse.entity.InventorySnapshot;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.InventorySnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/inventory")
+@RequiredArgsConstructor
 public class InventoryController {
+    private final InventoryRepository inventoryRepository;
+    private final InventorySnapshotRepository inventorySnapshotRepository;
+
+    //查询包裹的库存
+    @GetMapping("/{waybillNo}")
+    public ResponseEntity<Inventory> getByWaybillNo(@PathVariable String waybillNo) {
+        return inventoryRepository.findByWaybillNo(waybillNo)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    //库位中的包裹
+    @GetMapping("/location/{locationId}")
+    public ResponseEntity<List<Inventory>> listByLocation(@PathVariable Long locationId) {
+        return ResponseEntity.ok(inventoryRepository.findByLocationId(locationId));
+    }
+
+    //仓库的库存汇总（看板用），按主键读取，数据有几秒延迟
+    @GetMapping("/snapshot/{warehouseId}")
+    public ResponseEntity<InventorySnapshot> getSnapshot(@PathVariable Long warehouseId) {
+        return inventorySnapshotRepository.findById(warehouseId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    //全部仓库的库存汇总，一个仓库一行
+    @GetMapping("/snapshot")
+    public ResponseEntity<List<InventorySnapshot>> listSnapshots() {
+        return ResponseEntity.ok(inventorySnapshotRepository.findAll());
+    }
 }
@@ -1,4 +1,45 @@
 package com.logistics.platfrom.distribution.warehouse.controller;
 
+import com.logistics.platfrom.distribution.warehouse.entity.Inventory;
+import com.logistics.platfrom.distribution.warehouse.entity.Warehouse;
+import com.logistics.platfrom.distribution.warehouse.service.WarehouseRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/warehouse")
+@RequiredArgsConstructor
 public class WarehouseController {
+    private final WarehouseRepository warehouseService;
+
+    //新建仓库，未指定编码时自动生成
+    @PostMapping
+    public ResponseEntity<Warehouse> saveWarehouse(@RequestBody Warehouse warehouse) {
+        return ResponseEntity.ok(warehouseService.saveWarehouse(warehouse));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Warehouse>> findAllWarehouse() {
+        return ResponseEntity.ok(warehouseService.findAllWarehouse());
+    }
+
+    //入库扫描：不指定库位时按包裹规格自动分配（可用zone限定库区）；
+    //仓库或运单不存在、运单已送达或取消、库位已满、没有空闲库位或包裹已在库时返回409
+    @PostMapping("/{warehouseId}/inbound")
+    public ResponseEntity<Inventory> inbound(@PathVariable Long warehouseId,
+                                             @RequestParam(required = false) Long locationId,
+                                             @RequestParam(required = false) String zone,
+                                             @RequestParam String waybillNo) {
+        return ResponseEntity.ok(warehouseService.inbound(warehouseId, locationId, zone, waybillNo));
+    }
+
+    //出库扫描：包裹不在库或正在出库时返回409
+    @PostMapping("/outbound/{waybillNo}")
+    public ResponseEntity<Void> outbound(@PathVariable String waybillNo) {
+        warehouseService.outbound(waybillNo);
+        return ResponseEntity.ok().build();
+    }
 }
@@ -0,0 +1,44 @@
+package com.logistics.platfrom.distribution.warehouse.controller;
+
+import com.logistics.platfrom.distribution.warehouse.service.WarehouseRepository;
+import com.logistics.platfrom.distribution.warehouse.wave.Wave;
+import com.logistics.platfrom.distribution.warehouse.wave.WaveService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/warehouse")
+@RequiredArgsConstructor
+public class WaveController {
+    private final WaveService waveService;
+    private final WarehouseRepository warehouseService;
+
+    //预览仓库当前在库包裹的波次规划，不占用包裹
+    @GetMapping("/{warehouseId}/waves")
+    public ResponseEntity<List<Wave>> plan(@PathVariable Long warehouseId) {
+        return ResponseEntity.ok(waveService.plan(warehouseId));
+    }
+
+    //下发最早的count个波次，波次中的包裹转为拣货中
+    @PostMapping("/{warehouseId}/waves/release")
+    public ResponseEntity<List<Wave>> release(@PathVariable Long warehouseId,
+                                              @RequestParam(defaultValue = "1") int count) {
+        return ResponseEntity.ok(waveService.release(warehouseId, count));
+    }
+
+    //波次拣货确认：拣货中的包裹出库；包裹不在拣货中时返回409
+    @PostMapping("/waves/picked/{waybillNo}")
+    public ResponseEntity<Void> picked(@PathVariable String waybillNo) {
+        warehouseService.confirmPicked(waybillNo);
+        return ResponseEntity.ok().build();
+    }
+
+    //撤回波次中未拣的包裹，返回撤回数
+    @PostMapping("/waves/cancel")
+    public ResponseEntity<Integer> cancel(@RequestBody List<String> waybillNos) {
+        return ResponseEntity.ok(waveService.cancel(waybillNos));
+    }
+}
@@ -1,4 +1,37 @@
 package com.logistics.platfrom.distribution.warehouse.entity;
 
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 在库包裹，一个运单一行，出库确认后删除；表结构见 db/inventory.sql
+ */
+@Data
+@Entity
+@Table(name = "inventory", indexes = {
+        @Index(name = "uk_waybill_no", columnList = "waybillNo", unique = true),
+        @Index(name = "idx_location_id", columnList = "locationId"),
+        @Index(name = "idx_warehouse_status", columnList = "warehouseId, status")
+})
 public class Inventory {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long warehouseId; // 仓库ID
+    private Long locationId; // 库位ID
+    private String waybillNo; // 运单号
+    private InventoryStatus status; // 状态：RESERVED/STORED/PICKING
+    private BigDecimal weight; // 重量(kg)
+    private BigDecimal volume; // 体积(m³)
+    private LocalDateTime inboundTime; // 确认入库时间
+    private LocalDateTime createTime;
+    private LocalDateTime updateTime;
 }
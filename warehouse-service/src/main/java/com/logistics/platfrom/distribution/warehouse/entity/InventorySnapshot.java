@@ -0,0 +1,26 @@
+package com.logistics.platfrom.distribution.warehouse.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 仓库的库位汇总，一个仓库一行；表结构见 db/inventory.sql
+ * 由 InventorySnapshotter 合并库位计数的变更、定期对账修正，不经JPA写入
+ */
+@Data
+@Entity
+@Table(name = "inventory_snapshot")
+public class InventorySnapshot {
+    @Id
+    private Long warehouseId; // 仓库ID
+    private Integer locationCount; // 库位数，对账时更新
+    private Long capacity; // 库位容量之和，对账时更新
+    private Long occupied; // 已入库的包裹数
+    private Long reserved; // 已预占、尚未确认入库的包裹数
+    private LocalDateTime reconcileTime; // 最近一次对账时间
+    private LocalDateTime updateTime; // 最近一次合并或对账时间
+}
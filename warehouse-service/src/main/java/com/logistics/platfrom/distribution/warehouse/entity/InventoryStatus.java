@@ -0,0 +1,24 @@
+package com.logistics.platfrom.distribution.warehouse.entity;
+
+/**
+ * 库存状态，按枚举序号存储
+ * 入库：预占(RESERVED) -> 确认(STORED)，失败时删除预占；出库：STORED -> 拣货中(PICKING) -> 确认后删除，失败时回到STORED
+ */
+public enum InventoryStatus {
+
+    RESERVED("待入库"),
+
+    STORED("在库"),
+
+    PICKING("出库中");
+
+    private final String desc;
+
+    InventoryStatus(String desc) {
+        this.desc = desc;
+    }
+
+    public String getDesc() {
+        return desc;
+    }
+}
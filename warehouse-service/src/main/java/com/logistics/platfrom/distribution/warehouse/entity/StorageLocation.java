@@ -1,4 +1,35 @@
 package com.logistics.platfrom.distribution.warehouse.entity;
 
-public enum StorageLocation {
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 库位（货架格口），表结构见 db/inventory.sql
+ * occupied、reserved 只通过 InventoryJdbcRepository 的条件更新增减，不经JPA读改写
+ */
+@Data
+@Entity
+@Table(name = "storage_location", indexes = {
+        @Index(name = "uk_warehouse_location_code", columnList = "warehouseId, locationCode", unique = true),
+        @Index(name = "idx_warehouse_id", columnList = "warehouseId")
+})
+public class StorageLocation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long warehouseId; // 仓库ID
+    private String locationCode; // 库位编码，如 A-01-03
+    private String zone; // 库区
+    private Integer capacity; // 可存放的包裹数
+    private Integer occupied; // 已入库的包裹数
+    private Integer reserved; // 已预占、尚未确认入库的包裹数
+    private BigDecimal maxWeight; // 单件最大重量(kg)
+    private BigDecimal maxVolume; // 单件最大体积(m³)
 }
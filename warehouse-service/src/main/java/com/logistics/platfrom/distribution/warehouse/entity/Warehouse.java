@@ -1,8 +1,23 @@
 package com.logistics.platfrom.distribution.warehouse.entity;
 
-public class Warehouse {
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
 
-    public boolean getWarehouseId() {
-        return false;
-    }
+@Data
+@Entity
+@Table(name = "warehouse")
+public class Warehouse {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private String warehouseCode; // 仓库编码
+    private String name; // 仓库名称
+    private String address; // 仓库地址
+    private LocalDateTime createTime;
 }
@@ -0,0 +1,61 @@
+package com.logistics.platfrom.distribution.warehouse.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 库存操作冲突：仓库或运单不存在、运单已结束、库位已满、没有空闲库位、包裹已在库，
+ * 或库存当前状态不允许该操作（通常是被并发处理了）
+ */
+@Getter
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InventoryConflictException extends RuntimeException {
+
+    public enum Reason {
+        WAREHOUSE_NOT_FOUND, WAYBILL_NOT_FOUND, WAYBILL_CLOSED,
+        LOCATION_FULL, NO_FREE_LOCATION, ALREADY_STOCKED, ILLEGAL_STATE
+    }
+
+    private final String waybillNo;
+    private final Reason reason;
+
+    private InventoryConflictException(String message, String waybillNo, Reason reason) {
+        super(message);
+        this.waybillNo = waybillNo;
+        this.reason = reason;
+    }
+
+    public static InventoryConflictException warehouseNotFound(String waybillNo, long warehouseId) {
+        return new InventoryConflictException("仓库不存在：" + warehouseId, waybillNo, Reason.WAREHOUSE_NOT_FOUND);
+    }
+
+    public static InventoryConflictException waybillNotFound(String waybillNo) {
+        return new InventoryConflictException("运单不存在：" + waybillNo, waybillNo, Reason.WAYBILL_NOT_FOUND);
+    }
+
+    //已送达或已取消的运单不能再入库
+    public static InventoryConflictException waybillClosed(String waybillNo, String waybillStatus) {
+        return new InventoryConflictException("运单已" + ("DELIVERED".equals(waybillStatus) ? "送达" : "取消")
+                + "，不能入库：" + waybillNo, waybillNo, Reason.WAYBILL_CLOSED);
+    }
+
+    public static InventoryConflictException locationFull(String waybillNo, long locationId) {
+        return new InventoryConflictException("库位" + locationId + "已满或不属于该仓库：" + waybillNo, waybillNo,
+                Reason.LOCATION_FULL);
+    }
+
+    public static InventoryConflictException noFreeLocation(String waybillNo) {
+        return new InventoryConflictException("没有能放下该包裹的空闲库位：" + waybillNo, waybillNo,
+                Reason.NO_FREE_LOCATION);
+    }
+
+    public static InventoryConflictException alreadyStocked(String waybillNo) {
+        return new InventoryConflictException("包裹已在库或正在入库：" + waybillNo, waybillNo, Reason.ALREADY_STOCKED);
+    }
+
+    public static InventoryConflictException illegalState(String waybillNo, String operation, Object currentStatus) {
+        return new InventoryConflictException("库存当前状态" + (currentStatus == null ? "不存在" : "为" + currentStatus)
+                + "，不能" + operation + "：" + waybillNo, waybillNo, Reason.ILLEGAL_STATE);
+    }
+}
@@ -0,0 +1,234 @@
+package com.logistics.platfrom.distribution.warehouse.feign;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 合并查询运单（DataLoader式）：同时最多 maxConcurrentBatches 个批量查询在途，有空闲时查询立即发出，
+ * 都在途时新的查询排队，任一批返回后把排队的（最多 maxBatchSize 个）合并成一次 /waybill/batch-get 发出，
+ * 即合并窗口等于在途批次的往返耗时：低并发时与逐个查询一样没有额外等待，高并发时批次自动变大，调用次数不随扫描线程数增长
+ * 查到的运单放入短时本地缓存，同一包裹短时间内重复扫描不再远程查询；本服务修改运单状态后用返回值更新缓存
+ * 同一运单号在排队或查询中时，后来的调用共享同一个结果
+ * 批量查询和状态更新都经过熔断器，运单服务持续失败时直接失败，不再占用连接池和扫描线程等待超时
+ */
+@Slf4j
+public class BatchingWaybillClient {
+
+    private final WaybillServiceFeignClient waybillServiceFeignClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Cache<String, WaybillDTO> cache;
+    private final int maxBatchSize;
+    private final int maxConcurrentBatches;
+    //执行批量查询，线程数不小于 maxConcurrentBatches
+    private final Executor executor;
+
+    private final Object lock = new Object();
+    //以下由lock保护：排队中的查询、在途的批次数，排队或查询中的运单号留在 inFlight 中直到结果返回
+    private final LinkedHashMap<String, CompletableFuture<WaybillDTO>> queued = new LinkedHashMap<>();
+    private final Map<String, CompletableFuture<WaybillDTO>> inFlight = new HashMap<>();
+    private int runningBatches;
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder remoteLookupCount = new LongAdder();
+
+    public BatchingWaybillClient(WaybillServiceFeignClient waybillServiceFeignClient, CircuitBreaker circuitBreaker,
+                                 Cache<String, WaybillDTO> cache, int maxBatchSize, int maxConcurrentBatches,
+                                 Executor executor) {
+        this.waybillServiceFeignClient = waybillServiceFeignClient;
+        this.circuitBreaker = circuitBreaker;
+        this.cache = cache;
+        this.maxBatchSize = maxBatchSize;
+        this.maxConcurrentBatches = maxConcurrentBatches;
+        this.executor = executor;
+    }
+
+    /**
+     * 查询运单，等待所在批次返回
+     * @return 运单不存在时为空
+     */
+    public Optional<WaybillDTO> get(String waybillNo) {
+        try {
+            return Optional.ofNullable(load(waybillNo).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("查询运单被中断：" + waybillNo, e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /**
+     * 异步查询运单，运单不存在时结果为null
+     */
+    public CompletableFuture<WaybillDTO> load(String waybillNo) {
+        WaybillDTO cached = cache.getIfPresent(waybillNo);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        Map<String, CompletableFuture<WaybillDTO>> batch = null;
+        CompletableFuture<WaybillDTO> future;
+        synchronized (lock) {
+            future = inFlight.get(waybillNo);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            inFlight.put(waybillNo, future);
+            queued.put(waybillNo, future);
+            if (runningBatches < maxConcurrentBatches) {
+                runningBatches++;
+                batch = nextBatch();
+            }
+        }
+        if (batch != null) {
+            dispatch(batch);
+        }
+        return future;
+    }
+
+    /**
+     * 一次查询多个运单（如整笼入库前预取），与其他查询一起排队合并
+     * @return 运单号 -> 运单，不存在的运单号不在结果中
+     */
+    public Map<String, WaybillDTO> getAll(Collection<String> waybillNos) {
+        Map<String, CompletableFuture<WaybillDTO>> futures = new LinkedHashMap<>();
+        for (String waybillNo : waybillNos) {
+            futures.computeIfAbsent(waybillNo, this::load);
+        }
+        Map<String, WaybillDTO> waybills = new LinkedHashMap<>();
+        futures.forEach((waybillNo, future) -> {
+            WaybillDTO waybill = future.join();
+            if (waybill != null) {
+                waybills.put(waybillNo, waybill);
+            }
+        });
+        return waybills;
+    }
+
+    /**
+     * 更新运单状态，成功后用返回的运单更新缓存；失败时移出缓存，下次查询以运单服务为准
+     */
+    public WaybillDTO updateStatus(String waybillNo, String status) {
+        WaybillDTO waybill;
+        try {
+            waybill = circuitBreaker.run(() -> waybillServiceFeignClient.updateWaybillStatus(waybillNo, status),
+                    BatchingWaybillClient::rethrow);
+        } catch (RuntimeException e) {
+            cache.invalidate(waybillNo);
+            throw e;
+        }
+        if (waybill != null && waybill.getWaybillNo() != null) {
+            cache.put(waybill.getWaybillNo(), waybill);
+        } else {
+            cache.invalidate(waybillNo);
+        }
+        return waybill;
+    }
+
+    public void evict(String waybillNo) {
+        cache.invalidate(waybillNo);
+    }
+
+    //在lock内调用，取出排队最久的最多 maxBatchSize 个
+    private Map<String, CompletableFuture<WaybillDTO>> nextBatch() {
+        Map<String, CompletableFuture<WaybillDTO>> batch = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, CompletableFuture<WaybillDTO>>> iterator = queued.entrySet().iterator();
+        while (iterator.hasNext() && batch.size() < maxBatchSize) {
+            Map.Entry<String, CompletableFuture<WaybillDTO>> entry = iterator.next();
+            batch.put(entry.getKey(), entry.getValue());
+            iterator.remove();
+        }
+        return batch;
+    }
+
+    private void dispatch(Map<String, CompletableFuture<WaybillDTO>> batch) {
+        try {
+            executor.execute(() -> fetch(batch));
+        } catch (RuntimeException e) {
+            complete(batch, Map.of(), e);
+        }
+    }
+
+    private void fetch(Map<String, CompletableFuture<WaybillDTO>> batch) {
+        batchCount.increment();
+        remoteLookupCount.add(batch.size());
+        Map<String, WaybillDTO> found = new HashMap<>(batch.size() * 2);
+        try {
+            List<WaybillDTO> waybills = circuitBreaker.run(
+                    () -> waybillServiceFeignClient.getWaybillsByNos(new ArrayList<>(batch.keySet())),
+                    BatchingWaybillClient::rethrow);
+            if (waybills != null) {
+                for (WaybillDTO waybill : waybills) {
+                    found.put(waybill.getWaybillNo(), waybill);
+                    cache.put(waybill.getWaybillNo(), waybill);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("批量查询{}个运单失败：{}", batch.size(), e.getMessage());
+            complete(batch, found, e);
+            return;
+        }
+        complete(batch, found, null);
+    }
+
+    //完成本批后，有排队的查询时由本批的名额接着发出下一批
+    private void complete(Map<String, CompletableFuture<WaybillDTO>> batch, Map<String, WaybillDTO> found,
+                          RuntimeException error) {
+        Map<String, CompletableFuture<WaybillDTO>> next = null;
+        synchronized (lock) {
+            inFlight.keySet().removeAll(batch.keySet());
+            if (queued.isEmpty()) {
+                runningBatches--;
+            } else {
+                next = nextBatch();
+            }
+        }
+        batch.forEach((waybillNo, future) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(found.get(waybillNo));
+            }
+        });
+        if (next != null) {
+            dispatch(next);
+        }
+    }
+
+    //熔断器不做降级，原样抛出（熔断打开时为 CallNotPermittedException）
+    private static <T> T rethrow(Throwable throwable) {
+        throw unwrap(throwable);
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+
+    //远程批量查询的次数
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    //经远程查询的运单数，除以批量查询次数即平均批次大小
+    public long getRemoteLookupCount() {
+        return remoteLookupCount.sum();
+    }
+}
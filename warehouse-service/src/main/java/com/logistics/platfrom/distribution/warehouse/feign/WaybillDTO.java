@@ -0,0 +1,23 @@
+package com.logistics.platfrom.distribution.warehouse.feign;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 运单服务返回的运单，只保留仓储需要的字段，其余字段反序列化时忽略
+ */
+@Data
+public class WaybillDTO {
+    private Long id;
+    private String waybillNo; // 运单号
+    private String status; // 状态：CREATED/PICKED/DELIVERING/DELIVERED/CANCELLED
+    private String receiverAddress; // 收件地址，波次按其中的区县分组
+    private Long warehouseId; // 仓库ID
+    private Long deliverymanId; // 配送员ID
+    private LocalDateTime estimatedArrivalTime; // 预计送达时间
+    private BigDecimal weight; // 重量(kg)
+    private BigDecimal volume; // 体积(m³)
+    private LocalDateTime updateTime;
+}
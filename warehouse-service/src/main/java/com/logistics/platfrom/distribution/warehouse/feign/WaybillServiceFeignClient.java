@@ -1,4 +1,32 @@
 package com.logistics.platfrom.distribution.warehouse.feign;
 
-public class WaybillServiceFeignClient {
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.List;
+
+/**
+ * 运单服务接口，经Nacos按服务名负载均衡
+ * 每次调用的耗时通过 http.client.requests{clientName=waybill-service} 暴露，traceId随请求头传给运单服务
+ */
+@FeignClient(name = "waybill-service", path = "/waybill")
+public interface WaybillServiceFeignClient {
+
+    //查询运单，不存在时抛出 FeignException.NotFound
+    @GetMapping("/{waybillNo}")
+    WaybillDTO getWaybillByNo(@PathVariable("waybillNo") String waybillNo);
+
+    //批量查询运单，不存在的运单号不在结果中；扫描入库经 BatchingWaybillClient 合并后调用
+    @PostMapping("/batch-get")
+    List<WaybillDTO> getWaybillsByNos(@RequestBody List<String> waybillNos);
+
+    //更新运单状态（入库、出库时调用）
+    @PutMapping("/status/{waybillNo}")
+    WaybillDTO updateWaybillStatus(@PathVariable("waybillNo") String waybillNo,
+                                   @RequestParam("status") String status);
 }
@@ -0,0 +1,146 @@
+package com.logistics.platfrom.distribution.warehouse.inventory;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventoryStatus;
+import com.logistics.platfrom.distribution.warehouse.exception.InventoryConflictException;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 库存预占、确认与释放，入库和出库都分两步：先预占，调用运单服务成功后确认，失败时释放
+ * 每一步是一个只含两条单行条件更新的短事务，并发扫描只在同一包裹或同一库位的行上排队，不同库位互不影响；
+ * 库位行是热点，每步都先改库存行、最后改库位行，库位行锁持有到提交前的时间最短，且加锁顺序一致不会死锁
+ * 改变库位计数的步骤在改库位行之前追加一条 inventory_change（只插入，不锁已有行），供库存汇总增量合并
+ * 重复扫描（已确认后再确认、已释放后再释放）视为成功
+ */
+@Component
+@RequiredArgsConstructor
+public class InventoryEngine {
+
+    private final InventoryJdbcRepository inventoryJdbcRepository;
+    private final TransactionOperations transactionOperations;
+
+    /**
+     * 入库预占：登记包裹并占用库位的一个空位
+     * @throws InventoryConflictException 包裹已在库，或库位已满、不属于该仓库
+     */
+    public void reserveInbound(long warehouseId, long locationId, String waybillNo, BigDecimal weight,
+                               BigDecimal volume) {
+        transactionOperations.executeWithoutResult(tx -> {
+            LocalDateTime now = LocalDateTime.now();
+            try {
+                inventoryJdbcRepository.insertReserved(warehouseId, locationId, waybillNo, weight, volume, now);
+            } catch (DuplicateKeyException e) {
+                throw InventoryConflictException.alreadyStocked(waybillNo);
+            }
+            inventoryJdbcRepository.insertChange(locationId, 1, 0, now);
+            //库位已满时抛出异常回滚，刚插入的库存一并撤销
+            if (inventoryJdbcRepository.reserveSlot(warehouseId, locationId) == 0) {
+                throw InventoryConflictException.locationFull(waybillNo, locationId);
+            }
+        });
+    }
+
+    /**
+     * 确认入库：库存转为在库，库位预占转为占用
+     */
+    public void confirmInbound(String waybillNo) {
+        transactionOperations.executeWithoutResult(tx -> {
+            long locationId = locationOf(waybillNo, "确认入库");
+            LocalDateTime now = LocalDateTime.now();
+            if (inventoryJdbcRepository.updateStatus(waybillNo, InventoryStatus.RESERVED, InventoryStatus.STORED,
+                    now, now) == 0) {
+                expectAlready(waybillNo, InventoryStatus.STORED, "确认入库");
+                return;
+            }
+            inventoryJdbcRepository.insertChange(locationId, -1, 1, now);
+            requireOne(inventoryJdbcRepository.occupySlot(locationId), locationId);
+        });
+    }
+
+    /**
+     * 撤销入库预占：删除库存并释放库位预占
+     * @return 释放出空位的库位，重复撤销时为null
+     */
+    public Long cancelInbound(String waybillNo) {
+        return transactionOperations.execute(tx -> {
+            Long locationId = inventoryJdbcRepository.findLocationId(waybillNo).orElse(null);
+            if (locationId == null) {
+                return null;
+            }
+            if (inventoryJdbcRepository.delete(waybillNo, InventoryStatus.RESERVED) == 0) {
+                expectAlready(waybillNo, null, "撤销入库");
+                return null;
+            }
+            inventoryJdbcRepository.insertChange(locationId, -1, 0, LocalDateTime.now());
+            requireOne(inventoryJdbcRepository.releaseSlot(locationId), locationId);
+            return locationId;
+        });
+    }
+
+    /**
+     * 出库预占：在库包裹转为拣货中，同一包裹被并发出库时只有一个成功
+     */
+    public void reserveOutbound(String waybillNo) {
+        if (inventoryJdbcRepository.updateStatus(waybillNo, InventoryStatus.STORED, InventoryStatus.PICKING,
+                LocalDateTime.now(), null) == 0) {
+            throw InventoryConflictException.illegalState(waybillNo, "出库",
+                    inventoryJdbcRepository.findStatus(waybillNo).orElse(null));
+        }
+    }
+
+    /**
+     * 确认出库：删除库存并腾出库位
+     * @return 腾出空位的库位，重复确认时为null
+     */
+    public Long confirmOutbound(String waybillNo) {
+        return transactionOperations.execute(tx -> {
+            Long locationId = inventoryJdbcRepository.findLocationId(waybillNo).orElse(null);
+            if (locationId == null) {
+                return null;
+            }
+            if (inventoryJdbcRepository.delete(waybillNo, InventoryStatus.PICKING) == 0) {
+                expectAlready(waybillNo, null, "确认出库");
+                return null;
+            }
+            inventoryJdbcRepository.insertChange(locationId, 0, -1, LocalDateTime.now());
+            requireOne(inventoryJdbcRepository.vacateSlot(locationId), locationId);
+            return locationId;
+        });
+    }
+
+    /**
+     * 撤销出库预占：拣货中的包裹回到在库
+     */
+    public void cancelOutbound(String waybillNo) {
+        if (inventoryJdbcRepository.updateStatus(waybillNo, InventoryStatus.PICKING, InventoryStatus.STORED,
+                LocalDateTime.now(), null) == 0) {
+            expectAlready(waybillNo, InventoryStatus.STORED, "撤销出库");
+        }
+    }
+
+    private long locationOf(String waybillNo, String operation) {
+        return inventoryJdbcRepository.findLocationId(waybillNo)
+                .orElseThrow(() -> InventoryConflictException.illegalState(waybillNo, operation, null));
+    }
+
+    //条件更新未命中时，当前状态已是操作的结果（null表示库存已不存在）则视为重复操作
+    private void expectAlready(String waybillNo, InventoryStatus expected, String operation) {
+        InventoryStatus current = inventoryJdbcRepository.findStatus(waybillNo).orElse(null);
+        if (current != expected) {
+            throw InventoryConflictException.illegalState(waybillNo, operation, current);
+        }
+    }
+
+    //库存状态已校验通过，库位计数不满足条件说明数据已不一致，回滚整个操作
+    private static void requireOne(int rows, long locationId) {
+        if (rows != 1) {
+            throw new IllegalStateException("库位占用数与库存不一致：" + locationId);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.logistics.platfrom.distribution.warehouse.location;
+
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 各仓库空闲库位的内存索引：每个库区和整个仓库各有一棵 SlotTree，库位按规格（单件最大体积、最大重量）分桶，
+ * 规格按体积、重量从小到大排列，桶内只保留还有空位的库位；线段树记录各段规格中有空位的最大承重
+ * 分配时从体积不小于包裹的最小规格开始找第一个重量也放得下的桶（最佳适配），不指定库区时查整个仓库的树：
+ * 查找和桶变空、变非空时的更新都是 O(log 规格数)，其余的取出和归还是 O(1)
+ * 索引只是提示，库位是否真的有空位以数据库的条件更新为准，见 SlotAllocator
+ * 各仓库分别加锁，不同仓库的分配互不影响
+ */
+public class FreeSlotIndex {
+
+    //null的库区、规格统一用以下值表示
+    private static final String NO_ZONE = "";
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private volatile State state = new State(Map.of(), Map.of());
+
+    /**
+     * 用库位全集替换当前索引，未传入的库位视为已满
+     */
+    public void load(Collection<StorageLocation> locations) {
+        Map<Long, List<Slot>> byWarehouse = new HashMap<>();
+        Map<Long, Slot> slots = new HashMap<>(locations.size() * 2);
+        for (StorageLocation location : locations) {
+            Slot slot = new Slot(location.getId(), location.getWarehouseId(),
+                    location.getZone() == null ? NO_ZONE : location.getZone(),
+                    new SizeClass(toUnits(location.getMaxVolume(), 6, RoundingMode.FLOOR),
+                            toUnits(location.getMaxWeight(), 3, RoundingMode.FLOOR)),
+                    location.getCapacity());
+            slot.free = Math.max(0, location.getCapacity() - location.getOccupied() - location.getReserved());
+            slots.put(slot.id, slot);
+            byWarehouse.computeIfAbsent(slot.warehouseId, id -> new ArrayList<>()).add(slot);
+        }
+        Map<Long, WarehouseSlots> warehouses = new HashMap<>();
+        byWarehouse.forEach((warehouseId, warehouseSlots) ->
+                warehouses.put(warehouseId, new WarehouseSlots(warehouseSlots)));
+        state = new State(warehouses, slots);
+    }
+
+    /**
+     * 选出能放下包裹的最小规格库位并先扣减一个空位
+     * @param zone   指定库区，null时在全部库区中选
+     * @param weight 重量(kg)，null视为0
+     * @param volume 体积(m³)，null视为0
+     * @return 库位ID，没有合适的空闲库位时为null
+     */
+    public Long allocate(long warehouseId, String zone, BigDecimal weight, BigDecimal volume) {
+        WarehouseSlots warehouse = state.warehouses.get(warehouseId);
+        if (warehouse == null) {
+            return null;
+        }
+        return warehouse.allocate(zone, toUnits(weight, 3, RoundingMode.CEILING), toUnits(volume, 6, RoundingMode.CEILING));
+    }
+
+    /**
+     * 归还一个空位（出库、撤销入库，或分配后数据库预占失败以外的原因未使用）；不在索引中的库位忽略，下次重建时加入
+     */
+    public void release(long locationId) {
+        State current = state;
+        Slot slot = current.slots.get(locationId);
+        if (slot != null) {
+            current.warehouses.get(slot.warehouseId).release(slot);
+        }
+    }
+
+    /**
+     * 指定库位入库时扣减一个空位，已无空位时忽略
+     */
+    public void take(long locationId) {
+        State current = state;
+        Slot slot = current.slots.get(locationId);
+        if (slot != null) {
+            current.warehouses.get(slot.warehouseId).take(slot);
+        }
+    }
+
+    /**
+     * 数据库中该库位已满（其他实例占用了），从索引中移除直到下次重建
+     */
+    public void markFull(long locationId) {
+        State current = state;
+        Slot slot = current.slots.get(locationId);
+        if (slot != null) {
+            current.warehouses.get(slot.warehouseId).markFull(slot);
+        }
+    }
+
+    /**
+     * 仓库当前的空位总数
+     */
+    public long freeSlots(long warehouseId) {
+        WarehouseSlots warehouse = state.warehouses.get(warehouseId);
+        return warehouse == null ? 0 : warehouse.freeSlots();
+    }
+
+    //体积按cm³、重量按g取整后比较，避免BigDecimal比较的开销；null表示不限
+    private static long toUnits(BigDecimal value, int scale, RoundingMode roundingMode) {
+        if (value == null) {
+            return roundingMode == RoundingMode.FLOOR ? UNLIMITED : 0;
+        }
+        return value.movePointRight(scale).setScale(0, roundingMode).longValue();
+    }
+
+    private record State(Map<Long, WarehouseSlots> warehouses, Map<Long, Slot> slots) {
+    }
+
+    //先比体积再比重量，体积相同时重量小的更适配
+    private record SizeClass(long volume, long weight) implements Comparable<SizeClass> {
+        @Override
+        public int compareTo(SizeClass other) {
+            int byVolume = Long.compare(volume, other.volume);
+            return byVolume != 0 ? byVolume : Long.compare(weight, other.weight);
+        }
+    }
+
+    private static final class Slot {
+        private final long id;
+        private final long warehouseId;
+        private final String zone;
+        private final SizeClass sizeClass;
+        private final int capacity;
+        //由所在仓库的锁保护
+        private int free;
+
+        private Slot(long id, long warehouseId, String zone, SizeClass sizeClass, int capacity) {
+            this.id = id;
+            this.warehouseId = warehouseId;
+            this.zone = zone;
+            this.sizeClass = sizeClass;
+            this.capacity = capacity;
+        }
+    }
+
+    private static final class WarehouseSlots {
+        //库区 -> 该库区的库位；all 为整个仓库的库位，不指定库区时使用
+        private final Map<String, SlotTree> zones = new HashMap<>();
+        private final SlotTree all;
+        private long freeSlots;
+
+        //已满的库位也要建好规格，归还后直接加入
+        private WarehouseSlots(List<Slot> slots) {
+            Map<String, List<Slot>> byZone = new HashMap<>();
+            for (Slot slot : slots) {
+                byZone.computeIfAbsent(slot.zone, zone -> new ArrayList<>()).add(slot);
+            }
+            byZone.forEach((zone, zoneSlots) -> zones.put(zone, SlotTree.of(zoneSlots)));
+            all = SlotTree.of(slots);
+            for (Slot slot : slots) {
+                if (slot.free > 0) {
+                    add(slot);
+                    freeSlots += slot.free;
+                }
+            }
+        }
+
+        private synchronized Long allocate(String zone, long weight, long volume) {
+            SlotTree tree = zone == null ? all : zones.get(zone);
+            Slot best = tree == null ? null : tree.bestFit(weight, volume);
+            if (best == null) {
+                return null;
+            }
+            if (--best.free == 0) {
+                remove(best);
+            }
+            freeSlots--;
+            return best.id;
+        }
+
+        private synchronized void release(Slot slot) {
+            if (slot.free >= slot.capacity) {
+                return;
+            }
+            if (slot.free++ == 0) {
+                add(slot);
+            }
+            freeSlots++;
+        }
+
+        private synchronized void take(Slot slot) {
+            if (slot.free > 0) {
+                if (--slot.free == 0) {
+                    remove(slot);
+                }
+                freeSlots--;
+            }
+        }
+
+        private synchronized void markFull(Slot slot) {
+            if (slot.free > 0) {
+                freeSlots -= slot.free;
+                slot.free = 0;
+                remove(slot);
+            }
+        }
+
+        private synchronized long freeSlots() {
+            return freeSlots;
+        }
+
+        //构造时由单线程调用，之后在锁内调用
+        private void add(Slot slot) {
+            zones.get(slot.zone).add(slot);
+            all.add(slot);
+        }
+
+        private void remove(Slot slot) {
+            zones.get(slot.zone).remove(slot);
+            all.remove(slot);
+        }
+    }
+
+    /**
+     * 一组库位按规格分桶：classes 为升序的全部规格，buckets 与之一一对应，桶内按加入顺序，先装满早加入的库位
+     * maxWeight 是以规格为叶子的线段树（根为1，叶子从 leaves 开始），叶子为规格的承重，桶空时为 EMPTY，
+     * 内部节点为子树中的最大值，据此跳过整段承重不够的规格
+     */
+    private static final class SlotTree {
+        private static final long EMPTY = -1;
+
+        private final SizeClass[] classes;
+        private final List<LinkedHashSet<Slot>> buckets;
+        private final int leaves;
+        private final long[] maxWeight;
+
+        private SlotTree(SizeClass[] classes) {
+            this.classes = classes;
+            this.buckets = new ArrayList<>(classes.length);
+            for (int i = 0; i < classes.length; i++) {
+                buckets.add(new LinkedHashSet<>());
+            }
+            int size = 1;
+            while (size < classes.length) {
+                size <<= 1;
+            }
+            this.leaves = size;
+            this.maxWeight = new long[size * 2];
+            Arrays.fill(maxWeight, EMPTY);
+        }
+
+        private static SlotTree of(Collection<Slot> slots) {
+            return new SlotTree(slots.stream().map(slot -> slot.sizeClass).distinct().sorted().toArray(SizeClass[]::new));
+        }
+
+        /**
+         * 体积不小于 volume 的规格中，第一个承重不小于 weight 且有空位的桶里最早加入的库位
+         */
+        private Slot bestFit(long weight, long volume) {
+            int start = Arrays.binarySearch(classes, new SizeClass(volume, 0));
+            if (start < 0) {
+                start = -start - 1;
+            }
+            if (start >= classes.length) {
+                return null;
+            }
+            //从起点叶子向上：当前子树放不下时，是右孩子就继续上移，是左孩子就转到右侧的兄弟子树
+            int node = leaves + start;
+            while (maxWeight[node] < weight) {
+                while ((node & 1) == 1) {
+                    if (node == 1) {
+                        return null;
+                    }
+                    node >>= 1;
+                }
+                node++;
+            }
+            //再向下找子树中最左的放得下的叶子
+            while (node < leaves) {
+                node = maxWeight[node * 2] >= weight ? node * 2 : node * 2 + 1;
+            }
+            return buckets.get(node - leaves).iterator().next();
+        }
+
+        private void add(Slot slot) {
+            int i = indexOf(slot.sizeClass);
+            LinkedHashSet<Slot> bucket = buckets.get(i);
+            bucket.add(slot);
+            if (bucket.size() == 1) {
+                update(i, slot.sizeClass.weight);
+            }
+        }
+
+        private void remove(Slot slot) {
+            int i = indexOf(slot.sizeClass);
+            LinkedHashSet<Slot> bucket = buckets.get(i);
+            if (bucket.remove(slot) && bucket.isEmpty()) {
+                update(i, EMPTY);
+            }
+        }
+
+        private int indexOf(SizeClass sizeClass) {
+            return Arrays.binarySearch(classes, sizeClass);
+        }
+
+        private void update(int i, long weight) {
+            int node = leaves + i;
+            maxWeight[node] = weight;
+            for (node >>= 1; node >= 1; node >>= 1) {
+                maxWeight[node] = Math.max(maxWeight[node * 2], maxWeight[node * 2 + 1]);
+            }
+        }
+    }
+}
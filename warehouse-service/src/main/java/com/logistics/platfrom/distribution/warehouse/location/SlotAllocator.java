@@ -0,0 +1,98 @@
+package com.logistics.platfrom.distribution.warehouse.location;
+
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import com.logistics.platfrom.distribution.warehouse.exception.InventoryConflictException;
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 上架分配库位：从空闲库位索引中选出能放下包裹的最小规格库位，再由 InventoryEngine 在数据库中条件预占
+ * 启动时从数据库加载索引，之后本实例的入库、出库同步增减，并定期重建以纳入其他实例的变更和新增的库位；
+ * 索引与数据库不一致时（库位已被其他实例占满）预占失败，标记该库位已满后换下一个，最多尝试 maxAttempts 次
+ */
+@Slf4j
+public class SlotAllocator {
+
+    private final FreeSlotIndex index;
+    private final InventoryJdbcRepository inventoryJdbcRepository;
+    private final InventoryEngine inventoryEngine;
+    private final int maxAttempts;
+
+    public SlotAllocator(FreeSlotIndex index, InventoryJdbcRepository inventoryJdbcRepository,
+                         InventoryEngine inventoryEngine, int maxAttempts) {
+        this.index = index;
+        this.inventoryJdbcRepository = inventoryJdbcRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * 从数据库重建索引；重建期间照常分配，重建前后短暂的不一致由数据库条件更新兜底
+     */
+    @Scheduled(fixedDelayString = "${warehouse.slot-index.refresh-interval-ms:300000}",
+            initialDelayString = "${warehouse.slot-index.refresh-interval-ms:300000}")
+    public void rebuild() {
+        try {
+            long begin = System.currentTimeMillis();
+            List<StorageLocation> locations = new ArrayList<>();
+            inventoryJdbcRepository.findAllLocations(locations::add);
+            index.load(locations);
+            log.info("空闲库位索引已重建，共{}个库位，耗时{}ms", locations.size(), System.currentTimeMillis() - begin);
+        } catch (RuntimeException e) {
+            log.warn("重建空闲库位索引失败，沿用当前索引：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 为包裹分配库位并预占
+     * @param zone 指定库区，null时不限
+     * @return 预占的库位ID
+     * @throws InventoryConflictException 没有能放下的空闲库位，或包裹已在库
+     */
+    public long reserveInbound(long warehouseId, String zone, String waybillNo, BigDecimal weight, BigDecimal volume) {
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            Long locationId = index.allocate(warehouseId, zone, weight, volume);
+            if (locationId == null) {
+                break;
+            }
+            try {
+                inventoryEngine.reserveInbound(warehouseId, locationId, waybillNo, weight, volume);
+                return locationId;
+            } catch (InventoryConflictException e) {
+                if (e.getReason() != InventoryConflictException.Reason.LOCATION_FULL) {
+                    index.release(locationId);
+                    throw e;
+                }
+                index.markFull(locationId);
+            } catch (RuntimeException e) {
+                index.release(locationId);
+                throw e;
+            }
+        }
+        throw InventoryConflictException.noFreeLocation(waybillNo);
+    }
+
+    /**
+     * 在指定库位预占（人工指定库位），成功后同步扣减索引
+     */
+    public void reserveInbound(long warehouseId, long locationId, String waybillNo, BigDecimal weight,
+                               BigDecimal volume) {
+        inventoryEngine.reserveInbound(warehouseId, locationId, waybillNo, weight, volume);
+        index.take(locationId);
+    }
+
+    /**
+     * 库位空出一个位置（撤销入库、确认出库），locationId为null时忽略
+     */
+    public void released(Long locationId) {
+        if (locationId != null) {
+            index.release(locationId);
+        }
+    }
+}
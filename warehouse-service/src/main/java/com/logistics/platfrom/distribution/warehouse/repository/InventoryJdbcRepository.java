@@ -0,0 +1,178 @@
+package com.logistics.platfrom.distribution.warehouse.repository;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventoryStatus;
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * 库存和库位占用的条件更新：每条语句只锁定命中的一行，条件不满足时影响行数为0，不先读后写，也不加表锁
+ * 列名与JPA默认命名策略（驼峰转下划线）一致
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO inventory (warehouse_id, location_id, waybill_no, status, " +
+            "weight, volume, create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    //库存状态的CAS
+    private static final String UPDATE_STATUS_SQL = "UPDATE inventory SET status = ?, update_time = ?, " +
+            "inbound_time = COALESCE(?, inbound_time) WHERE waybill_no = ? AND status = ?";
+
+    private static final String DELETE_SQL = "DELETE FROM inventory WHERE waybill_no = ? AND status = ?";
+
+    private static final String SELECT_LOCATION_SQL = "SELECT location_id FROM inventory WHERE waybill_no = ?";
+
+    //库位剩余容量足够时才预占
+    private static final String RESERVE_SLOT_SQL = "UPDATE storage_location SET reserved = reserved + 1 " +
+            "WHERE id = ? AND warehouse_id = ? AND occupied + reserved < capacity";
+
+    private static final String OCCUPY_SLOT_SQL = "UPDATE storage_location SET reserved = reserved - 1, " +
+            "occupied = occupied + 1 WHERE id = ? AND reserved > 0";
+
+    private static final String RELEASE_SLOT_SQL = "UPDATE storage_location SET reserved = reserved - 1 " +
+            "WHERE id = ? AND reserved > 0";
+
+    private static final String VACATE_SLOT_SQL = "UPDATE storage_location SET occupied = occupied - 1 " +
+            "WHERE id = ? AND occupied > 0";
+
+    //库位计数的变更，供库存汇总合并
+    private static final String INSERT_CHANGE_SQL = "INSERT INTO inventory_change (location_id, reserved_delta, " +
+            "occupied_delta, create_time) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_BY_STATUS_SQL = "SELECT waybill_no, location_id FROM inventory " +
+            "WHERE warehouse_id = ? AND status = ?";
+
+    private static final String SELECT_LOCATIONS_SQL = "SELECT id, warehouse_id, location_code, zone, capacity, " +
+            "occupied, reserved, max_weight, max_volume FROM storage_location";
+
+    private static final InventoryStatus[] STATUSES = InventoryStatus.values();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 插入预占的库存，同一运单已在库（或正在入库）时违反唯一键，抛出 DuplicateKeyException
+     */
+    public int insertReserved(long warehouseId, long locationId, String waybillNo, BigDecimal weight,
+                              BigDecimal volume, LocalDateTime now) {
+        Timestamp time = Timestamp.valueOf(now);
+        return jdbcTemplate.update(INSERT_SQL, warehouseId, locationId, waybillNo, InventoryStatus.RESERVED.ordinal(),
+                weight, volume, time, time);
+    }
+
+    /**
+     * @param inboundTime 非空时同时写入入库时间
+     * @return 1=更新成功，0=库存不存在或状态已不是expected
+     */
+    public int updateStatus(String waybillNo, InventoryStatus expected, InventoryStatus target, LocalDateTime now,
+                            LocalDateTime inboundTime) {
+        return jdbcTemplate.update(UPDATE_STATUS_SQL, target.ordinal(), Timestamp.valueOf(now),
+                inboundTime == null ? null : Timestamp.valueOf(inboundTime), waybillNo, expected.ordinal());
+    }
+
+    /**
+     * @return 1=删除成功，0=库存不存在或状态已不是expected
+     */
+    public int delete(String waybillNo, InventoryStatus expected) {
+        return jdbcTemplate.update(DELETE_SQL, waybillNo, expected.ordinal());
+    }
+
+    /**
+     * 批量CAS库存状态，一个运单一条语句，在调用方的事务中执行
+     * 依赖驱动返回每条语句的影响行数，连接串不要开启 rewriteBatchedStatements
+     * @return 与 waybillNos 一一对应，1=更新成功，0=库存不存在或状态已不是expected
+     */
+    public int[] updateStatuses(List<String> waybillNos, InventoryStatus expected, InventoryStatus target,
+                                LocalDateTime now) {
+        Timestamp time = Timestamp.valueOf(now);
+        List<Object[]> args = new ArrayList<>(waybillNos.size());
+        for (String waybillNo : waybillNos) {
+            args.add(new Object[]{target.ordinal(), time, null, waybillNo, expected.ordinal()});
+        }
+        return jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, args);
+    }
+
+    /**
+     * 仓库中处于该状态的库存
+     * @return 运单号 -> 库位ID
+     */
+    public Map<String, Long> findByStatus(long warehouseId, InventoryStatus status) {
+        Map<String, Long> locations = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_BY_STATUS_SQL, rs -> {
+            locations.put(rs.getString("waybill_no"), rs.getLong("location_id"));
+        }, warehouseId, status.ordinal());
+        return locations;
+    }
+
+    //库存所在库位，入库后不会变化，读取不加锁
+    public Optional<Long> findLocationId(String waybillNo) {
+        List<Long> ids = jdbcTemplate.queryForList(SELECT_LOCATION_SQL, Long.class, waybillNo);
+        return ids.isEmpty() ? Optional.empty() : Optional.of(ids.get(0));
+    }
+
+    public Optional<InventoryStatus> findStatus(String waybillNo) {
+        List<Integer> statuses = jdbcTemplate.queryForList("SELECT status FROM inventory WHERE waybill_no = ?",
+                Integer.class, waybillNo);
+        return statuses.isEmpty() ? Optional.empty() : Optional.of(STATUSES[statuses.get(0)]);
+    }
+
+    /**
+     * 记录库位计数的变更，与库位的条件更新在同一事务中执行，回滚时一并撤销
+     */
+    public void insertChange(long locationId, int reservedDelta, int occupiedDelta, LocalDateTime now) {
+        jdbcTemplate.update(INSERT_CHANGE_SQL, locationId, reservedDelta, occupiedDelta, Timestamp.valueOf(now));
+    }
+
+    /**
+     * 逐行读取全部库位（含已满的，出库后才能归还到索引），用于重建空闲库位索引
+     */
+    public void findAllLocations(Consumer<StorageLocation> consumer) {
+        jdbcTemplate.query(SELECT_LOCATIONS_SQL, rs -> {
+            StorageLocation location = new StorageLocation();
+            location.setId(rs.getLong("id"));
+            location.setWarehouseId(rs.getLong("warehouse_id"));
+            location.setLocationCode(rs.getString("location_code"));
+            location.setZone(rs.getString("zone"));
+            location.setCapacity(rs.getInt("capacity"));
+            location.setOccupied(rs.getInt("occupied"));
+            location.setReserved(rs.getInt("reserved"));
+            location.setMaxWeight(rs.getBigDecimal("max_weight"));
+            location.setMaxVolume(rs.getBigDecimal("max_volume"));
+            consumer.accept(location);
+        });
+    }
+
+    /**
+     * @return 1=预占成功，0=库位不存在、不属于该仓库或已满
+     */
+    public int reserveSlot(long warehouseId, long locationId) {
+        return jdbcTemplate.update(RESERVE_SLOT_SQL, locationId, warehouseId);
+    }
+
+    //预占转为占用
+    public int occupySlot(long locationId) {
+        return jdbcTemplate.update(OCCUPY_SLOT_SQL, locationId);
+    }
+
+    //释放预占
+    public int releaseSlot(long locationId) {
+        return jdbcTemplate.update(RELEASE_SLOT_SQL, locationId);
+    }
+
+    //出库后腾出占用
+    public int vacateSlot(long locationId) {
+        return jdbcTemplate.update(VACATE_SLOT_SQL, locationId);
+    }
+}
@@ -1,4 +1,17 @@
 package com.logistics.platfrom.distribution.warehouse.repository;
 
-public class InventoryRepository {
+import com.logistics.platfrom.distribution.warehouse.entity.Inventory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+//只用于查询，库存的预占、确认和释放见 InventoryJdbcRepository
+@Repository
+public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+
+    Optional<Inventory> findByWaybillNo(String waybillNo);
+
+    List<Inventory> findByLocationId(Long locationId);
 }
@@ -0,0 +1,161 @@
+package com.logistics.platfrom.distribution.warehouse.repository;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventorySnapshot;
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import com.logistics.platfrom.distribution.warehouse.snapshot.InventoryChange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 库存汇总的读写：合并库位计数的变更、维护合并进度，以及对账时分块读取库位
+ * 所有查询都按主键或索引范围读取，不扫描 inventory 表
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventorySnapshotJdbcRepository {
+
+    private static final String LOCK_CURSOR_SQL = "SELECT last_change_id FROM inventory_snapshot_cursor " +
+            "WHERE id = 1 FOR UPDATE";
+
+    private static final String SELECT_CURSOR_SQL = "SELECT last_change_id FROM inventory_snapshot_cursor WHERE id = 1";
+
+    private static final String UPDATE_CURSOR_SQL = "UPDATE inventory_snapshot_cursor SET last_change_id = ? " +
+            "WHERE id = 1";
+
+    private static final String SELECT_CHANGES_SQL = "SELECT c.id, c.location_id, l.warehouse_id, c.reserved_delta, " +
+            "c.occupied_delta, c.create_time FROM inventory_change c JOIN storage_location l ON l.id = c.location_id " +
+            "WHERE c.id > ? ORDER BY c.id LIMIT ?";
+
+    private static final String SELECT_WAREHOUSE_CHANGES_SQL = "SELECT c.id, c.location_id, l.warehouse_id, " +
+            "c.reserved_delta, c.occupied_delta, c.create_time FROM inventory_change c " +
+            "JOIN storage_location l ON l.id = c.location_id WHERE c.id > ? AND c.id <= ? AND l.warehouse_id = ?";
+
+    private static final String SUM_CHANGES_SQL = "SELECT COALESCE(SUM(c.reserved_delta), 0), " +
+            "COALESCE(SUM(c.occupied_delta), 0) FROM inventory_change c JOIN storage_location l " +
+            "ON l.id = c.location_id WHERE c.id > ? AND c.location_id BETWEEN ? AND ? AND l.warehouse_id = ?";
+
+    private static final String PURGE_CHANGES_SQL = "DELETE FROM inventory_change WHERE id <= ? AND create_time < ? " +
+            "LIMIT ?";
+
+    //合并变更：累加到汇总行，仓库还没有汇总行时插入
+    private static final String ADD_SQL = "INSERT INTO inventory_snapshot (warehouse_id, occupied, reserved, " +
+            "update_time) VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE occupied = occupied + VALUES(occupied), " +
+            "reserved = reserved + VALUES(reserved), update_time = VALUES(update_time)";
+
+    //对账：整行覆盖
+    private static final String SAVE_SQL = "INSERT INTO inventory_snapshot (warehouse_id, location_count, capacity, " +
+            "occupied, reserved, reconcile_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+            "location_count = VALUES(location_count), capacity = VALUES(capacity), occupied = VALUES(occupied), " +
+            "reserved = VALUES(reserved), reconcile_time = VALUES(reconcile_time), update_time = VALUES(update_time)";
+
+    private static final String SELECT_SNAPSHOT_SQL = "SELECT warehouse_id, location_count, capacity, occupied, " +
+            "reserved, reconcile_time, update_time FROM inventory_snapshot WHERE warehouse_id = ?";
+
+    //走 idx_warehouse_id，按主键顺序取下一块
+    private static final String SELECT_LOCATION_CHUNK_SQL = "SELECT id, capacity, occupied, reserved " +
+            "FROM storage_location WHERE warehouse_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final RowMapper<InventoryChange> CHANGE_MAPPER = (rs, rowNum) -> new InventoryChange(
+            rs.getLong("id"), rs.getLong("location_id"), rs.getLong("warehouse_id"), rs.getInt("reserved_delta"),
+            rs.getInt("occupied_delta"), rs.getTimestamp("create_time").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 锁定合并进度，持有到事务结束
+     */
+    public long lockCursor() {
+        return jdbcTemplate.queryForObject(LOCK_CURSOR_SQL, Long.class);
+    }
+
+    public long findCursor() {
+        return jdbcTemplate.queryForObject(SELECT_CURSOR_SQL, Long.class);
+    }
+
+    public void updateCursor(long lastChangeId) {
+        jdbcTemplate.update(UPDATE_CURSOR_SQL, lastChangeId);
+    }
+
+    /**
+     * ID大于 afterId 的变更，按ID升序
+     */
+    public List<InventoryChange> findChanges(long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_CHANGES_SQL, CHANGE_MAPPER, afterId, limit);
+    }
+
+    /**
+     * 仓库中ID在 (afterId, toId] 的变更
+     */
+    public List<InventoryChange> findChanges(long warehouseId, long afterId, long toId) {
+        return jdbcTemplate.query(SELECT_WAREHOUSE_CHANGES_SQL, CHANGE_MAPPER, afterId, toId, warehouseId);
+    }
+
+    /**
+     * 仓库中库位ID在 [fromLocationId, toLocationId]、变更ID大于 afterId 的变更之和
+     * @return {预占数之和, 占用数之和}
+     */
+    public long[] sumChanges(long warehouseId, long afterId, long fromLocationId, long toLocationId) {
+        return jdbcTemplate.queryForObject(SUM_CHANGES_SQL, (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)},
+                afterId, fromLocationId, toLocationId, warehouseId);
+    }
+
+    /**
+     * 删除已合并且早于 before 的变更，每次最多 limit 行
+     * @return 删除的行数
+     */
+    public int purgeChanges(long upToId, LocalDateTime before, int limit) {
+        return jdbcTemplate.update(PURGE_CHANGES_SQL, upToId, Timestamp.valueOf(before), limit);
+    }
+
+    public void add(long warehouseId, long reservedDelta, long occupiedDelta, LocalDateTime now) {
+        jdbcTemplate.update(ADD_SQL, warehouseId, occupiedDelta, reservedDelta, Timestamp.valueOf(now));
+    }
+
+    public void save(InventorySnapshot snapshot) {
+        jdbcTemplate.update(SAVE_SQL, snapshot.getWarehouseId(), snapshot.getLocationCount(), snapshot.getCapacity(),
+                snapshot.getOccupied(), snapshot.getReserved(), Timestamp.valueOf(snapshot.getReconcileTime()),
+                Timestamp.valueOf(snapshot.getUpdateTime()));
+    }
+
+    public Optional<InventorySnapshot> findSnapshot(long warehouseId) {
+        List<InventorySnapshot> snapshots = jdbcTemplate.query(SELECT_SNAPSHOT_SQL, (rs, rowNum) -> {
+            InventorySnapshot snapshot = new InventorySnapshot();
+            snapshot.setWarehouseId(rs.getLong("warehouse_id"));
+            snapshot.setLocationCount(rs.getInt("location_count"));
+            snapshot.setCapacity(rs.getLong("capacity"));
+            snapshot.setOccupied(rs.getLong("occupied"));
+            snapshot.setReserved(rs.getLong("reserved"));
+            Timestamp reconcileTime = rs.getTimestamp("reconcile_time");
+            snapshot.setReconcileTime(reconcileTime == null ? null : reconcileTime.toLocalDateTime());
+            snapshot.setUpdateTime(rs.getTimestamp("update_time").toLocalDateTime());
+            return snapshot;
+        }, warehouseId);
+        return snapshots.isEmpty() ? Optional.empty() : Optional.of(snapshots.get(0));
+    }
+
+    /**
+     * 仓库中ID大于 afterId 的下一块库位，只含ID和计数
+     */
+    public List<StorageLocation> findLocations(long warehouseId, long afterId, int limit) {
+        return jdbcTemplate.query(SELECT_LOCATION_CHUNK_SQL, (rs, rowNum) -> {
+            StorageLocation location = new StorageLocation();
+            location.setId(rs.getLong("id"));
+            location.setWarehouseId(warehouseId);
+            location.setCapacity(rs.getInt("capacity"));
+            location.setOccupied(rs.getInt("occupied"));
+            location.setReserved(rs.getInt("reserved"));
+            return location;
+        }, warehouseId, afterId, limit);
+    }
+
+    public List<Long> findWarehouseIds() {
+        return jdbcTemplate.queryForList("SELECT id FROM warehouse", Long.class);
+    }
+}
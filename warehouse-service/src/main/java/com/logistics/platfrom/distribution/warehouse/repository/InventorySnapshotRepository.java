@@ -0,0 +1,10 @@
+package com.logistics.platfrom.distribution.warehouse.repository;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventorySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+//只用于看板按仓库ID读取，汇总的写入见 InventorySnapshotJdbcRepository
+@Repository
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Long> {
+}
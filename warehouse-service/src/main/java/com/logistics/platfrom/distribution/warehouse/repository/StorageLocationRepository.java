@@ -0,0 +1,14 @@
+package com.logistics.platfrom.distribution.warehouse.repository;
+
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+//占用数的增减见 InventoryJdbcRepository，不要用 save 覆盖 occupied、reserved
+@Repository
+public interface StorageLocationRepository extends JpaRepository<StorageLocation, Long> {
+
+    List<StorageLocation> findByWarehouseId(Long warehouseId);
+}
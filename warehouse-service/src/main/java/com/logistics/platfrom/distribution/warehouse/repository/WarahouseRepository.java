@@ -1,4 +1,9 @@
 package com.logistics.platfrom.distribution.warehouse.repository;
 
-public class WarahouseRepository {
+import com.logistics.platfrom.distribution.warehouse.entity.Warehouse;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WarahouseRepository extends JpaRepository<Warehouse, Long> {
 }
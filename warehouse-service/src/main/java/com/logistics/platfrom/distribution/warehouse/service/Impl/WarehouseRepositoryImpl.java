@@ -1,13 +1,20 @@
 package com.logistics.platfrom.distribution.warehouse.service.Impl;
 
+import com.logistics.platfrom.distribution.warehouse.entity.Inventory;
+import com.logistics.platfrom.distribution.warehouse.entity.InventoryStatus;
 import com.logistics.platfrom.distribution.warehouse.entity.Warehouse;
-import com.logistics.platfrom.distribution.warehouse.feign.WaybillServiceFeignClient;
+import com.logistics.platfrom.distribution.warehouse.exception.InventoryConflictException;
+import com.logistics.platfrom.distribution.warehouse.feign.BatchingWaybillClient;
+import com.logistics.platfrom.distribution.warehouse.feign.WaybillDTO;
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.location.SlotAllocator;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
 import com.logistics.platfrom.distribution.warehouse.repository.InventoryRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.WarahouseRepository;
 import com.logistics.platfrom.distribution.warehouse.service.WarehouseRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -16,18 +23,28 @@ import java.util.List;
 @Slf4j
 public class WarehouseRepositoryImpl implements WarehouseRepository{
     @Autowired
-    private WarehouseRepository warehouseRepository;
+    private WarahouseRepository warehouseRepository;
 
     @Autowired
     private InventoryRepository inventoryRepository;
 
     @Autowired
-    private WaybillServiceFeignClient waybillServiceFeignClient;
+    private InventoryJdbcRepository inventoryJdbcRepository;
+
+    @Autowired
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private SlotAllocator slotAllocator;
+
+    //并发扫描的运单查询合并成批量查询，状态更新后刷新短时缓存
+    @Autowired
+    private BatchingWaybillClient batchingWaybillClient;
 
     //仓库管理
     @Override
     public Warehouse saveWarehouse(Warehouse warehouse){
-        if (warehouse.getWarehouseId() == null){
+        if (warehouse.getWarehouseCode() == null){
             String code = "WH" + System.currentTimeMillis();
             warehouse.setWarehouseCode(code);
         }
@@ -40,12 +57,58 @@ public class WarehouseRepositoryImpl implements WarehouseRepository{
         return warehouseRepository.findAll();
     }
 
-    //入库操作
+    //入库操作：先预占库位，运单服务更新成功后再确认；调用运单服务不在数据库事务内，失败时释放预占
+    @Override
+    public Inventory inbound(Long warehouseId, Long locationId, String zone, String waybillNo){
+        //检查仓库是否存在
+        if (!warehouseRepository.existsById(warehouseId)){
+            throw InventoryConflictException.warehouseNotFound(waybillNo, warehouseId);
+        }
+        WaybillDTO waybill = getWaybill(waybillNo);
+        if ("DELIVERED".equals(waybill.getStatus()) || "CANCELLED".equals(waybill.getStatus())){
+            throw InventoryConflictException.waybillClosed(waybillNo, waybill.getStatus());
+        }
+        if (locationId == null){
+            slotAllocator.reserveInbound(warehouseId, zone, waybillNo, waybill.getWeight(), waybill.getVolume());
+        } else {
+            slotAllocator.reserveInbound(warehouseId, locationId, waybillNo, waybill.getWeight(), waybill.getVolume());
+        }
+        try {
+            batchingWaybillClient.updateStatus(waybillNo, "PICKED");
+        } catch (RuntimeException e) {
+            slotAllocator.released(inventoryEngine.cancelInbound(waybillNo));
+            throw e;
+        }
+        inventoryEngine.confirmInbound(waybillNo);
+        return inventoryRepository.findByWaybillNo(waybillNo).orElseThrow();
+    }
+
+    //出库操作，同一包裹被并发出库时只有一个成功
+    @Override
+    public void outbound(String waybillNo){
+        inventoryEngine.reserveOutbound(waybillNo);
+        try {
+            batchingWaybillClient.updateStatus(waybillNo, "DELIVERING");
+        } catch (RuntimeException e) {
+            inventoryEngine.cancelOutbound(waybillNo);
+            throw e;
+        }
+        slotAllocator.released(inventoryEngine.confirmOutbound(waybillNo));
+    }
+
+    //波次下发时已转为拣货中，只需更新运单并确认出库
     @Override
-    @Transactional
-    public String inbound(Long warehouseId, Long waybillId){
-        try{
-            Warehouse warehouse = warehouseRepository.findById(warehouseId).orElseThrow(() -> new RuntimeException("仓库不存在"));
-        }//检查仓库是否存在
+    public void confirmPicked(String waybillNo){
+        InventoryStatus status = inventoryJdbcRepository.findStatus(waybillNo).orElse(null);
+        if (status != InventoryStatus.PICKING){
+            throw InventoryConflictException.illegalState(waybillNo, "拣货出库", status);
+        }
+        batchingWaybillClient.updateStatus(waybillNo, "DELIVERING");
+        slotAllocator.released(inventoryEngine.confirmOutbound(waybillNo));
+    }
+
+    private WaybillDTO getWaybill(String waybillNo){
+        return batchingWaybillClient.get(waybillNo)
+                .orElseThrow(() -> InventoryConflictException.waybillNotFound(waybillNo));
     }
 }
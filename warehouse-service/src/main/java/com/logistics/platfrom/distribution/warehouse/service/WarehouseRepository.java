@@ -1,4 +1,30 @@
 package com.logistics.platfrom.distribution.warehouse.service;
 
+import com.logistics.platfrom.distribution.warehouse.entity.Inventory;
+import com.logistics.platfrom.distribution.warehouse.entity.Warehouse;
+
+import java.util.List;
+
 public interface WarehouseRepository {
+
+    Warehouse saveWarehouse(Warehouse warehouse);
+
+    List<Warehouse> findAllWarehouse();
+
+    /**
+     * 包裹入库，运单状态随之变为已揽收
+     * @param locationId 指定库位，null时按包裹重量、体积自动分配
+     * @param zone       自动分配时限定的库区，null时不限
+     */
+    Inventory inbound(Long warehouseId, Long locationId, String zone, String waybillNo);
+
+    /**
+     * 包裹出库，运单状态随之变为配送中
+     */
+    void outbound(String waybillNo);
+
+    /**
+     * 波次中已拣的包裹出库，包裹须已随波次下发转为拣货中；运单服务更新失败时包裹仍在拣货中，可重试
+     */
+    void confirmPicked(String waybillNo);
 }
@@ -0,0 +1,11 @@
+package com.logistics.platfrom.distribution.warehouse.snapshot;
+
+import java.time.LocalDateTime;
+
+/**
+ * inventory_change 的一行：一个库位的预占数、占用数各增减多少
+ * @param warehouseId 库位所属仓库，读取时关联 storage_location 得到
+ */
+public record InventoryChange(long id, long locationId, long warehouseId, int reservedDelta, int occupiedDelta,
+                              LocalDateTime createTime) {
+}
@@ -0,0 +1,292 @@
+package com.logistics.platfrom.distribution.warehouse.snapshot;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventorySnapshot;
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import com.logistics.platfrom.distribution.warehouse.repository.InventorySnapshotJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 仓库库存汇总：InventoryEngine 每次增减库位计数时在同一事务中写一条 inventory_change，
+ * 这里按变更ID顺序定期合并到每个仓库一行的 inventory_snapshot，看板按主键读取汇总，不再对库位、库存表做全表统计
+ * 合并和对账修正都先锁定 inventory_snapshot_cursor 的唯一一行，多个实例同时运行时串行执行，同一变更不会重复累加
+ * 对账按库位ID分块读取 storage_location，每块一个短的只读事务，块之间暂停 chunkPause；
+ * 汇总与库位计数不一致（变更提交晚于合并进度而被跳过、手工修改库位等）时以库位计数为准修正
+ */
+@Slf4j
+public class InventorySnapshotter {
+
+    private final InventorySnapshotJdbcRepository snapshotJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    //一块库位的计数和未合并的变更在同一个一致性读视图中读取
+    private final TransactionTemplate chunkTransactionTemplate;
+    private final int applyBatchSize;
+    private final Duration applyLag;
+    private final int chunkSize;
+    private final Duration chunkPause;
+    private final Duration retention;
+
+    private final AtomicLong appliedChanges = new AtomicLong();
+    private final AtomicLong corrections = new AtomicLong();
+
+    /**
+     * @param applyBatchSize 一个事务合并的变更数
+     * @param applyLag       只合并写入超过这段时间的变更，给ID靠前、提交较晚的事务留出时间
+     * @param chunkSize      对账每块的库位数
+     * @param chunkPause     对账块之间、清理批次之间的暂停
+     * @param retention      已合并的变更保留的时间，应长于一个仓库对账的耗时
+     */
+    public InventorySnapshotter(InventorySnapshotJdbcRepository snapshotJdbcRepository,
+                                PlatformTransactionManager transactionManager, int applyBatchSize, Duration applyLag,
+                                int chunkSize, Duration chunkPause, Duration retention) {
+        this.snapshotJdbcRepository = snapshotJdbcRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkTransactionTemplate.setReadOnly(true);
+        this.chunkTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.applyBatchSize = applyBatchSize;
+        this.applyLag = applyLag;
+        this.chunkSize = chunkSize;
+        this.chunkPause = chunkPause;
+        this.retention = retention;
+    }
+
+    /**
+     * 合并全部可合并的变更
+     */
+    @Scheduled(fixedDelayString = "${warehouse.snapshot.apply-interval-ms:1000}")
+    public void applyChanges() {
+        try {
+            int applied;
+            do {
+                applied = applyBatch();
+            } while (applied == applyBatchSize);
+        } catch (RuntimeException e) {
+            log.warn("合并库存变更失败，下次重试：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 合并一批变更，同一仓库的变更先累加，一个仓库只写一次汇总行
+     * @return 合并的变更数
+     */
+    int applyBatch() {
+        return transactionTemplate.execute(tx -> {
+            long cursor = snapshotJdbcRepository.lockCursor();
+            LocalDateTime before = LocalDateTime.now().minus(applyLag);
+            Map<Long, long[]> deltas = new HashMap<>();
+            long lastChangeId = cursor;
+            int applied = 0;
+            for (InventoryChange change : snapshotJdbcRepository.findChanges(cursor, applyBatchSize)) {
+                //遇到第一条未超过 applyLag 的变更就停下，进度不越过它
+                if (change.createTime().isAfter(before)) {
+                    break;
+                }
+                long[] delta = deltas.computeIfAbsent(change.warehouseId(), id -> new long[2]);
+                delta[0] += change.reservedDelta();
+                delta[1] += change.occupiedDelta();
+                lastChangeId = change.id();
+                applied++;
+            }
+            if (applied == 0) {
+                return 0;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            deltas.forEach((warehouseId, delta) -> snapshotJdbcRepository.add(warehouseId, delta[0], delta[1], now));
+            snapshotJdbcRepository.updateCursor(lastChangeId);
+            appliedChanges.addAndGet(applied);
+            return applied;
+        });
+    }
+
+    /**
+     * 分批删除已合并且超过保留时间的变更
+     */
+    @Scheduled(fixedDelayString = "${warehouse.snapshot.purge-interval-ms:60000}")
+    public void purgeChanges() {
+        try {
+            long cursor = snapshotJdbcRepository.findCursor();
+            LocalDateTime before = LocalDateTime.now().minus(retention);
+            int purged = 0;
+            int deleted;
+            do {
+                deleted = snapshotJdbcRepository.purgeChanges(cursor, before, chunkSize);
+                purged += deleted;
+                pause();
+            } while (deleted == chunkSize);
+            if (purged > 0) {
+                log.info("清理已合并的库存变更{}条", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("清理库存变更失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 逐个仓库对账，一个仓库失败不影响其他仓库
+     */
+    @Scheduled(fixedDelayString = "${warehouse.snapshot.reconcile-interval-ms:600000}",
+            initialDelayString = "${warehouse.snapshot.reconcile-interval-ms:600000}")
+    public void reconcileAll() {
+        for (long warehouseId : snapshotJdbcRepository.findWarehouseIds()) {
+            try {
+                reconcile(warehouseId);
+            } catch (RuntimeException e) {
+                log.warn("仓库{}库存汇总对账失败：{}", warehouseId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 对账一个仓库：分块读取库位计数，换算到当前合并进度后与汇总比较，不一致时以库位计数为准修正；
+     * 库位数和容量不经变更合并，每次对账覆盖
+     * @return 预占数或占用数是否被修正
+     */
+    public boolean reconcile(long warehouseId) {
+        long begin = System.currentTimeMillis();
+        List<Chunk> chunks = new ArrayList<>();
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            Chunk chunk = chunkTransactionTemplate.execute(tx -> readChunk(warehouseId, from));
+            if (chunk == null) {
+                break;
+            }
+            chunks.add(chunk);
+            afterId = chunk.toLocationId();
+            if (chunk.locationCount() < chunkSize) {
+                break;
+            }
+            pause();
+        }
+        boolean corrected = transactionTemplate.execute(tx -> correct(warehouseId, chunks));
+        log.info("仓库{}库存汇总对账完成，{}块，耗时{}ms", warehouseId, chunks.size(), System.currentTimeMillis() - begin);
+        return corrected;
+    }
+
+    //块中库位的计数减去已提交、尚未合并的变更，得到汇总合并到 cursor 时这些库位应有的计数
+    private Chunk readChunk(long warehouseId, long afterId) {
+        long cursor = snapshotJdbcRepository.findCursor();
+        List<StorageLocation> locations = snapshotJdbcRepository.findLocations(warehouseId, afterId, chunkSize);
+        if (locations.isEmpty()) {
+            return null;
+        }
+        long capacity = 0;
+        long occupied = 0;
+        long reserved = 0;
+        for (StorageLocation location : locations) {
+            capacity += location.getCapacity();
+            occupied += location.getOccupied();
+            reserved += location.getReserved();
+        }
+        long fromLocationId = locations.get(0).getId();
+        long toLocationId = locations.get(locations.size() - 1).getId();
+        long[] pending = snapshotJdbcRepository.sumChanges(warehouseId, cursor, fromLocationId, toLocationId);
+        return new Chunk(fromLocationId, toLocationId, cursor, locations.size(), capacity, reserved - pending[0],
+                occupied - pending[1]);
+    }
+
+    //锁定合并进度后，把各块读取之后才合并的变更补到对应的块上，与汇总比较
+    private boolean correct(long warehouseId, List<Chunk> chunks) {
+        long cursor = snapshotJdbcRepository.lockCursor();
+        int locationCount = 0;
+        long capacity = 0;
+        long reserved = 0;
+        long occupied = 0;
+        long minCursor = cursor;
+        for (Chunk chunk : chunks) {
+            locationCount += chunk.locationCount();
+            capacity += chunk.capacity();
+            reserved += chunk.reserved();
+            occupied += chunk.occupied();
+            minCursor = Math.min(minCursor, chunk.cursor());
+        }
+        if (minCursor < cursor) {
+            for (InventoryChange change : snapshotJdbcRepository.findChanges(warehouseId, minCursor, cursor)) {
+                Chunk chunk = chunkOf(chunks, change.locationId());
+                if (chunk != null && change.id() > chunk.cursor()) {
+                    reserved += change.reservedDelta();
+                    occupied += change.occupiedDelta();
+                }
+            }
+        }
+        InventorySnapshot snapshot = snapshotJdbcRepository.findSnapshot(warehouseId).orElseGet(() -> {
+            InventorySnapshot empty = new InventorySnapshot();
+            empty.setWarehouseId(warehouseId);
+            empty.setOccupied(0L);
+            empty.setReserved(0L);
+            return empty;
+        });
+        boolean corrected = snapshot.getReserved() != reserved || snapshot.getOccupied() != occupied;
+        if (corrected) {
+            log.warn("仓库{}库存汇总与库位计数不一致，已修正：预占 {} -> {}，占用 {} -> {}", warehouseId,
+                    snapshot.getReserved(), reserved, snapshot.getOccupied(), occupied);
+            corrections.incrementAndGet();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        snapshot.setLocationCount(locationCount);
+        snapshot.setCapacity(capacity);
+        snapshot.setReserved(reserved);
+        snapshot.setOccupied(occupied);
+        snapshot.setReconcileTime(now);
+        snapshot.setUpdateTime(now);
+        snapshotJdbcRepository.save(snapshot);
+        return corrected;
+    }
+
+    //chunks 按库位ID升序且不重叠
+    private static Chunk chunkOf(List<Chunk> chunks, long locationId) {
+        int low = 0;
+        int high = chunks.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Chunk chunk = chunks.get(mid);
+            if (locationId < chunk.fromLocationId()) {
+                high = mid - 1;
+            } else if (locationId > chunk.toLocationId()) {
+                low = mid + 1;
+            } else {
+                return chunk;
+            }
+        }
+        return null;
+    }
+
+    private void pause() {
+        if (chunkPause.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(chunkPause.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("库存汇总任务被中断", e);
+        }
+    }
+
+    public long getAppliedChanges() {
+        return appliedChanges.get();
+    }
+
+    public long getCorrections() {
+        return corrections.get();
+    }
+
+    /**
+     * 一块库位在合并进度为 cursor 时应有的计数
+     */
+    private record Chunk(long fromLocationId, long toLocationId, long cursor, int locationCount, long capacity,
+                         long reserved, long occupied) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+/**
+ * 从收件地址中取出目的区县，同一区县的包裹由同一条线路配送
+ * 取到第一个“区”“县”或“旗”为止（如 北京市海淀区中关村大街1号 -> 北京市海淀区，省级的“自治区”跳过），没有时取到“市”为止，
+ * 都没有时取整个地址；地址为空时为空字符串
+ */
+public final class DestinationArea {
+
+    private static final char[] DISTRICT_SUFFIXES = {'区', '县', '旗'};
+
+    private DestinationArea() {
+    }
+
+    public static String of(String address) {
+        if (address == null || address.isBlank()) {
+            return "";
+        }
+        String trimmed = address.strip();
+        int end = -1;
+        for (char suffix : DISTRICT_SUFFIXES) {
+            int index = trimmed.indexOf(suffix);
+            while (index > 0 && trimmed.startsWith("自治区", index - 2)) {
+                index = trimmed.indexOf(suffix, index + 1);
+            }
+            if (index > 0 && (end < 0 || index < end)) {
+                end = index;
+            }
+        }
+        if (end < 0) {
+            end = trimmed.indexOf('市');
+        }
+        return end > 0 ? trimmed.substring(0, end + 1) : trimmed;
+    }
+}
@@ -0,0 +1,18 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 波次中的一次拣货
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PickTask {
+    private int sequence; // 拣货顺序，从1开始
+    private String waybillNo; // 运单号
+    private Long locationId; // 库位ID
+    private String locationCode; // 库位编码
+}
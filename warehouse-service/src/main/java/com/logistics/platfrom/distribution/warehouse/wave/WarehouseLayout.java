@@ -0,0 +1,123 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 仓库平面布局：由库位编码推算每个库位所在的巷道和货位，用于排拣货顺序和估算行走距离
+ * 编码按 巷道组-巷道-货位[-层] 解析，如 A-01-03 为 A-01 巷道的第3个货位，层不影响行走；
+ * 巷道按 库区、巷道编码 排序后连续编号，所有巷道两端都有横向通道，相邻巷道间距 AISLE_PITCH 个货位
+ * 无法解析的编码视为单独的巷道，排在最后
+ */
+public class WarehouseLayout {
+
+    //相邻巷道中心的距离，以货位宽度为单位
+    static final int AISLE_PITCH = 3;
+
+    private static final Position UNKNOWN = new Position(Integer.MAX_VALUE, 0, null);
+
+    private final Map<Long, Position> positions;
+    private final int aisleCount;
+    //最长巷道的货位数，穿过巷道到另一端横向通道的距离
+    private final int aisleLength;
+
+    private WarehouseLayout(Map<Long, Position> positions, int aisleCount, int aisleLength) {
+        this.positions = positions;
+        this.aisleCount = aisleCount;
+        this.aisleLength = aisleLength;
+    }
+
+    public static WarehouseLayout of(Collection<StorageLocation> locations) {
+        //库区 + 巷道编码 -> 巷道序号
+        Map<String, Integer> aisles = new TreeMap<>();
+        Map<Long, String> aisleKeys = new HashMap<>(locations.size() * 2);
+        Map<Long, Integer> bays = new HashMap<>(locations.size() * 2);
+        for (StorageLocation location : locations) {
+            String code = location.getLocationCode() == null ? "" : location.getLocationCode();
+            String[] segments = code.split("-");
+            int bay = segments.length >= 3 ? parseBay(segments[2]) : -1;
+            String aisle = bay >= 0 ? segments[0] + "-" + segments[1] : code;
+            String key = (location.getZone() == null ? "" : location.getZone()) + "\u0000" + aisle;
+            aisles.put(key, 0);
+            aisleKeys.put(location.getId(), key);
+            bays.put(location.getId(), Math.max(bay, 0));
+        }
+        int ordinal = 0;
+        for (Map.Entry<String, Integer> aisle : aisles.entrySet()) {
+            aisle.setValue(ordinal++);
+        }
+        Map<Long, Position> positions = new HashMap<>(locations.size() * 2);
+        int aisleLength = 1;
+        for (StorageLocation location : locations) {
+            int bay = bays.get(location.getId());
+            positions.put(location.getId(), new Position(aisles.get(aisleKeys.get(location.getId())), bay,
+                    location.getLocationCode()));
+            aisleLength = Math.max(aisleLength, bay + 1);
+        }
+        return new WarehouseLayout(positions, aisles.size(), aisleLength);
+    }
+
+    private static int parseBay(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 库位的位置，不在布局中的库位排在最后
+     */
+    public Position position(long locationId) {
+        return positions.getOrDefault(locationId, UNKNOWN);
+    }
+
+    /**
+     * 从0号巷道前端出发，依次经过各位置再回到出发点的行走距离（货位数）
+     * 同一巷道内直接走过去，换巷道时从近的一端绕出
+     */
+    public long travel(List<Position> route) {
+        long distance = 0;
+        int aisle = 0;
+        int bay = 0;
+        for (Position position : route) {
+            distance += distance(aisle, bay, position.aisle(), position.bay());
+            aisle = position.aisle();
+            bay = position.bay();
+        }
+        return distance + distance(aisle, bay, 0, 0);
+    }
+
+    private long distance(int fromAisle, int fromBay, int toAisle, int toBay) {
+        if (fromAisle == toAisle) {
+            return Math.abs(fromBay - toBay);
+        }
+        //不在布局中的库位按最远的巷道算
+        long aisles = Math.abs((long) Math.min(fromAisle, aisleCount) - Math.min(toAisle, aisleCount));
+        return aisles * AISLE_PITCH + Math.min(fromBay + toBay, 2L * aisleLength - fromBay - toBay);
+    }
+
+    int aisleLength() {
+        return aisleLength;
+    }
+
+    /**
+     * 按巷道、货位排序的键
+     */
+    static long sortKey(Position position) {
+        return (long) position.aisle() << 32 | position.bay();
+    }
+
+    /**
+     * 库位在布局中的位置
+     * @param aisle 巷道序号
+     * @param bay   巷道内的货位序号，从前端横向通道算起
+     */
+    public record Position(int aisle, int bay, String locationCode) {
+    }
+}
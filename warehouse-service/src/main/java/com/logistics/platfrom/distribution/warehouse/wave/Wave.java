@@ -0,0 +1,20 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 拣货波次：目的区县、配送员和送达时间段都相同的一组包裹，按拣货顺序排列
+ */
+@Data
+public class Wave {
+    private String waveNo; // 波次号
+    private Long warehouseId; // 仓库ID
+    private String destinationArea; // 目的区县
+    private Long deliverymanId; // 配送员ID
+    private LocalDateTime windowStart; // 送达时间段的开始，没有预计送达时间时为null
+    private List<PickTask> picks; // 按拣货顺序
+    private long travel; // 规划时估算的行走距离（货位数），见 WarehouseLayout
+}
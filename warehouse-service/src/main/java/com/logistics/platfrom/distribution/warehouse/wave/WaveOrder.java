@@ -0,0 +1,13 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待出库的在库包裹及其配送信息
+ * @param destinationArea 目的区县，见 DestinationArea
+ * @param deliverymanId   配送员，未分配时为null
+ * @param deadline        预计送达时间，没有时为null，排在有时间的之后
+ */
+public record WaveOrder(String waybillNo, long locationId, String destinationArea, Long deliverymanId,
+                        LocalDateTime deadline) {
+}
@@ -0,0 +1,141 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 波次规划：待出库包裹按 目的区县 + 配送员 + 送达时间段 分组，同组的包裹由同一配送员同一趟送出，放在同一波次中一起拣货
+ * 组内按巷道、货位排序后切成不超过 maxWaveSize 的波次，每个波次占据一段连续的巷道；
+ * 波次内按巷道顺序拣货，进入每条巷道时从离当前位置近的一端走向另一端（S形路线），不回头
+ * 分组和各组的排序、切分并行执行；结果按送达时间段从早到晚排列，同一时间段按区县、配送员排列
+ * 规划只读取传入的数据，不修改库存
+ */
+public class WavePlanner {
+
+    private static final Comparator<GroupKey> GROUP_ORDER = Comparator
+            .comparing(GroupKey::windowStart, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(GroupKey::destinationArea)
+            .thenComparing(GroupKey::deliverymanId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final Duration timeWindow;
+    private final int maxWaveSize;
+    private final boolean parallel;
+
+    /**
+     * @param timeWindow  送达时间段的长度，从每天0点起划分
+     * @param maxWaveSize 每个波次最多的包裹数
+     * @param parallel    是否并行分组和排序，包裹很少时串行更快
+     */
+    public WavePlanner(Duration timeWindow, int maxWaveSize, boolean parallel) {
+        if (timeWindow.isNegative() || timeWindow.isZero() || maxWaveSize <= 0) {
+            throw new IllegalArgumentException("波次时间段和大小必须为正");
+        }
+        this.timeWindow = timeWindow;
+        this.maxWaveSize = maxWaveSize;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @param planNo 本次规划的编号，波次号为 planNo-序号
+     */
+    public List<Wave> plan(String planNo, long warehouseId, Collection<WaveOrder> orders, WarehouseLayout layout) {
+        Map<GroupKey, List<WaveOrder>> groups = parallel
+                ? orders.parallelStream().collect(Collectors.groupingByConcurrent(this::groupOf))
+                : orders.stream().collect(Collectors.groupingBy(this::groupOf));
+        List<GroupKey> keys = new ArrayList<>(groups.keySet());
+        keys.sort(GROUP_ORDER);
+        List<List<Wave>> planned = (parallel ? keys.parallelStream() : keys.stream())
+                .map(key -> split(warehouseId, key, groups.get(key), layout))
+                .toList();
+        List<Wave> waves = new ArrayList<>();
+        for (List<Wave> group : planned) {
+            for (Wave wave : group) {
+                wave.setWaveNo(planNo + "-" + (waves.size() + 1));
+                waves.add(wave);
+            }
+        }
+        return waves;
+    }
+
+    private GroupKey groupOf(WaveOrder order) {
+        return new GroupKey(order.destinationArea() == null ? "" : order.destinationArea(), order.deliverymanId(),
+                windowStart(order.deadline()));
+    }
+
+    //所在时间段的开始，时间段从当天0点起按 timeWindow 划分
+    LocalDateTime windowStart(LocalDateTime deadline) {
+        if (deadline == null) {
+            return null;
+        }
+        LocalDateTime midnight = deadline.toLocalDate().atStartOfDay();
+        long windowNanos = timeWindow.toNanos();
+        long sinceMidnight = Duration.between(midnight, deadline).toNanos();
+        return midnight.plusNanos(sinceMidnight / windowNanos * windowNanos);
+    }
+
+    //组内按巷道、货位排序后尽量均匀地切分，避免最后一个波次只剩几个包裹
+    private List<Wave> split(long warehouseId, GroupKey key, List<WaveOrder> orders, WarehouseLayout layout) {
+        Pick[] picks = new Pick[orders.size()];
+        for (int i = 0; i < picks.length; i++) {
+            WaveOrder order = orders.get(i);
+            WarehouseLayout.Position position = layout.position(order.locationId());
+            picks[i] = new Pick(WarehouseLayout.sortKey(position), order, position);
+        }
+        Arrays.sort(picks, Comparator.comparingLong(Pick::sortKey).thenComparing(pick -> pick.order().waybillNo()));
+        int waveCount = (picks.length + maxWaveSize - 1) / maxWaveSize;
+        List<Wave> waves = new ArrayList<>(waveCount);
+        int from = 0;
+        for (int i = 0; i < waveCount; i++) {
+            int to = from + (picks.length - from) / (waveCount - i);
+            waves.add(sequence(warehouseId, key, picks, from, to, layout));
+            from = to;
+        }
+        return waves;
+    }
+
+    //picks[from, to) 已按巷道、货位排序，逐条巷道决定行走方向
+    private Wave sequence(long warehouseId, GroupKey key, Pick[] picks, int from, int to, WarehouseLayout layout) {
+        List<PickTask> tasks = new ArrayList<>(to - from);
+        List<WarehouseLayout.Position> route = new ArrayList<>(to - from);
+        int bay = 0;
+        int start = from;
+        while (start < to) {
+            int aisle = picks[start].position().aisle();
+            int end = start;
+            while (end < to && picks[end].position().aisle() == aisle) {
+                end++;
+            }
+            //当前位置靠近前端时由前向后走，否则由后向前走
+            boolean forward = bay * 2 < layout.aisleLength();
+            for (int i = 0; i < end - start; i++) {
+                Pick pick = picks[forward ? start + i : end - 1 - i];
+                tasks.add(new PickTask(tasks.size() + 1, pick.order().waybillNo(), pick.order().locationId(),
+                        pick.position().locationCode()));
+                route.add(pick.position());
+            }
+            bay = route.get(route.size() - 1).bay();
+            start = end;
+        }
+        Wave wave = new Wave();
+        wave.setWarehouseId(warehouseId);
+        wave.setDestinationArea(key.destinationArea());
+        wave.setDeliverymanId(key.deliverymanId());
+        wave.setWindowStart(key.windowStart());
+        wave.setPicks(tasks);
+        wave.setTravel(layout.travel(route));
+        return wave;
+    }
+
+    private record GroupKey(String destinationArea, Long deliverymanId, LocalDateTime windowStart) {
+    }
+
+    private record Pick(long sortKey, WaveOrder order, WarehouseLayout.Position position) {
+    }
+}
@@ -0,0 +1,141 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventoryStatus;
+import com.logistics.platfrom.distribution.warehouse.exception.InventoryConflictException;
+import com.logistics.platfrom.distribution.warehouse.feign.BatchingWaybillClient;
+import com.logistics.platfrom.distribution.warehouse.feign.WaybillDTO;
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.StorageLocationRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.WarahouseRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 波次出库：读取仓库的在库包裹和对应运单，规划波次，按批下发
+ * 下发时把波次中的包裹由在库转为拣货中（与单件出库扫描相同的CAS），已被其他波次或出库扫描占用的包裹从波次中去掉；
+ * 拣货员按顺序拣货，每件经 WarehouseRepository.confirmPicked 确认出库，未拣的包裹可撤回在库
+ * 波次不落库，下发结果即拣货单
+ */
+@Slf4j
+public class WaveService {
+
+    //已入库、尚未出库的运单状态
+    private static final String WAYBILL_IN_WAREHOUSE = "PICKED";
+
+    private final WavePlanner wavePlanner;
+    private final WarahouseRepository warehouseRepository;
+    private final StorageLocationRepository storageLocationRepository;
+    private final InventoryJdbcRepository inventoryJdbcRepository;
+    private final InventoryEngine inventoryEngine;
+    private final BatchingWaybillClient batchingWaybillClient;
+    private final TransactionOperations transactionOperations;
+
+    public WaveService(WavePlanner wavePlanner, WarahouseRepository warehouseRepository,
+                       StorageLocationRepository storageLocationRepository,
+                       InventoryJdbcRepository inventoryJdbcRepository, InventoryEngine inventoryEngine,
+                       BatchingWaybillClient batchingWaybillClient, TransactionOperations transactionOperations) {
+        this.wavePlanner = wavePlanner;
+        this.warehouseRepository = warehouseRepository;
+        this.storageLocationRepository = storageLocationRepository;
+        this.inventoryJdbcRepository = inventoryJdbcRepository;
+        this.inventoryEngine = inventoryEngine;
+        this.batchingWaybillClient = batchingWaybillClient;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * 规划仓库中全部在库包裹的波次，不修改库存
+     */
+    public List<Wave> plan(long warehouseId) {
+        return plan(warehouseId, layout(warehouseId));
+    }
+
+    //仓库不存在时返回409，与入库扫描一致
+    private WarehouseLayout layout(long warehouseId) {
+        if (!warehouseRepository.existsById(warehouseId)) {
+            throw InventoryConflictException.warehouseNotFound(null, warehouseId);
+        }
+        return WarehouseLayout.of(storageLocationRepository.findByWarehouseId(warehouseId));
+    }
+
+    private List<Wave> plan(long warehouseId, WarehouseLayout layout) {
+        long begin = System.currentTimeMillis();
+        Map<String, Long> stored = inventoryJdbcRepository.findByStatus(warehouseId, InventoryStatus.STORED);
+        //经合并查询，每批最多 max-batch-size 个运单
+        Map<String, WaybillDTO> waybills = batchingWaybillClient.getAll(stored.keySet());
+        List<WaveOrder> orders = new ArrayList<>(stored.size());
+        stored.forEach((waybillNo, locationId) -> {
+            WaybillDTO waybill = waybills.get(waybillNo);
+            if (waybill != null && WAYBILL_IN_WAREHOUSE.equals(waybill.getStatus())) {
+                orders.add(new WaveOrder(waybillNo, locationId, DestinationArea.of(waybill.getReceiverAddress()),
+                        waybill.getDeliverymanId(), waybill.getEstimatedArrivalTime()));
+            }
+        });
+        long planBegin = System.currentTimeMillis();
+        List<Wave> waves = wavePlanner.plan("W" + warehouseId + "-" + System.currentTimeMillis(), warehouseId,
+                orders, layout);
+        log.info("仓库{}规划波次：在库{}件，可出库{}件，{}个波次，规划耗时{}ms，共{}ms", warehouseId, stored.size(),
+                orders.size(), waves.size(), System.currentTimeMillis() - planBegin, System.currentTimeMillis() - begin);
+        return waves;
+    }
+
+    /**
+     * 规划并下发最早的 count 个波次
+     * @return 下发的波次，只含成功转为拣货中的包裹，拣货顺序号从1起连续，行走距离按剩余的包裹重新估算；
+     *         全部被占用的波次不返回
+     */
+    public List<Wave> release(long warehouseId, int count) {
+        WarehouseLayout layout = layout(warehouseId);
+        List<Wave> released = new ArrayList<>(count);
+        for (Wave wave : plan(warehouseId, layout)) {
+            if (released.size() >= count) {
+                break;
+            }
+            List<String> waybillNos = wave.getPicks().stream().map(PickTask::getWaybillNo).toList();
+            //一个波次一个事务，一次往返批量CAS
+            int[] claimed = transactionOperations.execute(tx -> inventoryJdbcRepository.updateStatuses(waybillNos,
+                    InventoryStatus.STORED, InventoryStatus.PICKING, LocalDateTime.now()));
+            //去掉被占用的包裹后按原顺序重新编号，拣货顺序号保持连续
+            List<PickTask> picks = new ArrayList<>(waybillNos.size());
+            for (int i = 0; i < claimed.length; i++) {
+                if (claimed[i] == 1) {
+                    PickTask pick = wave.getPicks().get(i);
+                    pick.setSequence(picks.size() + 1);
+                    picks.add(pick);
+                }
+            }
+            if (!picks.isEmpty()) {
+                wave.setPicks(picks);
+                if (picks.size() < claimed.length) {
+                    wave.setTravel(layout.travel(picks.stream()
+                            .map(pick -> layout.position(pick.getLocationId())).toList()));
+                }
+                released.add(wave);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * 撤回波次中未拣的包裹，拣货中的回到在库；已出库或不在库的跳过
+     * @return 撤回的包裹数
+     */
+    public int cancel(List<String> waybillNos) {
+        int cancelled = 0;
+        for (String waybillNo : waybillNos) {
+            try {
+                inventoryEngine.cancelOutbound(waybillNo);
+                cancelled++;
+            } catch (InventoryConflictException e) {
+                log.info("包裹{}已不在拣货中，跳过撤回", waybillNo);
+            }
+        }
+        return cancelled;
+    }
+}
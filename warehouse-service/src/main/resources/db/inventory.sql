@@ -0,0 +1,77 @@
+-- 仓库、库位与在库包裹，状态按枚举序号存储
+CREATE TABLE IF NOT EXISTS warehouse (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    warehouse_code VARCHAR(32)  NOT NULL,
+    name           VARCHAR(64),
+    address        VARCHAR(255),
+    create_time    DATETIME(3),
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_warehouse_code (warehouse_code)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- occupied + reserved <= capacity 由条件更新保证，不加表锁
+-- idx_warehouse_id（含主键）供库存汇总对账按库位ID分块读取一个仓库的库位
+CREATE TABLE IF NOT EXISTS storage_location (
+    id            BIGINT        NOT NULL AUTO_INCREMENT,
+    warehouse_id  BIGINT        NOT NULL,
+    location_code VARCHAR(32)   NOT NULL,
+    zone          VARCHAR(16),
+    capacity      INT           NOT NULL,
+    occupied      INT           NOT NULL DEFAULT 0,
+    reserved      INT           NOT NULL DEFAULT 0,
+    max_weight    DECIMAL(10, 2),
+    max_volume    DECIMAL(10, 4),
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_warehouse_location_code (warehouse_id, location_code),
+    KEY idx_warehouse_id (warehouse_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 一个运单一行，唯一键防止同一包裹重复入库；出库确认后删除，表中只有当前库存
+-- idx_warehouse_status 供波次规划读取仓库中的在库包裹
+CREATE TABLE IF NOT EXISTS inventory (
+    id           BIGINT        NOT NULL AUTO_INCREMENT,
+    warehouse_id BIGINT        NOT NULL,
+    location_id  BIGINT        NOT NULL,
+    waybill_no   VARCHAR(32)   NOT NULL,
+    status       TINYINT       NOT NULL,
+    weight       DECIMAL(10, 2),
+    volume       DECIMAL(10, 4),
+    inbound_time DATETIME(3),
+    create_time  DATETIME(3)   NOT NULL,
+    update_time  DATETIME(3)   NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_waybill_no (waybill_no),
+    KEY idx_location_id (location_id),
+    KEY idx_warehouse_status (warehouse_id, status)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 库位计数的变更，与库存、库位的条件更新在同一事务中写入；按ID顺序合并到 inventory_snapshot，合并后保留一段时间再清理
+CREATE TABLE IF NOT EXISTS inventory_change (
+    id             BIGINT      NOT NULL AUTO_INCREMENT,
+    location_id    BIGINT      NOT NULL,
+    reserved_delta INT         NOT NULL,
+    occupied_delta INT         NOT NULL,
+    create_time    DATETIME(3) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 每个仓库一行库位汇总，看板按主键读取
+CREATE TABLE IF NOT EXISTS inventory_snapshot (
+    warehouse_id   BIGINT      NOT NULL,
+    location_count INT         NOT NULL DEFAULT 0,
+    capacity       BIGINT      NOT NULL DEFAULT 0,
+    occupied       BIGINT      NOT NULL DEFAULT 0,
+    reserved       BIGINT      NOT NULL DEFAULT 0,
+    reconcile_time DATETIME(3),
+    update_time    DATETIME(3) NOT NULL,
+    PRIMARY KEY (warehouse_id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+-- 已合并到的变更ID，只有一行；合并和对账修正都先锁定这一行，多实例之间串行
+CREATE TABLE IF NOT EXISTS inventory_snapshot_cursor (
+    id             TINYINT NOT NULL,
+    last_change_id BIGINT  NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+INSERT IGNORE INTO inventory_snapshot_cursor (id, last_change_id) VALUES (1, 0);
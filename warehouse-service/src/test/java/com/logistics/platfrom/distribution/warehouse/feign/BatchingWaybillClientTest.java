@@ -0,0 +1,153 @@
+package com.logistics.platfrom.distribution.warehouse.feign;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * 合并查询运单：在途批次已满时排队的查询合并为一次批量查询，查到的运单走短时缓存
+ */
+public class BatchingWaybillClientTest {
+
+    //直接执行，不熔断
+    private static final CircuitBreaker PASS_THROUGH = new CircuitBreaker() {
+        @Override
+        public <T> T run(Supplier<T> toRun, Function<Throwable, T> fallback) {
+            try {
+                return toRun.get();
+            } catch (RuntimeException e) {
+                return fallback.apply(e);
+            }
+        }
+    };
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    //查询 BLOCKED 的批次等待放行，期间的查询都排队
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private WaybillServiceFeignClient feignClient;
+    private BatchingWaybillClient client;
+
+    @BeforeEach
+    public void setup() {
+        feignClient = mock(WaybillServiceFeignClient.class);
+        when(feignClient.getWaybillsByNos(anyList())).thenAnswer(invocation -> {
+            List<String> waybillNos = invocation.getArgument(0);
+            if (waybillNos.contains("BLOCKED")) {
+                gate.await();
+            }
+            List<WaybillDTO> waybills = new ArrayList<>();
+            for (String waybillNo : waybillNos) {
+                if (!waybillNo.startsWith("MISSING")) {
+                    waybills.add(waybill(waybillNo, "CREATED"));
+                }
+            }
+            return waybills;
+        });
+        client = new BatchingWaybillClient(feignClient, PASS_THROUGH,
+                Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(10)).<String, WaybillDTO>build(), 3, 1, executor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static WaybillDTO waybill(String waybillNo, String status) {
+        WaybillDTO waybill = new WaybillDTO();
+        waybill.setWaybillNo(waybillNo);
+        waybill.setStatus(status);
+        return waybill;
+    }
+
+    /**
+     * 测试：在途批次已满时排队的查询合并为一次，重复的运单号共享结果，之后命中缓存
+     */
+    @Test
+    public void testCoalescesWhileBatchInFlight() {
+        CompletableFuture<WaybillDTO> blocked = client.load("BLOCKED");
+        CompletableFuture<WaybillDTO> first = client.load("WB1");
+        CompletableFuture<WaybillDTO> second = client.load("WB2");
+        CompletableFuture<WaybillDTO> duplicate = client.load("WB1");
+        assertSame(first, duplicate);
+        assertFalse(first.isDone());
+
+        gate.countDown();
+        assertEquals("BLOCKED", blocked.join().getWaybillNo());
+        assertEquals("WB1", first.join().getWaybillNo());
+        assertEquals("WB2", second.join().getWaybillNo());
+        verify(feignClient).getWaybillsByNos(List.of("BLOCKED"));
+        verify(feignClient).getWaybillsByNos(List.of("WB1", "WB2"));
+
+        assertEquals("WB1", client.get("WB1").orElseThrow().getWaybillNo());
+        verify(feignClient, times(2)).getWaybillsByNos(anyList());
+        assertEquals(2, client.getBatchCount());
+        assertEquals(3, client.getRemoteLookupCount());
+    }
+
+    /**
+     * 测试：排队超过 maxBatchSize 时分批发出；不存在的运单结果为空
+     */
+    @Test
+    public void testBatchSizeLimitAndMissing() {
+        CompletableFuture<WaybillDTO> blocked = client.load("BLOCKED");
+        List<CompletableFuture<WaybillDTO>> futures = new ArrayList<>();
+        for (String waybillNo : List.of("WB1", "WB2", "MISSING1", "WB3", "WB4")) {
+            futures.add(client.load(waybillNo));
+        }
+        gate.countDown();
+        blocked.join();
+
+        assertNull(futures.get(2).join());
+        assertEquals("WB4", futures.get(4).join().getWaybillNo());
+        verify(feignClient).getWaybillsByNos(List.of("WB1", "WB2", "MISSING1"));
+        verify(feignClient).getWaybillsByNos(List.of("WB3", "WB4"));
+
+        Map<String, WaybillDTO> waybills = client.getAll(List.of("WB1", "MISSING2", "WB4"));
+        assertEquals(List.of("WB1", "WB4"), new ArrayList<>(waybills.keySet()));
+        verify(feignClient).getWaybillsByNos(List.of("MISSING2"));
+    }
+
+    /**
+     * 测试：批量查询失败时同批的调用都失败，之后可重新查询
+     */
+    @Test
+    public void testFailurePropagatesToBatch() {
+        when(feignClient.getWaybillsByNos(anyList()))
+                .thenThrow(new IllegalStateException("运单服务不可用"))
+                .thenReturn(List.of(waybill("WB1", "CREATED")));
+
+        assertThrows(IllegalStateException.class, () -> client.get("WB1"));
+        assertEquals("WB1", client.get("WB1").orElseThrow().getWaybillNo());
+    }
+
+    /**
+     * 测试：状态更新后用返回的运单刷新缓存
+     */
+    @Test
+    public void testUpdateStatusRefreshesCache() {
+        assertEquals("CREATED", client.get("WB1").orElseThrow().getStatus());
+        when(feignClient.updateWaybillStatus("WB1", "PICKED")).thenReturn(waybill("WB1", "PICKED"));
+
+        client.updateStatus("WB1", "PICKED");
+
+        assertEquals("PICKED", client.get("WB1").orElseThrow().getStatus());
+        verify(feignClient, times(1)).getWaybillsByNos(anyList());
+    }
+}
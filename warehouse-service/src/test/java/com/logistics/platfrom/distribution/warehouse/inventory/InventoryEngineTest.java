@@ -0,0 +1,205 @@
+package com.logistics.platfrom.distribution.warehouse.inventory;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventoryStatus;
+import com.logistics.platfrom.distribution.warehouse.exception.InventoryConflictException;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存预占引擎：H2内存库（MySQL模式），验证入库出库流程、重复扫描和并发扫描下库位不超占
+ */
+public class InventoryEngineTest {
+
+    private static final long WAREHOUSE_ID = 1;
+
+    private JdbcTemplate jdbcTemplate;
+    private InventoryJdbcRepository inventoryJdbcRepository;
+    private InventoryEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:inventory;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE storage_location (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "warehouse_id BIGINT NOT NULL, location_code VARCHAR(32) NOT NULL, zone VARCHAR(16), " +
+                "capacity INT NOT NULL, occupied INT NOT NULL DEFAULT 0, reserved INT NOT NULL DEFAULT 0, " +
+                "max_weight DECIMAL(10,2), max_volume DECIMAL(10,4))");
+        jdbcTemplate.execute("CREATE TABLE inventory (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "warehouse_id BIGINT NOT NULL, location_id BIGINT NOT NULL, waybill_no VARCHAR(32) NOT NULL UNIQUE, " +
+                "status TINYINT NOT NULL, weight DECIMAL(10,2), volume DECIMAL(10,4), inbound_time TIMESTAMP, " +
+                "create_time TIMESTAMP NOT NULL, update_time TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE inventory_change (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "location_id BIGINT NOT NULL, reserved_delta INT NOT NULL, occupied_delta INT NOT NULL, " +
+                "create_time TIMESTAMP NOT NULL)");
+        inventoryJdbcRepository = new InventoryJdbcRepository(jdbcTemplate);
+        engine = new InventoryEngine(inventoryJdbcRepository,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private long location(int capacity) {
+        jdbcTemplate.update("INSERT INTO storage_location (warehouse_id, location_code, capacity) VALUES (?, ?, ?)",
+                WAREHOUSE_ID, "A-" + System.nanoTime(), capacity);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM storage_location", Long.class);
+    }
+
+    private Map<String, Object> slots(long locationId) {
+        return jdbcTemplate.queryForMap("SELECT occupied, reserved FROM storage_location WHERE id = ?", locationId);
+    }
+
+    //库位计数变更之和，应与库位当前的计数一致
+    private Map<String, Object> changes(long locationId) {
+        return jdbcTemplate.queryForMap("SELECT CAST(COALESCE(SUM(occupied_delta), 0) AS INT) AS occupied, " +
+                "CAST(COALESCE(SUM(reserved_delta), 0) AS INT) AS reserved FROM inventory_change " +
+                "WHERE location_id = ?", locationId);
+    }
+
+    private void inbound(long locationId, String waybillNo) {
+        engine.reserveInbound(WAREHOUSE_ID, locationId, waybillNo, new BigDecimal("1.50"), new BigDecimal("0.0100"));
+        engine.confirmInbound(waybillNo);
+    }
+
+    /**
+     * 测试：入库预占、确认后占用库位，出库确认后库存删除、库位腾出；重复确认视为成功
+     */
+    @Test
+    public void testInboundAndOutbound() {
+        long locationId = location(2);
+
+        engine.reserveInbound(WAREHOUSE_ID, locationId, "WB1", new BigDecimal("1.50"), null);
+        assertEquals(Map.of("occupied", 0, "reserved", 1), slots(locationId));
+        assertEquals(InventoryStatus.RESERVED, inventoryJdbcRepository.findStatus("WB1").orElseThrow());
+        engine.confirmInbound("WB1");
+        engine.confirmInbound("WB1");
+        assertEquals(Map.of("occupied", 1, "reserved", 0), slots(locationId));
+        assertEquals(InventoryStatus.STORED, inventoryJdbcRepository.findStatus("WB1").orElseThrow());
+
+        //已在库的包裹不能再次入库，库位计数不变
+        assertThrows(InventoryConflictException.class,
+                () -> engine.reserveInbound(WAREHOUSE_ID, locationId, "WB1", null, null));
+        assertEquals(Map.of("occupied", 1, "reserved", 0), slots(locationId));
+
+        engine.reserveOutbound("WB1");
+        assertThrows(InventoryConflictException.class, () -> engine.reserveOutbound("WB1"));
+        engine.confirmOutbound("WB1");
+        engine.confirmOutbound("WB1");
+        assertTrue(inventoryJdbcRepository.findStatus("WB1").isEmpty());
+        assertEquals(Map.of("occupied", 0, "reserved", 0), slots(locationId));
+        assertThrows(InventoryConflictException.class, () -> engine.reserveOutbound("WB1"));
+        //预占、确认入库、确认出库各一条变更，重复确认不重复记录
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory_change WHERE location_id = ?",
+                Integer.class, locationId));
+        assertEquals(slots(locationId), changes(locationId));
+    }
+
+    /**
+     * 测试：库位已满或不属于该仓库时预占失败且不留下库存；撤销预占、撤销出库后可重新操作
+     */
+    @Test
+    public void testFullLocationAndCancel() {
+        long locationId = location(1);
+        inbound(locationId, "WB1");
+
+        assertThrows(InventoryConflictException.class,
+                () -> engine.reserveInbound(WAREHOUSE_ID, locationId, "WB2", null, null));
+        assertTrue(inventoryJdbcRepository.findStatus("WB2").isEmpty());
+        long otherWarehouse = location(1);
+        assertThrows(InventoryConflictException.class,
+                () -> engine.reserveInbound(WAREHOUSE_ID + 1, otherWarehouse, "WB2", null, null));
+        assertTrue(inventoryJdbcRepository.findStatus("WB2").isEmpty());
+
+        engine.reserveOutbound("WB1");
+        engine.cancelOutbound("WB1");
+        assertEquals(InventoryStatus.STORED, inventoryJdbcRepository.findStatus("WB1").orElseThrow());
+        assertEquals(Map.of("occupied", 1, "reserved", 0), slots(locationId));
+
+        long other = location(1);
+        engine.reserveInbound(WAREHOUSE_ID, other, "WB3", null, null);
+        engine.cancelInbound("WB3");
+        engine.cancelInbound("WB3");
+        assertEquals(Map.of("occupied", 0, "reserved", 0), slots(other));
+        //确认已撤销的入库失败
+        assertThrows(InventoryConflictException.class, () -> engine.confirmInbound("WB3"));
+        inbound(other, "WB3");
+        assertEquals(Map.of("occupied", 1, "reserved", 0), slots(other));
+        //预占失败回滚，不留下变更
+        assertEquals(slots(locationId), changes(locationId));
+        assertEquals(Map.of("occupied", 0, "reserved", 0), changes(otherWarehouse));
+        assertEquals(slots(other), changes(other));
+    }
+
+    /**
+     * 测试：多个扫描线程同时向同一库位入库，成功数恰好等于容量；同一包裹被并发出库只有一个成功
+     */
+    @Test
+    public void testConcurrentScansNeverOverfill() throws Exception {
+        int capacity = 50;
+        long locationId = location(capacity);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        AtomicInteger stored = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String waybillNo = "WB" + i;
+            futures.add(executor.submit(() -> {
+                try {
+                    inbound(locationId, waybillNo);
+                    stored.incrementAndGet();
+                } catch (InventoryConflictException e) {
+                    rejected.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        assertEquals(capacity, stored.get());
+        assertEquals(150, rejected.get());
+        assertEquals(Map.of("occupied", capacity, "reserved", 0), slots(locationId));
+        assertEquals(capacity, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM inventory", Integer.class));
+        assertEquals(slots(locationId), changes(locationId));
+
+        String waybillNo = jdbcTemplate.queryForObject("SELECT MIN(waybill_no) FROM inventory", String.class);
+        AtomicInteger picked = new AtomicInteger();
+        futures.clear();
+        for (int i = 0; i < 16; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    engine.reserveOutbound(waybillNo);
+                    picked.incrementAndGet();
+                } catch (InventoryConflictException ignored) {
+                    //被其他线程抢先
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1, picked.get());
+    }
+}
@@ -0,0 +1,141 @@
+package com.logistics.platfrom.distribution.warehouse.location;
+
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 空闲库位索引：最佳适配、库区限定、空位的扣减与归还
+ */
+public class FreeSlotIndexTest {
+
+    private static StorageLocation location(long id, long warehouseId, String zone, String maxWeight, String maxVolume,
+                                            int capacity, int occupied) {
+        StorageLocation location = new StorageLocation();
+        location.setId(id);
+        location.setWarehouseId(warehouseId);
+        location.setLocationCode("L" + id);
+        location.setZone(zone);
+        location.setCapacity(capacity);
+        location.setOccupied(occupied);
+        location.setReserved(0);
+        location.setMaxWeight(maxWeight == null ? null : new BigDecimal(maxWeight));
+        location.setMaxVolume(maxVolume == null ? null : new BigDecimal(maxVolume));
+        return location;
+    }
+
+    private static BigDecimal decimal(String value) {
+        return new BigDecimal(value);
+    }
+
+    /**
+     * 测试：选体积不小于包裹的最小规格，体积相同时选重量上限小的；超重时跳到能承重的规格
+     */
+    @Test
+    public void testBestFit() {
+        FreeSlotIndex index = new FreeSlotIndex();
+        index.load(List.of(
+                location(1, 1, "A", "50", "0.5", 10, 0),
+                location(2, 1, "A", "5", "0.01", 10, 0),
+                location(3, 1, "A", "20", "0.01", 10, 0),
+                location(4, 1, "A", "5", "0.1", 10, 0),
+                location(5, 1, "A", null, null, 10, 0),
+                location(6, 2, "A", "5", "0.001", 10, 0)));
+
+        assertEquals(2L, index.allocate(1, null, decimal("1"), decimal("0.005")));
+        assertEquals(3L, index.allocate(1, null, decimal("10"), decimal("0.005")));
+        assertEquals(4L, index.allocate(1, null, decimal("1"), decimal("0.05")));
+        assertEquals(1L, index.allocate(1, null, decimal("30"), decimal("0.05")));
+        //没有规格限制的库位放得下任何包裹
+        assertEquals(5L, index.allocate(1, null, decimal("100"), decimal("2")));
+        //重量、体积未知视为0
+        assertEquals(2L, index.allocate(1, null, null, null));
+        assertNull(index.allocate(3, null, null, null));
+    }
+
+    /**
+     * 测试：空位用完后换下一个库位，归还后重新可分配；已满的库位加载后可由归还加入
+     */
+    @Test
+    public void testAllocateAndRelease() {
+        FreeSlotIndex index = new FreeSlotIndex();
+        index.load(List.of(
+                location(1, 1, "A", "10", "0.1", 2, 0),
+                location(2, 1, "A", "10", "0.1", 1, 0),
+                location(3, 1, "A", "10", "0.1", 3, 3)));
+        assertEquals(3, index.freeSlots(1));
+
+        List<Long> allocated = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            allocated.add(index.allocate(1, null, decimal("1"), decimal("0.01")));
+        }
+        assertEquals(List.of(1L, 1L, 2L), allocated);
+        assertNull(index.allocate(1, null, decimal("1"), decimal("0.01")));
+        assertEquals(0, index.freeSlots(1));
+
+        index.release(3);
+        index.release(2);
+        index.release(2);
+        assertEquals(2, index.freeSlots(1));
+        assertNotNull(index.allocate(1, null, decimal("1"), decimal("0.01")));
+        assertNotNull(index.allocate(1, null, decimal("1"), decimal("0.01")));
+        assertNull(index.allocate(1, null, decimal("1"), decimal("0.01")));
+
+        //未知库位忽略
+        index.release(404);
+        assertEquals(0, index.freeSlots(1));
+    }
+
+    /**
+     * 测试：指定库区只在该库区中分配；标记已满、指定库位扣减后不再分配到该库位
+     */
+    @Test
+    public void testZoneTakeAndMarkFull() {
+        FreeSlotIndex index = new FreeSlotIndex();
+        index.load(List.of(
+                location(1, 1, "A", "10", "0.1", 5, 0),
+                location(2, 1, "B", "10", "0.01", 1, 0),
+                location(3, 1, "B", "10", "0.1", 5, 0)));
+
+        assertEquals(1L, index.allocate(1, "A", decimal("1"), decimal("0.005")));
+        assertNull(index.allocate(1, "C", decimal("1"), decimal("0.005")));
+
+        index.take(2);
+        assertEquals(3L, index.allocate(1, "B", decimal("1"), decimal("0.005")));
+        index.markFull(1);
+        assertEquals(3L, index.allocate(1, null, decimal("1"), decimal("0.005")));
+        assertEquals(3, index.freeSlots(1));
+    }
+
+    /**
+     * 测试：大量承重不够的小规格排在前面时跳到能承重的规格；超过int范围的重量、不限承重的库位正确比较
+     */
+    @Test
+    public void testLargeWeights() {
+        List<StorageLocation> locations = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            locations.add(location(i, 1, "A", "5", String.valueOf(i), 1, 0));
+        }
+        locations.add(location(1001, 1, "B", "3000000", "1000", 1, 0));
+        locations.add(location(1002, 1, "B", "5000000", "1", 1, 0));
+        locations.add(location(1003, 1, "C", null, "2000", 1, 0));
+        FreeSlotIndex index = new FreeSlotIndex();
+        index.load(locations);
+
+        //2500吨即2.5e9 g，超过int范围；前面上千个规格承重都不够，需要跳过
+        assertEquals(1002L, index.allocate(1, null, decimal("2500000"), decimal("1")));
+        assertEquals(1001L, index.allocate(1, null, decimal("2500000"), decimal("1")));
+        assertEquals(1003L, index.allocate(1, null, decimal("2500000"), decimal("1")));
+        assertNull(index.allocate(1, null, decimal("2500000"), decimal("1")));
+        assertEquals(500L, index.allocate(1, null, decimal("1"), decimal("500")));
+        assertNull(index.allocate(1, "B", decimal("1"), decimal("1")));
+
+        index.release(1001);
+        assertEquals(1001L, index.allocate(1, "B", decimal("2500000"), decimal("1")));
+    }
+}
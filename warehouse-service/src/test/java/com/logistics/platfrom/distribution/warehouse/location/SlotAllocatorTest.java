@@ -0,0 +1,85 @@
+package com.logistics.platfrom.distribution.warehouse.location;
+
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import com.logistics.platfrom.distribution.warehouse.exception.InventoryConflictException;
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 库位分配：索引与数据库不一致时换库位重试
+ */
+public class SlotAllocatorTest {
+
+    private final FreeSlotIndex index = new FreeSlotIndex();
+    private InventoryEngine inventoryEngine;
+    private SlotAllocator allocator;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        InventoryJdbcRepository inventoryJdbcRepository = mock(InventoryJdbcRepository.class);
+        doAnswer(invocation -> {
+            Consumer<StorageLocation> consumer = invocation.getArgument(0);
+            for (long id = 1; id <= 3; id++) {
+                StorageLocation location = new StorageLocation();
+                location.setId(id);
+                location.setWarehouseId(1L);
+                location.setCapacity(1);
+                location.setOccupied(0);
+                location.setReserved(0);
+                consumer.accept(location);
+            }
+            return null;
+        }).when(inventoryJdbcRepository).findAllLocations(any(Consumer.class));
+        inventoryEngine = mock(InventoryEngine.class);
+        allocator = new SlotAllocator(index, inventoryJdbcRepository, inventoryEngine, 2);
+        allocator.rebuild();
+    }
+
+    /**
+     * 测试：库位已被其他实例占满时标记已满并换下一个库位
+     */
+    @Test
+    public void testRetriesWhenLocationFullInDatabase() {
+        doThrow(InventoryConflictException.locationFull("WB1", 1)).when(inventoryEngine)
+                .reserveInbound(eq(1L), eq(1L), eq("WB1"), any(), any());
+
+        assertEquals(2L, allocator.reserveInbound(1, null, "WB1", BigDecimal.ONE, null));
+        assertEquals(1, index.freeSlots(1));
+    }
+
+    /**
+     * 测试：包裹已在库时归还分配的空位；重试次数用完时报没有空闲库位
+     */
+    @Test
+    public void testReleasesOnOtherConflicts() {
+        doThrow(InventoryConflictException.alreadyStocked("WB1")).when(inventoryEngine)
+                .reserveInbound(anyLong(), anyLong(), eq("WB1"), any(), any());
+        InventoryConflictException stocked = assertThrows(InventoryConflictException.class,
+                () -> allocator.reserveInbound(1, null, "WB1", null, null));
+        assertEquals(InventoryConflictException.Reason.ALREADY_STOCKED, stocked.getReason());
+        assertEquals(3, index.freeSlots(1));
+
+        doThrow(InventoryConflictException.locationFull("WB2", 0)).when(inventoryEngine)
+                .reserveInbound(anyLong(), anyLong(), eq("WB2"), any(), any());
+        InventoryConflictException none = assertThrows(InventoryConflictException.class,
+                () -> allocator.reserveInbound(1, null, "WB2", null, null));
+        assertEquals(InventoryConflictException.Reason.NO_FREE_LOCATION, none.getReason());
+        assertEquals(1, index.freeSlots(1));
+
+        allocator.released(2L);
+        allocator.released(null);
+        assertEquals(2, index.freeSlots(1));
+    }
+}
@@ -0,0 +1,191 @@
+package com.logistics.platfrom.distribution.warehouse.snapshot;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventorySnapshot;
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.InventorySnapshotJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 库存汇总：H2内存库（MySQL模式），验证变更合并、合并进度和分块对账
+ */
+public class InventorySnapshotterTest {
+
+    private static final long WAREHOUSE_ID = 1;
+    private static final long OTHER_WAREHOUSE_ID = 2;
+
+    private JdbcTemplate jdbcTemplate;
+    private DataSourceTransactionManager transactionManager;
+    private InventorySnapshotJdbcRepository snapshotJdbcRepository;
+    private InventoryEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:snapshot;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE warehouse (id BIGINT PRIMARY KEY)");
+        jdbcTemplate.execute("CREATE TABLE storage_location (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "warehouse_id BIGINT NOT NULL, location_code VARCHAR(32) NOT NULL, zone VARCHAR(16), " +
+                "capacity INT NOT NULL, occupied INT NOT NULL DEFAULT 0, reserved INT NOT NULL DEFAULT 0, " +
+                "max_weight DECIMAL(10,2), max_volume DECIMAL(10,4))");
+        jdbcTemplate.execute("CREATE TABLE inventory (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "warehouse_id BIGINT NOT NULL, location_id BIGINT NOT NULL, waybill_no VARCHAR(32) NOT NULL UNIQUE, " +
+                "status TINYINT NOT NULL, weight DECIMAL(10,2), volume DECIMAL(10,4), inbound_time TIMESTAMP, " +
+                "create_time TIMESTAMP NOT NULL, update_time TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE inventory_change (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "location_id BIGINT NOT NULL, reserved_delta INT NOT NULL, occupied_delta INT NOT NULL, " +
+                "create_time TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE inventory_snapshot (warehouse_id BIGINT PRIMARY KEY, " +
+                "location_count INT NOT NULL DEFAULT 0, capacity BIGINT NOT NULL DEFAULT 0, " +
+                "occupied BIGINT NOT NULL DEFAULT 0, reserved BIGINT NOT NULL DEFAULT 0, reconcile_time TIMESTAMP, " +
+                "update_time TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE inventory_snapshot_cursor (id TINYINT PRIMARY KEY, " +
+                "last_change_id BIGINT NOT NULL)");
+        jdbcTemplate.update("INSERT INTO inventory_snapshot_cursor VALUES (1, 0)");
+        jdbcTemplate.update("INSERT INTO warehouse VALUES (?), (?)", WAREHOUSE_ID, OTHER_WAREHOUSE_ID);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        snapshotJdbcRepository = new InventorySnapshotJdbcRepository(jdbcTemplate);
+        engine = new InventoryEngine(new InventoryJdbcRepository(jdbcTemplate),
+                new TransactionTemplate(transactionManager));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private InventorySnapshotter snapshotter(Duration applyLag, int chunkSize) {
+        return new InventorySnapshotter(snapshotJdbcRepository, transactionManager, 2, applyLag, chunkSize,
+                Duration.ZERO, Duration.ofHours(1));
+    }
+
+    private long location(long warehouseId, int capacity) {
+        jdbcTemplate.update("INSERT INTO storage_location (warehouse_id, location_code, capacity) VALUES (?, ?, ?)",
+                warehouseId, "A-" + System.nanoTime(), capacity);
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM storage_location", Long.class);
+    }
+
+    private void inbound(long warehouseId, long locationId, String waybillNo) {
+        engine.reserveInbound(warehouseId, locationId, waybillNo, null, null);
+        engine.confirmInbound(waybillNo);
+    }
+
+    private InventorySnapshot snapshot(long warehouseId) {
+        return snapshotJdbcRepository.findSnapshot(warehouseId).orElseThrow();
+    }
+
+    //汇总的 {预占数, 占用数}
+    private long[] counts(long warehouseId) {
+        InventorySnapshot snapshot = snapshot(warehouseId);
+        return new long[]{snapshot.getReserved(), snapshot.getOccupied()};
+    }
+
+    /**
+     * 测试：变更按仓库合并到汇总行，分多批合并；合并后进度前移，再次合并不重复累加
+     */
+    @Test
+    public void testApplyChanges() {
+        long first = location(WAREHOUSE_ID, 10);
+        long second = location(WAREHOUSE_ID, 10);
+        long other = location(OTHER_WAREHOUSE_ID, 10);
+        inbound(WAREHOUSE_ID, first, "WB1");
+        inbound(WAREHOUSE_ID, second, "WB2");
+        engine.reserveInbound(WAREHOUSE_ID, second, "WB3", null, null);
+        engine.reserveInbound(OTHER_WAREHOUSE_ID, other, "WB4", null, null);
+        engine.reserveOutbound("WB1");
+        engine.confirmOutbound("WB1");
+
+        InventorySnapshotter snapshotter = snapshotter(Duration.ZERO, 100);
+        snapshotter.applyChanges();
+
+        assertArrayEquals(new long[]{1, 1}, counts(WAREHOUSE_ID));
+        assertArrayEquals(new long[]{1, 0}, counts(OTHER_WAREHOUSE_ID));
+        assertEquals(7, snapshotter.getAppliedChanges());
+        long lastChangeId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM inventory_change", Long.class);
+        assertEquals(lastChangeId, snapshotJdbcRepository.findCursor());
+
+        snapshotter.applyChanges();
+        assertArrayEquals(new long[]{1, 1}, counts(WAREHOUSE_ID));
+        engine.confirmInbound("WB3");
+        snapshotter.applyChanges();
+        assertArrayEquals(new long[]{0, 2}, counts(WAREHOUSE_ID));
+    }
+
+    /**
+     * 测试：未超过 applyLag 的变更不合并，进度不前移
+     */
+    @Test
+    public void testApplyLag() {
+        inbound(WAREHOUSE_ID, location(WAREHOUSE_ID, 10), "WB1");
+
+        InventorySnapshotter snapshotter = snapshotter(Duration.ofMinutes(1), 100);
+        snapshotter.applyChanges();
+
+        assertTrue(snapshotJdbcRepository.findSnapshot(WAREHOUSE_ID).isEmpty());
+        assertEquals(0, snapshotJdbcRepository.findCursor());
+    }
+
+    /**
+     * 测试：分块对账时尚未合并的变更不算差异，合并后汇总与库位计数一致；库位数和容量由对账写入
+     */
+    @Test
+    public void testReconcileWithPendingChanges() {
+        long[] locations = new long[5];
+        for (int i = 0; i < locations.length; i++) {
+            locations[i] = location(WAREHOUSE_ID, 10);
+            inbound(WAREHOUSE_ID, locations[i], "WB" + i);
+        }
+        location(OTHER_WAREHOUSE_ID, 10);
+        InventorySnapshotter snapshotter = snapshotter(Duration.ZERO, 2);
+        snapshotter.applyBatch();
+        engine.reserveInbound(WAREHOUSE_ID, locations[4], "WB9", null, null);
+
+        assertFalse(snapshotter.reconcile(WAREHOUSE_ID));
+        InventorySnapshot reconciled = snapshot(WAREHOUSE_ID);
+        assertEquals(5, reconciled.getLocationCount().intValue());
+        assertEquals(50, reconciled.getCapacity().longValue());
+        assertNotNull(reconciled.getReconcileTime());
+        assertEquals(0, snapshotter.getCorrections());
+
+        snapshotter.applyChanges();
+        assertArrayEquals(new long[]{1, 5}, counts(WAREHOUSE_ID));
+        assertFalse(snapshotter.reconcile(WAREHOUSE_ID));
+    }
+
+    /**
+     * 测试：库位计数被绕过引擎修改、或变更被合并进度越过时，对账以库位计数为准修正汇总，再次对账不再修正
+     */
+    @Test
+    public void testReconcileCorrectsDrift() {
+        long first = location(WAREHOUSE_ID, 10);
+        long second = location(WAREHOUSE_ID, 10);
+        long third = location(WAREHOUSE_ID, 10);
+        inbound(WAREHOUSE_ID, first, "WB1");
+        InventorySnapshotter snapshotter = snapshotter(Duration.ZERO, 2);
+        snapshotter.applyChanges();
+        //提交较晚、已被合并进度越过的变更
+        inbound(WAREHOUSE_ID, second, "WB2");
+        snapshotJdbcRepository.updateCursor(jdbcTemplate.queryForObject("SELECT MAX(id) FROM inventory_change",
+                Long.class));
+        jdbcTemplate.update("UPDATE storage_location SET reserved = 3 WHERE id = ?", third);
+
+        assertTrue(snapshotter.reconcile(WAREHOUSE_ID));
+        assertArrayEquals(new long[]{3, 2}, counts(WAREHOUSE_ID));
+        assertEquals(1, snapshotter.getCorrections());
+
+        assertFalse(snapshotter.reconcile(WAREHOUSE_ID));
+        assertFalse(snapshotter.reconcile(OTHER_WAREHOUSE_ID));
+        assertEquals(0, snapshot(OTHER_WAREHOUSE_ID).getLocationCount().intValue());
+    }
+}
@@ -0,0 +1,132 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 波次规划：按区县、配送员、送达时间段分组，组内按S形路线排拣货顺序
+ */
+public class WavePlannerTest {
+
+    private static final LocalDateTime MORNING = LocalDateTime.of(2025, 6, 1, 9, 30);
+
+    //aisles 条巷道 A-01..，每条 bays 个货位，库位ID = 巷道序号 * 1000 + 货位
+    private static WarehouseLayout layout(int aisles, int bays) {
+        List<StorageLocation> locations = new ArrayList<>();
+        for (int aisle = 1; aisle <= aisles; aisle++) {
+            for (int bay = 1; bay <= bays; bay++) {
+                StorageLocation location = new StorageLocation();
+                location.setId(aisle * 1000L + bay);
+                location.setLocationCode(String.format("A-%02d-%02d", aisle, bay));
+                locations.add(location);
+            }
+        }
+        return WarehouseLayout.of(locations);
+    }
+
+    private static WaveOrder order(String waybillNo, long locationId, String area, Long deliverymanId,
+                                   LocalDateTime deadline) {
+        return new WaveOrder(waybillNo, locationId, area, deliverymanId, deadline);
+    }
+
+    /**
+     * 测试：区县、配送员、时间段任一不同即分到不同波次，按时间段从早到晚排列，没有送达时间的排最后
+     */
+    @Test
+    public void testGrouping() {
+        WavePlanner planner = new WavePlanner(Duration.ofHours(2), 100, true);
+        List<WaveOrder> orders = List.of(
+                order("WB1", 1001, "北京市海淀区", 7L, MORNING),
+                order("WB2", 1002, "北京市海淀区", 7L, MORNING.plusMinutes(20)),
+                order("WB3", 1003, "北京市海淀区", 8L, MORNING),
+                order("WB4", 1004, "北京市朝阳区", 7L, MORNING),
+                order("WB5", 1005, "北京市海淀区", 7L, MORNING.plusHours(2)),
+                order("WB6", 1006, "北京市海淀区", 7L, null));
+
+        List<Wave> waves = planner.plan("P1", 1L, orders, layout(2, 10));
+
+        assertEquals(5, waves.size());
+        assertEquals(List.of("P1-1", "P1-2", "P1-3", "P1-4", "P1-5"), waves.stream().map(Wave::getWaveNo).toList());
+        assertEquals("北京市朝阳区", waves.get(0).getDestinationArea());
+        Wave haidian = waves.get(1);
+        assertEquals(7L, haidian.getDeliverymanId());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 8, 0), haidian.getWindowStart());
+        assertEquals(List.of("WB1", "WB2"), haidian.getPicks().stream().map(PickTask::getWaybillNo).toList());
+        assertEquals(8L, waves.get(2).getDeliverymanId());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 10, 0), waves.get(3).getWindowStart());
+        assertNull(waves.get(4).getWindowStart());
+        assertEquals("WB6", waves.get(4).getPicks().get(0).getWaybillNo());
+    }
+
+    /**
+     * 测试：组内按巷道顺序拣货，相邻巷道方向交替；超过波次上限时均匀切分
+     */
+    @Test
+    public void testSerpentineSequenceAndSplit() {
+        WavePlanner planner = new WavePlanner(Duration.ofHours(2), 4, false);
+        List<WaveOrder> orders = new ArrayList<>();
+        long[] locations = {2009, 1002, 3005, 1008, 2001, 3007};
+        for (int i = 0; i < locations.length; i++) {
+            orders.add(order("WB" + i, locations[i], "北京市海淀区", 7L, MORNING));
+        }
+
+        List<Wave> waves = planner.plan("P1", 1L, orders, layout(3, 10));
+
+        assertEquals(2, waves.size());
+        //前3个在前两条巷道；巷道1由前向后走到靠后端，巷道2从后端进入
+        assertEquals(List.of("A-01-02", "A-01-08", "A-02-01"),
+                waves.get(0).getPicks().stream().map(PickTask::getLocationCode).toList());
+        assertEquals(List.of("A-02-09", "A-03-07", "A-03-05"),
+                waves.get(1).getPicks().stream().map(PickTask::getLocationCode).toList());
+        assertEquals(List.of(1, 2, 3), waves.get(0).getPicks().stream().map(PickTask::getSequence).toList());
+    }
+
+    /**
+     * 测试：S形路线的行走距离明显短于按到达顺序拣货；并行与串行的规划结果相同
+     */
+    @Test
+    public void testShorterTravelThanArrivalOrder() {
+        WarehouseLayout layout = layout(20, 40);
+        Random random = new Random(42);
+        List<WaveOrder> orders = new ArrayList<>();
+        List<WarehouseLayout.Position> arrivalOrder = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long locationId = (1 + random.nextInt(20)) * 1000L + 1 + random.nextInt(40);
+            orders.add(order("WB" + i, locationId, "北京市海淀区", 7L, MORNING));
+            arrivalOrder.add(layout.position(locationId));
+        }
+
+        List<Wave> waves = new WavePlanner(Duration.ofHours(2), 200, true).plan("P1", 1L, orders, layout);
+
+        assertEquals(1, waves.size());
+        assertEquals(200, waves.get(0).getPicks().size());
+        assertTrue(waves.get(0).getTravel() * 5 < layout.travel(arrivalOrder),
+                waves.get(0).getTravel() + " vs " + layout.travel(arrivalOrder));
+
+        Collections.shuffle(orders, random);
+        List<Wave> sequential = new WavePlanner(Duration.ofHours(2), 200, false).plan("P1", 1L, orders, layout);
+        assertEquals(waves, sequential);
+    }
+
+    /**
+     * 测试：目的区县取到区县一级
+     */
+    @Test
+    public void testDestinationArea() {
+        assertEquals("北京市海淀区", DestinationArea.of("北京市海淀区中关村大街1号"));
+        assertEquals("上海市浦东新区", DestinationArea.of(" 上海市浦东新区世纪大道100号"));
+        assertEquals("广西壮族自治区南宁市青秀区", DestinationArea.of("广西壮族自治区南宁市青秀区民族大道"));
+        assertEquals("浙江省德清县", DestinationArea.of("浙江省德清县武康街道"));
+        assertEquals("东莞市", DestinationArea.of("东莞市南城街道"));
+        assertEquals("", DestinationArea.of(null));
+    }
+}
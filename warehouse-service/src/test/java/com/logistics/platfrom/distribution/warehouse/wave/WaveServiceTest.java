@@ -0,0 +1,89 @@
+package com.logistics.platfrom.distribution.warehouse.wave;
+
+import com.logistics.platfrom.distribution.warehouse.entity.InventoryStatus;
+import com.logistics.platfrom.distribution.warehouse.entity.StorageLocation;
+import com.logistics.platfrom.distribution.warehouse.feign.BatchingWaybillClient;
+import com.logistics.platfrom.distribution.warehouse.feign.WaybillDTO;
+import com.logistics.platfrom.distribution.warehouse.inventory.InventoryEngine;
+import com.logistics.platfrom.distribution.warehouse.repository.InventoryJdbcRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.StorageLocationRepository;
+import com.logistics.platfrom.distribution.warehouse.repository.WarahouseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * 波次下发：被其他波次或出库扫描占用的包裹从波次中去掉
+ */
+public class WaveServiceTest {
+
+    private static final long WAREHOUSE_ID = 1;
+
+    /**
+     * 测试：下发时未占用成功的包裹从拣货单中去掉，其余按原顺序重新编号，顺序号连续，行走距离按剩余包裹重算
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReleaseRenumbersClaimedPicks() {
+        Map<String, Long> stored = new LinkedHashMap<>();
+        Map<String, WaybillDTO> waybills = new LinkedHashMap<>();
+        List<StorageLocation> locations = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            StorageLocation location = new StorageLocation();
+            location.setId((long) i);
+            location.setLocationCode(String.format("A-01-%02d", i));
+            locations.add(location);
+            WaybillDTO waybill = new WaybillDTO();
+            waybill.setWaybillNo("WB" + i);
+            waybill.setStatus("PICKED");
+            waybill.setReceiverAddress("北京市海淀区中关村大街1号");
+            waybill.setDeliverymanId(7L);
+            waybill.setEstimatedArrivalTime(LocalDateTime.of(2025, 6, 1, 9, 30));
+            stored.put("WB" + i, (long) i);
+            waybills.put("WB" + i, waybill);
+        }
+        WarahouseRepository warehouseRepository = mock(WarahouseRepository.class);
+        when(warehouseRepository.existsById(WAREHOUSE_ID)).thenReturn(true);
+        InventoryJdbcRepository inventoryJdbcRepository = mock(InventoryJdbcRepository.class);
+        when(inventoryJdbcRepository.findByStatus(WAREHOUSE_ID, InventoryStatus.STORED)).thenReturn(stored);
+        //WB2、WB4 已被出库扫描占用
+        when(inventoryJdbcRepository.updateStatuses(anyList(), eq(InventoryStatus.STORED),
+                eq(InventoryStatus.PICKING), any())).thenReturn(new int[]{1, 0, 1, 0});
+        BatchingWaybillClient batchingWaybillClient = mock(BatchingWaybillClient.class);
+        when(batchingWaybillClient.getAll(any())).thenReturn(waybills);
+        StorageLocationRepository storageLocationRepository = mock(StorageLocationRepository.class);
+        when(storageLocationRepository.findByWarehouseId(WAREHOUSE_ID)).thenReturn(locations);
+        TransactionOperations transactionOperations = mock(TransactionOperations.class);
+        when(transactionOperations.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        WaveService waveService = new WaveService(new WavePlanner(Duration.ofHours(2), 200, false),
+                warehouseRepository, storageLocationRepository, inventoryJdbcRepository, mock(InventoryEngine.class),
+                batchingWaybillClient, transactionOperations);
+
+        long plannedTravel = waveService.plan(WAREHOUSE_ID).get(0).getTravel();
+
+        List<Wave> released = waveService.release(WAREHOUSE_ID, 1);
+
+        assertEquals(1, released.size());
+        List<PickTask> picks = released.get(0).getPicks();
+        assertEquals(List.of("WB1", "WB3"), picks.stream().map(PickTask::getWaybillNo).toList());
+        assertEquals(List.of(1, 2), picks.stream().map(PickTask::getSequence).toList());
+        WarehouseLayout layout = WarehouseLayout.of(locations);
+        long travel = released.get(0).getTravel();
+        assertEquals(layout.travel(List.of(layout.position(1), layout.position(3))), travel);
+        assertTrue(travel < plannedTravel);
+    }
+}
@@ -0,0 +1,173 @@
+package com.logistics.platform.distribution.waybill.archive;
+
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import com.logistics.platform.distribution.waybill.repository.WaybillArchiveRepository;
+import com.logistics.platform.distribution.waybill.sharding.WaybillShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运单归档：把最后修改早于 minAge 的终态（已送达、已取消）运单从运单表（各分表）搬到按月分表的归档表
+ * 每批在一个事务中复制并删除 batchSize 条，批间暂停，单次运行最多归档 maxRowsPerRun 条，剩余的下次继续
+ * 批间暂停取配置值与本批耗时中的较大者，数据库繁忙、单批变慢时自动放慢，归档占用的数据库时间不超过一半
+ * 多个实例中只有抢到Redis锁的一个执行；调度线程只负责把归档交给专用线程，不被长时间的归档占用
+ * 指标：waybill.archive.archived 已归档运单数
+ */
+@Slf4j
+public class WaybillArchiver {
+
+    public static final String LOCK_KEY = "waybill:archive:lock";
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final WaybillShardRouter shardRouter;
+    private final WaybillArchiveRepository archiveRepository;
+    private final TransactionOperations transactionOperations;
+    private final StringRedisTemplate stringRedisTemplate;
+    //执行归档的线程，上一次归档仍在运行时应拒绝新的任务
+    private final Executor executor;
+    private final Duration minAge;
+    private final int batchSize;
+    private final Duration pause;
+    private final long maxRowsPerRun;
+    //锁的过期时间，须大于单次运行的最长耗时
+    private final Duration lockTime;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final Counter archivedCounter;
+
+    public WaybillArchiver(WaybillShardRouter shardRouter, WaybillArchiveRepository archiveRepository,
+                           TransactionOperations transactionOperations, StringRedisTemplate stringRedisTemplate,
+                           Executor executor, Duration minAge, int batchSize, Duration pause, long maxRowsPerRun, Duration lockTime,
+                           MeterRegistry meterRegistry) {
+        if (batchSize < 1 || maxRowsPerRun < 1) {
+            throw new IllegalArgumentException("归档批大小和单次上限必须大于0");
+        }
+        this.shardRouter = shardRouter;
+        this.archiveRepository = archiveRepository;
+        this.transactionOperations = transactionOperations;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.executor = executor;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.maxRowsPerRun = maxRowsPerRun;
+        this.lockTime = lockTime;
+        this.archivedCounter = Counter.builder("waybill.archive.archived")
+                .description("已归档的运单数")
+                .register(meterRegistry);
+    }
+
+    //默认在凌晨业务低峰运行
+    @Scheduled(cron = "${waybill.archive.cron:0 0 2 * * *}")
+    public void run() {
+        try {
+            executor.execute(this::runLocked);
+        } catch (RejectedExecutionException e) {
+            log.info("上一次运单归档仍在运行，跳过本次");
+        }
+    }
+
+    private void runLocked() {
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, instanceId, lockTime))) {
+            return;
+        }
+        try {
+            archive(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("运单归档失败，下次继续：{}", e.getMessage());
+        } finally {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY), instanceId);
+        }
+    }
+
+    /**
+     * 归档 now - minAge 之前最后修改的终态运单，逐个分表按ID顺序进行
+     */
+    public ArchiveResult archive(LocalDateTime now) {
+        long begin = System.currentTimeMillis();
+        LocalDateTime updatedBefore = now.minus(minAge);
+        long beforeId = WaybillNoGenerator.minIdAt(updatedBefore.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        long archived = 0;
+        int batches = 0;
+        for (int shard = 0; shard < shardRouter.getTableCount() && archived < maxRowsPerRun; shard++) {
+            String table = shardRouter.table(shard);
+            long afterId = 0;
+            while (archived < maxRowsPerRun) {
+                int limit = (int) Math.min(batchSize, maxRowsPerRun - archived);
+                List<Long> ids = archiveRepository.findArchivable(table, afterId, beforeId, updatedBefore, limit);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                long batchBegin = System.nanoTime();
+                archived += archiveBatch(table, ids, now);
+                batches++;
+                afterId = ids.get(ids.size() - 1);
+                if (ids.size() < limit) {
+                    break;
+                }
+                sleep(Math.max(pause.toNanos(), System.nanoTime() - batchBegin));
+            }
+        }
+        ArchiveResult result = new ArchiveResult(archived, batches, System.currentTimeMillis() - begin);
+        if (archived > 0) {
+            log.info("运单归档完成：{}", result);
+        }
+        return result;
+    }
+
+    //一批运单可能跨月，按月各自在一个事务中归档
+    private int archiveBatch(String table, List<Long> ids, LocalDateTime now) {
+        Map<YearMonth, List<Long>> byMonth = new TreeMap<>();
+        for (long id : ids) {
+            byMonth.computeIfAbsent(WaybillArchiveRepository.monthOf(id), k -> new ArrayList<>()).add(id);
+        }
+        int archived = 0;
+        for (Map.Entry<YearMonth, List<Long>> entry : byMonth.entrySet()) {
+            archiveRepository.ensurePartition(entry.getKey());
+            Integer rows = transactionOperations.execute(tx ->
+                    archiveRepository.archive(table, entry.getKey(), entry.getValue(), now));
+            if (rows != null) {
+                archived += rows;
+                archivedCounter.increment(rows);
+            }
+        }
+        return archived;
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("运单归档被中断", e);
+        }
+    }
+
+    /**
+     * @param waybills 归档的运单数
+     * @param batches  执行的批数
+     */
+    public record ArchiveResult(long waybills, int batches, long millis) {
+    }
+}
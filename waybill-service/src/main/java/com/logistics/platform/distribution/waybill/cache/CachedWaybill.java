@@ -0,0 +1,53 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * L1缓存条目
+ * waybill为null表示运单不存在（空值缓存），expireAt为对应Redis条目的过期时间，
+ * loadMillis为加载耗时，用于概率提前刷新（XFetch）
+ */
+public final class CachedWaybill {
+
+    private static final CachedWaybill ABSENT = new CachedWaybill(null, Long.MAX_VALUE, 0);
+
+    private final Waybill waybill;
+    private final long expireAt;
+    private final long loadMillis;
+
+    private CachedWaybill(Waybill waybill, long expireAt, long loadMillis) {
+        this.waybill = waybill;
+        this.expireAt = expireAt;
+        this.loadMillis = loadMillis;
+    }
+
+    public static CachedWaybill of(Waybill waybill, long expireAt, long loadMillis) {
+        return new CachedWaybill(waybill, expireAt, loadMillis);
+    }
+
+    public static CachedWaybill absent() {
+        return ABSENT;
+    }
+
+    public Waybill getWaybill() {
+        return waybill;
+    }
+
+    public boolean isPresent() {
+        return waybill != null;
+    }
+
+    /**
+     * XFetch：越接近过期、加载越慢，越可能提前刷新
+     * now - loadMillis * beta * ln(random) >= expireAt 时刷新
+     */
+    public boolean shouldRefreshEarly(long now, double beta) {
+        if (waybill == null || expireAt == Long.MAX_VALUE) {
+            return false;
+        }
+        double gap = -loadMillis * beta * Math.log(ThreadLocalRandom.current().nextDouble());
+        return now + gap >= expireAt;
+    }
+}
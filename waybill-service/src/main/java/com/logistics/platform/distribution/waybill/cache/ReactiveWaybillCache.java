@@ -0,0 +1,66 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * 运单缓存的非阻塞读取，与 WaybillCache 共用同一份L1和Redis数据
+ * L1命中直接返回；L2用响应式Redis客户端读取，三条命令在共享连接上连续发出，不占用线程等待；
+ * 两级都未命中时在独立的有界线程池中走 WaybillCache 的查库流程（布隆过滤器、单飞、空值缓存），
+ * 阻塞的JPA查询不会占用请求线程或Netty/Lettuce的事件循环线程
+ */
+public class ReactiveWaybillCache {
+
+    private final WaybillCache waybillCache;
+    private final ReactiveRedisTemplate<String, Waybill> reactiveRedisTemplate;
+    private final Scheduler loadScheduler;
+
+    public ReactiveWaybillCache(WaybillCache waybillCache,
+                                ReactiveRedisTemplate<String, Waybill> reactiveRedisTemplate,
+                                Scheduler loadScheduler) {
+        this.waybillCache = waybillCache;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.loadScheduler = loadScheduler;
+    }
+
+    /**
+     * @param loader 查库逻辑（阻塞），在 loadScheduler 上执行，同一运单号并发时只会执行一次
+     * @return 运单不存在时为空
+     */
+    public Mono<Waybill> get(String waybillNo, Function<String, Optional<Waybill>> loader) {
+        if (waybillCache.isMalformed(waybillNo)) {
+            return Mono.empty();
+        }
+        CachedWaybill local = waybillCache.getLocal(waybillNo, loader);
+        if (local != null) {
+            return Mono.justOrEmpty(local.getWaybill());
+        }
+        return getRemote(waybillNo)
+                .map(remote -> {
+                    waybillCache.getLocalCache().put(waybillNo, remote);
+                    return Optional.ofNullable(remote.getWaybill());
+                })
+                .switchIfEmpty(Mono.fromCallable(() -> waybillCache.loadOnMiss(waybillNo, loader))
+                        .subscribeOn(loadScheduler))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * 与 WaybillCache 的管道读取相同：运单、剩余过期时间、空值标记
+     */
+    private Mono<CachedWaybill> getRemote(String waybillNo) {
+        String key = WaybillCache.WAYBILL_KEY + waybillNo;
+        return Mono.zip(
+                        reactiveRedisTemplate.opsForValue().get(key).map(Optional::of).defaultIfEmpty(Optional.empty()),
+                        reactiveRedisTemplate.getExpire(key).map(Duration::toMillis).defaultIfEmpty(-2L),
+                        reactiveRedisTemplate.hasKey(WaybillCache.NULL_KEY + waybillNo).defaultIfEmpty(false))
+                .flatMap(results -> Mono.justOrEmpty(
+                        waybillCache.fromRemote(results.getT1().orElse(null), results.getT2(), results.getT3())));
+    }
+}
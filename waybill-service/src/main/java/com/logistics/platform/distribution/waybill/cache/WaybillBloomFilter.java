@@ -0,0 +1,170 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 已存在运单号的布隆过滤器，位图存放在Redis中，所有实例共享
+ * 过滤器未构建完成（ready标记不存在）时不做拦截，避免误拒真实运单
+ */
+@Slf4j
+public class WaybillBloomFilter {
+
+    public static final String BLOOM_KEY = "waybill:bloom";
+    public static final String READY_KEY = "waybill:bloom:ready";
+    private static final byte[] BLOOM_KEY_BYTES = BLOOM_KEY.getBytes(StandardCharsets.UTF_8);
+    //ready标记的本地缓存时间，避免每次判断都访问Redis
+    private static final long READY_CHECK_INTERVAL = TimeUnit.SECONDS.toMillis(60);
+    private static final int REBUILD_CHUNK_SIZE = 1000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final long bitSize;
+    private final int hashCount;
+    private volatile boolean ready;
+    private volatile long readyCheckedAt;
+
+    /**
+     * @param expectedInsertions 预计运单数量
+     * @param fpp 期望误判率
+     */
+    public WaybillBloomFilter(StringRedisTemplate stringRedisTemplate, long expectedInsertions, double fpp) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        //Redis位图偏移上限为2^32
+        this.bitSize = Math.min(optimalBitSize(expectedInsertions, fpp), 1L << 32);
+        this.hashCount = optimalHashCount(expectedInsertions, bitSize);
+    }
+
+    static long optimalBitSize(long n, double p) {
+        return (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+
+    static int optimalHashCount(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    /**
+     * 计算运单号对应的位偏移（双重哈希 h1 + i*h2）
+     */
+    public long[] offsets(String waybillNo) {
+        long h1 = hash(waybillNo, 0x9E3779B97F4A7C15L);
+        long h2 = hash(waybillNo, 0xC2B2AE3D27D4EB4FL);
+        long[] offsets = new long[hashCount];
+        for (int i = 0; i < hashCount; i++) {
+            offsets[i] = Math.floorMod(h1 + i * h2, bitSize);
+        }
+        return offsets;
+    }
+
+    /**
+     * 在调用方的管道中追加写位操作
+     */
+    public void add(RedisOperations<String, ?> operations, String waybillNo) {
+        for (long offset : offsets(waybillNo)) {
+            operations.opsForValue().setBit(BLOOM_KEY, offset, true);
+        }
+    }
+
+    /**
+     * 运单号是否可能存在；过滤器未就绪时总是返回true
+     */
+    public boolean mightContain(String waybillNo) {
+        if (!isReady()) {
+            return true;
+        }
+        long[] offsets = offsets(waybillNo);
+        List<Object> bits = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            RedisStringCommands commands = connection.stringCommands();
+            for (long offset : offsets) {
+                commands.getBit(BLOOM_KEY_BYTES, offset);
+            }
+            return null;
+        });
+        for (Object bit : bits) {
+            if (!Boolean.TRUE.equals(bit)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isReady() {
+        long now = System.currentTimeMillis();
+        //定期复查，Redis被清空时ready标记随之消失，过滤器自动停止拦截
+        if (now - readyCheckedAt > READY_CHECK_INTERVAL) {
+            ready = Boolean.TRUE.equals(stringRedisTemplate.hasKey(READY_KEY));
+            readyCheckedAt = now;
+        }
+        return ready;
+    }
+
+    /**
+     * 用全部已存在的运单号重建位图，完成后设置ready标记
+     * 重建期间新建的运单由创建流程同步写入位图，不会遗漏
+     */
+    public void rebuild(Stream<String> waybillNos) {
+        long count = 0;
+        List<String> chunk = new ArrayList<>(REBUILD_CHUNK_SIZE);
+        Iterator<String> iterator = waybillNos.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            if (chunk.size() == REBUILD_CHUNK_SIZE || !iterator.hasNext()) {
+                writeChunk(chunk);
+                count += chunk.size();
+                chunk.clear();
+            }
+        }
+        stringRedisTemplate.opsForValue().set(READY_KEY, String.valueOf(count));
+        ready = true;
+        log.info("运单布隆过滤器重建完成，共{}条，位图{}位，{}个哈希", count, bitSize, hashCount);
+    }
+
+    private void writeChunk(List<String> chunk) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writeBits(connection, chunk);
+            return null;
+        });
+    }
+
+    private void writeBits(RedisConnection connection, List<String> waybillNos) {
+        RedisStringCommands commands = connection.stringCommands();
+        for (String waybillNo : waybillNos) {
+            for (long offset : offsets(waybillNo)) {
+                commands.setBit(BLOOM_KEY_BYTES, offset, true);
+            }
+        }
+    }
+
+    //64位哈希（murmur3 fmix64混合），不分配额外对象
+    private static long hash(String value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,59 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import com.logistics.platform.distribution.waybill.repository.WaybillRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 启动时若布隆过滤器尚未构建，由抢到锁的一个实例在后台线程中从数据库重建
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class WaybillBloomFilterInitializer implements ApplicationRunner {
+
+    private static final String LOCK_KEY = "waybill:bloom:lock";
+
+    private final WaybillBloomFilter waybillBloomFilter;
+    private final WaybillRepository waybillRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (waybillBloomFilter.isReady()) {
+            return;
+        }
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, "1", 1, TimeUnit.HOURS);
+        if (!Boolean.TRUE.equals(locked)) {
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "waybill-bloom-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void rebuild() {
+        try {
+            TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+            transactionTemplate.setReadOnly(true);
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Stream<String> waybillNos = waybillRepository.streamAllWaybillNos()) {
+                    waybillBloomFilter.rebuild(waybillNos);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("运单布隆过滤器重建失败", e);
+            stringRedisTemplate.delete(LOCK_KEY);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.logistics.platform.distribution.waybill.datasource.ReadRouting;
+import com.logistics.platform.distribution.waybill.datasource.RecentWriteTracker;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 运单两级缓存
+ * L1：进程内Caffeine（W-TinyLFU淘汰，按容量和写入时间过期）
+ * L2：Redis，key为 waybill:NO{运单号}，30分钟过期
+ * 某个实例修改运单后通过Redis发布/订阅通知其他实例失效各自的L1
+ *
+ * 防击穿：同一运单号同一时刻只有一个线程查库（其余线程等待其结果），
+ * 热点条目在Redis过期前按XFetch概率提前异步刷新
+ * 防穿透：运单号格式校验 + 布隆过滤器 + 空值缓存（waybill:NULL{运单号}）
+ * 读写分离时，本实例或其他实例刚修改过的运单查库走主库，避免从库的旧数据被回填到缓存
+ */
+@Slf4j
+public class WaybillCache {
+
+    public static final String WAYBILL_KEY = "waybill:NO";
+    public static final String NULL_KEY = "waybill:NULL";
+    public static final long WAYBILL_EXPIRE_TIME = 30;
+    public static final long NULL_EXPIRE_SECONDS = 60;
+    public static final String INVALIDATION_CHANNEL = "waybill:cache:invalidate";
+    private static final long WAYBILL_EXPIRE_MILLIS = TimeUnit.MINUTES.toMillis(WAYBILL_EXPIRE_TIME);
+    //从Redis读到的条目不知道加载耗时，按此估算
+    private static final long DEFAULT_LOAD_MILLIS = 100;
+    //消息格式：{实例ID}|{运单号}，用于忽略本实例自己发出的通知
+    private static final char SEPARATOR = '|';
+    private static final int BROADCAST_CHUNK_SIZE = 500;
+
+    private final Cache<String, CachedWaybill> localCache;
+    private final RedisTemplate<String, Waybill> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final WaybillBloomFilter bloomFilter;
+    private final Executor refreshExecutor;
+    private final double refreshBeta;
+    private final RecentWriteTracker recentWrites;
+    private final String instanceId = UUID.randomUUID().toString();
+    //正在查库的运单号，同一运单号的并发请求共享一次加载
+    private final ConcurrentHashMap<String, CompletableFuture<Optional<Waybill>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    //L1未命中后查Redis的结果：命中运单、命中空值标记、都未命中
+    private final LongAdder remoteHitCount = new LongAdder();
+    private final LongAdder remoteAbsentCount = new LongAdder();
+    private final LongAdder remoteMissCount = new LongAdder();
+
+    public WaybillCache(Cache<String, CachedWaybill> localCache,
+                        RedisTemplate<String, Waybill> redisTemplate,
+                        StringRedisTemplate stringRedisTemplate,
+                        WaybillBloomFilter bloomFilter,
+                        Executor refreshExecutor,
+                        double refreshBeta) {
+        this(localCache, redisTemplate, stringRedisTemplate, bloomFilter, refreshExecutor, refreshBeta,
+                RecentWriteTracker.disabled());
+    }
+
+    public WaybillCache(Cache<String, CachedWaybill> localCache,
+                        RedisTemplate<String, Waybill> redisTemplate,
+                        StringRedisTemplate stringRedisTemplate,
+                        WaybillBloomFilter bloomFilter,
+                        Executor refreshExecutor,
+                        double refreshBeta,
+                        RecentWriteTracker recentWrites) {
+        this.localCache = localCache;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.bloomFilter = bloomFilter;
+        this.refreshExecutor = refreshExecutor;
+        this.refreshBeta = refreshBeta;
+        this.recentWrites = recentWrites;
+    }
+
+    /**
+     * 依次查L1、L2，都未命中时经布隆过滤器判断后由loader查库并回填
+     * @param loader 查库逻辑，同一运单号并发时只会执行一次
+     */
+    public Optional<Waybill> get(String waybillNo, Function<String, Optional<Waybill>> loader) {
+        if (isMalformed(waybillNo)) {
+            return Optional.empty();
+        }
+        CachedWaybill local = getLocal(waybillNo, loader);
+        if (local != null) {
+            return Optional.ofNullable(local.getWaybill());
+        }
+        CachedWaybill remote = getRemote(waybillNo);
+        if (remote != null) {
+            localCache.put(waybillNo, remote);
+            return Optional.ofNullable(remote.getWaybill());
+        }
+        return loadOnMiss(waybillNo, loader);
+    }
+
+    /**
+     * 格式不合法的运单号不可能存在，计入拒绝次数
+     */
+    public boolean isMalformed(String waybillNo) {
+        if (WaybillNoGenerator.isWellFormed(waybillNo)) {
+            return false;
+        }
+        rejectedCount.increment();
+        return true;
+    }
+
+    /**
+     * 查L1，命中且对应的Redis条目即将过期时触发异步提前刷新
+     * @return 未命中时返回null
+     */
+    public CachedWaybill getLocal(String waybillNo, Function<String, Optional<Waybill>> loader) {
+        CachedWaybill local = localCache.getIfPresent(waybillNo);
+        if (local != null && local.shouldRefreshEarly(System.currentTimeMillis(), refreshBeta)) {
+            refreshAsync(waybillNo, loader);
+        }
+        return local;
+    }
+
+    /**
+     * 两级缓存都已确认未命中后的查库流程：布隆过滤器判断，同一运单号并发只查一次，结果回填两级缓存
+     * 会阻塞调用线程，异步读取路径需在独立的线程池中调用
+     */
+    public Optional<Waybill> loadOnMiss(String waybillNo, Function<String, Optional<Waybill>> loader) {
+        if (!bloomFilter.mightContain(waybillNo)) {
+            rejectedCount.increment();
+            localCache.put(waybillNo, CachedWaybill.absent());
+            return Optional.empty();
+        }
+        return loadOnce(waybillNo, loader, false);
+    }
+
+    /**
+     * 一次管道读取：运单、剩余过期时间、空值标记
+     * @return 两者都不存在时返回null
+     */
+    private CachedWaybill getRemote(String waybillNo) {
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Waybill> ops = (RedisOperations<String, Waybill>) operations;
+                ops.opsForValue().get(WAYBILL_KEY + waybillNo);
+                ops.getExpire(WAYBILL_KEY + waybillNo, TimeUnit.MILLISECONDS);
+                ops.hasKey(NULL_KEY + waybillNo);
+                return null;
+            }
+        });
+        return fromRemote(results.get(0) instanceof Waybill waybill ? waybill : null,
+                results.get(1) instanceof Long millis ? millis : -2L, Boolean.TRUE.equals(results.get(2)));
+    }
+
+    /**
+     * 批量查L2：一次管道读取每个运单号的运单、剩余过期时间、空值标记，命中的同时放入L1
+     * @return 运单号 -> 缓存条目（含空值），两者都不存在的运单号不在其中
+     */
+    public Map<String, CachedWaybill> getRemoteAll(List<String> waybillNos) {
+        if (waybillNos.isEmpty()) {
+            return Map.of();
+        }
+        List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Waybill> ops = (RedisOperations<String, Waybill>) operations;
+                for (String waybillNo : waybillNos) {
+                    ops.opsForValue().get(WAYBILL_KEY + waybillNo);
+                    ops.getExpire(WAYBILL_KEY + waybillNo, TimeUnit.MILLISECONDS);
+                    ops.hasKey(NULL_KEY + waybillNo);
+                }
+                return null;
+            }
+        });
+        Map<String, CachedWaybill> hits = new HashMap<>();
+        for (int i = 0; i < waybillNos.size(); i++) {
+            CachedWaybill remote = fromRemote(results.get(i * 3) instanceof Waybill waybill ? waybill : null,
+                    results.get(i * 3 + 1) instanceof Long millis ? millis : -2L,
+                    Boolean.TRUE.equals(results.get(i * 3 + 2)));
+            if (remote != null) {
+                localCache.put(waybillNos.get(i), remote);
+                hits.put(waybillNos.get(i), remote);
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * 由Redis中读到的运单、剩余过期毫秒数、空值标记构造缓存条目，并计入L2命中统计
+     * @return 运单和空值标记都不存在时返回null
+     */
+    public CachedWaybill fromRemote(Waybill waybill, long ttlMillis, boolean nullMarker) {
+        if (waybill != null) {
+            remoteHitCount.increment();
+            long ttl = ttlMillis > 0 ? ttlMillis : WAYBILL_EXPIRE_MILLIS;
+            return CachedWaybill.of(waybill, System.currentTimeMillis() + ttl, DEFAULT_LOAD_MILLIS);
+        }
+        if (nullMarker) {
+            remoteAbsentCount.increment();
+            return CachedWaybill.absent();
+        }
+        remoteMissCount.increment();
+        return null;
+    }
+
+    private Optional<Waybill> loadOnce(String waybillNo, Function<String, Optional<Waybill>> loader, boolean refresh) {
+        CompletableFuture<Optional<Waybill>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<Waybill>> existing = inFlight.putIfAbsent(waybillNo, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            Optional<Waybill> result;
+            //上一轮加载刚结束时可能已回填L1，再确认一次避免重复查库
+            CachedWaybill local = refresh ? null : localCache.getIfPresent(waybillNo);
+            if (local != null) {
+                result = Optional.ofNullable(local.getWaybill());
+            } else {
+                result = load(waybillNo, loader);
+            }
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(waybillNo, future);
+        }
+    }
+
+    private Optional<Waybill> load(String waybillNo, Function<String, Optional<Waybill>> loader) {
+        long start = System.currentTimeMillis();
+        Optional<Waybill> result = recentWrites.isRecentlyWritten(waybillNo)
+                ? ReadRouting.onPrimary(() -> loader.apply(waybillNo))
+                : loader.apply(waybillNo);
+        loadCount.increment();
+        if (result.isPresent()) {
+            put(result.get(), System.currentTimeMillis() - start);
+        } else {
+            putAbsent(waybillNo);
+        }
+        return result;
+    }
+
+    private static Optional<Waybill> await(CompletableFuture<Optional<Waybill>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void refreshAsync(String waybillNo, Function<String, Optional<Waybill>> loader) {
+        if (inFlight.containsKey(waybillNo)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    loadOnce(waybillNo, loader, true);
+                } catch (RuntimeException e) {
+                    log.warn("提前刷新运单缓存失败：{}", waybillNo, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //刷新队列已满，本次不刷新，条目过期后按正常流程加载
+        }
+    }
+
+    /**
+     * 写入两级缓存并登记到布隆过滤器，用于新建运单和查库回填
+     */
+    public void put(Waybill waybill) {
+        recentWrites.markWritten(waybill.getWaybillNo());
+        put(waybill, DEFAULT_LOAD_MILLIS);
+    }
+
+    private void put(Waybill waybill, long loadMillis) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Waybill> ops = (RedisOperations<String, Waybill>) operations;
+                ops.opsForValue().set(WAYBILL_KEY + waybill.getWaybillNo(), waybill, WAYBILL_EXPIRE_TIME, TimeUnit.MINUTES);
+                bloomFilter.add(ops, waybill.getWaybillNo());
+                return null;
+            }
+        });
+        localCache.put(waybill.getWaybillNo(),
+                CachedWaybill.of(waybill, System.currentTimeMillis() + WAYBILL_EXPIRE_MILLIS, loadMillis));
+    }
+
+    /**
+     * 空值缓存；运单号只有在创建后才会对外返回，新建运单无需清除空值标记
+     */
+    private void putAbsent(String waybillNo) {
+        stringRedisTemplate.opsForValue().set(NULL_KEY + waybillNo, "1", NULL_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        localCache.put(waybillNo, CachedWaybill.absent());
+    }
+
+    /**
+     * 一次管道批量写入两级缓存
+     */
+    public void putAll(Collection<Waybill> waybills) {
+        for (Waybill waybill : waybills) {
+            recentWrites.markWritten(waybill.getWaybillNo());
+        }
+        putAll(waybills, false);
+    }
+
+    /**
+     * 批量查库后回填两级缓存（一次管道），与 putAll 不同，不视为刚写入的运单
+     * L2只在key不存在时写入（SET NX）：查库与回填之间运单被修改并删除了缓存时，可能已有更新的值被写入，不覆盖它
+     */
+    public void fillAll(Collection<Waybill> waybills) {
+        putAll(waybills, true);
+    }
+
+    /**
+     * 是否是本实例或其他实例刚修改过的运单，这类运单查库须走主库
+     */
+    public boolean isRecentlyWritten(String waybillNo) {
+        return recentWrites.isRecentlyWritten(waybillNo);
+    }
+
+    private void putAll(Collection<Waybill> waybills, boolean ifAbsent) {
+        if (waybills.isEmpty()) {
+            return;
+        }
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Waybill> ops = (RedisOperations<String, Waybill>) operations;
+                for (Waybill waybill : waybills) {
+                    String key = WAYBILL_KEY + waybill.getWaybillNo();
+                    if (ifAbsent) {
+                        ops.opsForValue().setIfAbsent(key, waybill, WAYBILL_EXPIRE_TIME, TimeUnit.MINUTES);
+                    } else {
+                        ops.opsForValue().set(key, waybill, WAYBILL_EXPIRE_TIME, TimeUnit.MINUTES);
+                    }
+                    bloomFilter.add(ops, waybill.getWaybillNo());
+                }
+                return null;
+            }
+        });
+        long expireAt = System.currentTimeMillis() + WAYBILL_EXPIRE_MILLIS;
+        for (Waybill waybill : waybills) {
+            localCache.put(waybill.getWaybillNo(), CachedWaybill.of(waybill, expireAt, DEFAULT_LOAD_MILLIS));
+        }
+    }
+
+    /**
+     * 运单被修改：写入两级缓存，并通知其他实例失效L1
+     */
+    public void update(Waybill waybill) {
+        put(waybill);
+        publishInvalidation(waybill.getWaybillNo());
+    }
+
+    /**
+     * 运单状态被条件更新后删除两级缓存并通知其他实例，下次读取时从数据库加载
+     * 不直接写入新值：多个实例并发修改同一运单时，写缓存的先后顺序与数据库提交顺序不一定一致
+     */
+    public void evict(String waybillNo) {
+        recentWrites.markWritten(waybillNo);
+        redisTemplate.delete(WAYBILL_KEY + waybillNo);
+        localCache.invalidate(waybillNo);
+        publishInvalidation(waybillNo);
+    }
+
+    /**
+     * 批量删除两级缓存：Redis一次多key DEL，失效通知每条最多带 BROADCAST_CHUNK_SIZE 个运单号
+     */
+    public void evictAll(Collection<String> waybillNos) {
+        if (waybillNos.isEmpty()) {
+            return;
+        }
+        recentWrites.markWritten(waybillNos);
+        List<String> keys = new ArrayList<>(waybillNos.size());
+        for (String waybillNo : waybillNos) {
+            keys.add(WAYBILL_KEY + waybillNo);
+        }
+        redisTemplate.delete(keys);
+        localCache.invalidateAll(waybillNos);
+        List<String> nos = new ArrayList<>(waybillNos);
+        for (int from = 0; from < nos.size(); from += BROADCAST_CHUNK_SIZE) {
+            publishInvalidation(String.join(",", nos.subList(from, Math.min(from + BROADCAST_CHUNK_SIZE, nos.size()))));
+        }
+    }
+
+    /**
+     * 失效本实例L1，由订阅的失效通知调用
+     */
+    public void invalidateLocal(String waybillNo) {
+        localCache.invalidate(waybillNo);
+    }
+
+    /**
+     * 处理失效通知（实例ID|运单号[,运单号...]），本实例发出的通知直接忽略
+     * 收到通知说明运单刚在其他实例被修改，同时登记为最近写入
+     */
+    public void onInvalidationMessage(String message) {
+        int index = message.indexOf(SEPARATOR);
+        if (index == instanceId.length() && message.startsWith(instanceId)) {
+            return;
+        }
+        int start = index + 1;
+        for (int end = message.indexOf(',', start); end >= 0; start = end + 1, end = message.indexOf(',', start)) {
+            onRemoteWrite(message.substring(start, end));
+        }
+        onRemoteWrite(message.substring(start));
+    }
+
+    private void onRemoteWrite(String waybillNo) {
+        recentWrites.markWritten(waybillNo);
+        invalidateLocal(waybillNo);
+    }
+
+    private void publishInvalidation(String waybillNo) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, instanceId + SEPARATOR + waybillNo);
+        } catch (RuntimeException e) {
+            //通知失败时其他实例的L1最多在过期时间后自然失效
+            log.warn("发布运单缓存失效通知失败：{}", waybillNo, e);
+        }
+    }
+
+    public Cache<String, CachedWaybill> getLocalCache() {
+        return localCache;
+    }
+
+    //实际查库次数
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    //被格式校验、布隆过滤器直接拒绝的次数
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public long getRemoteHitCount() {
+        return remoteHitCount.sum();
+    }
+
+    public long getRemoteAbsentCount() {
+        return remoteAbsentCount.sum();
+    }
+
+    public long getRemoteMissCount() {
+        return remoteMissCount.sum();
+    }
+}
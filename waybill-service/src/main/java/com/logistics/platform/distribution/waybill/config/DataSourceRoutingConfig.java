@@ -0,0 +1,94 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.logistics.platform.distribution.waybill.datasource.RecentWriteTracker;
+import com.logistics.platform.distribution.waybill.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离，配置了 waybill.datasource.replicas 时生效，否则使用 spring.datasource 单库
+ * 主库取 spring.datasource，各从库取 waybill.datasource.replicas[n]，连接池参数共用 spring.datasource.hikari
+ */
+@Configuration
+public class DataSourceRoutingConfig {
+
+    private static final String REPLICAS = "waybill.datasource.replicas";
+
+    /**
+     * 没有从库时不需要登记，所有查询本来就走主库
+     */
+    @Bean
+    public RecentWriteTracker recentWriteTracker(
+            @Value("${waybill.datasource.replicas[0].url:}") String firstReplicaUrl,
+            @Value("${waybill.datasource.read-your-writes-window:2s}") Duration window) {
+        return firstReplicaUrl.isEmpty() ? RecentWriteTracker.disabled() : new RecentWriteTracker(window);
+    }
+
+    /**
+     * 从库健康状态通过 waybill.datasource.replica.healthy{replica=n} 暴露，连接池指标见 hikaricp.*{pool=waybill-replica-n}
+     */
+    @Bean
+    @ConditionalOnProperty(name = REPLICAS + "[0].url")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            @Value("${waybill.datasource.validation-timeout-seconds:1}") int validationTimeoutSeconds,
+            DataSourceProperties primaryProperties,
+            Environment environment,
+            MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool(primaryProperties, "waybill-primary", false, binder, meterRegistry);
+        List<DataSource> replicas = new ArrayList<>();
+        List<DataSourceProperties> replicaProperties = binder
+                .bind(REPLICAS, Bindable.listOf(DataSourceProperties.class))
+                .orElse(List.of());
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            replicas.add(pool(replicaProperties.get(i), "waybill-replica-" + i, true, binder, meterRegistry));
+        }
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas, validationTimeoutSeconds);
+        for (int i = 0; i < replicas.size(); i++) {
+            int replica = i;
+            Gauge.builder("waybill.datasource.replica.healthy", routing, r -> r.isHealthy(replica) ? 1 : 0)
+                    .tag("replica", String.valueOf(replica))
+                    .description("从库是否参与只读查询")
+                    .register(meterRegistry);
+        }
+        return routing;
+    }
+
+    /**
+     * JPA和JdbcTemplate使用的数据源；SQL指标只在这一层记录（routing本身需在 jdbc.excluded-data-source-bean-names 中排除）
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = REPLICAS + "[0].url")
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, String poolName, boolean readOnly,
+                                         Binder binder, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        dataSource.setReadOnly(readOnly);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+}
@@ -0,0 +1,20 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 指标与链路追踪
+ * HTTP请求、JDBC查询、Redis命令、JVM/GC/连接池由自动配置采集，统一通过 /actuator/prometheus 暴露；
+ * 标注 @Observed 的类和方法由切面计时，采样到的请求同时上报链路（采样率见 management.tracing.sampling）
+ */
+@Configuration
+public class ObservabilityConfig {
+
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+}
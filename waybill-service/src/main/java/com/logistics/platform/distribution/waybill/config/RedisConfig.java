@@ -4,35 +4,64 @@ package com.logistics.platform.distribution.waybill.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.serializer.WaybillRedisSerializer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
 
     @Bean
-    public RedisTemplate<String, Waybill> redisTemplate(RedisConnectionFactory Factory) {
+    public RedisTemplate<String, Waybill> redisTemplate(RedisConnectionFactory Factory,
+                                                        @Value("${waybill.cache.serializer.format:json}") String format) {
         RedisTemplate<String,Waybill> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(Factory);
-        ObjectMapper om=new ObjectMapper();
-        om.registerModule(new JavaTimeModule());
-        //序列化配置
-        Jackson2JsonRedisSerializer<Waybill> jacksonSerializer =
-                new Jackson2JsonRedisSerializer<>(om, Waybill.class);
-
+        WaybillRedisSerializer waybillSerializer = waybillSerializer(format);
 
         redisTemplate.setKeySerializer(new StringRedisSerializer());
-        redisTemplate.setValueSerializer(jacksonSerializer);
+        redisTemplate.setValueSerializer(waybillSerializer);
         redisTemplate.setHashKeySerializer(new StringRedisSerializer());
-        redisTemplate.setHashValueSerializer(jacksonSerializer);
+        redisTemplate.setHashValueSerializer(waybillSerializer);
         redisTemplate.afterPropertiesSet();
 
         return redisTemplate;
     }
 
+    /**
+     * 响应式读取路径使用，与 redisTemplate 序列化方式一致，共用同一个Lettuce连接工厂
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Waybill> reactiveRedisTemplate(ReactiveRedisConnectionFactory factory,
+                                                                        @Value("${waybill.cache.serializer.format:json}") String format) {
+        RedisSerializationContext<String, Waybill> context = RedisSerializationContext
+                .<String, Waybill>newSerializationContext(new StringRedisSerializer())
+                .value(waybillSerializer(format))
+                .build();
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
+
+    /**
+     * Redis中运单值的序列化器，基准测试也通过此方法构造以保证与线上一致
+     * @param format 写入格式 json|binary
+     */
+    public static WaybillRedisSerializer waybillSerializer(String format) {
+        ObjectMapper om=new ObjectMapper();
+        om.registerModule(new JavaTimeModule());
+        //序列化配置
+        Jackson2JsonRedisSerializer<Waybill> jacksonSerializer =
+                new Jackson2JsonRedisSerializer<>(om, Waybill.class);
+        //读取兼容JSON和二进制，写入格式由配置决定
+        return new WaybillRedisSerializer(jacksonSerializer,
+                WaybillRedisSerializer.Format.valueOf(format.trim().toUpperCase()));
+    }
+
 }
@@ -0,0 +1,58 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.logistics.platform.distribution.common.concurrent.VirtualThreads;
+import com.logistics.platform.distribution.waybill.diagnostics.VirtualThreadPinningMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 虚拟线程模式（waybill.threads.virtual.enabled=true，见 application-virtual.yml），需运行在Java 21及以上
+ * Tomcat每个请求、MVC异步请求（流式导出）都改为在虚拟线程上执行，阻塞在JDBC和Redis上时不再占用平台线程；
+ * 并发上限改由 server.tomcat.max-connections 和下游连接池决定
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "waybill.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    public VirtualThreadConfig() {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException("已开启虚拟线程模式，但当前为Java " + Runtime.version().feature() + "，需要Java 21及以上");
+        }
+        log.info("运单服务以虚拟线程模式运行");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        ExecutorService executor = VirtualThreads.newThreadPerTaskExecutor("tomcat-vt-");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    //覆盖默认的applicationTaskExecutor，MVC异步请求和@Async使用
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor("waybill-async-vt-"));
+    }
+
+    /**
+     * 通过JFR记录虚拟线程被钉住（在synchronized或本地方法中阻塞）超过阈值的位置
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${waybill.threads.virtual.pinned-threshold:20ms}") Duration threshold,
+            MeterRegistry meterRegistry) {
+        return new VirtualThreadPinningMonitor(threshold, meterRegistry);
+    }
+}
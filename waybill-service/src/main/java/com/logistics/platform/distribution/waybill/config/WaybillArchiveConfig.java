@@ -0,0 +1,52 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.logistics.platform.distribution.waybill.archive.WaybillArchiver;
+import com.logistics.platform.distribution.waybill.repository.WaybillArchiveRepository;
+import com.logistics.platform.distribution.waybill.sharding.WaybillShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class WaybillArchiveConfig {
+
+    /**
+     * 各实例都按计划运行归档，只有抢到锁的一个实际执行；关闭后已归档的运单仍可按运单号查询
+     */
+    @Bean
+    @ConditionalOnProperty(name = "waybill.archive.enabled", havingValue = "true")
+    public WaybillArchiver waybillArchiver(
+            @Value("${waybill.archive.min-age:90d}") Duration minAge,
+            @Value("${waybill.archive.batch-size:500}") int batchSize,
+            @Value("${waybill.archive.pause:200ms}") Duration pause,
+            @Value("${waybill.archive.max-rows-per-run:2000000}") long maxRowsPerRun,
+            @Value("${waybill.archive.lock-time:4h}") Duration lockTime,
+            WaybillShardRouter waybillShardRouter,
+            WaybillArchiveRepository waybillArchiveRepository,
+            TransactionOperations transactionOperations,
+            StringRedisTemplate stringRedisTemplate,
+            MeterRegistry meterRegistry) {
+        return new WaybillArchiver(waybillShardRouter, waybillArchiveRepository, transactionOperations,
+                stringRedisTemplate, ExecutorServiceMetrics.monitor(meterRegistry, archiveExecutor(), "waybill.archive"),
+                minAge, batchSize, pause, maxRowsPerRun, lockTime, meterRegistry);
+    }
+
+    //归档专用的单线程，不排队：上一次归档未结束时新的任务被拒绝
+    private static ThreadPoolExecutor archiveExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "waybill-archive");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,149 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.logistics.platform.distribution.waybill.cache.CachedWaybill;
+import com.logistics.platform.distribution.waybill.cache.ReactiveWaybillCache;
+import com.logistics.platform.distribution.waybill.cache.WaybillBloomFilter;
+import com.logistics.platform.distribution.waybill.cache.WaybillCache;
+import com.logistics.platform.distribution.waybill.datasource.RecentWriteTracker;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+public class WaybillCacheConfig {
+
+    /**
+     * 两级缓存，L1命中率、淘汰数通过 cache.gets / cache.evictions{cache=waybill.local} 暴露，
+     * L2（waybill:NO）的命中情况通过 waybill.cache.remote{result=hit|absent|miss} 暴露，
+     * 实际查库次数和被拦截次数通过 waybill.cache.loads / waybill.cache.rejected 暴露
+     */
+    @Bean
+    public WaybillCache waybillCache(
+            @Value("${waybill.cache.local.maximum-size:100000}") long maximumSize,
+            @Value("${waybill.cache.local.expire-after-write:60s}") Duration expireAfterWrite,
+            @Value("${waybill.cache.local.null-expire-after-write:10s}") Duration nullExpireAfterWrite,
+            @Value("${waybill.cache.refresh-beta:1.0}") double refreshBeta,
+            RedisTemplate<String, Waybill> redisTemplate,
+            StringRedisTemplate stringRedisTemplate,
+            WaybillBloomFilter waybillBloomFilter,
+            RecentWriteTracker recentWriteTracker,
+            MeterRegistry meterRegistry) {
+        Cache<String, CachedWaybill> localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, CachedWaybill>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedWaybill value, long currentTime) {
+                        return (value.isPresent() ? expireAfterWrite : nullExpireAfterWrite).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedWaybill value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedWaybill value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "waybill.local");
+
+        WaybillCache waybillCache = new WaybillCache(localCache, redisTemplate, stringRedisTemplate,
+                waybillBloomFilter, ExecutorServiceMetrics.monitor(meterRegistry, refreshExecutor(), "waybill.cache.refresh"),
+                refreshBeta, recentWriteTracker);
+        FunctionCounter.builder("waybill.cache.loads", waybillCache, WaybillCache::getLoadCount)
+                .description("缓存未命中后实际查库次数")
+                .register(meterRegistry);
+        FunctionCounter.builder("waybill.cache.rejected", waybillCache, WaybillCache::getRejectedCount)
+                .description("格式校验或布隆过滤器直接拒绝的查询次数")
+                .register(meterRegistry);
+        remoteCounter("hit", "L1未命中后Redis中有运单", waybillCache, WaybillCache::getRemoteHitCount, meterRegistry);
+        remoteCounter("absent", "L1未命中后Redis中有空值标记", waybillCache, WaybillCache::getRemoteAbsentCount, meterRegistry);
+        remoteCounter("miss", "L1未命中后Redis中也没有", waybillCache, WaybillCache::getRemoteMissCount, meterRegistry);
+        return waybillCache;
+    }
+
+    /**
+     * 非阻塞读取，两级缓存都未命中时的查库在 waybill-load 线程池中执行，
+     * 线程数即同时查库的上限，排队数超过上限时直接失败，避免慢查询拖垮整个读取路径
+     */
+    @Bean
+    public ReactiveWaybillCache reactiveWaybillCache(WaybillCache waybillCache,
+                                                     ReactiveRedisTemplate<String, Waybill> reactiveRedisTemplate,
+                                                     Scheduler waybillLoadScheduler) {
+        return new ReactiveWaybillCache(waybillCache, reactiveRedisTemplate, waybillLoadScheduler);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler waybillLoadScheduler(
+            @Value("${waybill.reactive.load-threads:32}") int loadThreads,
+            @Value("${waybill.reactive.load-queue:10000}") int loadQueue) {
+        return Schedulers.newBoundedElastic(loadThreads, loadQueue, "waybill-load");
+    }
+
+    /**
+     * 布隆过滤器的位图参数必须在所有实例间保持一致
+     */
+    @Bean
+    public WaybillBloomFilter waybillBloomFilter(
+            @Value("${waybill.cache.bloom.expected-insertions:10000000}") long expectedInsertions,
+            @Value("${waybill.cache.bloom.fpp:0.001}") double fpp,
+            StringRedisTemplate stringRedisTemplate) {
+        return new WaybillBloomFilter(stringRedisTemplate, expectedInsertions, fpp);
+    }
+
+    //订阅其他实例发出的L1失效通知
+    @Bean
+    public RedisMessageListenerContainer waybillCacheListenerContainer(RedisConnectionFactory factory, WaybillCache waybillCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(
+                (message, pattern) -> waybillCache.onInvalidationMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(WaybillCache.INVALIDATION_CHANNEL));
+        return container;
+    }
+
+    private static void remoteCounter(String result, String description, WaybillCache waybillCache,
+                                      ToDoubleFunction<WaybillCache> count, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("waybill.cache.remote", waybillCache, count)
+                .tag("result", result)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    //提前刷新用的小线程池，队列满时直接放弃本次刷新
+    private static ThreadPoolExecutor refreshExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(1, 4, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1000), runnable -> {
+            Thread thread = new Thread(runnable, "waybill-cache-refresh-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -0,0 +1,34 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+@Slf4j
+@Configuration
+public class WaybillNoGeneratorConfig {
+
+    private static final String WORKER_ID_KEY = "waybill:generator:worker";
+
+    /**
+     * 节点ID优先取配置 waybill.generator.worker-id，
+     * 未配置时启动阶段通过Redis INCR领取一个，之后生成运单号不再访问Redis
+     */
+    @Bean
+    public WaybillNoGenerator waybillNoGenerator(
+            @Value("${waybill.generator.worker-id:-1}") long workerId,
+            StringRedisTemplate stringRedisTemplate) {
+        if (workerId < 0) {
+            Long seq = stringRedisTemplate.opsForValue().increment(WORKER_ID_KEY);
+            if (seq == null) {
+                throw new IllegalStateException("无法从Redis领取运单号生成器节点ID");
+            }
+            workerId = Math.floorMod(seq, WaybillNoGenerator.MAX_WORKER_ID + 1);
+        }
+        log.info("运单号生成器节点ID：{}", workerId);
+        return new WaybillNoGenerator(workerId);
+    }
+}
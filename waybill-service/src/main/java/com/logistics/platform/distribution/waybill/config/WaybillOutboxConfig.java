@@ -0,0 +1,52 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.logistics.platform.distribution.waybill.outbox.InMemoryWaybillEventPublisher;
+import com.logistics.platform.distribution.waybill.outbox.RedisStreamWaybillEventPublisher;
+import com.logistics.platform.distribution.waybill.outbox.WaybillEventPublisher;
+import com.logistics.platform.distribution.waybill.outbox.WaybillOutboxRelay;
+import com.logistics.platform.distribution.waybill.repository.WaybillOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+
+@Configuration
+@EnableScheduling
+public class WaybillOutboxConfig {
+
+    /**
+     * 默认发布到Redis Streams，waybill.outbox.publisher=memory 时只保存在进程内
+     */
+    @Bean
+    public WaybillEventPublisher waybillEventPublisher(
+            @Value("${waybill.outbox.publisher:redis}") String publisher,
+            @Value("${waybill.outbox.stream.partitions:4}") int partitions,
+            @Value("${waybill.outbox.stream.max-len:1000000}") long maxLen,
+            StringRedisTemplate stringRedisTemplate) {
+        if ("memory".equalsIgnoreCase(publisher)) {
+            return new InMemoryWaybillEventPublisher();
+        }
+        return new RedisStreamWaybillEventPublisher(stringRedisTemplate, partitions, maxLen);
+    }
+
+    /**
+     * 各实例都启动中继，只有持有租约的一个实际发布
+     */
+    @Bean
+    @ConditionalOnProperty(name = "waybill.outbox.enabled", havingValue = "true", matchIfMissing = true)
+    public WaybillOutboxRelay waybillOutboxRelay(
+            @Value("${waybill.outbox.batch-size:500}") int batchSize,
+            @Value("${waybill.outbox.lease-time:10s}") Duration leaseTime,
+            WaybillOutboxRepository waybillOutboxRepository,
+            WaybillEventPublisher waybillEventPublisher,
+            StringRedisTemplate stringRedisTemplate,
+            MeterRegistry meterRegistry) {
+        return new WaybillOutboxRelay(waybillOutboxRepository, waybillEventPublisher, stringRedisTemplate,
+                batchSize, leaseTime, meterRegistry);
+    }
+}
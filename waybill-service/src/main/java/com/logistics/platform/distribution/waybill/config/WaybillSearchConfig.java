@@ -0,0 +1,47 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.search.WaybillSearchIndex;
+import com.logistics.platform.distribution.waybill.search.WaybillSearchIndexer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 运单搜索：每个实例在本地磁盘维护一份索引，从运单事件流同步，需 waybill.outbox.publisher=redis
+ */
+@Configuration
+@ConditionalOnProperty(name = "waybill.search.enabled", havingValue = "true")
+public class WaybillSearchConfig {
+
+    @Bean(destroyMethod = "close")
+    public WaybillSearchIndex waybillSearchIndex(@Value("${waybill.search.index-dir:data/waybill-search}") String indexDir) {
+        return WaybillSearchIndex.open(Path.of(indexDir));
+    }
+
+    /**
+     * 关闭时先提交同步进度，再关闭索引
+     */
+    @Bean(destroyMethod = "commit")
+    public WaybillSearchIndexer waybillSearchIndexer(
+            @Value("${waybill.outbox.stream.partitions:4}") int partitions,
+            @Value("${waybill.search.batch-size:1000}") int batchSize,
+            @Value("${waybill.search.commit-interval:10s}") Duration commitInterval,
+            WaybillSearchIndex waybillSearchIndex,
+            StringRedisTemplate stringRedisTemplate,
+            ObjectMapper objectMapper,
+            WaybillJdbcRepository waybillJdbcRepository,
+            PlatformTransactionManager transactionManager) {
+        WaybillSearchIndexer indexer = new WaybillSearchIndexer(waybillSearchIndex, stringRedisTemplate, objectMapper,
+                waybillJdbcRepository, transactionManager, partitions, batchSize, commitInterval);
+        indexer.start();
+        return indexer;
+    }
+}
@@ -0,0 +1,47 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.logistics.platform.distribution.waybill.repository.WaybillShardRepository;
+import com.logistics.platform.distribution.waybill.sharding.WaybillResharder;
+import com.logistics.platform.distribution.waybill.sharding.WaybillShardRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+
+@Configuration
+public class WaybillShardingConfig {
+
+    /**
+     * waybill.sharding.tables 为已建好的分表数（含原 waybill 表），默认1即不分表
+     * 分表时映射连续两个刷新间隔未刷新成功即视为过期
+     */
+    @Bean
+    public WaybillShardRouter waybillShardRouter(
+            @Value("${waybill.sharding.tables:1}") int tables,
+            @Value("${waybill.sharding.refresh-interval-ms:1000}") long refreshIntervalMs) {
+        return new WaybillShardRouter(tables, tables > 1 ? maxStaleness(refreshIntervalMs) : Duration.ZERO);
+    }
+
+    /**
+     * 启动时加载桶映射，加载失败（如未执行 db/waybill_shard.sql）时启动失败
+     */
+    @Bean
+    @ConditionalOnExpression("${waybill.sharding.tables:1} > 1")
+    public WaybillResharder waybillResharder(
+            @Value("${waybill.sharding.refresh-interval-ms:1000}") long refreshIntervalMs,
+            WaybillShardRouter waybillShardRouter,
+            WaybillShardRepository waybillShardRepository,
+            TransactionOperations transactionOperations) {
+        WaybillResharder resharder = new WaybillResharder(waybillShardRouter, waybillShardRepository,
+                transactionOperations, maxStaleness(refreshIntervalMs).plusMillis(500));
+        resharder.initialize();
+        return resharder;
+    }
+
+    private static Duration maxStaleness(long refreshIntervalMs) {
+        return Duration.ofMillis(refreshIntervalMs * 2);
+    }
+}
@@ -1,11 +1,18 @@
 package com.logistics.platform.distribution.waybill.controller;
 
 
+import com.logistics.platform.distribution.waybill.dto.WaybillBatchResult;
+import com.logistics.platform.distribution.waybill.dto.WaybillPage;
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
 import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.export.WaybillExportFormat;
 import com.logistics.platform.distribution.waybill.service.WaybillService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -20,6 +27,12 @@ public class WaybillController {
         return ResponseEntity.ok(waybillService.createWaybill(waybill));
     }
 
+    //批量创建运单
+    @PostMapping("/batch")
+    public ResponseEntity<WaybillBatchResult> batchCreateWaybills(@RequestBody List<Waybill> waybills) {
+        return ResponseEntity.ok(waybillService.batchCreateWaybills(waybills));
+    }
+
     //查询运单
     @GetMapping("/{waybillNo}")
     public ResponseEntity<Waybill> getWaybillByNo(@PathVariable String waybillNo){
@@ -27,10 +40,28 @@ public class WaybillController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
-    //查询所有订单
+    //批量查询运单（仓储整笼入库等场景），请求体为运单号列表，只返回存在的运单
+    @PostMapping("/batch-get")
+    public ResponseEntity<List<Waybill>> getWaybillsByNos(@RequestBody List<String> waybillNos){
+        return ResponseEntity.ok(waybillService.getByWaybillNos(waybillNos));
+    }
+
+    //分页查询运单，条件：status/warehouseId/deliverymanId/createTimeFrom/createTimeTo，翻页传上一页的nextCursor
     @GetMapping
-    public ResponseEntity<List<Waybill>> getAllWaybills(){
-        return ResponseEntity.ok(waybillService.getAllWaybills());
+    public ResponseEntity<WaybillPage> listWaybills(WaybillQuery query){
+        return ResponseEntity.ok(waybillService.listWaybills(query));
+    }
+
+    //按条件导出运单，format=ndjson|csv，边查边写不占用大块内存
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportWaybills(WaybillQuery query,
+                                                                @RequestParam(defaultValue = "ndjson") String format){
+        WaybillExportFormat exportFormat = WaybillExportFormat.fromString(format);
+        StreamingResponseBody body = out -> waybillService.exportWaybills(query, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=waybill." + exportFormat.getExtension())
+                .body(body);
     }
 
 
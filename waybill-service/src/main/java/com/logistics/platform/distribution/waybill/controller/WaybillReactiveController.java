@@ -0,0 +1,43 @@
+package com.logistics.platform.distribution.waybill.controller;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.service.ReactiveWaybillService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 非阻塞读取接口，与 /waybill 下的接口并行提供
+ * 返回Mono时Spring MVC以异步请求处理，等待Redis和查库期间不占用Tomcat工作线程
+ */
+@RestController
+@RequestMapping("/waybill/reactive")
+public class WaybillReactiveController {
+    private final ReactiveWaybillService reactiveWaybillService;
+    private final Duration timeout;
+
+    public WaybillReactiveController(ReactiveWaybillService reactiveWaybillService,
+                                     @Value("${waybill.reactive.timeout:2s}") Duration timeout) {
+        this.reactiveWaybillService = reactiveWaybillService;
+        this.timeout = timeout;
+    }
+
+    //查询运单，超时返回503
+    @GetMapping("/{waybillNo}")
+    public Mono<ResponseEntity<Waybill>> getWaybillByNo(@PathVariable String waybillNo) {
+        return reactiveWaybillService.getByWaybillNo(waybillNo)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .timeout(timeout)
+                .onErrorResume(TimeoutException.class,
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.logistics.platform.distribution.waybill.controller;
+
+import com.logistics.platform.distribution.waybill.dto.WaybillSearchHit;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.search.WaybillSearchIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/waybill/search")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "waybill.search.enabled", havingValue = "true")
+public class WaybillSearchController {
+    private static final int MAX_LIMIT = 100;
+
+    private final WaybillSearchIndex waybillSearchIndex;
+
+    //客服搜索：q为纯数字时按电话前缀或尾号匹配，否则按姓名、收件地址、货物类型分词匹配；结果按创建时间从新到旧
+    //q为空或电话少于3位时返回400
+    @GetMapping
+    public ResponseEntity<List<WaybillSearchHit>> search(@RequestParam String q,
+                                                         @RequestParam(required = false) WaybillStatus status,
+                                                         @RequestParam(defaultValue = "20") int limit) {
+        if (!WaybillSearchIndex.isValidKeyword(q)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(waybillSearchIndex.search(q, status, Math.max(1, Math.min(limit, MAX_LIMIT))));
+    }
+}
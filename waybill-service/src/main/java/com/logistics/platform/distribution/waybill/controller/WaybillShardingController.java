@@ -0,0 +1,25 @@
+package com.logistics.platform.distribution.waybill.controller;
+
+import com.logistics.platform.distribution.waybill.sharding.WaybillResharder;
+import com.logistics.platform.distribution.waybill.sharding.WaybillResharder.ReshardResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/waybill/sharding")
+@RequiredArgsConstructor
+@ConditionalOnExpression("${waybill.sharding.tables:1} > 1")
+public class WaybillShardingController {
+    private final WaybillResharder waybillResharder;
+
+    //在线重新分片：把运单均匀分布到前shards个分表，迁移完成后返回
+    @PostMapping("/reshard")
+    public ResponseEntity<ReshardResult> reshard(@RequestParam int shards) {
+        return ResponseEntity.ok(waybillResharder.reshard(shards));
+    }
+}
@@ -1,18 +1,25 @@
 package com.logistics.platform.distribution.waybill.controller;
 
 
+import com.logistics.platform.distribution.waybill.dto.WaybillBatchResult;
+import com.logistics.platform.distribution.waybill.dto.WaybillStatusEvent;
 import com.logistics.platform.distribution.waybill.entity.Waybill;
 import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
 import com.logistics.platform.distribution.waybill.service.WaybillService;
+import com.logistics.platform.distribution.waybill.service.WaybillStatusLogService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/waybill/status")
 @RequiredArgsConstructor
 public class WaybillStatusController {
     private final WaybillService waybillService;
+    private final WaybillStatusLogService waybillStatusLogService;
 
     @PutMapping("/{waybillNo}")
     public ResponseEntity<Waybill> updateWaybillStatus(
@@ -20,4 +27,22 @@ public class WaybillStatusController {
             @RequestParam String status){
         return ResponseEntity.ok(waybillService.updateWaybillStatus(waybillNo, status));
     }
+
+    //批量更新状态（整笼扫描），逐条返回结果
+    @PostMapping("/batch")
+    public ResponseEntity<WaybillBatchResult> batchUpdateWaybillStatus(@RequestBody List<WaybillStatusEvent> events) {
+        return ResponseEntity.ok(waybillService.batchUpdateWaybillStatus(events));
+    }
+
+    //运单状态时间线
+    @GetMapping("/{waybillNo}/timeline")
+    public ResponseEntity<List<WaybillStatusLog>> getTimeline(@PathVariable String waybillNo) {
+        return ResponseEntity.ok(waybillStatusLogService.getTimeline(waybillNo));
+    }
+
+    //由状态日志重放全部运单的当前状态，返回重放的运单数
+    @PostMapping("/replay")
+    public ResponseEntity<Long> replay() {
+        return ResponseEntity.ok(waybillStatusLogService.replay());
+    }
 }
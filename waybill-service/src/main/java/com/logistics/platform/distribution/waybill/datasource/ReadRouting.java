@@ -0,0 +1,34 @@
+package com.logistics.platform.distribution.waybill.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程的读库路由：默认只读事务走从库，在 onPrimary 内执行的查询一律走主库
+ * 用于刚写入的运单（从库可能尚未同步）和写之前的读取，未配置从库时不起作用
+ */
+public final class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private ReadRouting() {
+    }
+
+    /**
+     * 在主库上执行，可嵌套
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            }
+        }
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+}
@@ -0,0 +1,53 @@
+package com.logistics.platform.distribution.waybill.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * 最近被修改的运单号，窗口应大于从库的复制延迟
+ * 窗口内这些运单的查库走主库，避免读到从库的旧数据并回填到缓存
+ * 本实例的修改在写缓存时登记，其他实例的修改由缓存失效通知登记
+ */
+public class RecentWriteTracker {
+
+    private static final long MAXIMUM_SIZE = 1_000_000;
+
+    //未配置从库时为null，所有读取本来就走主库
+    private final Cache<String, Boolean> recent;
+
+    public RecentWriteTracker(Duration window) {
+        this.recent = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    private RecentWriteTracker() {
+        this.recent = null;
+    }
+
+    public static RecentWriteTracker disabled() {
+        return new RecentWriteTracker();
+    }
+
+    public void markWritten(String waybillNo) {
+        if (recent != null) {
+            recent.put(waybillNo, Boolean.TRUE);
+        }
+    }
+
+    public void markWritten(Collection<String> waybillNos) {
+        if (recent != null) {
+            for (String waybillNo : waybillNos) {
+                recent.put(waybillNo, Boolean.TRUE);
+            }
+        }
+    }
+
+    public boolean isRecentlyWritten(String waybillNo) {
+        return recent != null && recent.getIfPresent(waybillNo) != null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.logistics.platform.distribution.waybill.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离：只读事务内的查询轮询分配到健康的从库，其余（写事务、无事务、ReadRouting.onPrimary）走主库
+ * 从库全部不可用时只读查询也回到主库
+ * 事务开始时还不知道是否只读，必须包在 LazyConnectionDataSourceProxy 中，到第一次执行语句时再取连接
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final AtomicBoolean[] healthy;
+    private final AtomicInteger next = new AtomicInteger();
+    private final int validationTimeoutSeconds;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, int validationTimeoutSeconds) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.healthy = new AtomicBoolean[replicas.size()];
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            healthy[i] = new AtomicBoolean(true);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || ReadRouting.isPrimaryForced()) {
+            return PRIMARY;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (healthy[index].get()) {
+                return index;
+            }
+        }
+        return PRIMARY;
+    }
+
+    /**
+     * 逐个校验从库连接，状态变化时记录日志
+     */
+    @Scheduled(fixedDelayString = "${waybill.datasource.health-check-interval-ms:5000}")
+    public void checkHealth() {
+        for (int i = 0; i < replicas.size(); i++) {
+            boolean up = isValid(replicas.get(i));
+            if (healthy[i].getAndSet(up) != up) {
+                if (up) {
+                    log.info("从库{}已恢复，重新参与只读查询", i);
+                } else {
+                    log.warn("从库{}不可用，只读查询暂时分配到其他从库或主库", i);
+                }
+            }
+        }
+    }
+
+    private boolean isValid(DataSource replica) {
+        try (Connection connection = replica.getConnection()) {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public boolean isHealthy(int replica) {
+        return healthy[replica].get();
+    }
+
+    @Override
+    public void close() {
+        for (DataSource replica : replicas) {
+            closeQuietly(replica);
+        }
+        closeQuietly(primary);
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("关闭数据源失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.logistics.platform.distribution.waybill.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量操作结果，逐条返回成功/失败
+ */
+@Data
+@NoArgsConstructor
+public class WaybillBatchResult {
+    private int total;
+    private int successCount;
+    private int failureCount;
+    private List<Item> items = new ArrayList<>();
+
+    public WaybillBatchResult(int total) {
+        this.total = total;
+    }
+
+    public void success(int index, String waybillNo) {
+        items.add(new Item(index, waybillNo, true, null));
+        successCount++;
+    }
+
+    public void fail(int index, String waybillNo, String message) {
+        items.add(new Item(index, waybillNo, false, message));
+        failureCount++;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private int index; // 请求中的下标
+        private String waybillNo;
+        private boolean success;
+        private String message; // 失败原因
+    }
+}
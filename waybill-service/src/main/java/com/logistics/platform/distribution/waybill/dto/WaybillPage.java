@@ -0,0 +1,20 @@
+package com.logistics.platform.distribution.waybill.dto;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 按ID游标分页的结果，nextCursor为空表示已是最后一页
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaybillPage {
+    private List<Waybill> items;
+    private Long nextCursor;
+    private boolean hasMore;
+}
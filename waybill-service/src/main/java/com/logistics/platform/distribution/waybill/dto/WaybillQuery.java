@@ -0,0 +1,33 @@
+package com.logistics.platform.distribution.waybill.dto;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * 运单列表查询条件，所有条件均可为空
+ */
+@Data
+public class WaybillQuery {
+    public static final int DEFAULT_SIZE = 20;
+    public static final int MAX_SIZE = 500;
+
+    private WaybillStatus status;
+    private Long warehouseId;
+    private Long deliverymanId;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createTimeFrom; // 创建时间下限（含）
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createTimeTo; // 创建时间上限（不含）
+    private Long cursor; // 上一页返回的nextCursor，首页不传
+    private Integer size; // 每页条数，默认20，最大500
+
+    public int pageSize() {
+        if (size == null || size <= 0) {
+            return DEFAULT_SIZE;
+        }
+        return Math.min(size, MAX_SIZE);
+    }
+}
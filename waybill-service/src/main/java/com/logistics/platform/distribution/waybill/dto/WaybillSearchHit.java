@@ -0,0 +1,26 @@
+package com.logistics.platform.distribution.waybill.dto;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 运单搜索结果，只含搜索字段和当前状态，完整运单按运单号查询
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaybillSearchHit {
+    private String waybillNo;
+    private String senderName;
+    private String senderPhone;
+    private String receiverName;
+    private String receiverPhone;
+    private String receiverAddress;
+    private String goodsType;
+    private WaybillStatus status;
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,19 @@
+package com.logistics.platform.distribution.waybill.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 扫描枪/分拣中心上报的状态事件
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaybillStatusEvent {
+    private String waybillNo;
+    private String status; // 目标状态，如"PICKED"
+    private LocalDateTime eventTime; // 扫描时间，同一运单的多条事件按此排序，为空时取服务端接收时间
+}
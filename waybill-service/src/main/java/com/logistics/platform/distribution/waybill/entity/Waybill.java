@@ -3,6 +3,7 @@ package com.logistics.platform.distribution.waybill.entity;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.Data;
 
@@ -10,7 +11,14 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "waybill")
+//索引与 db/waybill_index.sql 保持一致；InnoDB二级索引本身带主键，显式写出id表示按ID游标分页可直接走索引有序扫描
+@Table(name = "waybill", indexes = {
+        @Index(name = "uk_waybill_no", columnList = "waybillNo", unique = true),
+        @Index(name = "idx_status_id", columnList = "status, id"),
+        @Index(name = "idx_warehouse_status_id", columnList = "warehouseId, status, id"),
+        @Index(name = "idx_deliveryman_status_id", columnList = "deliverymanId, status, id"),
+        @Index(name = "idx_create_time", columnList = "createTime")
+})
 public class Waybill {
     @Id
     private Long id;
@@ -0,0 +1,9 @@
+package com.logistics.platform.distribution.waybill.entity;
+
+/**
+ * 对外发布的运单变更事件类型，按名称存储和发布，只能新增不能改名
+ */
+public enum WaybillEventType {
+    CREATED, // 运单创建，负载为完整运单
+    STATUS_CHANGED // 状态变更，负载为状态日志
+}
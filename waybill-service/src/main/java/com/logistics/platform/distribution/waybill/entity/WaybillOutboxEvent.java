@@ -0,0 +1,39 @@
+package com.logistics.platform.distribution.waybill.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 待发布的运单变更事件（事务发件箱），与运单在同一事务中写入，发布成功后删除
+ * 表结构见 db/waybill_outbox.sql
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "waybill_outbox")
+public class WaybillOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 自增，同一运单内即事件顺序，下游据此去重
+    private String waybillNo; // 运单号
+    @Enumerated(EnumType.STRING)
+    private WaybillEventType eventType; // 事件类型
+    private String payload; // 事件负载（JSON）
+    private LocalDateTime createTime; // 写入时间，用于计算发布延迟
+
+    public static WaybillOutboxEvent of(String waybillNo, WaybillEventType eventType, String payload,
+                                        LocalDateTime createTime) {
+        return new WaybillOutboxEvent(null, waybillNo, eventType, payload, createTime);
+    }
+}
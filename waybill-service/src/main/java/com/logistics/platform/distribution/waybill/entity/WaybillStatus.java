@@ -1,7 +1,6 @@
 package com.logistics.platform.distribution.waybill.entity;
 
-import java.util.Arrays;
-import java.util.Set;
+import com.logistics.platform.distribution.common.state.EnumStateMachine;
 
 public enum WaybillStatus {
 
@@ -17,20 +16,16 @@ public enum WaybillStatus {
 
     private String desc;
 
-    private static final java.util.Map<WaybillStatus, Set<WaybillStatus>> VALID_TRANSITIONS;
-    static {
-        // 初始化状态流转规则
-        VALID_TRANSITIONS = new java.util.HashMap<>();
-        // CREATED状态可流转到：PICKED/CANCELLED
-        VALID_TRANSITIONS.put(CREATED, Set.of(PICKED, CANCELLED));
-        // PICKED状态可流转到：DELIVERING/CANCELLED
-        VALID_TRANSITIONS.put(PICKED, Set.of(DELIVERING, CANCELLED));
-        // DELIVERING状态可流转到：DELIVERED/CANCELLED
-        VALID_TRANSITIONS.put(DELIVERING, Set.of(DELIVERED, CANCELLED));
-        // DELIVERED/CANCELLED为终态，不允许流转
-        VALID_TRANSITIONS.put(DELIVERED, Set.of());
-        VALID_TRANSITIONS.put(CANCELLED, Set.of());
-    }
+    // 状态流转规则，预先编译为位掩码和名称哈希表，状态更新热点路径上不分配对象
+    private static final EnumStateMachine<WaybillStatus> STATE_MACHINE = EnumStateMachine.builder(WaybillStatus.class)
+            // CREATED状态可流转到：PICKED/CANCELLED
+            .allow(CREATED, PICKED, CANCELLED)
+            // PICKED状态可流转到：DELIVERING/CANCELLED
+            .allow(PICKED, DELIVERING, CANCELLED)
+            // DELIVERING状态可流转到：DELIVERED/CANCELLED
+            .allow(DELIVERING, DELIVERED, CANCELLED)
+            // DELIVERED/CANCELLED为终态，不允许流转
+            .build();
 
     WaybillStatus(String desc) {
         this.desc = desc;
@@ -44,7 +39,14 @@ public enum WaybillStatus {
      * @return true=合法，false=非法
      */
     public boolean canTransitionTo(WaybillStatus targetStatus) {
-        return VALID_TRANSITIONS.get(this).contains(targetStatus);
+        return STATE_MACHINE.canTransition(this, targetStatus);
+    }
+
+    /**
+     * 是否为终态（已送达、已取消）
+     */
+    public boolean isTerminal() {
+        return STATE_MACHINE.isTerminal(this);
     }
 
     /**
@@ -54,10 +56,11 @@ public enum WaybillStatus {
      * @throws IllegalArgumentException 状态不存在时抛出
      */
     public static WaybillStatus fromString(String statusStr) {
-        return Arrays.stream(values())
-                .filter(status -> status.name().equalsIgnoreCase(statusStr))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("无效的运单状态：" + statusStr));
+        WaybillStatus status = STATE_MACHINE.parse(statusStr);
+        if (status == null) {
+            throw new IllegalArgumentException("无效的运单状态：" + statusStr);
+        }
+        return status;
     }
 
 }
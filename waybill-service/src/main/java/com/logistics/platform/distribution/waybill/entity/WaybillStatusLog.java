@@ -0,0 +1,40 @@
+package com.logistics.platform.distribution.waybill.entity;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 运单状态变更日志，只追加不修改；waybill.status 是由它投影出的当前状态
+ * 表结构见 db/waybill_status_log.sql
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "waybill_status_log", indexes = {
+        @Index(name = "idx_waybill_no_id", columnList = "waybillNo, id")
+})
+public class WaybillStatusLog {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // 自增，同一运单内即变更顺序
+    private String waybillNo; // 运单号
+    private WaybillStatus fromStatus; // 变更前状态
+    private WaybillStatus toStatus; // 变更后状态
+    private LocalDateTime eventTime; // 事件发生时间（扫描时间）
+    private LocalDateTime createTime; // 写入时间
+
+    public static WaybillStatusLog of(String waybillNo, WaybillStatus fromStatus, WaybillStatus toStatus,
+                                      LocalDateTime eventTime, LocalDateTime createTime) {
+        return new WaybillStatusLog(null, waybillNo, fromStatus, toStatus, eventTime, createTime);
+    }
+}
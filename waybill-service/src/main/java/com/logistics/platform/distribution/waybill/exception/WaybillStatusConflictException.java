@@ -0,0 +1,35 @@
+package com.logistics.platform.distribution.waybill.exception;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 运单状态变更冲突：目标状态不符合流转规则，或重试后仍被并发修改
+ */
+@Getter
+@ResponseStatus(HttpStatus.CONFLICT)
+public class WaybillStatusConflictException extends RuntimeException {
+
+    private final String waybillNo;
+    private final WaybillStatus currentStatus;
+    private final WaybillStatus targetStatus;
+
+    private WaybillStatusConflictException(String message, String waybillNo, WaybillStatus currentStatus, WaybillStatus targetStatus) {
+        super(message);
+        this.waybillNo = waybillNo;
+        this.currentStatus = currentStatus;
+        this.targetStatus = targetStatus;
+    }
+
+    public static WaybillStatusConflictException illegalTransition(String waybillNo, WaybillStatus currentStatus, WaybillStatus targetStatus) {
+        return new WaybillStatusConflictException("运单状态不允许从" + currentStatus + "变更为" + targetStatus + "：" + waybillNo,
+                waybillNo, currentStatus, targetStatus);
+    }
+
+    public static WaybillStatusConflictException concurrentModification(String waybillNo, WaybillStatus currentStatus, WaybillStatus targetStatus) {
+        return new WaybillStatusConflictException("运单状态被并发修改，请稍后重试：" + waybillNo,
+                waybillNo, currentStatus, targetStatus);
+    }
+}
@@ -0,0 +1,36 @@
+package com.logistics.platform.distribution.waybill.export;
+
+import java.util.Arrays;
+
+/**
+ * 运单导出格式
+ */
+public enum WaybillExportFormat {
+
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    CSV("text/csv;charset=UTF-8", "csv");
+
+    private final String contentType;
+    private final String extension;
+
+    WaybillExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static WaybillExportFormat fromString(String format) {
+        return Arrays.stream(values())
+                .filter(f -> f.name().equalsIgnoreCase(format))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("无效的导出格式：" + format));
+    }
+}
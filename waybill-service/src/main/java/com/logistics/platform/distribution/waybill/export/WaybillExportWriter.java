@@ -0,0 +1,132 @@
+package com.logistics.platform.distribution.waybill.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+/**
+ * 逐条写出运单，NDJSON每行一个JSON对象，CSV第一行为表头
+ * 只缓冲一个固定大小的写缓冲区，不保留已写出的运单
+ */
+public class WaybillExportWriter implements Consumer<Waybill> {
+
+    private static final String[] CSV_HEADER = {"id", "waybillNo", "customerId", "senderName", "senderPhone",
+            "senderAddress", "receiverName", "receiverPhone", "receiverAddress", "goodsType", "weight", "volume",
+            "amount", "status", "warehouseId", "deliverymanId", "estimatedArrivalTime", "actualArrivalTime",
+            "createTime", "updateTime"};
+
+    private static final DateTimeFormatter CSV_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final WaybillExportFormat format;
+    private final Writer writer;
+    private final ObjectWriter jsonWriter;
+    private long count;
+
+    public WaybillExportWriter(WaybillExportFormat format, OutputStream out, ObjectMapper objectMapper) {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        //Jackson默认写完会关闭并flush目标Writer，这里关掉，由缓冲区写满或调用方统一flush
+        this.jsonWriter = objectMapper.writerFor(Waybill.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)
+                .without(SerializationFeature.INDENT_OUTPUT)
+                .without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (format == WaybillExportFormat.CSV) {
+            //UTF-8 BOM，Excel打开时中文不乱码
+            write("\uFEFF");
+            writeCsvRow(CSV_HEADER);
+        }
+    }
+
+    @Override
+    public void accept(Waybill w) {
+        if (format == WaybillExportFormat.NDJSON) {
+            try {
+                jsonWriter.writeValue(writer, w);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            write("\n");
+        } else {
+            writeCsvRow(new Object[]{w.getId(), w.getWaybillNo(), w.getCustomerId(), w.getSenderName(),
+                    w.getSenderPhone(), w.getSenderAddress(), w.getReceiverName(), w.getReceiverPhone(),
+                    w.getReceiverAddress(), w.getGoodsType(), w.getWeight(), w.getVolume(), w.getAmount(),
+                    w.getStatus(), w.getWarehouseId(), w.getDeliverymanId(), w.getEstimatedArrivalTime(),
+                    w.getActualArrivalTime(), w.getCreateTime(), w.getUpdateTime()});
+        }
+        count++;
+    }
+
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private void writeCsvRow(Object[] values) {
+        StringBuilder row = new StringBuilder(256);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                row.append(',');
+            }
+            if (values[i] instanceof LocalDateTime time) {
+                row.append(CSV_TIME_FORMATTER.format(time));
+            } else if (values[i] != null) {
+                appendCsvValue(row, values[i].toString());
+            }
+        }
+        row.append("\r\n");
+        write(row);
+    }
+
+    //RFC 4180：含逗号、引号、换行的值用双引号包裹，内部引号写两次
+    private static void appendCsvValue(StringBuilder row, String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            row.append(value);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                row.append('"');
+            }
+            row.append(c);
+        }
+        row.append('"');
+    }
+
+    private void write(CharSequence text) {
+        try {
+            writer.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
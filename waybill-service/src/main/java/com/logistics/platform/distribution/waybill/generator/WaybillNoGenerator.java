@@ -0,0 +1,130 @@
+package com.logistics.platform.distribution.waybill.generator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 运单号生成器（Snowflake风格）
+ * 64位ID结构：1位符号 | 41位毫秒时间戳(相对EPOCH) | 10位节点ID | 12位毫秒内序列号
+ * 同一JVM内通过CAS无锁生成，不同实例依靠节点ID区分，生成过程不访问数据库
+ */
+public class WaybillNoGenerator {
+
+    public static final String PREFIX = "WB";
+
+    //起始时间 2024-01-01T00:00:00Z
+    static final long EPOCH = 1704067200000L;
+    static final int WORKER_ID_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = WORKER_ID_BITS + SEQUENCE_BITS;
+
+    private final long workerId;
+    private final LongSupplier clock;
+    //高位为上次使用的时间戳，低12位为序列号，一次CAS同时推进两者
+    private final AtomicLong state = new AtomicLong();
+
+    public WaybillNoGenerator(long workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    WaybillNoGenerator(long workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("节点ID超出范围[0," + MAX_WORKER_ID + "]：" + workerId);
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    /**
+     * 生成下一个ID，同一节点内严格单调递增
+     * 同一毫秒序列号用尽时进位到下一毫秒（借用未来时间），时钟回拨时沿用上次时间戳继续递增，
+     * 因此不会阻塞等待，也不会产生重复
+     */
+    public long nextId() {
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong() - EPOCH;
+            long next = now > (current >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << TIMESTAMP_SHIFT) | (workerId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 生成运单号：WB + ID十进制
+     */
+    public String nextWaybillNo() {
+        return toWaybillNo(nextId());
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public static String toWaybillNo(long id) {
+        return PREFIX + id;
+    }
+
+    /**
+     * 从运单号中解析出生成时的毫秒时间戳
+     * @param waybillNo 运单号
+     * @return 毫秒时间戳
+     * @throws IllegalArgumentException 运单号格式不合法时抛出
+     */
+    public static long extractTimestamp(String waybillNo) {
+        return timestampOf(parseId(waybillNo));
+    }
+
+    /**
+     * ID生成时的毫秒时间戳
+     */
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH;
+    }
+
+    /**
+     * 该时刻及之后生成的ID都不小于返回值，用于按时间划定ID范围
+     */
+    public static long minIdAt(long epochMillis) {
+        return Math.max(epochMillis - EPOCH, 0) << TIMESTAMP_SHIFT;
+    }
+
+    /**
+     * 运单号格式校验：WB + 1~19位数字，不分配对象
+     */
+    public static boolean isWellFormed(String waybillNo) {
+        if (waybillNo == null || !waybillNo.startsWith(PREFIX)) {
+            return false;
+        }
+        int length = waybillNo.length() - PREFIX.length();
+        if (length < 1 || length > 19) {
+            return false;
+        }
+        for (int i = PREFIX.length(); i < waybillNo.length(); i++) {
+            char c = waybillNo.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从运单号中解析出ID
+     * @throws IllegalArgumentException 运单号格式不合法时抛出
+     */
+    public static long parseId(String waybillNo) {
+        if (waybillNo == null || !waybillNo.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("无效的运单号：" + waybillNo);
+        }
+        try {
+            return Long.parseLong(waybillNo, PREFIX.length(), waybillNo.length(), 10);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的运单号：" + waybillNo, e);
+        }
+    }
+}
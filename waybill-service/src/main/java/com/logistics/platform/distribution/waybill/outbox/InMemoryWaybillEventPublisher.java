@@ -0,0 +1,40 @@
+package com.logistics.platform.distribution.waybill.outbox;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内存实现，用于测试和本地无Redis环境（waybill.outbox.publisher=memory），只保存在当前进程中
+ */
+public class InMemoryWaybillEventPublisher implements WaybillEventPublisher {
+
+    private final List<WaybillOutboxEvent> events = new ArrayList<>();
+
+    @Override
+    public synchronized void publish(List<WaybillOutboxEvent> batch) {
+        events.addAll(batch);
+    }
+
+    public synchronized List<WaybillOutboxEvent> getEvents() {
+        return new ArrayList<>(events);
+    }
+
+    /**
+     * 某个运单已发布的事件，按发布顺序
+     */
+    public synchronized List<WaybillOutboxEvent> getEvents(String waybillNo) {
+        List<WaybillOutboxEvent> result = new ArrayList<>();
+        for (WaybillOutboxEvent event : events) {
+            if (event.getWaybillNo().equals(waybillNo)) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void clear() {
+        events.clear();
+    }
+}
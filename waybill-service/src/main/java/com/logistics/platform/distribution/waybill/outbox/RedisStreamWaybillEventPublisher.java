@@ -0,0 +1,66 @@
+package com.logistics.platform.distribution.waybill.outbox;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发布到Redis Streams：按运单号哈希分到 waybill:events:{分区} 中，同一运单始终进入同一个流，
+ * 下游每个消费组按分区并行消费即可保证单运单内有序
+ * 一批事件在一次管道中XADD，流长度按 maxLen 近似裁剪
+ * 分区数修改前需等所有流消费完毕，否则同一运单的新旧事件可能落在不同分区
+ */
+public class RedisStreamWaybillEventPublisher implements WaybillEventPublisher {
+
+    public static final String STREAM_KEY_PREFIX = "waybill:events:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final int partitions;
+    private final XAddOptions addOptions;
+
+    public RedisStreamWaybillEventPublisher(StringRedisTemplate stringRedisTemplate, int partitions, long maxLen) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("运单事件流分区数必须大于0");
+        }
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.partitions = partitions;
+        this.addOptions = XAddOptions.maxlen(maxLen).approximateTrimming(true);
+    }
+
+    public static int partitionOf(String waybillNo, int partitions) {
+        return Math.floorMod(waybillNo.hashCode(), partitions);
+    }
+
+    @Override
+    public void publish(List<WaybillOutboxEvent> events) {
+        //管道中任一命令失败时 executePipelined 抛出异常
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (WaybillOutboxEvent event : events) {
+                byte[] key = (STREAM_KEY_PREFIX + partitionOf(event.getWaybillNo(), partitions)).getBytes(StandardCharsets.UTF_8);
+                connection.streamCommands().xAdd(StreamRecords.rawBytes(toFields(event)).withStreamKey(key), addOptions);
+            }
+            return null;
+        });
+    }
+
+    private static Map<byte[], byte[]> toFields(WaybillOutboxEvent event) {
+        Map<byte[], byte[]> fields = new LinkedHashMap<>();
+        fields.put(bytes("id"), bytes(String.valueOf(event.getId())));
+        fields.put(bytes("waybillNo"), bytes(event.getWaybillNo()));
+        fields.put(bytes("type"), bytes(event.getEventType().name()));
+        fields.put(bytes("payload"), bytes(event.getPayload()));
+        fields.put(bytes("createTime"), bytes(String.valueOf(event.getCreateTime())));
+        return fields;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
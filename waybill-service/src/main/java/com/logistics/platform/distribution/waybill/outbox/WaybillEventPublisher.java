@@ -0,0 +1,15 @@
+package com.logistics.platform.distribution.waybill.outbox;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+
+import java.util.List;
+
+/**
+ * 运单变更事件的消息中间件适配
+ * 实现需按列表顺序发布，且只有全部发布成功才正常返回；任一条失败时抛出异常，
+ * 中继会保留整批事件稍后重发，因此下游会收到重复事件，需按事件id去重
+ */
+public interface WaybillEventPublisher {
+
+    void publish(List<WaybillOutboxEvent> events);
+}
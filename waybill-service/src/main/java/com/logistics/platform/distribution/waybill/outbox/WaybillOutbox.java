@@ -0,0 +1,67 @@
+package com.logistics.platform.distribution.waybill.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillEventType;
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.repository.WaybillOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把运单变更写入发件箱，调用方负责与运单本身的写入放在同一事务中，
+ * 事务回滚时事件一并丢弃，提交后由 WaybillOutboxRelay 异步发布
+ */
+@Component
+@RequiredArgsConstructor
+public class WaybillOutbox {
+
+    private final WaybillOutboxRepository waybillOutboxRepository;
+    private final ObjectMapper objectMapper;
+
+    public void created(List<Waybill> waybills) {
+        if (waybills.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<WaybillOutboxEvent> events = new ArrayList<>(waybills.size());
+        for (Waybill waybill : waybills) {
+            events.add(WaybillOutboxEvent.of(waybill.getWaybillNo(), WaybillEventType.CREATED, toJson(waybill), now));
+        }
+        append(events);
+    }
+
+    public void statusChanged(List<WaybillStatusLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<WaybillOutboxEvent> events = new ArrayList<>(logs.size());
+        for (WaybillStatusLog log : logs) {
+            events.add(WaybillOutboxEvent.of(log.getWaybillNo(), WaybillEventType.STATUS_CHANGED, toJson(log), now));
+        }
+        append(events);
+    }
+
+    private void append(List<WaybillOutboxEvent> events) {
+        if (events.size() == 1) {
+            waybillOutboxRepository.append(events.get(0));
+        } else {
+            waybillOutboxRepository.batchAppend(events);
+        }
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("运单事件序列化失败", e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.logistics.platform.distribution.waybill.outbox;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+import com.logistics.platform.distribution.waybill.repository.WaybillOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发件箱中继：定时按id顺序读取一批事件，发布成功后删除，失败则整批保留下次重发（至少一次）
+ * 所有实例中只有持有Redis租约的一个在发布，保证全局按id顺序；同一运单的状态变更受运单行上的条件更新串行化，
+ * 其事件id随提交顺序递增，因此单运单内有序
+ * 指标：
+ *   waybill.outbox.lag       最早一条未发布事件已等待的时间（秒），只在持有租约的实例上有意义
+ *   waybill.outbox.leader    本实例是否持有租约
+ *   waybill.outbox.published 已发布事件数
+ *   waybill.outbox.failures  发布失败的批次数
+ *   waybill.outbox.publish   每批发布耗时
+ */
+@Slf4j
+public class WaybillOutboxRelay {
+
+    public static final String LEASE_KEY = "waybill:outbox:relay";
+
+    //续约时校验持有者，避免续上其他实例的租约
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    //单次调度最多连续发布的批次数，积压时也会定期让出调度线程并续约
+    private static final int MAX_BATCHES_PER_RUN = 20;
+
+    private final WaybillOutboxRepository waybillOutboxRepository;
+    private final WaybillEventPublisher publisher;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final int batchSize;
+    private final Duration leaseTime;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicBoolean leader = new AtomicBoolean();
+    private final Counter publishedCounter;
+    private final Counter failureCounter;
+    private final Timer publishTimer;
+
+    public WaybillOutboxRelay(WaybillOutboxRepository waybillOutboxRepository, WaybillEventPublisher publisher,
+                              StringRedisTemplate stringRedisTemplate, int batchSize, Duration leaseTime,
+                              MeterRegistry meterRegistry) {
+        this.waybillOutboxRepository = waybillOutboxRepository;
+        this.publisher = publisher;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.batchSize = batchSize;
+        this.leaseTime = leaseTime;
+        Gauge.builder("waybill.outbox.lag", lagMillis, value -> value.get() / 1000.0)
+                .description("最早一条未发布事件已等待的时间")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("waybill.outbox.leader", leader, value -> value.get() ? 1 : 0)
+                .description("本实例是否持有发件箱中继租约")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("waybill.outbox.published")
+                .description("已发布的运单事件数")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("waybill.outbox.failures")
+                .description("发布失败的批次数")
+                .register(meterRegistry);
+        this.publishTimer = Timer.builder("waybill.outbox.publish")
+                .description("每批运单事件的发布耗时")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${waybill.outbox.poll-interval-ms:200}")
+    public void relay() {
+        if (!holdLease()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                if (relayBatch() < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            failureCounter.increment();
+            log.warn("运单事件发布失败，下次重试：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 发布一批事件
+     * @return 本批事件数，小于批大小说明已没有积压
+     */
+    int relayBatch() {
+        List<WaybillOutboxEvent> events = waybillOutboxRepository.findBatch(batchSize);
+        if (events.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Math.max(0, Duration.between(events.get(0).getCreateTime(), LocalDateTime.now()).toMillis()));
+        publishTimer.record(() -> publisher.publish(events));
+        List<Long> ids = new ArrayList<>(events.size());
+        for (WaybillOutboxEvent event : events) {
+            ids.add(event.getId());
+        }
+        //发布后、删除前宕机会导致重发，由下游按事件id去重
+        waybillOutboxRepository.deleteByIds(ids);
+        publishedCounter.increment(events.size());
+        return events.size();
+    }
+
+    /**
+     * 已持有租约则续约，否则尝试获取；实例宕机后租约到期由其他实例接管
+     */
+    boolean holdLease() {
+        String ttl = String.valueOf(leaseTime.toMillis());
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(LEASE_KEY), instanceId, ttl);
+        boolean held = (renewed != null && renewed == 1)
+                || Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(LEASE_KEY, instanceId, leaseTime));
+        if (leader.getAndSet(held) != held) {
+            log.info(held ? "获得运单事件中继租约" : "失去运单事件中继租约");
+        }
+        if (!held) {
+            lagMillis.set(0);
+        }
+        return held;
+    }
+
+    public double getLagSeconds() {
+        return lagMillis.get() / 1000.0;
+    }
+
+    public boolean isLeader() {
+        return leader.get();
+    }
+}
@@ -0,0 +1,26 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * WaybillRepository 中需要按分表路由的方法，由 ShardedWaybillRepositoryImpl 通过 WaybillJdbcRepository 实现，
+ * 优先于JPA的默认实现；实体 Waybill 映射的 waybill 表只是分表0，其余JPA方法（findById、findAll等）不应再使用
+ * @param <T> 运单实体，使 save 与 CrudRepository.save 签名一致从而覆盖它
+ */
+public interface ShardedWaybillRepository<T> {
+
+    //缓存未命中时的查库，配置从库后走从库；需要最新数据时在 ReadRouting.onPrimary 中调用；运单表中没有时查归档
+    @Transactional(readOnly = true)
+    Optional<T> findByWaybillNo(String waybillNo);
+
+    /**
+     * 运单只在创建时保存（之后的修改都是条件更新），直接插入所在分表，不再像JPA merge那样先查一次
+     */
+    <S extends T> S save(S waybill);
+
+    //流式读取全部运单号（含已归档），须在事务内使用并关闭Stream
+    Stream<String> streamAllWaybillNos();
+}
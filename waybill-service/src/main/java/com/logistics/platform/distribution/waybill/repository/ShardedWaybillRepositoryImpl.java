@@ -0,0 +1,33 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class ShardedWaybillRepositoryImpl implements ShardedWaybillRepository<Waybill> {
+
+    private final WaybillJdbcRepository waybillJdbcRepository;
+    private final WaybillArchiveRepository waybillArchiveRepository;
+
+    //运单表中没有时再查归档，已归档的运单按运单号仍可查到
+    @Override
+    public Optional<Waybill> findByWaybillNo(String waybillNo) {
+        return waybillJdbcRepository.findByWaybillNo(waybillNo)
+                .or(() -> waybillArchiveRepository.findByWaybillNo(waybillNo));
+    }
+
+    @Override
+    public <S extends Waybill> S save(S waybill) {
+        waybillJdbcRepository.insert(waybill);
+        return waybill;
+    }
+
+    @Override
+    public Stream<String> streamAllWaybillNos() {
+        return Stream.concat(waybillJdbcRepository.streamAllWaybillNos(),
+                waybillArchiveRepository.streamAllWaybillNos());
+    }
+}
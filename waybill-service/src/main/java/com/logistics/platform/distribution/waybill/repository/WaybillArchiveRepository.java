@@ -0,0 +1,181 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 已归档运单：按运单生成月份（即运单号中的时间戳所在月份）分表，waybill_archive_yyyyMM，由归档任务按需建表
+ * 运单号即可确定所在的归档表，按运单号查询只访问一张表
+ */
+@Repository
+@RequiredArgsConstructor
+public class WaybillArchiveRepository {
+
+    public static final String TABLE_PREFIX = "waybill_archive_";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+
+    //归档表与JPA为 waybill 生成的列类型一致，另加归档时间
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS {table} (" +
+            "id BIGINT NOT NULL, waybill_no VARCHAR(255) NOT NULL, customer_id BIGINT, sender_name VARCHAR(255), " +
+            "sender_phone VARCHAR(255), sender_address VARCHAR(255), receiver_name VARCHAR(255), " +
+            "receiver_phone VARCHAR(255), receiver_address VARCHAR(255), goods_type VARCHAR(255), " +
+            "weight DECIMAL(38,2), volume DECIMAL(38,2), amount DECIMAL(38,2), status TINYINT, warehouse_id BIGINT, " +
+            "deliveryman_id BIGINT, estimated_arrival_time DATETIME(6), actual_arrival_time DATETIME(6), " +
+            "create_time DATETIME(6), update_time DATETIME(6), archive_time DATETIME(6) NOT NULL, " +
+            "PRIMARY KEY (id), CONSTRAINT uk_{table}_waybill_no UNIQUE (waybill_no)) ";
+
+    //终态运单不再变化，归档时的条件中带上状态，避免误搬非终态运单
+    private static final String TERMINAL_STATUSES = Arrays.stream(WaybillStatus.values())
+            .filter(WaybillStatus::isTerminal)
+            .map(status -> String.valueOf(status.ordinal()))
+            .collect(Collectors.joining(", "));
+
+    //未知月份的归档表最多每分钟查一次表清单
+    private static final long PARTITION_REFRESH_INTERVAL_MS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+    private volatile long partitionsRefreshedAt;
+
+    //归档表的建表选项，默认InnoDB压缩行格式；非MySQL数据库配置为空
+    @Value("${waybill.archive.table-options:ENGINE = InnoDB DEFAULT CHARSET = utf8mb4 ROW_FORMAT = COMPRESSED}")
+    private String tableOptions = "";
+
+    //与运单导出共用的流式fetchSize，归档表同样是大表，不能整表读入内存
+    @Value("${waybill.export.fetch-size:-2147483648}")
+    private int streamFetchSize = Integer.MIN_VALUE;
+
+    public static String tableName(YearMonth month) {
+        return TABLE_PREFIX + month.format(MONTH_FORMAT);
+    }
+
+    /**
+     * 运单ID生成时所在的月份（系统时区）
+     */
+    public static YearMonth monthOf(long id) {
+        return YearMonth.from(Instant.ofEpochMilli(WaybillNoGenerator.timestampOf(id)).atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * 已建好的归档表月份
+     */
+    public List<YearMonth> findPartitions() {
+        refreshPartitions();
+        List<YearMonth> months = new ArrayList<>(partitions);
+        Collections.sort(months);
+        return months;
+    }
+
+    private void refreshPartitions() {
+        List<String> tables = jdbcTemplate.queryForList("SELECT table_name FROM information_schema.tables " +
+                "WHERE table_schema = SCHEMA() AND table_name LIKE '" + TABLE_PREFIX + "%'", String.class);
+        for (String table : tables) {
+            try {
+                partitions.add(YearMonth.parse(table.toLowerCase().substring(TABLE_PREFIX.length()), MONTH_FORMAT));
+            } catch (DateTimeParseException e) {
+                //不是归档表
+            }
+        }
+        partitionsRefreshedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 建立该月的归档表（已存在时不做任何事）
+     */
+    public void ensurePartition(YearMonth month) {
+        if (partitions.contains(month)) {
+            return;
+        }
+        String table = tableName(month);
+        jdbcTemplate.execute(CREATE_TABLE_SQL.replace("{table}", table) + tableOptions);
+        partitions.add(month);
+    }
+
+    /**
+     * 在归档中按运单号查询，只访问运单生成月份的归档表；运单号格式不合法或该月没有归档表时返回空
+     */
+    public Optional<Waybill> findByWaybillNo(String waybillNo) {
+        if (!WaybillNoGenerator.isWellFormed(waybillNo)) {
+            return Optional.empty();
+        }
+        YearMonth month = monthOf(WaybillNoGenerator.parseId(waybillNo));
+        if (!partitions.contains(month)
+                && System.currentTimeMillis() - partitionsRefreshedAt >= PARTITION_REFRESH_INTERVAL_MS) {
+            //可能是其他实例新建的归档表
+            refreshPartitions();
+        }
+        if (!partitions.contains(month)) {
+            return Optional.empty();
+        }
+        List<Waybill> rows = jdbcTemplate.query("SELECT " + WaybillShardRepository.COLUMNS + " FROM " +
+                tableName(month) + " WHERE waybill_no = ?", (rs, rowNum) -> WaybillJdbcRepository.mapRow(rs), waybillNo);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    /**
+     * 流式读取全部已归档运单号，须在事务内使用并关闭Stream；同一时刻只有一张归档表的结果集处于打开状态
+     */
+    public Stream<String> streamAllWaybillNos() {
+        return findPartitions().stream().flatMap(month -> jdbcTemplate.queryForStream(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT waybill_no FROM " + tableName(month),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            WaybillJdbcRepository.setStreamingFetchSize(ps, streamFetchSize);
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1)));
+    }
+
+    /**
+     * 在运单表中按ID顺序找出可归档的运单：终态且最后修改早于 updatedBefore
+     * 只扫描 (afterId, beforeId) 范围内的主键，beforeId 之后生成的运单不可能早于该时间修改
+     */
+    public List<Long> findArchivable(String table, long afterId, long beforeId, LocalDateTime updatedBefore,
+                                     int limit) {
+        return jdbcTemplate.queryForList("SELECT id FROM " + table + " WHERE id > ? AND id < ? AND status IN (" +
+                        TERMINAL_STATUSES + ") AND update_time < ? ORDER BY id LIMIT ?", Long.class,
+                afterId, beforeId, WaybillJdbcRepository.toTimestamp(updatedBefore), limit);
+    }
+
+    /**
+     * 把运单从运单表复制到该月的归档表并删除原行，须在事务中调用，ids 须都属于该月
+     * 复制与删除的行数不一致（如运单在此期间被迁到其他分表）时抛出异常回滚，下一轮重新查找
+     * @return 归档的运单数
+     */
+    public int archive(String table, YearMonth month, List<Long> ids, LocalDateTime archiveTime) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String in = ids.stream().map(String::valueOf).collect(Collectors.joining(", "));
+        String condition = " WHERE id IN (" + in + ") AND status IN (" + TERMINAL_STATUSES + ")";
+        int copied = jdbcTemplate.update("INSERT INTO " + tableName(month) + " (" + WaybillShardRepository.COLUMNS +
+                ", archive_time) SELECT " + WaybillShardRepository.COLUMNS + ", ? FROM " + table + condition,
+                WaybillJdbcRepository.toTimestamp(archiveTime));
+        int deleted = jdbcTemplate.update("DELETE FROM " + table + condition);
+        if (copied != deleted) {
+            throw new IllegalStateException("归档运单时复制" + copied + "行而删除" + deleted + "行，已回滚：" + table);
+        }
+        return deleted;
+    }
+}
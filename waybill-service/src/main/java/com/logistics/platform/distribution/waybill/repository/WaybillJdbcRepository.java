@@ -0,0 +1,583 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.sharding.WaybillShardRouter;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 运单的JDBC批量操作，绕开JPA逐条 save 的开销
+ * 列名与JPA默认命名策略（驼峰转下划线）一致
+ * 分表后按运单号路由到所在分表，批量操作按分表分组执行，列表和导出查询全部分表后按ID归并
+ */
+@Repository
+public class WaybillJdbcRepository {
+
+    //{table} 替换为分表名
+    private static final String INSERT_SQL = "INSERT INTO {table} (id, waybill_no, customer_id, sender_name, sender_phone, " +
+            "sender_address, receiver_name, receiver_phone, receiver_address, goods_type, weight, volume, amount, status, " +
+            "warehouse_id, deliveryman_id, estimated_arrival_time, actual_arrival_time, create_time, update_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT id, waybill_no, customer_id, sender_name, sender_phone, " +
+            "sender_address, receiver_name, receiver_phone, receiver_address, goods_type, weight, volume, amount, status, " +
+            "warehouse_id, deliveryman_id, estimated_arrival_time, actual_arrival_time, create_time, update_time FROM {table}";
+
+    //条件更新：只有当前状态仍为预期状态时才更新；实际送达时间只在传入非空时覆盖
+    private static final String UPDATE_STATUS_SQL = "UPDATE {table} SET status = ?, update_time = ?, " +
+            "actual_arrival_time = COALESCE(?, actual_arrival_time) WHERE waybill_no = ? AND status = ?";
+
+    //由状态日志重放当前状态：与 UPDATE_STATUS_SQL 相同按读取到的状态条件更新；
+    //期间若该运单又有新日志写入或状态已被修改则跳过，以新的变更为准
+    private static final String PROJECT_STATUS_SQL = "UPDATE {table} SET status = ?, update_time = ?, " +
+            "actual_arrival_time = COALESCE(?, actual_arrival_time) WHERE waybill_no = ? AND status = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM waybill_status_log l WHERE l.waybill_no = ? AND l.id > ?)";
+
+    //IN查询每次最多带的运单号个数
+    private static final int IN_CHUNK_SIZE = 1000;
+    //多个分表归并导出时每个分表每次读取的行数
+    private static final int MERGE_PAGE_SIZE = 1000;
+
+    private static final WaybillStatus[] STATUSES = WaybillStatus.values();
+
+    private static final RowMapper<Waybill> ROW_MAPPER = (rs, rowNum) -> mapRow(rs);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WaybillShardRouter shardRouter;
+    private final WaybillShardRepository shardRepository;
+    //各分表的语句，下标为分表号
+    private final TableStatements[] statements;
+
+    //流式导出的fetchSize，MySQL驱动只有Integer.MIN_VALUE才逐行返回；其他数据库不接受负数，见 setStreamingFetchSize
+    @Value("${waybill.export.fetch-size:-2147483648}")
+    private int exportFetchSize = Integer.MIN_VALUE;
+
+    /**
+     * 单表
+     */
+    public WaybillJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, WaybillShardRouter.single(), null);
+    }
+
+    @Autowired
+    public WaybillJdbcRepository(JdbcTemplate jdbcTemplate, WaybillShardRouter shardRouter,
+                                 WaybillShardRepository shardRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.shardRepository = shardRepository;
+        this.statements = new TableStatements[shardRouter.getTableCount()];
+        for (int shard = 0; shard < statements.length; shard++) {
+            statements[shard] = new TableStatements(shardRouter.table(shard));
+        }
+    }
+
+    /**
+     * 批量插入运单（一次 executeBatch），整批在一个事务中：失败时已插入的行一起回滚，逐条重试不会遇到重复的运单
+     * @return 每行的影响行数，MySQL开启 rewriteBatchedStatements 时为 Statement.SUCCESS_NO_INFO
+     */
+    @Transactional
+    public int[] batchInsert(List<Waybill> waybills) {
+        return batchByShard(waybills, w -> WaybillShardRouter.bucketOf(w.getId()),
+                (shard, chunk) -> jdbcTemplate.batchUpdate(statements[shard].insert, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        setInsertValues(ps, chunk.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                }));
+    }
+
+    /**
+     * 插入单条运单，用于批量失败后逐条定位出错的行
+     */
+    public int insert(Waybill waybill) {
+        int shard = writeShard(WaybillShardRouter.bucketOf(waybill.getId()));
+        return jdbcTemplate.update(statements[shard].insert, ps -> setInsertValues(ps, waybill));
+    }
+
+    /**
+     * 按预期状态条件更新运单状态（数据库层面的CAS），不读取也不覆盖其他字段
+     * @return 1=更新成功，0=运单不存在或状态已不是expected
+     */
+    public int updateStatus(String waybillNo, WaybillStatus expected, WaybillStatus target,
+                            LocalDateTime updateTime, LocalDateTime actualArrivalTime) {
+        int shard = writeShard(WaybillShardRouter.bucketOf(waybillNo));
+        return jdbcTemplate.update(statements[shard].updateStatus, target.ordinal(), toTimestamp(updateTime),
+                toTimestamp(actualArrivalTime), waybillNo, expected.ordinal());
+    }
+
+    /**
+     * 批量条件更新状态（一次 executeBatch），每条语句与 updateStatus 相同
+     * @return 每条的影响行数，1=成功，0=运单状态已变化
+     */
+    public int[] batchUpdateStatus(List<StatusChange> changes) {
+        return batchByShard(changes, change -> WaybillShardRouter.bucketOf(change.getWaybillNo()),
+                (shard, chunk) -> jdbcTemplate.batchUpdate(statements[shard].updateStatus, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        StatusChange change = chunk.get(i);
+                        ps.setInt(1, change.getTarget().ordinal());
+                        ps.setTimestamp(2, toTimestamp(change.getUpdateTime()));
+                        ps.setTimestamp(3, toTimestamp(change.getActualArrivalTime()));
+                        ps.setString(4, change.getWaybillNo());
+                        ps.setInt(5, change.getExpected().ordinal());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                }));
+    }
+
+    /**
+     * 批量写入由状态日志重放得到的当前状态，只更新状态仍为 expected 的运单，须与读取 expected 在同一事务中调用
+     */
+    public int[] batchProjectStatus(List<StatusProjection> projections) {
+        return batchByShard(projections, projection -> WaybillShardRouter.bucketOf(projection.getWaybillNo()),
+                (shard, chunk) -> jdbcTemplate.batchUpdate(statements[shard].projectStatus, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        StatusProjection projection = chunk.get(i);
+                        ps.setInt(1, projection.getStatus().ordinal());
+                        ps.setTimestamp(2, toTimestamp(projection.getUpdateTime()));
+                        ps.setTimestamp(3, toTimestamp(projection.getActualArrivalTime()));
+                        ps.setString(4, projection.getWaybillNo());
+                        ps.setInt(5, projection.getExpected().ordinal());
+                        ps.setString(6, projection.getWaybillNo());
+                        ps.setLong(7, projection.getLastLogId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                }));
+    }
+
+    /**
+     * 按运单号查询，只访问所在分表；所在的桶正在迁移时未找到再查目标分表
+     */
+    public Optional<Waybill> findByWaybillNo(String waybillNo) {
+        int bucket = WaybillShardRouter.bucketOf(waybillNo);
+        Optional<Waybill> waybill = findByWaybillNo(shardRouter.shardOf(bucket), waybillNo);
+        int movingTo = shardRouter.movingTo(bucket);
+        if (waybill.isEmpty() && movingTo >= 0) {
+            waybill = findByWaybillNo(movingTo, waybillNo);
+        }
+        return waybill;
+    }
+
+    private Optional<Waybill> findByWaybillNo(int shard, String waybillNo) {
+        List<Waybill> rows = jdbcTemplate.query(statements[shard].select + " WHERE waybill_no = ?", ROW_MAPPER, waybillNo);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    /**
+     * 逐个分表流式读取全部运单号，须在事务中使用并关闭Stream；同一时刻只有一个分表的结果集处于打开状态
+     */
+    public Stream<String> streamAllWaybillNos() {
+        return IntStream.range(0, statements.length).boxed().flatMap(shard -> jdbcTemplate.queryForStream(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT waybill_no FROM " + shardRouter.table(shard),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            setStreamingFetchSize(ps, exportFetchSize);
+            return ps;
+        }, (rs, rowNum) -> rs.getString(1)));
+    }
+
+    /**
+     * 批量查询运单当前状态，按唯一索引 uk_waybill_no 每1000个一次IN查询
+     * @return 运单号 -> 状态，不存在的运单号不在结果中
+     */
+    public Map<String, WaybillStatus> findStatuses(Collection<String> waybillNos) {
+        if (waybillNos.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        //正在迁移的桶中的运单两边都查
+        List<List<String>> byShard = groupByShard(waybillNos);
+        Map<String, WaybillStatus> statuses = new HashMap<>(waybillNos.size() * 2);
+        for (int shard = 0; shard < statements.length; shard++) {
+            List<String> nos = byShard.get(shard);
+            for (int from = 0; from < nos.size(); from += IN_CHUNK_SIZE) {
+                List<String> chunk = nos.subList(from, Math.min(from + IN_CHUNK_SIZE, nos.size()));
+                String sql = "SELECT waybill_no, status FROM " + shardRouter.table(shard) + " WHERE waybill_no IN (" +
+                        String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                    int status = rs.getInt("status");
+                    statuses.put(rs.getString("waybill_no"), rs.wasNull() ? null : STATUSES[status]);
+                }, chunk.toArray());
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * 批量按运单号查询，按唯一索引 uk_waybill_no 每1000个一次IN查询，只访问涉及的分表
+     * 配置从库后走从库，需要最新数据时在 ReadRouting.onPrimary 中调用
+     * @return 存在的运单，顺序不定
+     */
+    @Transactional(readOnly = true)
+    public List<Waybill> findByWaybillNos(Collection<String> waybillNos) {
+        if (waybillNos.isEmpty()) {
+            return Collections.emptyList();
+        }
+        //正在迁移的桶中的运单两边都查，两边都有时以先查到的为准
+        Map<String, Waybill> found = new HashMap<>(waybillNos.size() * 2);
+        List<List<String>> byShard = groupByShard(waybillNos);
+        for (int shard = 0; shard < statements.length; shard++) {
+            List<String> nos = byShard.get(shard);
+            for (int from = 0; from < nos.size(); from += IN_CHUNK_SIZE) {
+                List<String> chunk = nos.subList(from, Math.min(from + IN_CHUNK_SIZE, nos.size()));
+                String sql = statements[shard].select + " WHERE waybill_no IN (" +
+                        String.join(",", Collections.nCopies(chunk.size(), "?")) + ")";
+                jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                    Waybill waybill = mapRow(rs);
+                    found.putIfAbsent(waybill.getWaybillNo(), waybill);
+                }, chunk.toArray());
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    private List<List<String>> groupByShard(Collection<String> waybillNos) {
+        List<List<String>> byShard = new ArrayList<>(statements.length);
+        for (int shard = 0; shard < statements.length; shard++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (String waybillNo : waybillNos) {
+            int bucket = WaybillShardRouter.bucketOf(waybillNo);
+            byShard.get(shardRouter.shardOf(bucket)).add(waybillNo);
+            if (shardRouter.isMoving(bucket)) {
+                byShard.get(shardRouter.movingTo(bucket)).add(waybillNo);
+            }
+        }
+        return byShard;
+    }
+
+    /**
+     * 按ID游标分页：WHERE 条件 AND id > cursor ORDER BY id LIMIT n
+     * 翻页代价与页码无关，依赖 (status, id)、(warehouse_id, status, id)、(deliveryman_id, status, id) 等组合索引
+     * 分表后每个分表各取limit条，按ID归并后取前limit条
+     * @param limit 查询条数，调用方多查一条用于判断是否还有下一页
+     */
+    public List<Waybill> findPage(WaybillQuery query, int limit) {
+        if (statements.length == 1) {
+            return findPage(0, query, query.getCursor(), limit);
+        }
+        List<Waybill> merged = new ArrayList<>();
+        for (int shard = 0; shard < statements.length; shard++) {
+            merged.addAll(findPage(shard, query, query.getCursor(), limit));
+        }
+        merged.sort(Comparator.comparing(Waybill::getId));
+        //桶迁移提交前后分别查询的两个分表可能返回同一行
+        List<Waybill> page = new ArrayList<>(Math.min(limit, merged.size()));
+        for (Waybill waybill : merged) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (page.isEmpty() || !page.get(page.size() - 1).getId().equals(waybill.getId())) {
+                page.add(waybill);
+            }
+        }
+        return page;
+    }
+
+    private List<Waybill> findPage(int shard, WaybillQuery query, Long cursor, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = statements[shard].select + where(query, cursor, args) + " ORDER BY id LIMIT ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, ROW_MAPPER, args.toArray());
+    }
+
+    /**
+     * 按ID顺序流式读取符合条件的运单，逐行回调，内存占用与结果集大小无关
+     * 读取期间占用一个数据库连接，consumer应尽快处理（如直接写出响应）
+     * 分表后改为各分表按ID游标分页读取并归并，内存中最多保留 分表数×MERGE_PAGE_SIZE 行
+     */
+    public void stream(WaybillQuery query, Consumer<Waybill> consumer) {
+        if (statements.length > 1) {
+            mergeStream(query, consumer);
+            return;
+        }
+        List<Object> args = new ArrayList<>();
+        String sql = statements[0].select + where(query, query.getCursor(), args) + " ORDER BY id";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            setStreamingFetchSize(ps, exportFetchSize);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    /**
+     * 设置流式读取的fetchSize：负数（MySQL的 Integer.MIN_VALUE 逐行流式）只对MySQL驱动生效，
+     * 其他数据库（如测试用的H2）按JDBC规范拒绝负数，此时保留驱动默认值
+     */
+    static void setStreamingFetchSize(PreparedStatement ps, int fetchSize) throws SQLException {
+        if (fetchSize >= 0 || "MySQL".equals(ps.getConnection().getMetaData().getDatabaseProductName())) {
+            ps.setFetchSize(fetchSize);
+        }
+    }
+
+    private void mergeStream(WaybillQuery query, Consumer<Waybill> consumer) {
+        PriorityQueue<ShardCursor> heads = new PriorityQueue<>(
+                Comparator.comparing((ShardCursor cursor) -> cursor.head().getId()));
+        for (int shard = 0; shard < statements.length; shard++) {
+            ShardCursor cursor = new ShardCursor(shard, query);
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        long last = Long.MIN_VALUE;
+        while (!heads.isEmpty()) {
+            ShardCursor cursor = heads.poll();
+            Waybill waybill = cursor.head();
+            if (waybill.getId() > last) {
+                consumer.accept(waybill);
+                last = waybill.getId();
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+    }
+
+    //写入时的分表：桶正在迁移或本地映射已过期时在事务中锁定桶，以映射表为准
+    private int writeShard(int bucket) {
+        return shardRouter.mustLock(bucket) ? shardRepository.lockShard(bucket) : shardRouter.shardOf(bucket);
+    }
+
+    /**
+     * 按分表分组批量执行，返回值按原顺序排列
+     */
+    private <T> int[] batchByShard(List<T> items, ToIntFunction<T> bucketOf, BiFunction<Integer, List<T>, int[]> batch) {
+        if (statements.length == 1) {
+            return batch.apply(0, items);
+        }
+        List<List<Integer>> indexes = new ArrayList<>(statements.length);
+        for (int shard = 0; shard < statements.length; shard++) {
+            indexes.add(new ArrayList<>());
+        }
+        for (int i = 0; i < items.size(); i++) {
+            indexes.get(writeShard(bucketOf.applyAsInt(items.get(i)))).add(i);
+        }
+        int[] counts = new int[items.size()];
+        for (int shard = 0; shard < statements.length; shard++) {
+            List<Integer> shardIndexes = indexes.get(shard);
+            if (shardIndexes.isEmpty()) {
+                continue;
+            }
+            List<T> chunk = new ArrayList<>(shardIndexes.size());
+            for (int index : shardIndexes) {
+                chunk.add(items.get(index));
+            }
+            int[] shardCounts = batch.apply(shard, chunk);
+            for (int i = 0; i < shardCounts.length; i++) {
+                counts[shardIndexes.get(i)] = shardCounts[i];
+            }
+        }
+        return counts;
+    }
+
+    private static String where(WaybillQuery query, Long cursor, List<Object> args) {
+        StringBuilder sql = new StringBuilder(" WHERE 1=1");
+        if (query.getStatus() != null) {
+            sql.append(" AND status = ?");
+            args.add(query.getStatus().ordinal());
+        }
+        if (query.getWarehouseId() != null) {
+            sql.append(" AND warehouse_id = ?");
+            args.add(query.getWarehouseId());
+        }
+        if (query.getDeliverymanId() != null) {
+            sql.append(" AND deliveryman_id = ?");
+            args.add(query.getDeliverymanId());
+        }
+        if (query.getCreateTimeFrom() != null) {
+            sql.append(" AND create_time >= ?");
+            args.add(toTimestamp(query.getCreateTimeFrom()));
+        }
+        if (query.getCreateTimeTo() != null) {
+            sql.append(" AND create_time < ?");
+            args.add(toTimestamp(query.getCreateTimeTo()));
+        }
+        if (cursor != null) {
+            sql.append(" AND id > ?");
+            args.add(cursor);
+        }
+        return sql.toString();
+    }
+
+    static Waybill mapRow(ResultSet rs) throws SQLException {
+        Waybill w = new Waybill();
+        w.setId(rs.getLong("id"));
+        w.setWaybillNo(rs.getString("waybill_no"));
+        w.setCustomerId(rs.getObject("customer_id", Long.class));
+        w.setSenderName(rs.getString("sender_name"));
+        w.setSenderPhone(rs.getString("sender_phone"));
+        w.setSenderAddress(rs.getString("sender_address"));
+        w.setReceiverName(rs.getString("receiver_name"));
+        w.setReceiverPhone(rs.getString("receiver_phone"));
+        w.setReceiverAddress(rs.getString("receiver_address"));
+        w.setGoodsType(rs.getString("goods_type"));
+        w.setWeight(rs.getBigDecimal("weight"));
+        w.setVolume(rs.getBigDecimal("volume"));
+        w.setAmount(rs.getBigDecimal("amount"));
+        int status = rs.getInt("status");
+        w.setStatus(rs.wasNull() ? null : STATUSES[status]);
+        w.setWarehouseId(rs.getObject("warehouse_id", Long.class));
+        w.setDeliverymanId(rs.getObject("deliveryman_id", Long.class));
+        w.setEstimatedArrivalTime(toLocalDateTime(rs.getTimestamp("estimated_arrival_time")));
+        w.setActualArrivalTime(toLocalDateTime(rs.getTimestamp("actual_arrival_time")));
+        w.setCreateTime(toLocalDateTime(rs.getTimestamp("create_time")));
+        w.setUpdateTime(toLocalDateTime(rs.getTimestamp("update_time")));
+        return w;
+    }
+
+    private static void setInsertValues(PreparedStatement ps, Waybill w) throws SQLException {
+        ps.setLong(1, w.getId());
+        ps.setString(2, w.getWaybillNo());
+        ps.setObject(3, w.getCustomerId(), Types.BIGINT);
+        ps.setString(4, w.getSenderName());
+        ps.setString(5, w.getSenderPhone());
+        ps.setString(6, w.getSenderAddress());
+        ps.setString(7, w.getReceiverName());
+        ps.setString(8, w.getReceiverPhone());
+        ps.setString(9, w.getReceiverAddress());
+        ps.setString(10, w.getGoodsType());
+        ps.setBigDecimal(11, w.getWeight());
+        ps.setBigDecimal(12, w.getVolume());
+        ps.setBigDecimal(13, w.getAmount());
+        //status未加@Enumerated，JPA按序号(ORDINAL)存储，这里保持一致
+        ps.setObject(14, w.getStatus() == null ? null : w.getStatus().ordinal(), Types.INTEGER);
+        ps.setObject(15, w.getWarehouseId(), Types.BIGINT);
+        ps.setObject(16, w.getDeliverymanId(), Types.BIGINT);
+        ps.setTimestamp(17, toTimestamp(w.getEstimatedArrivalTime()));
+        ps.setTimestamp(18, toTimestamp(w.getActualArrivalTime()));
+        ps.setTimestamp(19, toTimestamp(w.getCreateTime()));
+        ps.setTimestamp(20, toTimestamp(w.getUpdateTime()));
+    }
+
+    static Timestamp toTimestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+
+    static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+
+    private static final class TableStatements {
+        private final String insert;
+        private final String select;
+        private final String updateStatus;
+        private final String projectStatus;
+
+        private TableStatements(String table) {
+            this.insert = INSERT_SQL.replace("{table}", table);
+            this.select = SELECT_SQL.replace("{table}", table);
+            this.updateStatus = UPDATE_STATUS_SQL.replace("{table}", table);
+            this.projectStatus = PROJECT_STATUS_SQL.replace("{table}", table);
+        }
+    }
+
+    //一个分表的归并读取位置，每次按ID游标读取一页
+    private final class ShardCursor {
+        private final int shard;
+        private final WaybillQuery query;
+        private Long cursor;
+        private List<Waybill> page = Collections.emptyList();
+        private int index = -1;
+        private boolean lastPage;
+
+        private ShardCursor(int shard, WaybillQuery query) {
+            this.shard = shard;
+            this.query = query;
+            this.cursor = query.getCursor();
+        }
+
+        private Waybill head() {
+            return page.get(index);
+        }
+
+        private boolean advance() {
+            if (++index < page.size()) {
+                return true;
+            }
+            if (lastPage) {
+                return false;
+            }
+            page = findPage(shard, query, cursor, MERGE_PAGE_SIZE);
+            index = 0;
+            lastPage = page.size() < MERGE_PAGE_SIZE;
+            if (page.isEmpty()) {
+                return false;
+            }
+            cursor = page.get(page.size() - 1).getId();
+            return true;
+        }
+    }
+
+    /**
+     * 一次条件状态更新：仅当状态仍为expected时改为target
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class StatusChange {
+        private final String waybillNo;
+        private final WaybillStatus expected;
+        private final WaybillStatus target;
+        private final LocalDateTime updateTime;
+        private final LocalDateTime actualArrivalTime;
+    }
+
+    /**
+     * 由状态日志重放得到的运单当前状态，expected为写回前读取到的状态，lastLogId为参与计算的最后一条日志
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class StatusProjection {
+        private final String waybillNo;
+        private final WaybillStatus expected;
+        private final WaybillStatus status;
+        private final LocalDateTime updateTime;
+        private final LocalDateTime actualArrivalTime;
+        private final long lastLogId;
+    }
+}
@@ -0,0 +1,82 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillEventType;
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+import static com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.toLocalDateTime;
+import static com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.toTimestamp;
+
+/**
+ * 运单事件发件箱的JDBC读写，写入必须处于业务事务中
+ */
+@Repository
+@RequiredArgsConstructor
+public class WaybillOutboxRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO waybill_outbox (waybill_no, event_type, payload, create_time) " +
+            "VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT id, waybill_no, event_type, payload, create_time FROM waybill_outbox";
+
+    private static final RowMapper<WaybillOutboxEvent> ROW_MAPPER = (rs, rowNum) -> new WaybillOutboxEvent(
+            rs.getLong("id"), rs.getString("waybill_no"), WaybillEventType.valueOf(rs.getString("event_type")),
+            rs.getString("payload"), toLocalDateTime(rs.getTimestamp("create_time")));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int append(WaybillOutboxEvent event) {
+        return jdbcTemplate.update(INSERT_SQL, ps -> setValues(ps, event));
+    }
+
+    /**
+     * 批量追加（一次 executeBatch）
+     */
+    public int[] batchAppend(List<WaybillOutboxEvent> events) {
+        return jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                WaybillOutboxRepository.setValues(ps, events.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return events.size();
+            }
+        });
+    }
+
+    /**
+     * 按id顺序读取最早的一批未发布事件
+     */
+    public List<WaybillOutboxEvent> findBatch(int limit) {
+        return jdbcTemplate.query(SELECT_SQL + " ORDER BY id LIMIT ?", ROW_MAPPER, limit);
+    }
+
+    /**
+     * 删除已发布的事件；按id逐个删除，不影响读取之后才提交的较小id
+     */
+    public int deleteByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        return jdbcTemplate.update("DELETE FROM waybill_outbox WHERE id IN (" + placeholders + ")", ids.toArray());
+    }
+
+    private static void setValues(PreparedStatement ps, WaybillOutboxEvent event) throws SQLException {
+        ps.setString(1, event.getWaybillNo());
+        ps.setString(2, event.getEventType().name());
+        ps.setString(3, event.getPayload());
+        ps.setTimestamp(4, toTimestamp(event.getCreateTime()));
+    }
+}
@@ -5,9 +5,7 @@ import com.logistics.platform.distribution.waybill.entity.Waybill;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
-
+//按运单号查询、保存和遍历运单号需按分表路由，见 ShardedWaybillRepository
 @Repository
-public interface WaybillRepository extends JpaRepository<Waybill,Long> {
-    Optional<Waybill> findByWaybillNo(String waybillNo);
+public interface WaybillRepository extends JpaRepository<Waybill,Long>, ShardedWaybillRepository<Waybill> {
 }
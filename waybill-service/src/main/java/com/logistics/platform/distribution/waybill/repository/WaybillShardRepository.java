@@ -0,0 +1,103 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import com.logistics.platform.distribution.waybill.sharding.WaybillShardRouter;
+import com.logistics.platform.distribution.waybill.sharding.WaybillShardRouter.BucketAssignment;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * 运单分表的桶映射表 waybill_shard_bucket（见 db/waybill_shard.sql）及桶迁移
+ */
+@Repository
+@RequiredArgsConstructor
+public class WaybillShardRepository {
+
+    //分表的全部列（不含生成列 shard_bucket），迁移和归档时按列名复制
+    static final String COLUMNS = "id, waybill_no, customer_id, sender_name, sender_phone, sender_address, " +
+            "receiver_name, receiver_phone, receiver_address, goods_type, weight, volume, amount, status, warehouse_id, " +
+            "deliveryman_id, estimated_arrival_time, actual_arrival_time, create_time, update_time";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<BucketAssignment> findAll() {
+        return jdbcTemplate.query("SELECT bucket, shard, target_shard FROM waybill_shard_bucket",
+                (rs, rowNum) -> new BucketAssignment(rs.getInt("bucket"), rs.getInt("shard"),
+                        rs.getObject("target_shard", Integer.class)));
+    }
+
+    /**
+     * 表为空时写入全部桶，都在分表0；多个实例同时初始化时只有一个成功
+     */
+    public boolean initialize() {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM waybill_shard_bucket", Integer.class);
+        if (count != null && count > 0) {
+            return false;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO waybill_shard_bucket (bucket, shard) VALUES (?, 0)",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setInt(1, i);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return WaybillShardRouter.BUCKETS;
+                    }
+                });
+        return true;
+    }
+
+    /**
+     * 锁定桶并返回其当前所在分表，须在事务中调用；桶迁移时持有同一行锁，两者互斥
+     */
+    public int lockShard(int bucket) {
+        Integer shard = jdbcTemplate.queryForObject(
+                "SELECT shard FROM waybill_shard_bucket WHERE bucket = ? FOR UPDATE", Integer.class, bucket);
+        return shard == null ? 0 : shard;
+    }
+
+    /**
+     * 标记桶即将迁往 target，null 表示取消标记
+     */
+    public int[] markMoving(List<Integer> buckets, Integer target) {
+        return jdbcTemplate.batchUpdate("UPDATE waybill_shard_bucket SET target_shard = ? WHERE bucket = ?",
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setObject(1, target, Types.INTEGER);
+                        ps.setInt(2, buckets.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return buckets.size();
+                    }
+                });
+    }
+
+    /**
+     * 把一个桶的全部运单从 from 表复制到 to 表、删除原表中的行并更新映射，须在事务中调用
+     * 先锁定桶：正在写入该桶的事务提交后才开始复制，复制期间新的写入等待迁移事务提交后写到新表
+     * @return 迁移的运单数；桶已不在 from 表时返回-1
+     */
+    public int moveBucket(int bucket, int from, int to) {
+        if (lockShard(bucket) != from) {
+            return -1;
+        }
+        String source = WaybillShardRouter.tableName(from);
+        String target = WaybillShardRouter.tableName(to);
+        int moved = jdbcTemplate.update("INSERT INTO " + target + " (" + COLUMNS + ") SELECT " + COLUMNS +
+                " FROM " + source + " WHERE shard_bucket = ?", bucket);
+        jdbcTemplate.update("DELETE FROM " + source + " WHERE shard_bucket = ?", bucket);
+        jdbcTemplate.update("UPDATE waybill_shard_bucket SET shard = ?, target_shard = NULL WHERE bucket = ?", to, bucket);
+        return moved;
+    }
+}
@@ -0,0 +1,98 @@
+package com.logistics.platform.distribution.waybill.repository;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.toLocalDateTime;
+import static com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.toTimestamp;
+
+/**
+ * 运单状态日志的JDBC读写，只有追加没有修改和删除
+ */
+@Repository
+@RequiredArgsConstructor
+public class WaybillStatusLogRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO waybill_status_log (waybill_no, from_status, to_status, " +
+            "event_time, create_time) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_SQL = "SELECT id, waybill_no, from_status, to_status, event_time, create_time " +
+            "FROM waybill_status_log";
+
+    private static final WaybillStatus[] STATUSES = WaybillStatus.values();
+
+    private static final RowMapper<WaybillStatusLog> ROW_MAPPER = (rs, rowNum) -> mapRow(rs);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //重放时流式读取的fetchSize，与导出共用配置
+    @Value("${waybill.export.fetch-size:-2147483648}")
+    private int streamFetchSize = Integer.MIN_VALUE;
+
+    public int append(WaybillStatusLog log) {
+        return jdbcTemplate.update(INSERT_SQL, ps -> setValues(ps, log));
+    }
+
+    /**
+     * 批量追加（一次 executeBatch，开启 rewriteBatchedStatements 后为多行INSERT）
+     */
+    public int[] batchAppend(List<WaybillStatusLog> logs) {
+        return jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                WaybillStatusLogRepository.setValues(ps, logs.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return logs.size();
+            }
+        });
+    }
+
+    /**
+     * 单个运单的状态时间线，走 (waybill_no, id) 索引，按变更顺序返回
+     */
+    public List<WaybillStatusLog> findTimeline(String waybillNo) {
+        return jdbcTemplate.query(SELECT_SQL + " WHERE waybill_no = ? ORDER BY id", ROW_MAPPER, waybillNo);
+    }
+
+    /**
+     * 按运单号、变更顺序流式读取全部日志，用于重放；读取期间占用一个连接
+     */
+    public void streamAll(Consumer<WaybillStatusLog> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_SQL + " ORDER BY waybill_no, id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            WaybillJdbcRepository.setStreamingFetchSize(ps, streamFetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    private static void setValues(PreparedStatement ps, WaybillStatusLog log) throws SQLException {
+        ps.setString(1, log.getWaybillNo());
+        ps.setInt(2, log.getFromStatus().ordinal());
+        ps.setInt(3, log.getToStatus().ordinal());
+        ps.setTimestamp(4, toTimestamp(log.getEventTime()));
+        ps.setTimestamp(5, toTimestamp(log.getCreateTime()));
+    }
+
+    private static WaybillStatusLog mapRow(ResultSet rs) throws SQLException {
+        return new WaybillStatusLog(rs.getLong("id"), rs.getString("waybill_no"),
+                STATUSES[rs.getInt("from_status")], STATUSES[rs.getInt("to_status")],
+                toLocalDateTime(rs.getTimestamp("event_time")), toLocalDateTime(rs.getTimestamp("create_time")));
+    }
+}
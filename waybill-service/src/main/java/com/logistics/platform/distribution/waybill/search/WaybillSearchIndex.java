@@ -0,0 +1,346 @@
+package com.logistics.platform.distribution.waybill.search;
+
+import com.logistics.platform.distribution.waybill.dto.WaybillSearchHit;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.cn.smart.SmartChineseAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 运单搜索的Lucene倒排索引，每个实例一份，存放在本地磁盘
+ * 姓名、地址、货物类型用smartcn中文分词，多个词须全部命中（可分别命中不同字段）；
+ * 寄件人和收件人电话按原文和倒序各索引一次，纯数字的关键字按手机号前缀或后缀（尾号）匹配
+ * 索引按运单ID倒序排序，结果按创建时间从新到旧返回，取前limit条即可提前结束遍历
+ * 状态存为可原地更新的DocValues，状态变更不需要重写整个文档
+ */
+public class WaybillSearchIndex implements Closeable {
+
+    static final String WAYBILL_NO = "waybillNo";
+    static final String ID = "id";
+    static final String STATUS = "status";
+    static final String SENDER_NAME = "senderName";
+    static final String SENDER_PHONE = "senderPhone";
+    static final String RECEIVER_NAME = "receiverName";
+    static final String RECEIVER_PHONE = "receiverPhone";
+    static final String RECEIVER_ADDRESS = "receiverAddress";
+    static final String GOODS_TYPE = "goodsType";
+    static final String CREATE_TIME = "createTime";
+    //寄件人、收件人电话（只索引不存储），原文用于前缀匹配，倒序用于尾号匹配
+    static final String PHONE = "phone";
+    static final String PHONE_REVERSED = "phoneReversed";
+
+    private static final String[] TEXT_FIELDS = {SENDER_NAME, RECEIVER_NAME, RECEIVER_ADDRESS, GOODS_TYPE};
+    private static final Sort NEWEST_FIRST = new Sort(new SortField(ID, SortField.Type.LONG, true));
+    //前缀过短时匹配的号码过多，也没有检索意义
+    private static final int MIN_PHONE_DIGITS = 3;
+    private static final WaybillStatus[] STATUSES = WaybillStatus.values();
+
+    private final Directory directory;
+    private final Analyzer analyzer = new SmartChineseAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public WaybillSearchIndex(Directory directory) {
+        this.directory = directory;
+        try {
+            IndexWriterConfig config = new IndexWriterConfig(analyzer);
+            config.setIndexSort(NEWEST_FIRST);
+            config.setRAMBufferSizeMB(64);
+            this.writer = new IndexWriter(directory, config);
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开运单搜索索引失败", e);
+        }
+    }
+
+    public static WaybillSearchIndex open(Path path) {
+        try {
+            return new WaybillSearchIndex(FSDirectory.open(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("打开运单搜索索引失败：" + path, e);
+        }
+    }
+
+    /**
+     * 写入或覆盖运单（按运单号），refresh 后可搜到
+     */
+    public void index(Collection<Waybill> waybills) {
+        try {
+            for (Waybill waybill : waybills) {
+                writer.updateDocument(new Term(WAYBILL_NO, waybill.getWaybillNo()), toDocument(waybill));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入运单搜索索引失败", e);
+        }
+    }
+
+    /**
+     * 原地更新运单状态，运单不在索引中时不做任何事
+     */
+    public void updateStatus(String waybillNo, WaybillStatus status) {
+        try {
+            writer.updateNumericDocValue(new Term(WAYBILL_NO, waybillNo), STATUS, status.ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException("更新运单搜索索引失败", e);
+        }
+    }
+
+    /**
+     * 使之前的写入对搜索可见（不落盘）
+     */
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            throw new UncheckedIOException("刷新运单搜索索引失败", e);
+        }
+    }
+
+    /**
+     * 落盘，commitData 与索引内容一起原子保存（用于记录同步进度），重启后由 getCommitData 读出
+     */
+    public void commit(Map<String, String> commitData) {
+        try {
+            writer.setLiveCommitData(new HashMap<>(commitData).entrySet());
+            writer.commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException("提交运单搜索索引失败", e);
+        }
+    }
+
+    public Map<String, String> getCommitData() {
+        Map<String, String> data = new HashMap<>();
+        Iterable<Map.Entry<String, String>> live = writer.getLiveCommitData();
+        if (live != null) {
+            live.forEach(entry -> data.put(entry.getKey(), entry.getValue()));
+        }
+        return data;
+    }
+
+    /**
+     * 清空索引，用于全量重建
+     */
+    public void clear() {
+        try {
+            writer.deleteAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("清空运单搜索索引失败", e);
+        }
+    }
+
+    public long count() {
+        return writer.getDocStats().numDocs;
+    }
+
+    /**
+     * 搜索运单
+     * @param keyword 纯数字按电话前缀或尾号匹配，其他按姓名、地址、货物类型分词匹配
+     * @param status  只返回该状态的运单，为空时不限
+     * @param limit   最多返回条数，按创建时间从新到旧
+     * @throws IllegalArgumentException 关键字为空或电话少于3位时抛出
+     */
+    public List<WaybillSearchHit> search(String keyword, WaybillStatus status, int limit) {
+        Query query = toQuery(keyword, status);
+        if (query == null) {
+            return List.of();
+        }
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopFieldDocs top = searcher.search(query, limit, NEWEST_FIRST);
+                List<WaybillSearchHit> hits = new ArrayList<>(top.scoreDocs.length);
+                for (ScoreDoc scoreDoc : top.scoreDocs) {
+                    hits.add(toHit(searcher, scoreDoc.doc));
+                }
+                return hits;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("运单搜索失败", e);
+        }
+    }
+
+    /**
+     * 关键字能否用于搜索：非空，纯数字时至少3位；不能时 search 抛出 IllegalArgumentException
+     */
+    public static boolean isValidKeyword(String keyword) {
+        String text = keyword == null ? "" : keyword.trim();
+        return !text.isEmpty() && (!isDigits(text) || text.length() >= MIN_PHONE_DIGITS);
+    }
+
+    /**
+     * @return 查询，关键字分词后没有有效词时返回null
+     */
+    Query toQuery(String keyword, WaybillStatus status) {
+        String text = keyword == null ? "" : keyword.trim();
+        if (text.isEmpty()) {
+            throw new IllegalArgumentException("搜索关键字不能为空");
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        if (isDigits(text)) {
+            if (text.length() < MIN_PHONE_DIGITS) {
+                throw new IllegalArgumentException("电话号码至少输入" + MIN_PHONE_DIGITS + "位");
+            }
+            builder.add(new BooleanQuery.Builder()
+                    .add(new PrefixQuery(new Term(PHONE, text)), Occur.SHOULD)
+                    .add(new PrefixQuery(new Term(PHONE_REVERSED, reverse(text))), Occur.SHOULD)
+                    .build(), Occur.MUST);
+        } else {
+            Set<String> terms = analyze(text);
+            if (terms.isEmpty()) {
+                return null;
+            }
+            //每个词须命中任一文本字段
+            for (String term : terms) {
+                BooleanQuery.Builder anyField = new BooleanQuery.Builder();
+                for (String field : TEXT_FIELDS) {
+                    anyField.add(new TermQuery(new Term(field, term)), Occur.SHOULD);
+                }
+                builder.add(anyField.build(), Occur.MUST);
+            }
+        }
+        if (status != null) {
+            builder.add(NumericDocValuesField.newSlowExactQuery(STATUS, status.ordinal()), Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    private Set<String> analyze(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        try (TokenStream stream = analyzer.tokenStream(RECEIVER_ADDRESS, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException("搜索关键字分词失败", e);
+        }
+        return terms;
+    }
+
+    private static Document toDocument(Waybill waybill) {
+        Document doc = new Document();
+        doc.add(new StringField(WAYBILL_NO, waybill.getWaybillNo(), Field.Store.YES));
+        doc.add(new NumericDocValuesField(ID, waybill.getId()));
+        doc.add(new NumericDocValuesField(STATUS, waybill.getStatus() == null ? -1 : waybill.getStatus().ordinal()));
+        addText(doc, SENDER_NAME, waybill.getSenderName());
+        addText(doc, RECEIVER_NAME, waybill.getReceiverName());
+        addText(doc, RECEIVER_ADDRESS, waybill.getReceiverAddress());
+        addText(doc, GOODS_TYPE, waybill.getGoodsType());
+        addPhone(doc, SENDER_PHONE, waybill.getSenderPhone());
+        addPhone(doc, RECEIVER_PHONE, waybill.getReceiverPhone());
+        if (waybill.getCreateTime() != null) {
+            doc.add(new StoredField(CREATE_TIME, waybill.getCreateTime().toString()));
+        }
+        return doc;
+    }
+
+    private static void addText(Document doc, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            doc.add(new TextField(field, value, Field.Store.YES));
+        }
+    }
+
+    private static void addPhone(Document doc, String field, String value) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        doc.add(new StoredField(field, value));
+        String digits = value.replaceAll("\\D", "");
+        if (!digits.isEmpty()) {
+            doc.add(new StringField(PHONE, digits, Field.Store.NO));
+            doc.add(new StringField(PHONE_REVERSED, reverse(digits), Field.Store.NO));
+        }
+    }
+
+    private static WaybillSearchHit toHit(IndexSearcher searcher, int docId) throws IOException {
+        Document doc = searcher.doc(docId);
+        WaybillSearchHit hit = new WaybillSearchHit();
+        hit.setWaybillNo(doc.get(WAYBILL_NO));
+        hit.setSenderName(doc.get(SENDER_NAME));
+        hit.setSenderPhone(doc.get(SENDER_PHONE));
+        hit.setReceiverName(doc.get(RECEIVER_NAME));
+        hit.setReceiverPhone(doc.get(RECEIVER_PHONE));
+        hit.setReceiverAddress(doc.get(RECEIVER_ADDRESS));
+        hit.setGoodsType(doc.get(GOODS_TYPE));
+        String createTime = doc.get(CREATE_TIME);
+        hit.setCreateTime(createTime == null ? null : LocalDateTime.parse(createTime));
+        //状态取DocValues中的当前值，存储字段中没有状态
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+        NumericDocValues statuses = DocValues.getNumeric(leaf.reader(), STATUS);
+        if (statuses.advanceExact(docId - leaf.docBase)) {
+            long ordinal = statuses.longValue();
+            hit.setStatus(ordinal >= 0 && ordinal < STATUSES.length ? STATUSES[(int) ordinal] : null);
+        }
+        return hit;
+    }
+
+    private static boolean isDigits(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String reverse(String value) {
+        return new StringBuilder(value).reverse().toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            searcherManager.close();
+            writer.close();
+        } finally {
+            directory.close();
+        }
+    }
+}
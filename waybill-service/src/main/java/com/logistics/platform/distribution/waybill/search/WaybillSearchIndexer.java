@@ -0,0 +1,234 @@
+package com.logistics.platform.distribution.waybill.search;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillEventType;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.outbox.RedisStreamWaybillEventPublisher;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 保持运单搜索索引与运单写入同步：各实例独立读取全部运单事件流（waybill:events:{分区}，XREAD不建消费组），
+ * CREATED 写入整个运单，STATUS_CHANGED 原地更新状态
+ * 各分区的读取进度随索引一起提交，重启后从提交的进度继续；没有进度（新实例）或进度之后的事件已被裁剪时，
+ * 先记下各流的末尾再从数据库全量重建，之后从记下的位置补读，重复应用的事件结果相同
+ * 已归档的运单在重建后不再出现在搜索结果中
+ */
+@Slf4j
+public class WaybillSearchIndexer {
+
+    private static final String OFFSET_KEY_PREFIX = "offset.";
+    private static final String STREAM_START = "0-0";
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final WaybillSearchIndex index;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final WaybillJdbcRepository waybillJdbcRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int batchSize;
+    //落盘间隔，期间的写入已可搜索，宕机后从上次提交的进度重放
+    private final Duration commitInterval;
+    private final String[] offsets;
+    private final String[] streamKeys;
+    //流名 -> 分区
+    private final Map<String, Integer> partitionOfStream;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean ready;
+    private long lastCommitMillis = System.currentTimeMillis();
+    private boolean dirty;
+
+    public WaybillSearchIndexer(WaybillSearchIndex index, StringRedisTemplate stringRedisTemplate,
+                                ObjectMapper objectMapper, WaybillJdbcRepository waybillJdbcRepository,
+                                PlatformTransactionManager transactionManager, int partitions, int batchSize,
+                                Duration commitInterval) {
+        this.index = index;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.waybillJdbcRepository = waybillJdbcRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.offsets = new String[partitions];
+        this.streamKeys = new String[partitions];
+        this.partitionOfStream = new HashMap<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            streamKeys[partition] = streamKey(partition);
+            partitionOfStream.put(streamKeys[partition], partition);
+        }
+    }
+
+    /**
+     * 从索引中提交的进度恢复；无法恢复时由下一次 poll 在后台全量重建
+     */
+    public void start() {
+        Map<String, String> commitData = index.getCommitData();
+        for (int partition = 0; partition < offsets.length; partition++) {
+            String offset = commitData.get(OFFSET_KEY_PREFIX + partition);
+            if (offset == null) {
+                log.info("运单搜索索引没有同步进度，将全量重建");
+                return;
+            }
+            if (isTrimmed(partition, offset)) {
+                log.warn("运单事件流{}中{}之后的事件已被裁剪，将全量重建搜索索引", partition, offset);
+                return;
+            }
+            offsets[partition] = offset;
+        }
+        ready = true;
+        log.info("运单搜索索引已加载，共{}条", index.count());
+    }
+
+    @Scheduled(fixedDelayString = "${waybill.search.poll-interval-ms:500}")
+    public void poll() {
+        if (!ready) {
+            if (rebuilding.compareAndSet(false, true)) {
+                Thread thread = new Thread(this::rebuild, "waybill-search-rebuild");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            return;
+        }
+        try {
+            //一次XREAD读取全部分区，COUNT对每个流分别生效
+            @SuppressWarnings("unchecked") //泛型数组只能用原始类型创建，元素都是 StreamOffset<String>
+            StreamOffset<String>[] streams = new StreamOffset[offsets.length];
+            for (int partition = 0; partition < offsets.length; partition++) {
+                streams[partition] = StreamOffset.create(streamKeys[partition], ReadOffset.from(offsets[partition]));
+            }
+            List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().read(
+                    StreamReadOptions.empty().count(batchSize), streams);
+            boolean changed = false;
+            if (records != null) {
+                for (MapRecord<String, Object, Object> record : records) {
+                    apply(record.getValue());
+                    offsets[partitionOfStream.get(record.getStream())] = record.getId().getValue();
+                    changed = true;
+                }
+            }
+            if (changed) {
+                index.refresh();
+                dirty = true;
+            }
+            if (dirty && System.currentTimeMillis() - lastCommitMillis >= commitInterval.toMillis()) {
+                commit();
+            }
+        } catch (RuntimeException e) {
+            log.warn("同步运单搜索索引失败，下次重试：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 应用一条运单事件，字段与 RedisStreamWaybillEventPublisher 发布的一致；无法解析的事件跳过
+     */
+    void apply(Map<Object, Object> fields) {
+        String type = String.valueOf(fields.get("type"));
+        String payload = String.valueOf(fields.get("payload"));
+        try {
+            if (WaybillEventType.CREATED.name().equals(type)) {
+                index.index(List.of(objectMapper.readValue(payload, Waybill.class)));
+            } else if (WaybillEventType.STATUS_CHANGED.name().equals(type)) {
+                WaybillStatusLog statusLog = objectMapper.readValue(payload, WaybillStatusLog.class);
+                index.updateStatus(statusLog.getWaybillNo(), statusLog.getToStatus());
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("运单事件无法解析，跳过：{}", fields.get("id"));
+        }
+    }
+
+    void rebuild() {
+        try {
+            long begin = System.currentTimeMillis();
+            for (int partition = 0; partition < offsets.length; partition++) {
+                offsets[partition] = latestId(partition);
+            }
+            //清空后先提交一次不带进度的索引，重建中途宕机时重启后重新重建
+            index.clear();
+            index.commit(Map.of());
+            List<Waybill> buffer = new ArrayList<>(REBUILD_BATCH_SIZE);
+            readOnlyTransaction.executeWithoutResult(status -> waybillJdbcRepository.stream(new WaybillQuery(), waybill -> {
+                buffer.add(waybill);
+                if (buffer.size() >= REBUILD_BATCH_SIZE) {
+                    index.index(buffer);
+                    buffer.clear();
+                }
+            }));
+            index.index(buffer);
+            index.refresh();
+            ready = true;
+            commit();
+            log.info("运单搜索索引重建完成，共{}条，耗时{}ms", index.count(), System.currentTimeMillis() - begin);
+        } catch (RuntimeException e) {
+            log.error("运单搜索索引重建失败，稍后重试", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 连同各分区的读取进度一起落盘，重建完成前不提交进度
+     */
+    public synchronized void commit() {
+        if (!ready) {
+            return;
+        }
+        Map<String, String> commitData = new HashMap<>();
+        for (int partition = 0; partition < offsets.length; partition++) {
+            commitData.put(OFFSET_KEY_PREFIX + partition, offsets[partition]);
+        }
+        index.commit(commitData);
+        lastCommitMillis = System.currentTimeMillis();
+        dirty = false;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private String latestId(int partition) {
+        List<MapRecord<String, Object, Object>> last = stringRedisTemplate.opsForStream()
+                .reverseRange(streamKey(partition), Range.unbounded(), Limit.limit().count(1));
+        return last == null || last.isEmpty() ? STREAM_START : last.get(0).getId().getValue();
+    }
+
+    //流中最早的事件比进度还新，说明进度之后可能有事件已被裁剪
+    private boolean isTrimmed(int partition, String offset) {
+        List<MapRecord<String, Object, Object>> first = stringRedisTemplate.opsForStream()
+                .range(streamKey(partition), Range.unbounded(), Limit.limit().count(1));
+        if (first == null || first.isEmpty()) {
+            return false;
+        }
+        RecordId earliest = first.get(0).getId();
+        RecordId committed = RecordId.of(offset);
+        return earliest.getTimestamp() > committed.getTimestamp()
+                || (earliest.getTimestamp().equals(committed.getTimestamp())
+                && earliest.getSequence() > committed.getSequence() + 1);
+    }
+
+    private static String streamKey(int partition) {
+        return RedisStreamWaybillEventPublisher.STREAM_KEY_PREFIX + partition;
+    }
+}
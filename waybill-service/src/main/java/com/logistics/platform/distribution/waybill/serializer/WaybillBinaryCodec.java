@@ -0,0 +1,285 @@
+package com.logistics.platform.distribution.waybill.serializer;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * 运单紧凑二进制编码
+ * 格式：魔数(1字节) | 版本(1字节) | 若干字段
+ * 每个字段：tag=(字段号<<3 | 类型) varint + 值，只写非空字段
+ *   类型0 VARINT：Long用zigzag，状态用序号，时间用UTC纳秒数
+ *   类型2 LEN：长度varint + 字节，字符串为UTF-8，BigDecimal为 zigzag(scale) + unscaled补码
+ * 新增字段只需分配新的字段号，旧版本读取时按类型跳过不认识的字段，无需清空缓存；
+ * 不兼容的改动才需要提升版本号
+ */
+public final class WaybillBinaryCodec {
+
+    //JSON以'{'开头，二进制以此魔数开头，据此区分两种格式
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final byte VERSION = 1;
+
+    private static final int TYPE_VARINT = 0;
+    private static final int TYPE_LEN = 2;
+
+    //字段号，只能新增不能修改
+    private static final int ID = 1;
+    private static final int WAYBILL_NO = 2;
+    private static final int CUSTOMER_ID = 3;
+    private static final int SENDER_NAME = 4;
+    private static final int SENDER_PHONE = 5;
+    private static final int SENDER_ADDRESS = 6;
+    private static final int RECEIVER_NAME = 7;
+    private static final int RECEIVER_PHONE = 8;
+    private static final int RECEIVER_ADDRESS = 9;
+    private static final int GOODS_TYPE = 10;
+    private static final int WEIGHT = 11;
+    private static final int VOLUME = 12;
+    private static final int AMOUNT = 13;
+    private static final int STATUS = 14;
+    private static final int WAREHOUSE_ID = 15;
+    private static final int DELIVERYMAN_ID = 16;
+    private static final int ESTIMATED_ARRIVAL_TIME = 17;
+    private static final int ACTUAL_ARRIVAL_TIME = 18;
+    private static final int CREATE_TIME = 19;
+    private static final int UPDATE_TIME = 20;
+
+    private static final WaybillStatus[] STATUSES = WaybillStatus.values();
+
+    private WaybillBinaryCodec() {
+    }
+
+    public static boolean isBinary(byte[] bytes) {
+        return bytes.length > 0 && bytes[0] == MAGIC;
+    }
+
+    public static byte[] encode(Waybill w) {
+        Writer out = new Writer();
+        out.buf[0] = MAGIC;
+        out.buf[1] = VERSION;
+        out.pos = 2;
+        out.writeLong(ID, w.getId());
+        out.writeString(WAYBILL_NO, w.getWaybillNo());
+        out.writeLong(CUSTOMER_ID, w.getCustomerId());
+        out.writeString(SENDER_NAME, w.getSenderName());
+        out.writeString(SENDER_PHONE, w.getSenderPhone());
+        out.writeString(SENDER_ADDRESS, w.getSenderAddress());
+        out.writeString(RECEIVER_NAME, w.getReceiverName());
+        out.writeString(RECEIVER_PHONE, w.getReceiverPhone());
+        out.writeString(RECEIVER_ADDRESS, w.getReceiverAddress());
+        out.writeString(GOODS_TYPE, w.getGoodsType());
+        out.writeDecimal(WEIGHT, w.getWeight());
+        out.writeDecimal(VOLUME, w.getVolume());
+        out.writeDecimal(AMOUNT, w.getAmount());
+        if (w.getStatus() != null) {
+            out.writeTag(STATUS, TYPE_VARINT);
+            out.writeVarint(w.getStatus().ordinal());
+        }
+        out.writeLong(WAREHOUSE_ID, w.getWarehouseId());
+        out.writeLong(DELIVERYMAN_ID, w.getDeliverymanId());
+        out.writeTime(ESTIMATED_ARRIVAL_TIME, w.getEstimatedArrivalTime());
+        out.writeTime(ACTUAL_ARRIVAL_TIME, w.getActualArrivalTime());
+        out.writeTime(CREATE_TIME, w.getCreateTime());
+        out.writeTime(UPDATE_TIME, w.getUpdateTime());
+        return Arrays.copyOf(out.buf, out.pos);
+    }
+
+    /**
+     * @return 含有本版本未知的运单状态（新版本写入）时返回null，由调用方按缓存未命中处理
+     */
+    public static Waybill decode(byte[] bytes) {
+        if (!isBinary(bytes) || bytes.length < 2) {
+            throw new IllegalArgumentException("不是运单二进制格式");
+        }
+        if (bytes[1] > VERSION) {
+            throw new IllegalArgumentException("不支持的运单二进制版本：" + bytes[1]);
+        }
+        Reader in = new Reader(bytes, 2);
+        Waybill w = new Waybill();
+        boolean unknownStatus = false;
+        while (in.pos < bytes.length) {
+            int tag = (int) in.readVarint();
+            int field = tag >>> 3;
+            int type = tag & 7;
+            switch (field) {
+                case ID -> w.setId(in.readLong());
+                case WAYBILL_NO -> w.setWaybillNo(in.readString());
+                case CUSTOMER_ID -> w.setCustomerId(in.readLong());
+                case SENDER_NAME -> w.setSenderName(in.readString());
+                case SENDER_PHONE -> w.setSenderPhone(in.readString());
+                case SENDER_ADDRESS -> w.setSenderAddress(in.readString());
+                case RECEIVER_NAME -> w.setReceiverName(in.readString());
+                case RECEIVER_PHONE -> w.setReceiverPhone(in.readString());
+                case RECEIVER_ADDRESS -> w.setReceiverAddress(in.readString());
+                case GOODS_TYPE -> w.setGoodsType(in.readString());
+                case WEIGHT -> w.setWeight(in.readDecimal());
+                case VOLUME -> w.setVolume(in.readDecimal());
+                case AMOUNT -> w.setAmount(in.readDecimal());
+                case STATUS -> {
+                    long ordinal = in.readVarint();
+                    if (ordinal < STATUSES.length) {
+                        w.setStatus(STATUSES[(int) ordinal]);
+                    } else {
+                        unknownStatus = true;
+                    }
+                }
+                case WAREHOUSE_ID -> w.setWarehouseId(in.readLong());
+                case DELIVERYMAN_ID -> w.setDeliverymanId(in.readLong());
+                case ESTIMATED_ARRIVAL_TIME -> w.setEstimatedArrivalTime(in.readTime());
+                case ACTUAL_ARRIVAL_TIME -> w.setActualArrivalTime(in.readTime());
+                case CREATE_TIME -> w.setCreateTime(in.readTime());
+                case UPDATE_TIME -> w.setUpdateTime(in.readTime());
+                default -> in.skip(type);
+            }
+        }
+        return unknownStatus ? null : w;
+    }
+
+    private static final class Writer {
+        private byte[] buf = new byte[256];
+        private int pos;
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        void writeTag(int field, int type) {
+            writeVarint((long) field << 3 | type);
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        void writeLong(int field, Long value) {
+            if (value != null) {
+                writeTag(field, TYPE_VARINT);
+                writeVarint(zigzag(value));
+            }
+        }
+
+        void writeString(int field, String value) {
+            if (value != null) {
+                writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        void writeBytes(int field, byte[] bytes) {
+            writeTag(field, TYPE_LEN);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+        }
+
+        void writeDecimal(int field, BigDecimal value) {
+            if (value != null) {
+                long scale = zigzag(value.scale());
+                byte[] unscaled = value.unscaledValue().toByteArray();
+                writeTag(field, TYPE_LEN);
+                writeVarint(varintSize(scale) + unscaled.length);
+                writeVarint(scale);
+                ensure(unscaled.length);
+                System.arraycopy(unscaled, 0, buf, pos, unscaled.length);
+                pos += unscaled.length;
+            }
+        }
+
+        void writeTime(int field, LocalDateTime value) {
+            if (value != null) {
+                writeTag(field, TYPE_VARINT);
+                long nanos = value.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + value.getNano();
+                writeVarint(zigzag(nanos));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        long readVarint() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buf[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("varint格式错误");
+        }
+
+        long readLong() {
+            return unzigzag(readVarint());
+        }
+
+        String readString() {
+            int length = (int) readVarint();
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        BigDecimal readDecimal() {
+            int end = (int) readVarint() + pos;
+            int scale = (int) unzigzag(readVarint());
+            BigInteger unscaled = new BigInteger(buf, pos, end - pos);
+            pos = end;
+            return new BigDecimal(unscaled, scale);
+        }
+
+        LocalDateTime readTime() {
+            long nanos = unzigzag(readVarint());
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                    (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+        }
+
+        void skip(int type) {
+            switch (type) {
+                case TYPE_VARINT -> readVarint();
+                case TYPE_LEN -> {
+                    //先读完长度前缀再移动，跳过的是前缀之后的内容
+                    int length = (int) readVarint();
+                    pos += length;
+                }
+                default -> throw new IllegalArgumentException("未知的字段类型：" + type);
+            }
+        }
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            size++;
+            value >>>= 7;
+        }
+        return size;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,57 @@
+package com.logistics.platform.distribution.waybill.serializer;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 运单缓存序列化器，读取时同时兼容JSON和二进制两种格式，写入格式可配置
+ * 迁移步骤：
+ *   1. 全部实例升级到本版本，写入格式保持json（此时已能读取二进制）
+ *   2. 将 waybill.cache.serializer.format 改为 binary 并滚动重启，旧的JSON条目过期后自然淘汰
+ * 回滚时反向操作即可，任一阶段新旧实例都能读取对方写入的数据
+ */
+public class WaybillRedisSerializer implements RedisSerializer<Waybill> {
+
+    public enum Format {
+        JSON, BINARY
+    }
+
+    private final RedisSerializer<Waybill> jsonSerializer;
+    private final Format writeFormat;
+
+    public WaybillRedisSerializer(RedisSerializer<Waybill> jsonSerializer, Format writeFormat) {
+        this.jsonSerializer = jsonSerializer;
+        this.writeFormat = writeFormat;
+    }
+
+    @Override
+    public byte[] serialize(Waybill waybill) throws SerializationException {
+        if (waybill == null) {
+            return new byte[0];
+        }
+        if (writeFormat == Format.BINARY) {
+            return WaybillBinaryCodec.encode(waybill);
+        }
+        return jsonSerializer.serialize(waybill);
+    }
+
+    @Override
+    public Waybill deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (WaybillBinaryCodec.isBinary(bytes)) {
+            try {
+                return WaybillBinaryCodec.decode(bytes);
+            } catch (RuntimeException e) {
+                throw new SerializationException("运单二进制反序列化失败", e);
+            }
+        }
+        return jsonSerializer.deserialize(bytes);
+    }
+
+    public Format getWriteFormat() {
+        return writeFormat;
+    }
+}
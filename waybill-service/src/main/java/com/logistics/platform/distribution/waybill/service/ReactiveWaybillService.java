@@ -0,0 +1,12 @@
+package com.logistics.platform.distribution.waybill.service;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import reactor.core.publisher.Mono;
+
+/**
+ * 非阻塞的运单读取，与 WaybillService 共用缓存，写操作仍走 WaybillService
+ */
+public interface ReactiveWaybillService {
+    //运单号查询，运单不存在时为空
+    Mono<Waybill> getByWaybillNo(String waybillNo);
+}
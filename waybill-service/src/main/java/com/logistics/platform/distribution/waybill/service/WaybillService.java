@@ -1,8 +1,14 @@
 package com.logistics.platform.distribution.waybill.service;
 
+import com.logistics.platform.distribution.waybill.dto.WaybillBatchResult;
+import com.logistics.platform.distribution.waybill.dto.WaybillPage;
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
+import com.logistics.platform.distribution.waybill.dto.WaybillStatusEvent;
 import com.logistics.platform.distribution.waybill.entity.Waybill;
 import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.export.WaybillExportFormat;
 
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,14 +16,26 @@ public interface WaybillService {
     //创建运单
     Waybill createWaybill(Waybill waybill);
 
-    //更新运单
+    //批量创建运单，逐条返回结果
+    WaybillBatchResult batchCreateWaybills(List<Waybill> waybills);
+
+    //更新运单状态（按流转规则条件更新，非法流转或重试后仍冲突时抛出WaybillStatusConflictException）
     Waybill updateWaybillStatus(String waybillNo, String status);
 
+    //批量更新运单状态，同一运单的多条事件按时间顺序依次流转，逐条返回结果
+    WaybillBatchResult batchUpdateWaybillStatus(List<WaybillStatusEvent> events);
+
     //运单号查询
     Optional<Waybill> getByWaybillNo(String waybillNo);
 
-    //查询所有运单
-    List<Waybill> getAllWaybills();
+    //批量运单号查询，只返回存在的运单，按请求中首次出现的顺序
+    List<Waybill> getByWaybillNos(List<String> waybillNos);
+
+    //按条件分页查询运单（ID游标分页）
+    WaybillPage listWaybills(WaybillQuery query);
+
+    //按条件流式导出运单，返回导出条数
+    long exportWaybills(WaybillQuery query, WaybillExportFormat format, OutputStream out);
 
 
 }
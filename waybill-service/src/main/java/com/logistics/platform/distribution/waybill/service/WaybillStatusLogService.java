@@ -0,0 +1,13 @@
+package com.logistics.platform.distribution.waybill.service;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+
+import java.util.List;
+
+public interface WaybillStatusLogService {
+    //查询运单的状态时间线
+    List<WaybillStatusLog> getTimeline(String waybillNo);
+
+    //由状态日志重放运单当前状态（表结构调整或投影逻辑修改后使用），返回重放的运单数
+    long replay();
+}
@@ -0,0 +1,22 @@
+package com.logistics.platform.distribution.waybill.service.impl;
+
+import com.logistics.platform.distribution.waybill.cache.ReactiveWaybillCache;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.repository.WaybillRepository;
+import com.logistics.platform.distribution.waybill.service.ReactiveWaybillService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+@Service
+@RequiredArgsConstructor
+public class ReactiveWaybillServiceImpl implements ReactiveWaybillService {
+    private final ReactiveWaybillCache reactiveWaybillCache;
+    private final WaybillRepository waybillRepository;
+
+    @Override
+    public Mono<Waybill> getByWaybillNo(String waybillNo) {
+        //L1、Redis都未命中时在独立线程池中查库，查库逻辑与 WaybillServiceImpl 相同
+        return reactiveWaybillCache.get(waybillNo, waybillRepository::findByWaybillNo);
+    }
+}
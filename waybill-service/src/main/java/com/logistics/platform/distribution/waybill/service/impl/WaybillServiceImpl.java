@@ -1,31 +1,73 @@
 package com.logistics.platform.distribution.waybill.service.impl;
 
 import com.fasterxml.classmate.members.ResolvedMember;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logistics.platform.distribution.waybill.cache.CachedWaybill;
+import com.logistics.platform.distribution.waybill.cache.WaybillCache;
+import com.logistics.platform.distribution.waybill.datasource.ReadRouting;
+import com.logistics.platform.distribution.waybill.dto.WaybillBatchResult;
+import com.logistics.platform.distribution.waybill.dto.WaybillPage;
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
+import com.logistics.platform.distribution.waybill.dto.WaybillStatusEvent;
 import com.logistics.platform.distribution.waybill.entity.Waybill;
 import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.exception.WaybillStatusConflictException;
+import com.logistics.platform.distribution.waybill.export.WaybillExportFormat;
+import com.logistics.platform.distribution.waybill.export.WaybillExportWriter;
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import com.logistics.platform.distribution.waybill.outbox.WaybillOutbox;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.StatusChange;
 import com.logistics.platform.distribution.waybill.repository.WaybillRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillStatusLogRepository;
 import com.logistics.platform.distribution.waybill.service.WaybillService;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Statement;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 
+//各方法的耗时、调用次数和异常数通过 waybill.service{class,method,error} 暴露，采样的请求同时记录为链路中的一段
+@Slf4j
 @Service
 @RequiredArgsConstructor
+@Observed(name = "waybill.service")
 public class WaybillServiceImpl implements WaybillService {
 
     private final WaybillRepository waybillRepository;
-    private final RedisTemplate<String, Waybill> redisTemplate;
+    private final WaybillJdbcRepository waybillJdbcRepository;
+    private final WaybillCache waybillCache;
+    private final WaybillNoGenerator waybillNoGenerator;
+    private final ObjectMapper objectMapper;
+    private final WaybillStatusLogRepository waybillStatusLogRepository;
+    private final TransactionOperations transactionOperations;
+    private final WaybillOutbox waybillOutbox;
 
-    private static final String WAYBILL_KEY="waybill:NO";
-    private static final long WAYBILL_EXPIRE_TIME=30;
+    //批量创建上限及每次executeBatch的行数
+    private static final int MAX_BATCH_SIZE=5000;
+    private static final int INSERT_CHUNK_SIZE=500;
+    //状态条件更新冲突后的最大重试次数
+    private static final int MAX_STATUS_RETRIES=3;
 
 
     @Override
@@ -33,68 +75,423 @@ public class WaybillServiceImpl implements WaybillService {
         waybill.setStatus(WaybillStatus.CREATED);
         waybill.setCreateTime(LocalDateTime.now());
         waybill.setUpdateTime(LocalDateTime.now());
-        //创建单号
-        waybill.setWaybillNo("WB"+LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"))+ (int) (Math.random() * 1000));
+        //创建单号，ID同时作为主键（实体没有主键生成策略）
+        long id=waybillNoGenerator.nextId();
+        waybill.setId(id);
+        waybill.setWaybillNo(WaybillNoGenerator.toWaybillNo(id));
 
-        Waybill saveWaybill=waybillRepository.save(waybill);
+        //运单与创建事件在同一事务中写入
+        Waybill saveWaybill=transactionOperations.execute(tx->{
+            Waybill saved=waybillRepository.save(waybill);
+            waybillOutbox.created(List.of(saved));
+            return saved;
+        });
 
         //缓存
-        redisTemplate.opsForValue().set(
-                WAYBILL_KEY+saveWaybill.getWaybillNo(),
-                saveWaybill,
-                WAYBILL_EXPIRE_TIME,
-                TimeUnit.MINUTES
-        );
+        waybillCache.put(saveWaybill);
         return saveWaybill;
 
     }
 
+    @Override
+    public WaybillBatchResult batchCreateWaybills(List<Waybill> waybills) {
+        if (waybills==null||waybills.isEmpty()){
+            throw new IllegalArgumentException("运单列表不能为空");
+        }
+        if (waybills.size()>MAX_BATCH_SIZE){
+            throw new IllegalArgumentException("单次最多创建"+MAX_BATCH_SIZE+"条运单");
+        }
+        WaybillBatchResult result=new WaybillBatchResult(waybills.size());
+
+        //先整体校验，不合法的直接记为失败，不进入数据库
+        LocalDateTime now=LocalDateTime.now();
+        List<Waybill> validWaybills=new ArrayList<>(waybills.size());
+        List<Integer> validIndexes=new ArrayList<>(waybills.size());
+        for (int i=0;i<waybills.size();i++){
+            Waybill waybill=waybills.get(i);
+            String error=validate(waybill);
+            if (error!=null){
+                result.fail(i,null,error);
+                continue;
+            }
+            long id=waybillNoGenerator.nextId();
+            waybill.setId(id);
+            waybill.setWaybillNo(WaybillNoGenerator.toWaybillNo(id));
+            waybill.setStatus(WaybillStatus.CREATED);
+            waybill.setCreateTime(now);
+            waybill.setUpdateTime(now);
+            validWaybills.add(waybill);
+            validIndexes.add(i);
+        }
+
+        //分块批量插入
+        List<Waybill> savedWaybills=new ArrayList<>(validWaybills.size());
+        for (int from=0;from<validWaybills.size();from+=INSERT_CHUNK_SIZE){
+            int to=Math.min(from+INSERT_CHUNK_SIZE,validWaybills.size());
+            insertChunk(validWaybills.subList(from,to),validIndexes.subList(from,to),result,savedWaybills);
+        }
+
+        //一次管道写入缓存
+        waybillCache.putAll(savedWaybills);
+        result.getItems().sort(Comparator.comparingInt(WaybillBatchResult.Item::getIndex));
+        return result;
+    }
+
+    private void insertChunk(List<Waybill> chunk, List<Integer> indexes, WaybillBatchResult result, List<Waybill> savedWaybills) {
+        try {
+            //整块插入与写入成功运单的创建事件在同一事务中
+            int[] counts=transactionOperations.execute(tx->{
+                int[] rows=waybillJdbcRepository.batchInsert(chunk);
+                List<Waybill> inserted=new ArrayList<>(chunk.size());
+                for (int i=0;i<chunk.size();i++){
+                    if (isInserted(rows[i])){
+                        inserted.add(chunk.get(i));
+                    }
+                }
+                waybillOutbox.created(inserted);
+                return rows;
+            });
+            for (int i=0;i<chunk.size();i++){
+                if (isInserted(counts[i])){
+                    result.success(indexes.get(i),chunk.get(i).getWaybillNo());
+                    savedWaybills.add(chunk.get(i));
+                }else {
+                    result.fail(indexes.get(i),chunk.get(i).getWaybillNo(),"运单写入失败");
+                }
+            }
+        } catch (DataAccessException e) {
+            //整批失败时逐条重试，定位具体出错的运单
+            log.warn("批量写入运单失败，改为逐条写入：{}",e.getMessage());
+            for (int i=0;i<chunk.size();i++){
+                Waybill waybill=chunk.get(i);
+                try {
+                    transactionOperations.execute(tx->{
+                        waybillJdbcRepository.insert(waybill);
+                        waybillOutbox.created(List.of(waybill));
+                        return null;
+                    });
+                    result.success(indexes.get(i),waybill.getWaybillNo());
+                    savedWaybills.add(waybill);
+                } catch (DataAccessException ex) {
+                    result.fail(indexes.get(i),waybill.getWaybillNo(),"运单写入失败："+ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    //开启 rewriteBatchedStatements 时成功行返回 SUCCESS_NO_INFO
+    private static boolean isInserted(int count) {
+        return count!=Statement.EXECUTE_FAILED&&count!=0;
+    }
+
+    /**
+     * 校验批量创建的单条运单
+     * @return 错误信息，合法时返回null
+     */
+    private static String validate(Waybill waybill) {
+        if (waybill==null){
+            return "运单不能为空";
+        }
+        if (waybill.getCustomerId()==null){
+            return "客户ID不能为空";
+        }
+        if (StringUtils.isAnyBlank(waybill.getSenderName(),waybill.getSenderPhone())){
+            return "寄件人姓名和电话不能为空";
+        }
+        if (StringUtils.isAnyBlank(waybill.getReceiverName(),waybill.getReceiverPhone(),waybill.getReceiverAddress())){
+            return "收件人姓名、电话和地址不能为空";
+        }
+        if (isNegative(waybill.getWeight())||isNegative(waybill.getVolume())||isNegative(waybill.getAmount())){
+            return "重量、体积、运费不能为负数";
+        }
+        return null;
+    }
+
+    private static boolean isNegative(BigDecimal value) {
+        return value!=null&&value.signum()<0;
+    }
+
     @Override
     public Waybill updateWaybillStatus(String waybillNo, String status) {
-        //先查缓存,缓存没有再查数据库
-        Waybill waybill=getByWaybillNo(waybillNo)
+        WaybillStatus target=WaybillStatus.fromString(status);
+        //先按缓存中的状态尝试，缓存可能已过期，不满足条件时改用数据库中的最新状态
+        Waybill current=getByWaybillNo(waybillNo)
                 .orElseThrow(()->new IllegalArgumentException("运单不存在：" + waybillNo));
+        boolean fromDatabase=false;
+        for (int attempt=0;;attempt++){
+            WaybillStatus from=current.getStatus();
+            if (from==null||from==target||!from.canTransitionTo(target)){
+                if (!fromDatabase){
+                    current=findInDatabase(waybillNo);
+                    fromDatabase=true;
+                    continue;
+                }
+                //重复扫描同一状态视为成功
+                if (from==target){
+                    return current;
+                }
+                throw WaybillStatusConflictException.illegalTransition(waybillNo,from,target);
+            }
 
-        //更新运单状态
-        waybill.setStatus(WaybillStatus.fromString(status));
-        waybill.setUpdateTime(LocalDateTime.now());
-        if (status.equals(WaybillStatus.DELIVERING)){
-            waybill.setActualArrivalTime(LocalDateTime.now());
+            LocalDateTime now=LocalDateTime.now();
+            LocalDateTime actualArrivalTime=target==WaybillStatus.DELIVERING?now:null;
+            //条件更新与状态日志在同一事务中写入，状态已被他人修改时影响行数为0
+            WaybillStatus expected=from;
+            Integer updated=transactionOperations.execute(tx->{
+                int rows=waybillJdbcRepository.updateStatus(waybillNo,expected,target,now,actualArrivalTime);
+                if (rows==1){
+                    WaybillStatusLog statusLog=WaybillStatusLog.of(waybillNo,expected,target,now,now);
+                    waybillStatusLogRepository.append(statusLog);
+                    waybillOutbox.statusChanged(List.of(statusLog));
+                }
+                return rows;
+            });
+            if (updated!=null&&updated==1){
+                //本地缓存中的对象是共享的，复制一份再修改
+                Waybill updateWaybill=new Waybill();
+                BeanUtils.copyProperties(current,updateWaybill);
+                updateWaybill.setStatus(target);
+                updateWaybill.setUpdateTime(now);
+                if (actualArrivalTime!=null){
+                    updateWaybill.setActualArrivalTime(actualArrivalTime);
+                }
+                //删除缓存，并通知其他实例失效本地缓存
+                waybillCache.evict(waybillNo);
+                return updateWaybill;
+            }
+            if (attempt>=MAX_STATUS_RETRIES){
+                throw WaybillStatusConflictException.concurrentModification(waybillNo,from,target);
+            }
+            log.debug("运单{}状态已被并发修改，第{}次重试",waybillNo,attempt+1);
+            current=findInDatabase(waybillNo);
+            fromDatabase=true;
         }
-        Waybill updateWaybill=waybillRepository.save(waybill);
+    }
 
-        //更新缓存
-        redisTemplate.opsForValue().set(
-                WAYBILL_KEY+waybill.getWaybillNo(),
-                updateWaybill,
-                WAYBILL_EXPIRE_TIME,
-                TimeUnit.MINUTES
-        );
-        return updateWaybill;
+    @Override
+    public WaybillBatchResult batchUpdateWaybillStatus(List<WaybillStatusEvent> events) {
+        if (events==null||events.isEmpty()){
+            throw new IllegalArgumentException("状态事件列表不能为空");
+        }
+        if (events.size()>MAX_BATCH_SIZE){
+            throw new IllegalArgumentException("单次最多更新"+MAX_BATCH_SIZE+"条状态事件");
+        }
+        WaybillBatchResult result=new WaybillBatchResult(events.size());
+
+        //校验并按运单号分组，同一运单的事件按扫描时间排序
+        LocalDateTime now=LocalDateTime.now();
+        WaybillStatus[] targets=new WaybillStatus[events.size()];
+        LocalDateTime[] eventTimes=new LocalDateTime[events.size()];
+        Map<String,List<Integer>> pending=new LinkedHashMap<>();
+        for (int i=0;i<events.size();i++){
+            WaybillStatusEvent event=events.get(i);
+            if (event==null||StringUtils.isBlank(event.getWaybillNo())){
+                result.fail(i,null,"运单号不能为空");
+                continue;
+            }
+            try {
+                targets[i]=WaybillStatus.fromString(event.getStatus());
+            } catch (IllegalArgumentException e) {
+                result.fail(i,event.getWaybillNo(),e.getMessage());
+                continue;
+            }
+            eventTimes[i]=event.getEventTime()!=null?event.getEventTime():now;
+            pending.computeIfAbsent(event.getWaybillNo(),k->new ArrayList<>()).add(i);
+        }
+        Comparator<Integer> byEventTime=Comparator.comparing((Integer i)->eventTimes[i]).thenComparingInt(i->i);
+        pending.values().forEach(indexes->indexes.sort(byEventTime));
+
+        //每轮：批量查当前状态→按事件顺序推演出最终状态→一次批量条件更新；被并发修改的运单进入下一轮
+        List<String> updatedNos=new ArrayList<>();
+        for (int round=0;round<=MAX_STATUS_RETRIES&&!pending.isEmpty();round++){
+            Map<String,WaybillStatus> statuses=waybillJdbcRepository.findStatuses(pending.keySet());
+            List<StatusChange> changes=new ArrayList<>();
+            Map<String,String[]> plans=new HashMap<>();
+            Map<String,List<WaybillStatusLog>> steps=new HashMap<>();
+            for (Map.Entry<String,List<Integer>> entry:pending.entrySet()){
+                String waybillNo=entry.getKey();
+                List<Integer> indexes=entry.getValue();
+                if (!statuses.containsKey(waybillNo)){
+                    indexes.forEach(i->result.fail(i,waybillNo,"运单不存在："+waybillNo));
+                    continue;
+                }
+                WaybillStatus current=statuses.get(waybillNo);
+                WaybillStatus status=current;
+                LocalDateTime actualArrivalTime=null;
+                //plan[k]为第k条事件的失败原因，null表示成功；steps为实际发生的每一步变更，写入状态日志
+                String[] plan=new String[indexes.size()];
+                List<WaybillStatusLog> waybillSteps=new ArrayList<>();
+                for (int k=0;k<indexes.size();k++){
+                    WaybillStatus target=targets[indexes.get(k)];
+                    if (status==target){
+                        continue;
+                    }
+                    if (status==null||!status.canTransitionTo(target)){
+                        plan[k]="运单状态不允许从"+status+"变更为"+target;
+                        continue;
+                    }
+                    waybillSteps.add(WaybillStatusLog.of(waybillNo,status,target,eventTimes[indexes.get(k)],now));
+                    status=target;
+                    if (target==WaybillStatus.DELIVERING){
+                        actualArrivalTime=eventTimes[indexes.get(k)];
+                    }
+                }
+                plans.put(waybillNo,plan);
+                steps.put(waybillNo,waybillSteps);
+                if (status==current){
+                    applyPlan(result,waybillNo,indexes,plan);
+                }else {
+                    changes.add(new StatusChange(waybillNo,current,status,now,actualArrivalTime));
+                }
+            }
+
+            Map<String,List<Integer>> conflicted=new LinkedHashMap<>();
+            int[] counts=changes.isEmpty()?new int[0]:transactionOperations.execute(tx->{
+                //批量条件更新，成功的运单在同一事务中批量追加状态日志和变更事件
+                int[] rows=waybillJdbcRepository.batchUpdateStatus(changes);
+                List<WaybillStatusLog> logs=new ArrayList<>();
+                for (int c=0;c<changes.size();c++){
+                    if (rows[c]==1){
+                        logs.addAll(steps.get(changes.get(c).getWaybillNo()));
+                    }
+                }
+                if (!logs.isEmpty()){
+                    waybillStatusLogRepository.batchAppend(logs);
+                    waybillOutbox.statusChanged(logs);
+                }
+                return rows;
+            });
+            for (int c=0;c<changes.size();c++){
+                String waybillNo=changes.get(c).getWaybillNo();
+                if (counts[c]==1){
+                    applyPlan(result,waybillNo,pending.get(waybillNo),plans.get(waybillNo));
+                    updatedNos.add(waybillNo);
+                }else {
+                    //状态已被他人修改（或驱动未返回影响行数），下一轮按最新状态重新推演
+                    conflicted.put(waybillNo,pending.get(waybillNo));
+                }
+            }
+            pending=conflicted;
+        }
+        pending.forEach((waybillNo,indexes)->indexes.forEach(i->result.fail(i,waybillNo,"运单状态被并发修改，请稍后重试")));
+
+        //一次删除所有变更运单的缓存，并批量通知其他实例
+        waybillCache.evictAll(updatedNos);
+        result.getItems().sort(Comparator.comparingInt(WaybillBatchResult.Item::getIndex));
+        return result;
+    }
 
+    private static void applyPlan(WaybillBatchResult result, String waybillNo, List<Integer> indexes, String[] plan) {
+        for (int k=0;k<indexes.size();k++){
+            if (plan[k]==null){
+                result.success(indexes.get(k),waybillNo);
+            }else {
+                result.fail(indexes.get(k),waybillNo,plan[k]);
+            }
+        }
+    }
+
+    //修改前确认最新状态，不能读从库
+    private Waybill findInDatabase(String waybillNo) {
+        return ReadRouting.onPrimary(()->waybillRepository.findByWaybillNo(waybillNo))
+                .orElseThrow(()->new IllegalArgumentException("运单不存在：" + waybillNo));
     }
 
     @Override
     public Optional<Waybill> getByWaybillNo(String waybillNo) {
-        Waybill cachedWaybill=redisTemplate.opsForValue().get(WAYBILL_KEY+waybillNo);
-        if(cachedWaybill!=null){
-            return Optional.of(cachedWaybill);
-        }
-        //查数据库
-        Optional<Waybill> dbwaybill=waybillRepository.findByWaybillNo(waybillNo);
-        dbwaybill.ifPresent(waybill -> redisTemplate.opsForValue().set(
-                WAYBILL_KEY+waybill.getWaybillNo(),
-                waybill,
-                WAYBILL_EXPIRE_TIME,
-                TimeUnit.MINUTES
-        ));
-        return dbwaybill;
+        //先查本地缓存，再查Redis，都未命中时查数据库（同一运单号并发只查一次）
+        return waybillCache.get(waybillNo,waybillRepository::findByWaybillNo);
 
     }
 
+    /**
+     * 先查本地缓存，再一次管道批量查Redis，都未命中的一次IN查询（每个分表每1000个一次）并回填两级缓存；
+     * 批量查询中没有的（可能已归档或不存在）再逐个走单条查询，经布隆过滤器，不存在的不会查库
+     * 刚修改过的运单查主库，其余允许读到从库复制延迟内的旧数据；不在事务中执行，两类查询各自选库
+     */
     @Override
-    public List<Waybill> getAllWaybills() {
+    public List<Waybill> getByWaybillNos(List<String> waybillNos) {
+        if (waybillNos==null||waybillNos.isEmpty()){
+            return List.of();
+        }
+        if (waybillNos.size()>MAX_BATCH_SIZE){
+            throw new IllegalArgumentException("单次最多查询"+MAX_BATCH_SIZE+"个运单");
+        }
+        Map<String,Waybill> found=new HashMap<>(waybillNos.size()*2);
+        List<String> localMisses=new ArrayList<>();
+        for (String waybillNo:new LinkedHashSet<>(waybillNos)){
+            if (waybillNo==null||waybillCache.isMalformed(waybillNo)){
+                continue;
+            }
+            CachedWaybill local=waybillCache.getLocal(waybillNo,waybillRepository::findByWaybillNo);
+            if (local==null){
+                localMisses.add(waybillNo);
+            } else if (local.getWaybill()!=null){
+                found.put(waybillNo,local.getWaybill());
+            }
+        }
+        Map<String,CachedWaybill> remote=waybillCache.getRemoteAll(localMisses);
+        List<String> recent=new ArrayList<>();
+        List<String> misses=new ArrayList<>();
+        for (String waybillNo:localMisses){
+            CachedWaybill cached=remote.get(waybillNo);
+            if (cached!=null){
+                if (cached.getWaybill()!=null){
+                    found.put(waybillNo,cached.getWaybill());
+                }
+            } else {
+                (waybillCache.isRecentlyWritten(waybillNo)?recent:misses).add(waybillNo);
+            }
+        }
+        List<Waybill> loaded=new ArrayList<>();
+        if (!recent.isEmpty()){
+            loaded.addAll(ReadRouting.onPrimary(()->waybillJdbcRepository.findByWaybillNos(recent)));
+        }
+        if (!misses.isEmpty()){
+            loaded.addAll(waybillJdbcRepository.findByWaybillNos(misses));
+        }
+        if (!loaded.isEmpty()){
+            waybillCache.fillAll(loaded);
+            loaded.forEach(waybill->found.put(waybill.getWaybillNo(),waybill));
+        }
+        for (String waybillNo:localMisses){
+            if (!remote.containsKey(waybillNo)&&!found.containsKey(waybillNo)){
+                waybillCache.get(waybillNo,waybillRepository::findByWaybillNo)
+                        .ifPresent(waybill->found.put(waybillNo,waybill));
+            }
+        }
+        List<Waybill> waybills=new ArrayList<>(found.size());
+        for (String waybillNo:new LinkedHashSet<>(waybillNos)){
+            Waybill waybill=found.get(waybillNo);
+            if (waybill!=null){
+                waybills.add(waybill);
+            }
+        }
+        return waybills;
+    }
+
+    //列表和导出允许读到从库复制延迟内的旧数据
+    @Override
+    @Transactional(readOnly = true)
+    public WaybillPage listWaybills(WaybillQuery query) {
+        int size = query.pageSize();
+        //多查一条判断是否还有下一页
+        List<Waybill> waybills = waybillJdbcRepository.findPage(query, size + 1);
+        boolean hasMore = waybills.size() > size;
+        if (hasMore) {
+            waybills = waybills.subList(0, size);
+        }
+        Long nextCursor = hasMore ? waybills.get(waybills.size() - 1).getId() : null;
+        return new WaybillPage(waybills, nextCursor, hasMore);
+    }
 
-        return waybillRepository.findAll();
+    @Override
+    @Transactional(readOnly = true)
+    public long exportWaybills(WaybillQuery query, WaybillExportFormat format, OutputStream out) {
+        WaybillExportWriter writer = new WaybillExportWriter(format, out, objectMapper);
+        waybillJdbcRepository.stream(query, writer);
+        writer.flush();
+        log.info("导出运单{}条，格式：{}", writer.getCount(), format);
+        return writer.getCount();
     }
 }
@@ -0,0 +1,130 @@
+package com.logistics.platform.distribution.waybill.service.impl;
+
+import com.logistics.platform.distribution.waybill.cache.WaybillCache;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.StatusProjection;
+import com.logistics.platform.distribution.waybill.repository.WaybillStatusLogRepository;
+import com.logistics.platform.distribution.waybill.service.WaybillStatusLogService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WaybillStatusLogServiceImpl implements WaybillStatusLogService {
+
+    //重放时每批写回的运单数
+    private static final int PROJECT_CHUNK_SIZE = 1000;
+
+    private final WaybillStatusLogRepository waybillStatusLogRepository;
+    private final WaybillJdbcRepository waybillJdbcRepository;
+    private final WaybillCache waybillCache;
+    private final TransactionOperations transactionOperations;
+
+    @Override
+    public List<WaybillStatusLog> getTimeline(String waybillNo) {
+        return waybillStatusLogRepository.findTimeline(waybillNo);
+    }
+
+    /**
+     * 按 (运单号, id) 顺序流式读取全部日志，同一运单的日志连续出现，逐个折叠出最终状态后分批写回
+     * 流式读取不开启事务，独占一个连接；每批写回一个事务，使用连接池中的其他连接
+     */
+    @Override
+    public long replay() {
+        long begin = System.currentTimeMillis();
+        Projector projector = new Projector();
+        waybillStatusLogRepository.streamAll(projector);
+        projector.finish();
+        log.info("运单状态重放完成：日志{}条，运单{}个，写回{}个，耗时{}ms", projector.logs, projector.waybills,
+                projector.projected, System.currentTimeMillis() - begin);
+        return projector.waybills;
+    }
+
+    private class Projector implements Consumer<WaybillStatusLog> {
+        private final List<Folded> buffer = new ArrayList<>(PROJECT_CHUNK_SIZE);
+        private String waybillNo;
+        private WaybillStatus status;
+        private LocalDateTime updateTime;
+        private LocalDateTime actualArrivalTime;
+        private long lastLogId;
+        private long logs;
+        private long waybills;
+        private long projected;
+
+        @Override
+        public void accept(WaybillStatusLog entry) {
+            if (!entry.getWaybillNo().equals(waybillNo)) {
+                emit();
+                waybillNo = entry.getWaybillNo();
+                actualArrivalTime = null;
+            }
+            status = entry.getToStatus();
+            updateTime = entry.getCreateTime();
+            lastLogId = entry.getId();
+            if (entry.getToStatus() == WaybillStatus.DELIVERING) {
+                actualArrivalTime = entry.getEventTime();
+            }
+            logs++;
+        }
+
+        void finish() {
+            emit();
+            flush();
+        }
+
+        private void emit() {
+            if (waybillNo == null) {
+                return;
+            }
+            buffer.add(new Folded(waybillNo, status, updateTime, actualArrivalTime, lastLogId));
+            waybills++;
+            if (buffer.size() >= PROJECT_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            List<String> waybillNos = new ArrayList<>(buffer.size());
+            for (Folded folded : buffer) {
+                waybillNos.add(folded.waybillNo());
+            }
+            //与单条状态流转相同的条件更新：先读当前状态，写回时状态已被修改的运单跳过
+            int[] counts = transactionOperations.execute(tx -> {
+                Map<String, WaybillStatus> current = waybillJdbcRepository.findStatuses(waybillNos);
+                List<StatusProjection> projections = new ArrayList<>(buffer.size());
+                for (Folded folded : buffer) {
+                    WaybillStatus expected = current.get(folded.waybillNo());
+                    if (expected != null) {
+                        projections.add(new StatusProjection(folded.waybillNo(), expected, folded.status(),
+                                folded.updateTime(), folded.actualArrivalTime(), folded.lastLogId()));
+                    }
+                }
+                return waybillJdbcRepository.batchProjectStatus(projections);
+            });
+            for (int count : counts) {
+                projected += Math.max(count, 0);
+            }
+            waybillCache.evictAll(waybillNos);
+            buffer.clear();
+        }
+    }
+
+    //一个运单的日志折叠出的结果
+    private record Folded(String waybillNo, WaybillStatus status, LocalDateTime updateTime,
+                          LocalDateTime actualArrivalTime, long lastLogId) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.logistics.platform.distribution.waybill.sharding;
+
+import com.logistics.platform.distribution.waybill.repository.WaybillShardRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 分表的桶映射：各实例定时从 waybill_shard_bucket 刷新路由，重新分片时由执行的实例逐桶在线迁移
+ * 迁移一个桶的过程：
+ * 1. 标记为迁移中，等待所有实例刷新到该状态（此后这些实例对该桶的写入会在事务中锁定桶行并以映射表为准，读取两个分表都查）；
+ *    刷新失败的实例在映射过期后对所有桶都按迁移中写入，不会按过期的映射写入已迁走的桶
+ * 2. 在一个事务中锁定桶行，复制到新表、删除原表中的行并修改映射，期间该桶的写入等待
+ * 迁移期间列表查询可能漏掉或重复个别运单（重复的已按ID去除），按运单号的查询和写入不受影响
+ */
+@Slf4j
+public class WaybillResharder {
+
+    //每批同时标记迁移的桶数，标记后统一等待一次刷新
+    private static final int BATCH_BUCKETS = 64;
+
+    private final WaybillShardRouter shardRouter;
+    private final WaybillShardRepository shardRepository;
+    private final TransactionOperations transactionOperations;
+    //标记后等待其他实例刷新的时间，需大于路由的 maxStaleness
+    private final Duration propagationDelay;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public WaybillResharder(WaybillShardRouter shardRouter, WaybillShardRepository shardRepository,
+                            TransactionOperations transactionOperations, Duration propagationDelay) {
+        this.shardRouter = shardRouter;
+        this.shardRepository = shardRepository;
+        this.transactionOperations = transactionOperations;
+        this.propagationDelay = propagationDelay;
+    }
+
+    /**
+     * 映射表为空时写入初始映射（全部在分表0），然后加载
+     */
+    public void initialize() {
+        try {
+            if (shardRepository.initialize()) {
+                log.info("已初始化运单分表桶映射，共{}个桶", WaybillShardRouter.BUCKETS);
+            }
+        } catch (DuplicateKeyException e) {
+            //其他实例已初始化
+        }
+        load();
+    }
+
+    @Scheduled(fixedDelayString = "${waybill.sharding.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            load();
+        } catch (RuntimeException e) {
+            log.warn("刷新运单分表映射失败，沿用当前映射，过期后写入全部按迁移中处理：{}", e.getMessage());
+        }
+    }
+
+    private void load() {
+        long loadedAt = System.nanoTime();
+        shardRouter.apply(shardRepository.findAll(), loadedAt);
+    }
+
+    /**
+     * 把全部桶重新均匀分布到前 shards 个分表（桶号取模），只迁移位置发生变化的桶
+     * 同一时刻只允许一个重新分片任务；中途失败后可重新执行，已迁移的桶不会重复迁移
+     */
+    public ReshardResult reshard(int shards) {
+        if (shards < 1 || shards > shardRouter.getTableCount()) {
+            throw new IllegalArgumentException("分表数须在[1," + shardRouter.getTableCount() + "]之间：" + shards);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("重新分片正在进行中");
+        }
+        try {
+            long begin = System.currentTimeMillis();
+            load();
+            List<Integer> pending = new ArrayList<>();
+            for (int bucket = 0; bucket < WaybillShardRouter.BUCKETS; bucket++) {
+                if (shardRouter.shardOf(bucket) != bucket % shards) {
+                    pending.add(bucket);
+                }
+            }
+            long waybills = 0;
+            for (int from = 0; from < pending.size(); from += BATCH_BUCKETS) {
+                waybills += moveBatch(pending.subList(from, Math.min(from + BATCH_BUCKETS, pending.size())), shards);
+                log.info("运单重新分片进度：{}/{}个桶", Math.min(from + BATCH_BUCKETS, pending.size()), pending.size());
+            }
+            ReshardResult result = new ReshardResult(shards, pending.size(), waybills,
+                    System.currentTimeMillis() - begin);
+            log.info("运单重新分片完成：{}", result);
+            return result;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long moveBatch(List<Integer> buckets, int shards) {
+        Map<Integer, List<Integer>> byTarget = new HashMap<>();
+        for (int bucket : buckets) {
+            byTarget.computeIfAbsent(bucket % shards, k -> new ArrayList<>()).add(bucket);
+        }
+        byTarget.forEach((target, targetBuckets) -> shardRepository.markMoving(targetBuckets, target));
+        refresh();
+        sleep(propagationDelay);
+
+        long moved = 0;
+        for (int bucket : buckets) {
+            int from = shardRouter.shardOf(bucket);
+            int to = bucket % shards;
+            Integer rows = transactionOperations.execute(tx -> shardRepository.moveBucket(bucket, from, to));
+            if (rows != null && rows > 0) {
+                moved += rows;
+            }
+        }
+        refresh();
+        return moved;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("重新分片被中断", e);
+        }
+    }
+
+    /**
+     * @param buckets  迁移的桶数
+     * @param waybills 迁移的运单数
+     */
+    public record ReshardResult(int shards, int buckets, long waybills, long millis) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.logistics.platform.distribution.waybill.sharding;
+
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 运单分表路由：运单ID（即运单号的数字部分）对 BUCKETS 取模得到桶，桶再映射到分表
+ * 桶号由运单号本身决定，查询不需要额外的映射表；扩容时以桶为单位在分表间迁移，只修改桶到分表的映射
+ * 分表0为原有的 waybill 表，其余为 waybill_1、waybill_2 …，都在同一个库中，与状态日志、发件箱共用事务
+ * 映射可在运行中整体替换，读取方无需加锁
+ * 映射超过 maxStaleness 未刷新成功时，本实例可能错过了迁移标记，写入一律按迁移中处理，以映射表为准
+ */
+public class WaybillShardRouter {
+
+    //质数，Snowflake ID的低位是毫秒内序列号，对质数取模才能让各段位都参与分布；与分表上 shard_bucket 生成列一致
+    public static final int BUCKETS = 1021;
+    public static final String BASE_TABLE = "waybill";
+    private static final int NOT_MOVING = -1;
+
+    private final String[] tables;
+    //0表示不检查映射是否过期
+    private final long maxStalenessNanos;
+    private volatile Layout layout;
+    //最近一次成功加载的映射开始读取的时间
+    private volatile long loadedAt;
+
+    /**
+     * @param tables 分表数，全部桶初始都在分表0
+     */
+    public WaybillShardRouter(int tables) {
+        this(tables, Duration.ZERO);
+    }
+
+    /**
+     * @param tables       分表数，全部桶初始都在分表0
+     * @param maxStaleness 映射未刷新超过这段时间即视为过期，须小于迁移标记后等待各实例刷新的时间；
+     *                     启用时首次加载映射前也视为过期
+     */
+    public WaybillShardRouter(int tables, Duration maxStaleness) {
+        if (tables < 1) {
+            throw new IllegalArgumentException("分表数必须大于0：" + tables);
+        }
+        this.tables = new String[tables];
+        for (int i = 0; i < tables; i++) {
+            this.tables[i] = tableName(i);
+        }
+        int[] targets = new int[BUCKETS];
+        Arrays.fill(targets, NOT_MOVING);
+        this.layout = new Layout(new int[BUCKETS], targets);
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.loadedAt = System.nanoTime() - maxStalenessNanos - 1;
+    }
+
+    /**
+     * 单表，等同于分表前
+     */
+    public static WaybillShardRouter single() {
+        return new WaybillShardRouter(1);
+    }
+
+    /**
+     * 按桶号取模均匀分布到全部分表，用于测试和基准测试
+     */
+    public static WaybillShardRouter modulo(int tables) {
+        WaybillShardRouter router = new WaybillShardRouter(tables);
+        List<BucketAssignment> assignments = new ArrayList<>(BUCKETS);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            assignments.add(new BucketAssignment(bucket, bucket % tables, null));
+        }
+        router.apply(assignments);
+        return router;
+    }
+
+    public static String tableName(int shard) {
+        return shard == 0 ? BASE_TABLE : BASE_TABLE + "_" + shard;
+    }
+
+    public static int bucketOf(long id) {
+        return (int) Math.floorMod(id, (long) BUCKETS);
+    }
+
+    /**
+     * @throws IllegalArgumentException 运单号格式不合法时抛出
+     */
+    public static int bucketOf(String waybillNo) {
+        return bucketOf(WaybillNoGenerator.parseId(waybillNo));
+    }
+
+    public int shardOf(int bucket) {
+        return layout.shards[bucket];
+    }
+
+    /**
+     * 正在迁往的分表，未在迁移时返回-1
+     */
+    public int movingTo(int bucket) {
+        return layout.targets[bucket];
+    }
+
+    public boolean isMoving(int bucket) {
+        return layout.targets[bucket] != NOT_MOVING;
+    }
+
+    /**
+     * 映射是否已过期（长时间未刷新成功）
+     */
+    public boolean isStale() {
+        return maxStalenessNanos > 0 && System.nanoTime() - loadedAt > maxStalenessNanos;
+    }
+
+    /**
+     * 写入该桶时是否须锁定桶行并以映射表为准：桶正在迁移，或映射已过期
+     */
+    public boolean mustLock(int bucket) {
+        return isMoving(bucket) || isStale();
+    }
+
+    public int getTableCount() {
+        return tables.length;
+    }
+
+    public String table(int shard) {
+        return tables[shard];
+    }
+
+    /**
+     * 替换桶映射，未出现在 assignments 中的桶保持不变
+     */
+    public void apply(List<BucketAssignment> assignments) {
+        apply(assignments, System.nanoTime());
+    }
+
+    /**
+     * 替换桶映射并记录加载时间
+     * @param loadedAt 开始读取映射表时的 System.nanoTime()
+     */
+    public synchronized void apply(List<BucketAssignment> assignments, long loadedAt) {
+        int[] shards = layout.shards.clone();
+        int[] targets = layout.targets.clone();
+        for (BucketAssignment assignment : assignments) {
+            checkShard(assignment.shard());
+            shards[assignment.bucket()] = assignment.shard();
+            if (assignment.movingTo() == null) {
+                targets[assignment.bucket()] = NOT_MOVING;
+            } else {
+                checkShard(assignment.movingTo());
+                targets[assignment.bucket()] = assignment.movingTo();
+            }
+        }
+        layout = new Layout(shards, targets);
+        this.loadedAt = loadedAt;
+    }
+
+    private void checkShard(int shard) {
+        if (shard < 0 || shard >= tables.length) {
+            throw new IllegalStateException("分表不存在：" + shard + "，当前配置的分表数为" + tables.length);
+        }
+    }
+
+    /**
+     * 桶的当前位置，movingTo非空表示正在迁往该分表
+     */
+    public record BucketAssignment(int bucket, int shard, Integer movingTo) {
+    }
+
+    private record Layout(int[] shards, int[] targets) {
+    }
+}
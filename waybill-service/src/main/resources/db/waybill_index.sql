@@ -0,0 +1,9 @@
+-- 运单表索引（ddl-auto=none，需手动执行）
+-- 分页查询按 WHERE 条件 AND id > ? ORDER BY id LIMIT n 执行，等值条件在前、id在后，可直接按索引顺序取前n条
+-- 大表建议使用 pt-online-schema-change / gh-ost 执行
+ALTER TABLE waybill
+    ADD UNIQUE INDEX uk_waybill_no (waybill_no),
+    ADD INDEX idx_status_id (status, id),
+    ADD INDEX idx_warehouse_status_id (warehouse_id, status, id),
+    ADD INDEX idx_deliveryman_status_id (deliveryman_id, status, id),
+    ADD INDEX idx_create_time (create_time);
@@ -0,0 +1,10 @@
+-- 运单变更事件发件箱，与运单、状态日志在同一事务中写入，由中继按id顺序发布后删除
+-- 正常情况下只保留尚未发布的少量数据，积压时按主键顺序读取
+CREATE TABLE IF NOT EXISTS waybill_outbox (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    waybill_no  VARCHAR(32) NOT NULL,
+    event_type  VARCHAR(32) NOT NULL,
+    payload     TEXT        NOT NULL,
+    create_time DATETIME(3) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,19 @@
+-- 运单分表（waybill.sharding.tables > 1 时需先执行），分表0即原 waybill 表，示例为4张分表
+-- 按 MOD(id, 1021) 分为1021个桶，桶到分表的映射存在 waybill_shard_bucket，由服务启动时初始化（全部在分表0）
+-- 建表后调用 POST /waybill/sharding/reshard?shards=4 在线迁移
+-- 增加分表时先建表并调大 waybill.sharding.tables、重启各实例，再重新分片
+ALTER TABLE waybill
+    ADD COLUMN shard_bucket SMALLINT AS (MOD(id, 1021)) STORED,
+    ADD INDEX idx_shard_bucket (shard_bucket);
+
+CREATE TABLE IF NOT EXISTS waybill_1 LIKE waybill;
+CREATE TABLE IF NOT EXISTS waybill_2 LIKE waybill;
+CREATE TABLE IF NOT EXISTS waybill_3 LIKE waybill;
+
+-- target_shard 非空表示该桶正在迁往该分表
+CREATE TABLE IF NOT EXISTS waybill_shard_bucket (
+    bucket       SMALLINT NOT NULL,
+    shard        SMALLINT NOT NULL,
+    target_shard SMALLINT NULL,
+    PRIMARY KEY (bucket)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,12 @@
+-- 运单状态变更日志（只追加），状态按枚举序号存储，与 waybill.status 一致
+-- 自增主键保证顺序写入；(waybill_no, id) 覆盖单运单时间线查询和按运单重放
+CREATE TABLE IF NOT EXISTS waybill_status_log (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    waybill_no  VARCHAR(32) NOT NULL,
+    from_status TINYINT     NOT NULL,
+    to_status   TINYINT     NOT NULL,
+    event_time  DATETIME(3) NOT NULL,
+    create_time DATETIME(3) NOT NULL,
+    PRIMARY KEY (id),
+    KEY idx_waybill_no_id (waybill_no, id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,151 @@
+package com.logistics.platform.distribution.waybill.archive;
+
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import com.logistics.platform.distribution.waybill.repository.ShardedWaybillRepositoryImpl;
+import com.logistics.platform.distribution.waybill.repository.WaybillArchiveRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.sharding.WaybillShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 运单归档：H2内存库（MySQL模式）中建运单表，归档表由归档任务自动建立
+ */
+public class WaybillArchiverTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 15, 12, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private WaybillJdbcRepository waybillJdbcRepository;
+    private WaybillArchiveRepository archiveRepository;
+
+    @BeforeEach
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:archive;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("CREATE TABLE waybill (id BIGINT PRIMARY KEY, " +
+                "waybill_no VARCHAR(32) NOT NULL UNIQUE, customer_id BIGINT, sender_name VARCHAR(64), " +
+                "sender_phone VARCHAR(32), sender_address VARCHAR(255), receiver_name VARCHAR(64), " +
+                "receiver_phone VARCHAR(32), receiver_address VARCHAR(255), goods_type VARCHAR(32), " +
+                "weight DECIMAL(10,2), volume DECIMAL(10,2), amount DECIMAL(10,2), status INT, warehouse_id BIGINT, " +
+                "deliveryman_id BIGINT, estimated_arrival_time TIMESTAMP, actual_arrival_time TIMESTAMP, " +
+                "create_time TIMESTAMP, update_time TIMESTAMP)");
+        waybillJdbcRepository = new WaybillJdbcRepository(jdbcTemplate);
+        archiveRepository = new WaybillArchiveRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private WaybillArchiver archiver(int batchSize, long maxRowsPerRun) {
+        return new WaybillArchiver(WaybillShardRouter.single(), archiveRepository, transactionTemplate, null,
+                Runnable::run, Duration.ofDays(30), batchSize, Duration.ZERO, maxRowsPerRun, Duration.ofHours(1),
+                new SimpleMeterRegistry());
+    }
+
+    //创建时间即运单号中的时间戳，seq 区分同一时刻的运单
+    private Waybill insert(LocalDateTime createTime, LocalDateTime updateTime, WaybillStatus status, int seq) {
+        long id = WaybillNoGenerator.minIdAt(createTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()) + seq;
+        Waybill waybill = new Waybill();
+        waybill.setId(id);
+        waybill.setWaybillNo(WaybillNoGenerator.toWaybillNo(id));
+        waybill.setReceiverName("李四");
+        waybill.setStatus(status);
+        waybill.setCreateTime(createTime);
+        waybill.setUpdateTime(updateTime);
+        waybillJdbcRepository.insert(waybill);
+        return waybill;
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    /**
+     * 测试：只归档最后修改早于期限的终态运单，按运单生成月份进入各自的归档表；
+     * 归档后按运单号仍能查到，全部运单号包含已归档的
+     */
+    @Test
+    public void testArchivesOldTerminalWaybillsByMonth() {
+        Waybill delivered = insert(LocalDateTime.of(2025, 3, 10, 8, 0), LocalDateTime.of(2025, 3, 12, 9, 0),
+                WaybillStatus.DELIVERED, 1);
+        Waybill cancelled = insert(LocalDateTime.of(2025, 4, 20, 8, 0), LocalDateTime.of(2025, 4, 21, 9, 0),
+                WaybillStatus.CANCELLED, 1);
+        Waybill delivering = insert(LocalDateTime.of(2025, 3, 11, 8, 0), LocalDateTime.of(2025, 3, 11, 9, 0),
+                WaybillStatus.DELIVERING, 1);
+        Waybill recent = insert(LocalDateTime.of(2025, 5, 20, 8, 0), LocalDateTime.of(2025, 6, 1, 9, 0),
+                WaybillStatus.DELIVERED, 1);
+        Waybill recentlyUpdated = insert(LocalDateTime.of(2025, 4, 1, 8, 0), LocalDateTime.of(2025, 6, 10, 9, 0),
+                WaybillStatus.DELIVERED, 1);
+
+        WaybillArchiver.ArchiveResult result = archiver(100, 1000).archive(NOW);
+
+        assertEquals(2, result.waybills());
+        assertEquals(3, count("waybill"));
+        assertEquals(1, count(WaybillArchiveRepository.tableName(YearMonth.of(2025, 3))));
+        assertEquals(1, count(WaybillArchiveRepository.tableName(YearMonth.of(2025, 4))));
+        assertEquals(List.of(YearMonth.of(2025, 3), YearMonth.of(2025, 4)), archiveRepository.findPartitions());
+
+        ShardedWaybillRepositoryImpl repository = new ShardedWaybillRepositoryImpl(waybillJdbcRepository,
+                archiveRepository);
+        Waybill archived = repository.findByWaybillNo(delivered.getWaybillNo()).orElseThrow();
+        assertEquals(WaybillStatus.DELIVERED, archived.getStatus());
+        assertEquals("李四", archived.getReceiverName());
+        assertEquals(delivered.getUpdateTime(), archived.getUpdateTime());
+        assertEquals(WaybillStatus.CANCELLED, repository.findByWaybillNo(cancelled.getWaybillNo()).orElseThrow().getStatus());
+        assertTrue(repository.findByWaybillNo(delivering.getWaybillNo()).isPresent());
+        assertTrue(repository.findByWaybillNo(WaybillNoGenerator.toWaybillNo(delivered.getId() + 1)).isEmpty());
+
+        try (Stream<String> waybillNos = repository.streamAllWaybillNos()) {
+            assertEquals(Stream.of(delivered, cancelled, delivering, recent, recentlyUpdated)
+                    .map(Waybill::getWaybillNo).collect(Collectors.toSet()), waybillNos.collect(Collectors.toSet()));
+        }
+        //已归档的不会重复归档
+        assertEquals(0, archiver(100, 1000).archive(NOW).waybills());
+    }
+
+    /**
+     * 测试：按批归档，单次运行达到上限后停止，下次从剩余的继续
+     */
+    @Test
+    public void testRunStopsAtLimitAndResumes() {
+        for (int i = 0; i < 25; i++) {
+            insert(LocalDateTime.of(2025, 2, 1 + i, 8, 0), LocalDateTime.of(2025, 2, 1 + i, 18, 0),
+                    WaybillStatus.DELIVERED, i);
+        }
+        WaybillArchiver archiver = archiver(10, 15);
+
+        WaybillArchiver.ArchiveResult first = archiver.archive(NOW);
+        assertEquals(15, first.waybills());
+        assertEquals(2, first.batches());
+        assertEquals(10, count("waybill"));
+
+        assertEquals(10, archiver.archive(NOW).waybills());
+        assertEquals(0, count("waybill"));
+        assertEquals(25, count(WaybillArchiveRepository.tableName(YearMonth.of(2025, 2))));
+        assertEquals(0, archiver.archive(NOW).waybills());
+    }
+}
@@ -0,0 +1,172 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class ReactiveWaybillCacheTest {
+
+    private static final String WAYBILL_NO = "WB20251204153000123";
+
+    @Mock
+    private RedisTemplate<String, Waybill> redisTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> stringValueOperations;
+
+    @Mock
+    private ReactiveRedisTemplate<String, Waybill> reactiveRedisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, Waybill> reactiveValueOperations;
+
+    @Mock
+    private WaybillBloomFilter bloomFilter;
+
+    private WaybillCache waybillCache;
+
+    private ReactiveWaybillCache reactiveWaybillCache;
+
+    @BeforeEach
+    public void setup() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(stringValueOperations);
+        when(reactiveRedisTemplate.opsForValue()).thenReturn(reactiveValueOperations);
+        when(bloomFilter.mightContain(anyString())).thenReturn(true);
+        mockRedis(null, null, false);
+        waybillCache = new WaybillCache(Caffeine.newBuilder().maximumSize(100).recordStats().build(),
+                redisTemplate, stringRedisTemplate, bloomFilter, Runnable::run, 1.0);
+        // 测试中查库在调用线程上同步执行
+        reactiveWaybillCache = new ReactiveWaybillCache(waybillCache, reactiveRedisTemplate, Schedulers.immediate());
+    }
+
+    // 响应式读取的返回值：运单、剩余过期时间、空值标记
+    private void mockRedis(Waybill waybill, Duration ttl, boolean nullMarker) {
+        when(reactiveValueOperations.get(WaybillCache.WAYBILL_KEY + WAYBILL_NO)).thenReturn(Mono.justOrEmpty(waybill));
+        when(reactiveRedisTemplate.getExpire(WaybillCache.WAYBILL_KEY + WAYBILL_NO)).thenReturn(Mono.justOrEmpty(ttl));
+        when(reactiveRedisTemplate.hasKey(WaybillCache.NULL_KEY + WAYBILL_NO)).thenReturn(Mono.just(nullMarker));
+    }
+
+    /**
+     * 测试：L1命中时不访问Redis
+     */
+    @Test
+    public void testLocalHitSkipsRedis() {
+        Waybill waybill = newWaybill();
+        waybillCache.getLocalCache().put(WAYBILL_NO, CachedWaybill.of(waybill, Long.MAX_VALUE, 0));
+        CountingLoader loader = new CountingLoader(Optional.empty());
+
+        assertSame(waybill, reactiveWaybillCache.get(WAYBILL_NO, loader).block());
+
+        verifyNoInteractions(reactiveValueOperations);
+        verify(reactiveRedisTemplate, never()).hasKey(anyString());
+        assertEquals(0, loader.calls.get());
+    }
+
+    /**
+     * 测试：Redis命中后回填L1，阻塞和非阻塞读取共用该条目
+     */
+    @Test
+    public void testRedisHitFillsLocalCache() {
+        Waybill waybill = newWaybill();
+        mockRedis(waybill, Duration.ofMinutes(20), false);
+        CountingLoader loader = new CountingLoader(Optional.empty());
+
+        assertSame(waybill, reactiveWaybillCache.get(WAYBILL_NO, loader).block());
+        assertSame(waybill, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+
+        verify(reactiveValueOperations, times(1)).get(WaybillCache.WAYBILL_KEY + WAYBILL_NO);
+        assertEquals(0, loader.calls.get());
+    }
+
+    /**
+     * 测试：其他实例写入的空值标记直接返回空，不查库
+     */
+    @Test
+    public void testRemoteNullMarker() {
+        mockRedis(null, null, true);
+        CountingLoader loader = new CountingLoader(Optional.of(newWaybill()));
+
+        assertNull(reactiveWaybillCache.get(WAYBILL_NO, loader).block());
+        assertEquals(0, loader.calls.get());
+        assertNotNull(waybillCache.getLocalCache().getIfPresent(WAYBILL_NO));
+    }
+
+    /**
+     * 测试：两级都未命中时在查库线程池中查库，再次查询命中L1
+     */
+    @Test
+    public void testMissLoadsFromDatabase() {
+        Waybill waybill = newWaybill();
+        CountingLoader loader = new CountingLoader(Optional.of(waybill));
+
+        assertSame(waybill, reactiveWaybillCache.get(WAYBILL_NO, loader).block());
+        assertSame(waybill, reactiveWaybillCache.get(WAYBILL_NO, loader).block());
+
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, waybillCache.getLoadCount());
+    }
+
+    /**
+     * 测试：格式不合法的运单号不访问Redis和数据库
+     */
+    @Test
+    public void testMalformedRejected() {
+        CountingLoader loader = new CountingLoader(Optional.of(newWaybill()));
+
+        assertNull(reactiveWaybillCache.get("WB' or 1=1", loader).block());
+
+        verifyNoInteractions(reactiveValueOperations);
+        assertEquals(0, loader.calls.get());
+        assertEquals(1, waybillCache.getRejectedCount());
+    }
+
+    private Waybill newWaybill() {
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo(WAYBILL_NO);
+        waybill.setSenderName("张三");
+        return waybill;
+    }
+
+    // 模拟查库，记录调用次数
+    private static class CountingLoader implements Function<String, Optional<Waybill>> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Optional<Waybill> result;
+
+        CountingLoader(Optional<Waybill> result) {
+            this.result = result;
+        }
+
+        @Override
+        public Optional<Waybill> apply(String waybillNo) {
+            calls.incrementAndGet();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.logistics.platform.distribution.waybill.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.logistics.platform.distribution.waybill.datasource.ReadRouting;
+import com.logistics.platform.distribution.waybill.datasource.RecentWriteTracker;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class WaybillCacheTest {
+
+    private static final String WAYBILL_NO = "WB20251204153000123";
+
+    @Mock
+    private RedisTemplate<String, Waybill> redisTemplate;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> stringValueOperations;
+
+    @Mock
+    private WaybillBloomFilter bloomFilter;
+
+    private WaybillCache waybillCache;
+
+    @BeforeEach
+    public void setup() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(stringValueOperations);
+        when(bloomFilter.mightContain(anyString())).thenReturn(true);
+        mockRedis(null, -2L, false);
+        waybillCache = newCache();
+    }
+
+    private WaybillCache newCache() {
+        return new WaybillCache(Caffeine.newBuilder().maximumSize(100).recordStats().build(),
+                redisTemplate, stringRedisTemplate, bloomFilter, Runnable::run, 1.0);
+    }
+
+    // 管道读取的返回值：运单、剩余过期毫秒数、空值标记
+    @SuppressWarnings("unchecked")
+    private void mockRedis(Waybill waybill, long ttl, boolean nullMarker) {
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(Arrays.asList(waybill, ttl, nullMarker));
+    }
+
+    /**
+     * 测试：Redis命中后回填L1，再次查询不再访问Redis和数据库
+     */
+    @Test
+    public void testRedisHitFillsLocalCache() {
+        Waybill waybill = newWaybill();
+        mockRedis(waybill, TimeUnit.MINUTES.toMillis(20), false);
+        CountingLoader loader = new CountingLoader(Optional.empty());
+
+        assertSame(waybill, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+        assertSame(waybill, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        assertEquals(0, loader.calls.get());
+        assertEquals(1, waybillCache.getLocalCache().stats().hitCount());
+        assertEquals(1, waybillCache.getRemoteHitCount());
+    }
+
+    /**
+     * 测试：两级都未命中时查库并回填
+     */
+    @Test
+    public void testMissLoadsFromDatabase() {
+        Waybill waybill = newWaybill();
+        CountingLoader loader = new CountingLoader(Optional.of(waybill));
+
+        assertSame(waybill, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+        assertSame(waybill, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+
+        assertEquals(1, loader.calls.get());
+        assertEquals(1, waybillCache.getLoadCount());
+        assertEquals(1, waybillCache.getRemoteMissCount());
+    }
+
+    /**
+     * 测试：击穿——热点运单过期瞬间200个并发请求，只有一次查库
+     */
+    @Test
+    public void testThunderingHerdLoadsOnce() throws Exception {
+        int threads = 200;
+        Waybill waybill = newWaybill();
+        CountingLoader loader = new CountingLoader(Optional.of(waybill), 100);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Optional<Waybill>>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return waybillCache.get(WAYBILL_NO, loader);
+                }));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<Optional<Waybill>> future : futures) {
+                assertSame(waybill, future.get(10, TimeUnit.SECONDS).orElseThrow());
+            }
+            double seconds = (System.nanoTime() - begin) / 1e9;
+            // 200个请求只产生1次数据库查询
+            assertEquals(1, loader.calls.get(), "DB queries/s = " + loader.calls.get() / seconds);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 测试：穿透——不存在的运单查库一次后写入空值缓存
+     */
+    @Test
+    public void testAbsentWaybillIsNegativeCached() {
+        CountingLoader loader = new CountingLoader(Optional.empty());
+
+        assertTrue(waybillCache.get(WAYBILL_NO, loader).isEmpty());
+        assertTrue(waybillCache.get(WAYBILL_NO, loader).isEmpty());
+
+        assertEquals(1, loader.calls.get());
+        verify(stringValueOperations).set(WaybillCache.NULL_KEY + WAYBILL_NO, "1", WaybillCache.NULL_EXPIRE_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 测试：其他实例写入的空值标记同样生效
+     */
+    @Test
+    public void testRemoteNullMarker() {
+        mockRedis(null, -2L, true);
+        CountingLoader loader = new CountingLoader(Optional.of(newWaybill()));
+
+        assertTrue(waybillCache.get(WAYBILL_NO, loader).isEmpty());
+        assertEquals(0, loader.calls.get());
+        assertEquals(1, waybillCache.getRemoteAbsentCount());
+    }
+
+    /**
+     * 测试：格式不合法、布隆过滤器判定不存在的运单号不查库
+     */
+    @Test
+    public void testRejectedWithoutDatabase() {
+        CountingLoader loader = new CountingLoader(Optional.of(newWaybill()));
+        when(bloomFilter.mightContain(WAYBILL_NO)).thenReturn(false);
+
+        assertTrue(waybillCache.get("WB' or 1=1", loader).isEmpty());
+        assertTrue(waybillCache.get(WAYBILL_NO, loader).isEmpty());
+
+        assertEquals(0, loader.calls.get());
+        assertEquals(2, waybillCache.getRejectedCount());
+    }
+
+    /**
+     * 测试：L1条目对应的Redis条目即将过期时提前刷新
+     */
+    @Test
+    public void testEarlyRefreshNearExpiry() throws InterruptedException {
+        Waybill stale = newWaybill();
+        Waybill fresh = newWaybill();
+        fresh.setSenderName("王五");
+        // Redis中剩余1毫秒
+        mockRedis(stale, 1L, false);
+        CountingLoader loader = new CountingLoader(Optional.of(fresh));
+
+        assertSame(stale, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+        Thread.sleep(5);
+        // 已过Redis过期时间，命中L1时必然触发刷新（测试中刷新线程池为同步执行）
+        assertSame(stale, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+        assertEquals(1, loader.calls.get());
+        assertSame(fresh, waybillCache.get(WAYBILL_NO, loader).orElseThrow());
+    }
+
+    /**
+     * 测试：修改运单后广播失效通知，其他实例收到后失效L1，本实例忽略自己的通知
+     */
+    @Test
+    public void testUpdateBroadcastsInvalidation() {
+        Waybill waybill = newWaybill();
+        waybillCache.update(waybill);
+
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).convertAndSend(eq(WaybillCache.INVALIDATION_CHANNEL), message.capture());
+        assertTrue(message.getValue().endsWith("|" + WAYBILL_NO));
+
+        // 本实例发出的通知不影响自己的L1
+        waybillCache.onInvalidationMessage(message.getValue());
+        assertNotNull(waybillCache.getLocalCache().getIfPresent(WAYBILL_NO));
+
+        // 另一个实例发出的通知使L1失效
+        WaybillCache otherInstance = newCache();
+        otherInstance.getLocalCache().put(WAYBILL_NO, CachedWaybill.of(waybill, Long.MAX_VALUE, 0));
+        otherInstance.onInvalidationMessage(message.getValue());
+        assertNull(otherInstance.getLocalCache().getIfPresent(WAYBILL_NO));
+    }
+
+    /**
+     * 测试：状态变更后删除两级缓存并广播失效通知
+     */
+    @Test
+    public void testEvictDeletesBothTiers() {
+        waybillCache.put(newWaybill());
+
+        waybillCache.evict(WAYBILL_NO);
+
+        verify(redisTemplate).delete(WaybillCache.WAYBILL_KEY + WAYBILL_NO);
+        assertNull(waybillCache.getLocalCache().getIfPresent(WAYBILL_NO));
+        verify(stringRedisTemplate).convertAndSend(eq(WaybillCache.INVALIDATION_CHANNEL), endsWith("|" + WAYBILL_NO));
+    }
+
+    /**
+     * 测试：批量删除缓存用一次多key DEL，其他实例按通知中的多个运单号失效L1
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEvictAllBroadcastsOnce() {
+        List<String> waybillNos = List.of("WB1", "WB2", "WB3");
+        waybillCache.evictAll(waybillNos);
+
+        verify(redisTemplate).delete(List.of(WaybillCache.WAYBILL_KEY + "WB1", WaybillCache.WAYBILL_KEY + "WB2", WaybillCache.WAYBILL_KEY + "WB3"));
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate, times(1)).convertAndSend(eq(WaybillCache.INVALIDATION_CHANNEL), message.capture());
+        assertTrue(message.getValue().endsWith("|WB1,WB2,WB3"));
+
+        WaybillCache otherInstance = newCache();
+        for (String waybillNo : waybillNos) {
+            otherInstance.getLocalCache().put(waybillNo, CachedWaybill.of(newWaybill(), Long.MAX_VALUE, 0));
+        }
+        otherInstance.onInvalidationMessage(message.getValue());
+        for (String waybillNo : waybillNos) {
+            assertNull(otherInstance.getLocalCache().getIfPresent(waybillNo));
+        }
+    }
+
+    /**
+     * 测试：本实例或其他实例刚修改过的运单，缓存未命中时的查库走主库；其他运单照常走从库
+     */
+    @Test
+    public void testRecentlyWrittenLoadsFromPrimary() {
+        WaybillCache cache = new WaybillCache(Caffeine.newBuilder().maximumSize(100).build(),
+                redisTemplate, stringRedisTemplate, bloomFilter, Runnable::run, 1.0,
+                new RecentWriteTracker(Duration.ofMinutes(1)));
+        Function<String, Optional<Waybill>> loader = waybillNo -> {
+            Waybill waybill = newWaybill();
+            waybill.setSenderName(ReadRouting.isPrimaryForced() ? "primary" : "replica");
+            return Optional.of(waybill);
+        };
+
+        assertEquals("replica", cache.get("WB20251204153000999", loader).orElseThrow().getSenderName());
+
+        cache.evict(WAYBILL_NO);
+        assertEquals("primary", cache.get(WAYBILL_NO, loader).orElseThrow().getSenderName());
+
+        cache.onInvalidationMessage("other-instance|WB20251204153000888");
+        assertEquals("primary", cache.get("WB20251204153000888", loader).orElseThrow().getSenderName());
+        assertFalse(ReadRouting.isPrimaryForced());
+    }
+
+    /**
+     * 测试：批量查Redis，命中的运单和空值标记回填L1，都不存在的不在结果中
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetRemoteAll() {
+        Waybill waybill = newWaybill();
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(Arrays.asList(
+                waybill, TimeUnit.MINUTES.toMillis(20), false,
+                null, -2L, true,
+                null, -2L, false));
+        List<String> waybillNos = List.of(WAYBILL_NO, "WB20251204153000999", "WB20251204153000888");
+
+        Map<String, CachedWaybill> hits = waybillCache.getRemoteAll(waybillNos);
+
+        assertEquals(2, hits.size());
+        assertSame(waybill, hits.get(WAYBILL_NO).getWaybill());
+        assertNull(hits.get("WB20251204153000999").getWaybill());
+        assertNotNull(waybillCache.getLocalCache().getIfPresent("WB20251204153000999"));
+        assertNull(waybillCache.getLocalCache().getIfPresent("WB20251204153000888"));
+        assertEquals(1, waybillCache.getRemoteHitCount());
+        assertEquals(1, waybillCache.getRemoteAbsentCount());
+        assertEquals(1, waybillCache.getRemoteMissCount());
+    }
+
+    /**
+     * 测试：查库回填只在Redis中没有时写入（SET NX），不覆盖回填前已写入的更新值；新写入的运单直接覆盖
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFillAllDoesNotOverwrite() {
+        RedisOperations<String, Waybill> operations = mock(RedisOperations.class);
+        ValueOperations<String, Waybill> valueOperations = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            invocation.getArgument(0, SessionCallback.class).execute(operations);
+            return List.of();
+        });
+        Waybill waybill = newWaybill();
+
+        waybillCache.fillAll(List.of(waybill));
+        verify(valueOperations).setIfAbsent(WaybillCache.WAYBILL_KEY + WAYBILL_NO, waybill,
+                WaybillCache.WAYBILL_EXPIRE_TIME, TimeUnit.MINUTES);
+        verify(valueOperations, never()).set(anyString(), any(), anyLong(), any(TimeUnit.class));
+
+        waybillCache.putAll(List.of(waybill));
+        verify(valueOperations).set(WaybillCache.WAYBILL_KEY + WAYBILL_NO, waybill,
+                WaybillCache.WAYBILL_EXPIRE_TIME, TimeUnit.MINUTES);
+    }
+
+    private Waybill newWaybill() {
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo(WAYBILL_NO);
+        waybill.setSenderName("张三");
+        return waybill;
+    }
+
+    // 模拟查库，记录调用次数
+    private static class CountingLoader implements Function<String, Optional<Waybill>> {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Optional<Waybill> result;
+        private final long sleepMillis;
+
+        CountingLoader(Optional<Waybill> result) {
+            this(result, 0);
+        }
+
+        CountingLoader(Optional<Waybill> result, long sleepMillis) {
+            this.result = result;
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public Optional<Waybill> apply(String waybillNo) {
+            calls.incrementAndGet();
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.logistics.platform.distribution.waybill.config;
+
+import com.logistics.platform.distribution.common.concurrent.VirtualThreads;
+import org.apache.coyote.ProtocolHandler;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.*;
+
+public class VirtualThreadConfigTest {
+
+    /**
+     * 测试：Java 21及以上时，Tomcat和MVC异步请求都在虚拟线程上执行
+     */
+    @Test
+    public void testRequestsRunOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported(), "需要Java 21及以上");
+        VirtualThreadConfig config = new VirtualThreadConfig();
+
+        ProtocolHandler protocolHandler = mock(ProtocolHandler.class);
+        config.virtualThreadProtocolHandlerCustomizer().customize(protocolHandler);
+        ArgumentCaptor<Executor> executor = ArgumentCaptor.forClass(Executor.class);
+        verify(protocolHandler).setExecutor(executor.capture());
+
+        assertTrue(runsOnVirtualThread(executor.getValue()));
+        assertTrue(runsOnVirtualThread(config.applicationTaskExecutor()));
+    }
+
+    /**
+     * 测试：低于Java 21时开启虚拟线程模式直接启动失败，不静默退回平台线程
+     */
+    @Test
+    public void testFailsFastBeforeJava21() {
+        assumeFalse(VirtualThreads.isSupported());
+        assertThrows(IllegalStateException.class, VirtualThreadConfig::new);
+    }
+
+    private static boolean runsOnVirtualThread(Executor executor) throws Exception {
+        CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+        executor.execute(() -> virtual.complete(VirtualThreads.isVirtual(Thread.currentThread())));
+        return virtual.get(5, TimeUnit.SECONDS);
+    }
+}
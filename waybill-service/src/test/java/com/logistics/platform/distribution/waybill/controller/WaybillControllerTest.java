@@ -2,23 +2,33 @@ package com.logistics.platform.distribution.waybill.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.logistics.platform.distribution.waybill.dto.WaybillBatchResult;
+import com.logistics.platform.distribution.waybill.dto.WaybillPage;
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
 import com.logistics.platform.distribution.waybill.entity.Waybill;
 import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.export.WaybillExportFormat;
 import com.logistics.platform.distribution.waybill.service.WaybillService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -88,6 +98,31 @@ public class WaybillControllerTest {
         verify(waybillService, times(1)).createWaybill(any(Waybill.class));
     }
 
+    /**
+     * 测试：POST /waybill/batch（批量创建运单接口，逐条返回结果）
+     */
+    @Test
+    public void testBatchCreateWaybills() throws Exception {
+        // 1. Mock Service返回一成功一失败
+        WaybillBatchResult mockResult = new WaybillBatchResult(2);
+        mockResult.success(0, "WB1");
+        mockResult.fail(1, null, "收件人姓名、电话和地址不能为空");
+        when(waybillService.batchCreateWaybills(anyList())).thenReturn(mockResult);
+
+        // 2. 模拟POST请求
+        mockMvc.perform(post("/waybill/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(new Waybill(), new Waybill()))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.successCount").value(1))
+                .andExpect(jsonPath("$.failureCount").value(1))
+                .andExpect(jsonPath("$.items[0].waybillNo").value("WB1"))
+                .andExpect(jsonPath("$.items[1].success").value(false));
+
+        verify(waybillService, times(1)).batchCreateWaybills(anyList());
+    }
+
     /**
      * 测试：GET /waybill/{waybillNo}（按运单号查询接口）
      * 适配你的Controller路径和返回值（存在则200，不存在则404）
@@ -142,37 +177,95 @@ public class WaybillControllerTest {
     }
 
     /**
-     * 测试：GET /waybill（查询所有运单接口）
-     * 适配你的Controller路径和返回值（ResponseEntity<List<Waybill>>）
+     * 测试：POST /waybill/batch-get（批量查询，只返回存在的运单）
+     */
+    @Test
+    public void testGetWaybillsByNos() throws Exception {
+        Waybill mockWaybill = new Waybill();
+        mockWaybill.setWaybillNo("WB20251204153000123");
+        mockWaybill.setStatus(WaybillStatus.PICKED);
+        when(waybillService.getByWaybillNos(anyList())).thenReturn(List.of(mockWaybill));
+
+        mockMvc.perform(post("/waybill/batch-get")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of("WB20251204153000123", "WB999999999999999"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].waybillNo").value("WB20251204153000123"))
+                .andExpect(jsonPath("$[0].status").value("PICKED"));
+
+        verify(waybillService, times(1)).getByWaybillNos(eq(List.of("WB20251204153000123", "WB999999999999999")));
+    }
+
+    /**
+     * 测试：GET /waybill（分页查询运单接口）
      */
     @Test
-    public void testGetAllWaybills() throws Exception {
-        // 1. Mock Service返回运单列表
+    public void testListWaybills() throws Exception {
+        // 1. Mock Service返回一页运单
         Waybill waybill1 = new Waybill();
+        waybill1.setId(11L);
         waybill1.setWaybillNo("WB20251204153000123");
         waybill1.setStatus(WaybillStatus.CREATED);
         waybill1.setSenderName("张三");
 
         Waybill waybill2 = new Waybill();
+        waybill2.setId(12L);
         waybill2.setWaybillNo("WB20251204153000456");
         waybill2.setStatus(WaybillStatus.DELIVERING);
         waybill2.setSenderName("王五");
 
-        List<Waybill> mockWaybillList = List.of(waybill1, waybill2);
-        when(waybillService.getAllWaybills()).thenReturn(mockWaybillList);
+        WaybillPage page = new WaybillPage(List.of(waybill1, waybill2), 12L, true);
+        when(waybillService.listWaybills(any(WaybillQuery.class))).thenReturn(page);
 
-        // 2. 模拟GET请求（路径/waybill）
+        // 2. 模拟GET请求（路径/waybill，带查询条件）
         mockMvc.perform(get("/waybill")
-                        .contentType(MediaType.APPLICATION_JSON))
+                        .param("warehouseId", "3")
+                        .param("status", "CREATED")
+                        .param("createTimeFrom", "2025-12-01T00:00:00")
+                        .param("cursor", "10")
+                        .param("size", "2"))
                 // 3. 验证响应
                 .andExpect(status().isOk()) // 200 OK
-                .andExpect(jsonPath("$.size()").value(2)) // 列表长度为2
-                .andExpect(jsonPath("$[0].waybillNo").value("WB20251204153000123"))
-                .andExpect(jsonPath("$[0].senderName").value("张三"))
-                .andExpect(jsonPath("$[1].waybillNo").value("WB20251204153000456"))
-                .andExpect(jsonPath("$[1].status").value("DELIVERING"));
+                .andExpect(jsonPath("$.items.size()").value(2)) // 列表长度为2
+                .andExpect(jsonPath("$.items[0].waybillNo").value("WB20251204153000123"))
+                .andExpect(jsonPath("$.items[0].senderName").value("张三"))
+                .andExpect(jsonPath("$.items[1].status").value("DELIVERING"))
+                .andExpect(jsonPath("$.nextCursor").value(12))
+                .andExpect(jsonPath("$.hasMore").value(true));
 
-        // 4. 验证Service调用
-        verify(waybillService, times(1)).getAllWaybills();
+        // 4. 验证查询条件绑定
+        ArgumentCaptor<WaybillQuery> query = ArgumentCaptor.forClass(WaybillQuery.class);
+        verify(waybillService, times(1)).listWaybills(query.capture());
+        assertEquals(3L, query.getValue().getWarehouseId());
+        assertEquals(WaybillStatus.CREATED, query.getValue().getStatus());
+        assertEquals(LocalDateTime.of(2025, 12, 1, 0, 0), query.getValue().getCreateTimeFrom());
+        assertEquals(10L, query.getValue().getCursor());
+        assertEquals(2, query.getValue().pageSize());
+    }
+
+    /**
+     * 测试：GET /waybill/export（流式导出接口）
+     */
+    @Test
+    public void testExportWaybills() throws Exception {
+        // 1. Mock Service写出两行
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("{\"waybillNo\":\"WB1\"}\n{\"waybillNo\":\"WB2\"}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(waybillService).exportWaybills(any(WaybillQuery.class), eq(WaybillExportFormat.NDJSON), any(OutputStream.class));
+
+        // 2. 模拟GET请求，响应体异步写出
+        MvcResult result = mockMvc.perform(get("/waybill/export").param("format", "ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // 3. 验证响应
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=waybill.ndjson"))
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"waybillNo\":\"WB1\"}\n{\"waybillNo\":\"WB2\"}\n"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,152 @@
+package com.logistics.platform.distribution.waybill.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 读写分离：主库和从库各为一个H2内存库（轮询用例另加一个从库），库中的 node 表记录库名，用于判断查询实际落在哪个库
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private final List<String> databases = new ArrayList<>();
+    private DataSource primary;
+    private SwitchableDataSource replica;
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void setup() {
+        primary = database("primary");
+        replica = new SwitchableDataSource(database("replica"));
+        useRouting(new ReplicaRoutingDataSource(primary, List.of(replica), 1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (String name : databases) {
+            new JdbcTemplate(new DriverManagerDataSource(url(name))).execute("DROP ALL OBJECTS");
+        }
+    }
+
+    private DataSource database(String name) {
+        databases.add(name);
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url(name));
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE node (name VARCHAR(16))");
+        template.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static String url(String name) {
+        return "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private void useRouting(ReplicaRoutingDataSource routingDataSource) {
+        routing = routingDataSource;
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    /**
+     * 测试：只读事务走从库，写事务和无事务的查询走主库
+     */
+    @Test
+    public void testReadOnlyTransactionGoesToReplica() {
+        assertEquals("replica", readOnly.execute(tx -> currentNode()));
+        assertEquals("primary", readWrite.execute(tx -> currentNode()));
+        assertEquals("primary", currentNode());
+    }
+
+    /**
+     * 测试：写入后在 onPrimary 中读取，即使是只读事务也走主库，能读到刚写入的数据
+     */
+    @Test
+    public void testReadYourWritesOnPrimary() {
+        readWrite.execute(tx -> jdbcTemplate.update("INSERT INTO node VALUES ('written')"));
+
+        Integer onReplica = readOnly.execute(tx -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM node", Integer.class));
+        assertEquals(1, onReplica);
+        Integer onPrimary = ReadRouting.onPrimary(() -> readOnly.execute(tx -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM node", Integer.class)));
+        assertEquals(2, onPrimary);
+        assertFalse(ReadRouting.isPrimaryForced());
+    }
+
+    /**
+     * 测试：从库不可用时只读查询回到主库，恢复后重新走从库
+     */
+    @Test
+    public void testUnhealthyReplicaFallsBackToPrimary() {
+        replica.down = true;
+        routing.checkHealth();
+        assertFalse(routing.isHealthy(0));
+        assertEquals("primary", readOnly.execute(tx -> currentNode()));
+
+        replica.down = false;
+        routing.checkHealth();
+        assertTrue(routing.isHealthy(0));
+        assertEquals("replica", readOnly.execute(tx -> currentNode()));
+    }
+
+    /**
+     * 测试：多个从库轮询分配，跳过不可用的从库
+     */
+    @Test
+    public void testRoundRobinSkipsUnhealthyReplica() {
+        SwitchableDataSource second = new SwitchableDataSource(database("replica2"));
+        useRouting(new ReplicaRoutingDataSource(primary, List.of(replica, second), 1));
+
+        String firstNode = readOnly.execute(tx -> currentNode());
+        String secondNode = readOnly.execute(tx -> currentNode());
+        assertNotEquals(firstNode, secondNode);
+
+        second.down = true;
+        routing.checkHealth();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica", readOnly.execute(tx -> currentNode()));
+        }
+    }
+
+    //可模拟宕机的从库
+    private static class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("replica down");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.logistics.platform.distribution.waybill.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaybillStatusTest {
+
+    /**
+     * 测试：按名称解析忽略大小写，与原先 equalsIgnoreCase 的结果一致
+     */
+    @Test
+    public void testFromStringIgnoresCase() {
+        for (WaybillStatus status : WaybillStatus.values()) {
+            assertSame(status, WaybillStatus.fromString(status.name()));
+            assertSame(status, WaybillStatus.fromString(status.name().toLowerCase()));
+        }
+        assertSame(WaybillStatus.DELIVERING, WaybillStatus.fromString("DeLiVeRiNg"));
+        // 非ASCII的大小写折叠同样与 equalsIgnoreCase 一致（ı 的大写为 I）
+        assertSame(WaybillStatus.PICKED, WaybillStatus.fromString("pıcked"));
+    }
+
+    /**
+     * 测试：不存在的状态抛出异常
+     */
+    @Test
+    public void testFromStringRejectsUnknown() {
+        assertThrows(IllegalArgumentException.class, () -> WaybillStatus.fromString(null));
+        assertThrows(IllegalArgumentException.class, () -> WaybillStatus.fromString(""));
+        assertThrows(IllegalArgumentException.class, () -> WaybillStatus.fromString("PICKED "));
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> WaybillStatus.fromString("LOST"));
+        assertEquals("无效的运单状态：LOST", exception.getMessage());
+    }
+
+    /**
+     * 测试：流转规则与需求一致，已送达、已取消为终态
+     */
+    @Test
+    public void testTransitions() {
+        Map<WaybillStatus, Set<WaybillStatus>> expected = Map.of(
+                WaybillStatus.CREATED, EnumSet.of(WaybillStatus.PICKED, WaybillStatus.CANCELLED),
+                WaybillStatus.PICKED, EnumSet.of(WaybillStatus.DELIVERING, WaybillStatus.CANCELLED),
+                WaybillStatus.DELIVERING, EnumSet.of(WaybillStatus.DELIVERED, WaybillStatus.CANCELLED),
+                WaybillStatus.DELIVERED, EnumSet.noneOf(WaybillStatus.class),
+                WaybillStatus.CANCELLED, EnumSet.noneOf(WaybillStatus.class));
+        for (WaybillStatus from : WaybillStatus.values()) {
+            for (WaybillStatus to : WaybillStatus.values()) {
+                assertEquals(expected.get(from).contains(to), from.canTransitionTo(to), from + "->" + to);
+            }
+            assertFalse(from.canTransitionTo(null));
+            assertEquals(expected.get(from).isEmpty(), from.isTerminal());
+        }
+    }
+}
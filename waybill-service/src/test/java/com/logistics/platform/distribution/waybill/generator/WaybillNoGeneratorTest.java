@@ -0,0 +1,109 @@
+package com.logistics.platform.distribution.waybill.generator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaybillNoGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    /**
+     * 测试：多线程并发生成，全部唯一且每个线程内单调递增
+     */
+    @Test
+    public void testConcurrentIdsAreUniqueAndMonotonic() throws Exception {
+        WaybillNoGenerator generator = new WaybillNoGenerator(7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet(THREADS * IDS_PER_THREAD);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    long last = Long.MIN_VALUE;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        long id = generator.nextId();
+                        assertTrue(id > last, "同一线程内ID必须递增");
+                        assertTrue(ids.add(id), "ID重复：" + id);
+                        last = id;
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    /**
+     * 测试：不同节点在同一时钟下生成的ID互不冲突
+     */
+    @Test
+    public void testDifferentWorkersNeverCollide() {
+        AtomicLong clock = new AtomicLong(WaybillNoGenerator.EPOCH + 1000);
+        WaybillNoGenerator node1 = new WaybillNoGenerator(1, clock::get);
+        WaybillNoGenerator node2 = new WaybillNoGenerator(2, clock::get);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(ids.add(node1.nextId()));
+            assertTrue(ids.add(node2.nextId()));
+        }
+    }
+
+    /**
+     * 测试：同一毫秒序列号用尽、时钟回拨时仍保持单调
+     */
+    @Test
+    public void testSequenceOverflowAndClockRollback() {
+        AtomicLong clock = new AtomicLong(WaybillNoGenerator.EPOCH + 5000);
+        WaybillNoGenerator generator = new WaybillNoGenerator(3, clock::get);
+        long last = generator.nextId();
+        // 同一毫秒内超过4096个，借用下一毫秒
+        for (int i = 0; i < 10_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+        // 时钟回拨1秒
+        clock.addAndGet(-1000);
+        for (int i = 0; i < 100; i++) {
+            long id = generator.nextId();
+            assertTrue(id > last);
+            last = id;
+        }
+    }
+
+    /**
+     * 测试：运单号格式及时间戳解析
+     */
+    @Test
+    public void testWaybillNoRoundTrip() {
+        long now = System.currentTimeMillis();
+        WaybillNoGenerator generator = new WaybillNoGenerator(WaybillNoGenerator.MAX_WORKER_ID, () -> now);
+        String waybillNo = generator.nextWaybillNo();
+
+        assertTrue(waybillNo.startsWith(WaybillNoGenerator.PREFIX));
+        assertEquals(now, WaybillNoGenerator.extractTimestamp(waybillNo));
+        assertThrows(IllegalArgumentException.class, () -> WaybillNoGenerator.parseId("WBabc"));
+        assertThrows(IllegalArgumentException.class, () -> new WaybillNoGenerator(WaybillNoGenerator.MAX_WORKER_ID + 1));
+    }
+}
@@ -0,0 +1,147 @@
+package com.logistics.platform.distribution.waybill.outbox;
+
+import com.logistics.platform.distribution.waybill.entity.WaybillEventType;
+import com.logistics.platform.distribution.waybill.entity.WaybillOutboxEvent;
+import com.logistics.platform.distribution.waybill.repository.WaybillOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class WaybillOutboxRelayTest {
+
+    @Mock
+    private WaybillOutboxRepository waybillOutboxRepository;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private SimpleMeterRegistry meterRegistry;
+    private FlakyPublisher publisher;
+    private WaybillOutboxRelay relay;
+
+    @BeforeEach
+    public void setup() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(WaybillOutboxRelay.LEASE_KEY), anyString(), any(Duration.class))).thenReturn(true);
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new FlakyPublisher();
+        relay = newRelay(500);
+    }
+
+    private WaybillOutboxRelay newRelay(int batchSize) {
+        return new WaybillOutboxRelay(waybillOutboxRepository, publisher, stringRedisTemplate, batchSize,
+                Duration.ofSeconds(10), meterRegistry);
+    }
+
+    /**
+     * 测试：按id顺序发布一批事件，发布成功后删除，并记录延迟和发布数
+     */
+    @Test
+    public void testPublishThenDelete() {
+        LocalDateTime created = LocalDateTime.now().minusSeconds(5);
+        when(waybillOutboxRepository.findBatch(500)).thenReturn(List.of(
+                event(1L, "WB1", created), event(2L, "WB2", created), event(3L, "WB1", created)));
+
+        relay.relay();
+
+        assertEquals(List.of(1L, 2L, 3L), publisher.getEvents().stream().map(WaybillOutboxEvent::getId).toList());
+        verify(waybillOutboxRepository, times(1)).deleteByIds(List.of(1L, 2L, 3L));
+        assertEquals(3, meterRegistry.get("waybill.outbox.published").counter().count());
+        assertTrue(meterRegistry.get("waybill.outbox.lag").gauge().value() >= 5);
+        assertEquals(1, meterRegistry.get("waybill.outbox.leader").gauge().value());
+    }
+
+    /**
+     * 测试：发布失败时整批保留，下次调度按原顺序重发（至少一次）
+     */
+    @Test
+    public void testFailedBatchIsRetried() {
+        LocalDateTime created = LocalDateTime.now();
+        List<WaybillOutboxEvent> batch = List.of(event(1L, "WB1", created), event(2L, "WB1", created));
+        when(waybillOutboxRepository.findBatch(500)).thenReturn(batch);
+        publisher.failures = 1;
+
+        relay.relay();
+
+        verify(waybillOutboxRepository, never()).deleteByIds(anyList());
+        assertEquals(1, meterRegistry.get("waybill.outbox.failures").counter().count());
+        assertTrue(publisher.getEvents().isEmpty());
+
+        relay.relay();
+
+        verify(waybillOutboxRepository, times(1)).deleteByIds(List.of(1L, 2L));
+        assertEquals(List.of(1L, 2L), publisher.getEvents("WB1").stream().map(WaybillOutboxEvent::getId).toList());
+    }
+
+    /**
+     * 测试：积压时一次调度内连续发布多批，同一运单的事件保持id顺序
+     */
+    @Test
+    public void testDrainsBacklogInOrder() {
+        relay = newRelay(2);
+        LocalDateTime created = LocalDateTime.now();
+        when(waybillOutboxRepository.findBatch(2))
+                .thenReturn(List.of(event(1L, "WB1", created), event(2L, "WB2", created)))
+                .thenReturn(List.of(event(3L, "WB1", created), event(4L, "WB2", created)))
+                .thenReturn(List.of(event(5L, "WB1", created)));
+
+        relay.relay();
+
+        verify(waybillOutboxRepository, times(3)).findBatch(2);
+        assertEquals(5, publisher.getEvents().size());
+        assertEquals(List.of(1L, 3L, 5L), publisher.getEvents("WB1").stream().map(WaybillOutboxEvent::getId).toList());
+        assertEquals(List.of(2L, 4L), publisher.getEvents("WB2").stream().map(WaybillOutboxEvent::getId).toList());
+    }
+
+    /**
+     * 测试：租约被其他实例持有时不读取发件箱
+     */
+    @Test
+    public void testStandbyDoesNotPublish() {
+        when(valueOperations.setIfAbsent(eq(WaybillOutboxRelay.LEASE_KEY), anyString(), any(Duration.class))).thenReturn(false);
+
+        relay.relay();
+
+        verify(waybillOutboxRepository, never()).findBatch(anyInt());
+        assertFalse(relay.isLeader());
+        assertEquals(0, meterRegistry.get("waybill.outbox.leader").gauge().value());
+    }
+
+    private static WaybillOutboxEvent event(long id, String waybillNo, LocalDateTime createTime) {
+        return new WaybillOutboxEvent(id, waybillNo, WaybillEventType.STATUS_CHANGED, "{}", createTime);
+    }
+
+    // 前若干次发布失败的内存实现
+    private static class FlakyPublisher extends InMemoryWaybillEventPublisher {
+        private int failures;
+
+        @Override
+        public synchronized void publish(List<WaybillOutboxEvent> batch) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("broker unavailable");
+            }
+            super.publish(batch);
+        }
+    }
+}
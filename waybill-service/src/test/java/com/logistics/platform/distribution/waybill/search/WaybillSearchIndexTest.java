@@ -0,0 +1,169 @@
+package com.logistics.platform.distribution.waybill.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.logistics.platform.distribution.waybill.dto.WaybillSearchHit;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 运单搜索索引：内存目录，验证中文分词、电话前缀/尾号匹配、状态原地更新和同步进度的持久化
+ */
+public class WaybillSearchIndexTest {
+
+    private WaybillSearchIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new WaybillSearchIndex(new ByteBuffersDirectory());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    private static Waybill waybill(long id, String receiverName, String receiverPhone, String receiverAddress,
+                                   String goodsType) {
+        Waybill waybill = new Waybill();
+        waybill.setId(id);
+        waybill.setWaybillNo("WB" + id);
+        waybill.setSenderName("张三");
+        waybill.setSenderPhone("13800138000");
+        waybill.setReceiverName(receiverName);
+        waybill.setReceiverPhone(receiverPhone);
+        waybill.setReceiverAddress(receiverAddress);
+        waybill.setGoodsType(goodsType);
+        waybill.setStatus(WaybillStatus.CREATED);
+        waybill.setCreateTime(LocalDateTime.of(2025, 6, 1, 10, 0).plusMinutes(id));
+        return waybill;
+    }
+
+    private void indexSamples() {
+        index.index(List.of(
+                waybill(1, "李四", "13900139001", "上海市浦东新区世纪大道100号", "电子产品"),
+                waybill(2, "王五", "186-2000-7788", "北京市海淀区中关村大街1号", "生鲜"),
+                waybill(3, "赵六", "13912345678", "广州市天河区体育西路", "电子产品")));
+        index.refresh();
+    }
+
+    private static List<String> waybillNos(List<WaybillSearchHit> hits) {
+        return hits.stream().map(WaybillSearchHit::getWaybillNo).toList();
+    }
+
+    /**
+     * 测试：按分词匹配姓名、地址、货物类型，结果按创建时间从新到旧
+     */
+    @Test
+    public void testTextSearchNewestFirst() {
+        indexSamples();
+
+        assertEquals(List.of("WB3", "WB1"), waybillNos(index.search("电子产品", null, 10)));
+        assertEquals(List.of("WB2"), waybillNos(index.search("北京市海淀区中关村大街1号", null, 10)));
+        assertEquals(List.of("WB1"), waybillNos(index.search("李四", null, 10)));
+        //寄件人姓名同样可搜
+        assertEquals(3, index.search("张三", null, 10).size());
+        assertEquals(List.of("WB3"), waybillNos(index.search("电子产品", null, 1)));
+
+        WaybillSearchHit hit = index.search("李四", null, 10).get(0);
+        assertEquals("上海市浦东新区世纪大道100号", hit.getReceiverAddress());
+        assertEquals("13900139001", hit.getReceiverPhone());
+        assertEquals(WaybillStatus.CREATED, hit.getStatus());
+        assertEquals(LocalDateTime.of(2025, 6, 1, 10, 1), hit.getCreateTime());
+    }
+
+    /**
+     * 测试：纯数字按电话前缀或尾号匹配，号码中的分隔符不影响；少于3位时拒绝
+     */
+    @Test
+    public void testPhonePrefixAndSuffix() {
+        indexSamples();
+
+        assertEquals(List.of("WB3", "WB1"), waybillNos(index.search("139", null, 10)));
+        assertEquals(List.of("WB2"), waybillNos(index.search("7788", null, 10)));
+        assertEquals(List.of("WB2"), waybillNos(index.search("18620007788", null, 10)));
+        assertEquals(List.of("WB1"), waybillNos(index.search("9001", null, 10)));
+        //寄件人电话
+        assertEquals(3, index.search("138001", null, 10).size());
+        assertTrue(index.search("5555", null, 10).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.search("13", null, 10));
+        assertThrows(IllegalArgumentException.class, () -> index.search("  ", null, 10));
+        //控制器据此返回400
+        assertFalse(WaybillSearchIndex.isValidKeyword("13"));
+        assertFalse(WaybillSearchIndex.isValidKeyword(" "));
+        assertTrue(WaybillSearchIndex.isValidKeyword(" 138 "));
+        assertTrue(WaybillSearchIndex.isValidKeyword("张"));
+    }
+
+    /**
+     * 测试：状态原地更新后按状态过滤，重复写入同一运单只保留一份
+     */
+    @Test
+    public void testStatusUpdateAndFilter() {
+        indexSamples();
+        index.updateStatus("WB1", WaybillStatus.DELIVERED);
+        index.updateStatus("WB404", WaybillStatus.DELIVERED);
+        index.refresh();
+
+        assertEquals(List.of("WB1"), waybillNos(index.search("电子产品", WaybillStatus.DELIVERED, 10)));
+        assertEquals(List.of("WB3"), waybillNos(index.search("电子产品", WaybillStatus.CREATED, 10)));
+        assertEquals(WaybillStatus.DELIVERED, index.search("李四", null, 10).get(0).getStatus());
+
+        index.index(List.of(waybill(1, "李四", "13900139001", "上海市浦东新区世纪大道100号", "电子产品")));
+        index.refresh();
+        assertEquals(3, index.count());
+    }
+
+    /**
+     * 测试：运单事件流中的创建和状态变更事件应用到索引
+     */
+    @Test
+    public void testApplyEvents() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        WaybillSearchIndexer indexer = new WaybillSearchIndexer(index, null, objectMapper, null, null, 1, 100,
+                Duration.ofSeconds(10));
+        Waybill waybill = waybill(7, "孙七", "13700137000", "深圳市南山区科技园", "文件");
+
+        indexer.apply(Map.of("type", "CREATED", "payload", objectMapper.writeValueAsString(waybill)));
+        indexer.apply(Map.of("type", "STATUS_CHANGED", "payload", objectMapper.writeValueAsString(
+                WaybillStatusLog.of("WB7", WaybillStatus.CREATED, WaybillStatus.PICKED, LocalDateTime.now(),
+                        LocalDateTime.now()))));
+        indexer.apply(Map.of("type", "CREATED", "payload", "{broken"));
+        index.refresh();
+
+        List<WaybillSearchHit> hits = index.search("孙七", null, 10);
+        assertEquals(List.of("WB7"), waybillNos(hits));
+        assertEquals(WaybillStatus.PICKED, hits.get(0).getStatus());
+    }
+
+    /**
+     * 测试：同步进度随索引一起提交，重新打开后可读出
+     */
+    @Test
+    public void testCommitDataSurvivesReopen(@TempDir Path dir) throws IOException {
+        try (WaybillSearchIndex persistent = WaybillSearchIndex.open(dir)) {
+            persistent.index(List.of(waybill(1, "李四", "13900139001", "上海市浦东新区世纪大道100号", "电子产品")));
+            persistent.commit(Map.of("offset.0", "1700000000000-3"));
+        }
+        try (WaybillSearchIndex reopened = WaybillSearchIndex.open(dir)) {
+            assertEquals(Map.of("offset.0", "1700000000000-3"), reopened.getCommitData());
+            assertEquals(1, reopened.count());
+            assertEquals(1, reopened.search("李四", null, 10).size());
+        }
+    }
+}
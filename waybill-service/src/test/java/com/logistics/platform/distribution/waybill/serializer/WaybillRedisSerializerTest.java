@@ -0,0 +1,166 @@
+package com.logistics.platform.distribution.waybill.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WaybillRedisSerializerTest {
+
+    private final Jackson2JsonRedisSerializer<Waybill> jsonSerializer = newJsonSerializer();
+
+    static Jackson2JsonRedisSerializer<Waybill> newJsonSerializer() {
+        ObjectMapper om = new ObjectMapper();
+        om.registerModule(new JavaTimeModule());
+        return new Jackson2JsonRedisSerializer<>(om, Waybill.class);
+    }
+
+    static Waybill newWaybill() {
+        Waybill waybill = new Waybill();
+        waybill.setId(370155861609279488L);
+        waybill.setWaybillNo("WB370155861609279488");
+        waybill.setCustomerId(1001L);
+        waybill.setSenderName("张三");
+        waybill.setSenderPhone("13800138000");
+        waybill.setSenderAddress("北京市海淀区中关村大街1号");
+        waybill.setReceiverName("李四");
+        waybill.setReceiverPhone("13900139000");
+        waybill.setReceiverAddress("上海市浦东新区世纪大道100号");
+        waybill.setGoodsType("电子产品");
+        waybill.setWeight(new BigDecimal("2.50"));
+        waybill.setVolume(new BigDecimal("0.0125"));
+        waybill.setAmount(new BigDecimal("50.00"));
+        waybill.setStatus(WaybillStatus.DELIVERING);
+        waybill.setWarehouseId(3L);
+        waybill.setDeliverymanId(7L);
+        waybill.setEstimatedArrivalTime(LocalDateTime.of(2025, 12, 6, 18, 0));
+        waybill.setCreateTime(LocalDateTime.of(2025, 12, 4, 15, 30, 0, 123_456_789));
+        waybill.setUpdateTime(LocalDateTime.of(2025, 12, 5, 9, 0, 1));
+        return waybill;
+    }
+
+    // 运单实体没有equals，逐字段比较
+    private static void assertSameFields(Waybill expected, Waybill actual) {
+        assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+    }
+
+    /**
+     * 测试：二进制往返后所有字段一致，BigDecimal的精度也保留
+     */
+    @Test
+    public void testBinaryRoundTrip() {
+        Waybill waybill = newWaybill();
+        WaybillRedisSerializer serializer = new WaybillRedisSerializer(jsonSerializer, WaybillRedisSerializer.Format.BINARY);
+
+        byte[] bytes = serializer.serialize(waybill);
+        Waybill result = serializer.deserialize(bytes);
+
+        assertEquals(WaybillBinaryCodec.MAGIC, bytes[0]);
+        assertSameFields(waybill, result);
+        assertEquals(2, result.getWeight().scale());
+    }
+
+    /**
+     * 测试：空字段不写入，反序列化后仍为null
+     */
+    @Test
+    public void testNullFields() {
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo("WB1");
+
+        Waybill result = WaybillBinaryCodec.decode(WaybillBinaryCodec.encode(waybill));
+
+        assertSameFields(waybill, result);
+        assertNull(result.getStatus());
+        assertNull(result.getCreateTime());
+    }
+
+    /**
+     * 测试：二进制体积明显小于JSON
+     */
+    @Test
+    public void testBinaryIsSmallerThanJson() {
+        Waybill waybill = newWaybill();
+
+        int jsonSize = jsonSerializer.serialize(waybill).length;
+        int binarySize = WaybillBinaryCodec.encode(waybill).length;
+
+        assertTrue(binarySize * 2 < jsonSize, "json=" + jsonSize + " binary=" + binarySize);
+    }
+
+    /**
+     * 测试：迁移期间两种格式互相可读
+     */
+    @Test
+    public void testReadsBothFormats() {
+        Waybill waybill = newWaybill();
+        WaybillRedisSerializer jsonWriter = new WaybillRedisSerializer(jsonSerializer, WaybillRedisSerializer.Format.JSON);
+        WaybillRedisSerializer binaryWriter = new WaybillRedisSerializer(jsonSerializer, WaybillRedisSerializer.Format.BINARY);
+
+        assertSameFields(waybill, binaryWriter.deserialize(jsonWriter.serialize(waybill)));
+        assertSameFields(waybill, jsonWriter.deserialize(binaryWriter.serialize(waybill)));
+        assertNull(binaryWriter.deserialize(null));
+    }
+
+    /**
+     * 测试：旧版本读取新版本写入的数据时跳过不认识的字段
+     */
+    @Test
+    public void testSkipsUnknownFields() {
+        Waybill waybill = newWaybill();
+        byte[] bytes = WaybillBinaryCodec.encode(waybill);
+        // 追加字段号30的varint字段和字段号31的LEN字段
+        byte[] extended = Arrays.copyOf(bytes, bytes.length + 7);
+        int pos = bytes.length;
+        extended[pos++] = (byte) 0xF0;
+        extended[pos++] = 0x01;
+        extended[pos++] = 0x2A;
+        extended[pos++] = (byte) 0xFA;
+        extended[pos++] = 0x01;
+        extended[pos++] = 0x01;
+        extended[pos] = 0x7F;
+
+        assertSameFields(waybill, WaybillBinaryCodec.decode(extended));
+    }
+
+    /**
+     * 测试：新版本写入的未知运单状态按未命中处理，反序列化为null，不抛异常
+     */
+    @Test
+    public void testUnknownStatusIsMiss() {
+        WaybillRedisSerializer serializer = new WaybillRedisSerializer(jsonSerializer, WaybillRedisSerializer.Format.BINARY);
+        byte[] bytes = WaybillBinaryCodec.encode(newWaybill());
+        // 追加字段号14（状态）的varint字段，序号100，覆盖前面的状态
+        byte[] extended = Arrays.copyOf(bytes, bytes.length + 2);
+        extended[bytes.length] = 0x70;
+        extended[bytes.length + 1] = 0x64;
+
+        assertNull(WaybillBinaryCodec.decode(extended));
+        assertNull(serializer.deserialize(extended));
+    }
+
+    /**
+     * 测试：数据损坏或版本过高时抛出序列化异常
+     */
+    @Test
+    public void testRejectsCorruptData() {
+        WaybillRedisSerializer serializer = new WaybillRedisSerializer(jsonSerializer, WaybillRedisSerializer.Format.BINARY);
+        byte[] bytes = WaybillBinaryCodec.encode(newWaybill());
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(truncated));
+
+        bytes[1] = WaybillBinaryCodec.VERSION + 1;
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+}
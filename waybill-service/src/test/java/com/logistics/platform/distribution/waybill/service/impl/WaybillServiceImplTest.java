@@ -1,20 +1,47 @@
 package com.logistics.platform.distribution.waybill.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.logistics.platform.distribution.waybill.cache.CachedWaybill;
+import com.logistics.platform.distribution.waybill.cache.WaybillCache;
+import com.logistics.platform.distribution.waybill.datasource.ReadRouting;
+import com.logistics.platform.distribution.waybill.dto.WaybillBatchResult;
+import com.logistics.platform.distribution.waybill.dto.WaybillPage;
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
+import com.logistics.platform.distribution.waybill.dto.WaybillStatusEvent;
 import com.logistics.platform.distribution.waybill.entity.Waybill;
 import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.exception.WaybillStatusConflictException;
+import com.logistics.platform.distribution.waybill.export.WaybillExportFormat;
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import com.logistics.platform.distribution.waybill.outbox.WaybillOutbox;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.StatusChange;
 import com.logistics.platform.distribution.waybill.repository.WaybillRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillStatusLogRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -28,17 +55,36 @@ public class WaybillServiceImplTest {
     private WaybillRepository waybillRepository;
 
     @Mock
-    private RedisTemplate<String, Waybill> redisTemplate;
+    private WaybillJdbcRepository waybillJdbcRepository;
 
     @Mock
-    private ValueOperations<String, Waybill> valueOperations;
+    private WaybillCache waybillCache;
+
+    @Mock
+    private WaybillNoGenerator waybillNoGenerator;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Mock
+    private WaybillStatusLogRepository waybillStatusLogRepository;
+
+    @Mock
+    private TransactionOperations transactionOperations;
+
+    @Mock
+    private WaybillOutbox waybillOutbox;
 
     // 注入被测试的Service
     @InjectMocks
     private WaybillServiceImpl waybillService;
 
-    // 常量（与ServiceImpl保持一致）
-    private static final String WAYBILL_KEY = "waybill:NO";
+    // 事务模板直接执行回调
+    @BeforeEach
+    public void setup() {
+        lenient().when(transactionOperations.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+    }
 
     /**
      * 测试：创建运单（核心逻辑：生成运单号、设置默认状态、缓存写入）
@@ -56,8 +102,8 @@ public class WaybillServiceImplTest {
         waybillParam.setWeight(new BigDecimal("2.5"));
         waybillParam.setAmount(new BigDecimal("50.00"));
 
-        // 2. Mock Redis的ValueOperations（避免NPE）
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        // 2. Mock运单号生成器
+        when(waybillNoGenerator.nextId()).thenReturn(123456789L);
 
         // 3. Mock Repository.save返回结果（模拟数据库保存）
         Waybill savedWaybill = new Waybill();
@@ -80,18 +126,20 @@ public class WaybillServiceImplTest {
         assertNotNull(result.getUpdateTime()); // 更新时间已设置
         assertEquals("WB", result.getWaybillNo().substring(0, 2)); // 运单号前缀正确
 
+        assertEquals(123456789L, waybillParam.getId()); // ID与运单号同源
+        assertEquals("WB123456789", waybillParam.getWaybillNo());
+
         // 6. 验证数据库保存和缓存写入
         verify(waybillRepository, times(1)).save(any(Waybill.class));
-        verify(redisTemplate.opsForValue(), times(1)).set(
-                eq(WAYBILL_KEY + result.getWaybillNo()),
-                eq(result),
-                eq(30L),
-                eq(java.util.concurrent.TimeUnit.MINUTES)
-        );
+        verify(waybillCache, times(1)).put(result);
+
+        // 7. 验证同一事务中写入了创建事件
+        verify(transactionOperations, times(1)).execute(any());
+        verify(waybillOutbox, times(1)).created(List.of(savedWaybill));
     }
 
     /**
-     * 测试：更新运单状态（缓存命中场景）
+     * 测试：更新运单状态（缓存命中场景，按缓存中的状态条件更新）
      */
     @Test
     public void testUpdateWaybillStatus_CacheHit() {
@@ -102,35 +150,39 @@ public class WaybillServiceImplTest {
         // 2. Mock缓存命中
         Waybill cachedWaybill = new Waybill();
         cachedWaybill.setWaybillNo(waybillNo);
-        cachedWaybill.setStatus(WaybillStatus.CREATED);
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get(WAYBILL_KEY + waybillNo)).thenReturn(cachedWaybill);
+        cachedWaybill.setReceiverName("李四");
+        cachedWaybill.setStatus(WaybillStatus.PICKED);
+        when(waybillCache.get(eq(waybillNo), any())).thenReturn(Optional.of(cachedWaybill));
 
-        // 3. Mock Repository.save返回更新后的运单
-        Waybill updatedWaybill = new Waybill();
-        updatedWaybill.setWaybillNo(waybillNo);
-        updatedWaybill.setStatus(WaybillStatus.DELIVERING);
-        updatedWaybill.setUpdateTime(LocalDateTime.now());
-        updatedWaybill.setActualArrivalTime(LocalDateTime.now()); // DELIVERING状态会设置实际送达时间
-        when(waybillRepository.save(any(Waybill.class))).thenReturn(updatedWaybill);
+        // 3. Mock条件更新成功
+        when(waybillJdbcRepository.updateStatus(eq(waybillNo), eq(WaybillStatus.PICKED), eq(WaybillStatus.DELIVERING),
+                any(LocalDateTime.class), any(LocalDateTime.class))).thenReturn(1);
 
         // 4. 执行更新状态方法
         Waybill result = waybillService.updateWaybillStatus(waybillNo, newStatus);
 
         // 5. 验证结果
         assertEquals(WaybillStatus.DELIVERING, result.getStatus()); // 状态更新成功
+        assertEquals("李四", result.getReceiverName()); // 其他字段保持不变
         assertNotNull(result.getUpdateTime()); // 更新时间已刷新
         assertNotNull(result.getActualArrivalTime()); // DELIVERING状态设置了实际送达时间
 
-        // 6. 验证缓存和数据库操作
-        verify(valueOperations, times(1)).get(WAYBILL_KEY + waybillNo); // 查缓存
-        verify(waybillRepository, times(1)).save(any(Waybill.class)); // 保存到数据库
-        verify(valueOperations, times(1)).set( // 更新缓存
-                eq(WAYBILL_KEY + waybillNo),
-                eq(updatedWaybill),
-                eq(30L),
-                eq(java.util.concurrent.TimeUnit.MINUTES)
-        );
+        // 6. 验证缓存和数据库操作：不再整行保存，也不额外查库
+        verify(waybillCache, times(1)).get(eq(waybillNo), any()); // 查缓存
+        verify(waybillRepository, never()).save(any(Waybill.class));
+        verify(waybillRepository, never()).findByWaybillNo(waybillNo);
+        verify(waybillCache, times(1)).evict(waybillNo); // 删除缓存并通知其他实例
+        assertEquals(WaybillStatus.PICKED, cachedWaybill.getStatus()); // 缓存中的共享对象未被修改
+
+        // 7. 验证同一事务中追加了状态日志
+        ArgumentCaptor<WaybillStatusLog> statusLog = ArgumentCaptor.forClass(WaybillStatusLog.class);
+        verify(waybillStatusLogRepository, times(1)).append(statusLog.capture());
+        assertEquals(WaybillStatus.PICKED, statusLog.getValue().getFromStatus());
+        assertEquals(WaybillStatus.DELIVERING, statusLog.getValue().getToStatus());
+        assertEquals(result.getUpdateTime(), statusLog.getValue().getEventTime());
+
+        // 8. 验证同一事务中写入了状态变更事件
+        verify(waybillOutbox, times(1)).statusChanged(List.of(statusLog.getValue()));
     }
 
     /**
@@ -143,21 +195,17 @@ public class WaybillServiceImplTest {
         String newStatus = "DELIVERED";
 
         // 2. Mock缓存未命中
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get(WAYBILL_KEY + waybillNo)).thenReturn(null);
+        mockCacheMiss(waybillNo);
 
         // 3. Mock数据库查询到运单
         Waybill dbWaybill = new Waybill();
         dbWaybill.setWaybillNo(waybillNo);
-        dbWaybill.setStatus(WaybillStatus.PICKED);
+        dbWaybill.setStatus(WaybillStatus.DELIVERING);
         when(waybillRepository.findByWaybillNo(waybillNo)).thenReturn(Optional.of(dbWaybill));
 
-        // 4. Mock数据库保存更新后的运单
-        Waybill updatedWaybill = new Waybill();
-        updatedWaybill.setWaybillNo(waybillNo);
-        updatedWaybill.setStatus(WaybillStatus.DELIVERED);
-        updatedWaybill.setUpdateTime(LocalDateTime.now());
-        when(waybillRepository.save(any(Waybill.class))).thenReturn(updatedWaybill);
+        // 4. Mock条件更新成功，DELIVERED不传实际送达时间
+        when(waybillJdbcRepository.updateStatus(eq(waybillNo), eq(WaybillStatus.DELIVERING), eq(WaybillStatus.DELIVERED),
+                any(LocalDateTime.class), isNull())).thenReturn(1);
 
         // 5. 执行更新状态方法
         Waybill result = waybillService.updateWaybillStatus(waybillNo, newStatus);
@@ -166,16 +214,10 @@ public class WaybillServiceImplTest {
         assertEquals(WaybillStatus.DELIVERED, result.getStatus());
         assertNull(result.getActualArrivalTime()); // DELIVERED状态不会设置实际送达时间（仅DELIVERING设置）
 
-        // 7. 验证操作顺序：查缓存→查数据库→更新数据库→更新缓存
-        verify(valueOperations, times(1)).get(WAYBILL_KEY + waybillNo); // 查缓存
+        // 7. 验证操作顺序：查缓存→查数据库→条件更新→删除缓存
+        verify(waybillCache, times(1)).get(eq(waybillNo), any()); // 查缓存
         verify(waybillRepository, times(1)).findByWaybillNo(waybillNo); // 查数据库
-        verify(waybillRepository, times(1)).save(any(Waybill.class)); // 保存数据库
-        verify(valueOperations, times(1)).set( // 更新缓存
-                eq(WAYBILL_KEY + waybillNo),
-                eq(updatedWaybill),
-                eq(30L),
-                eq(java.util.concurrent.TimeUnit.MINUTES)
-        );
+        verify(waybillCache, times(1)).evict(waybillNo); // 删除缓存
     }
 
     /**
@@ -188,8 +230,7 @@ public class WaybillServiceImplTest {
         String newStatus = "DELIVERING";
 
         // 2. Mock缓存和数据库都未找到运单
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get(WAYBILL_KEY + nonExistentWaybillNo)).thenReturn(null);
+        mockCacheMiss(nonExistentWaybillNo);
         when(waybillRepository.findByWaybillNo(nonExistentWaybillNo)).thenReturn(Optional.empty());
 
         // 3. 执行方法，验证抛异常
@@ -198,10 +239,212 @@ public class WaybillServiceImplTest {
         });
         assertEquals("运单不存在：" + nonExistentWaybillNo, exception.getMessage());
 
-        // 4. 验证无数据库保存操作
+        // 4. 验证无数据库更新操作
+        verify(waybillJdbcRepository, never()).updateStatus(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * 测试：缓存中的状态已过期，条件更新失败后按数据库最新状态重试
+     */
+    @Test
+    public void testUpdateWaybillStatus_RetryWithLatestStatus() {
+        String waybillNo = "WB20251204153000123";
+
+        // 1. 缓存中仍是CREATED，数据库中已被其他人改为PICKED
+        Waybill cachedWaybill = new Waybill();
+        cachedWaybill.setWaybillNo(waybillNo);
+        cachedWaybill.setStatus(WaybillStatus.CREATED);
+        when(waybillCache.get(eq(waybillNo), any())).thenReturn(Optional.of(cachedWaybill));
+        Waybill dbWaybill = new Waybill();
+        dbWaybill.setWaybillNo(waybillNo);
+        dbWaybill.setStatus(WaybillStatus.PICKED);
+        when(waybillRepository.findByWaybillNo(waybillNo)).thenReturn(Optional.of(dbWaybill));
+
+        // 2. 按CREATED条件更新失败，按PICKED条件更新成功
+        when(waybillJdbcRepository.updateStatus(eq(waybillNo), eq(WaybillStatus.CREATED), eq(WaybillStatus.CANCELLED),
+                any(LocalDateTime.class), isNull())).thenReturn(0);
+        when(waybillJdbcRepository.updateStatus(eq(waybillNo), eq(WaybillStatus.PICKED), eq(WaybillStatus.CANCELLED),
+                any(LocalDateTime.class), isNull())).thenReturn(1);
+
+        // 3. 执行并验证
+        Waybill result = waybillService.updateWaybillStatus(waybillNo, "CANCELLED");
+        assertEquals(WaybillStatus.CANCELLED, result.getStatus());
+        verify(waybillJdbcRepository, times(2)).updateStatus(any(), any(), any(), any(), any());
+        verify(waybillCache, times(1)).evict(waybillNo);
+    }
+
+    /**
+     * 测试：不符合流转规则的变更以数据库状态为准拒绝，不更新数据库
+     */
+    @Test
+    public void testUpdateWaybillStatus_IllegalTransition() {
+        String waybillNo = "WB20251204153000123";
+
+        // 1. 缓存和数据库中都已是DELIVERED（终态）
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo(waybillNo);
+        waybill.setStatus(WaybillStatus.DELIVERED);
+        when(waybillCache.get(eq(waybillNo), any())).thenReturn(Optional.of(waybill));
+        when(waybillRepository.findByWaybillNo(waybillNo)).thenReturn(Optional.of(waybill));
+
+        // 2. 执行方法，验证抛异常
+        WaybillStatusConflictException exception = assertThrows(WaybillStatusConflictException.class,
+                () -> waybillService.updateWaybillStatus(waybillNo, "CREATED"));
+        assertEquals(WaybillStatus.DELIVERED, exception.getCurrentStatus());
+        assertEquals(WaybillStatus.CREATED, exception.getTargetStatus());
+
+        // 3. 验证无数据库更新操作，也不写状态日志
+        verify(waybillJdbcRepository, never()).updateStatus(any(), any(), any(), any(), any());
+        verify(waybillCache, never()).evict(any());
+        verify(waybillStatusLogRepository, never()).append(any());
+    }
+
+    /**
+     * 测试：重复提交相同状态（如重复扫描）以数据库状态确认后直接返回
+     */
+    @Test
+    public void testUpdateWaybillStatus_SameStatusIsIdempotent() {
+        String waybillNo = "WB20251204153000123";
+
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo(waybillNo);
+        waybill.setStatus(WaybillStatus.PICKED);
+        when(waybillCache.get(eq(waybillNo), any())).thenReturn(Optional.of(waybill));
+        when(waybillRepository.findByWaybillNo(waybillNo)).thenReturn(Optional.of(waybill));
+
+        Waybill result = waybillService.updateWaybillStatus(waybillNo, "picked");
+
+        assertEquals(WaybillStatus.PICKED, result.getStatus());
+        verify(waybillJdbcRepository, never()).updateStatus(any(), any(), any(), any(), any());
+    }
+
+    /**
+     * 测试：多次重试仍冲突时报告并发冲突
+     */
+    @Test
+    public void testUpdateWaybillStatus_ConflictAfterRetries() {
+        String waybillNo = "WB20251204153000123";
+
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo(waybillNo);
+        waybill.setStatus(WaybillStatus.CREATED);
+        when(waybillCache.get(eq(waybillNo), any())).thenReturn(Optional.of(waybill));
+        when(waybillRepository.findByWaybillNo(waybillNo)).thenReturn(Optional.of(waybill));
+        when(waybillJdbcRepository.updateStatus(any(), any(), any(), any(), any())).thenReturn(0);
+
+        WaybillStatusConflictException exception = assertThrows(WaybillStatusConflictException.class,
+                () -> waybillService.updateWaybillStatus(waybillNo, "PICKED"));
+
+        assertEquals(WaybillStatus.CREATED, exception.getCurrentStatus());
+        verify(waybillJdbcRepository, times(4)).updateStatus(any(), any(), any(), any(), any());
+        verify(waybillCache, never()).evict(any());
+        verify(waybillStatusLogRepository, never()).append(any());
+    }
+
+    /**
+     * 测试：批量更新状态（同一运单按扫描时间依次流转，只写一次数据库；非法、不存在、格式错误的逐条失败）
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchUpdateWaybillStatus() {
+        // 1. 构造事件：WB1先揽收后配送（乱序上报），WB2非法流转，WB3不存在，WB4重复扫描
+        LocalDateTime t0 = LocalDateTime.of(2025, 12, 4, 10, 0);
+        List<WaybillStatusEvent> events = List.of(
+                new WaybillStatusEvent("WB1", "DELIVERING", t0.plusMinutes(5)),
+                new WaybillStatusEvent("WB1", "PICKED", t0),
+                new WaybillStatusEvent("WB2", "DELIVERED", t0),
+                new WaybillStatusEvent("WB3", "PICKED", t0),
+                new WaybillStatusEvent("WB1", "LOST", t0),
+                new WaybillStatusEvent(" ", "PICKED", t0),
+                new WaybillStatusEvent("WB4", "PICKED", null));
+
+        // 2. Mock批量查询当前状态和批量条件更新
+        when(waybillJdbcRepository.findStatuses(anyCollection())).thenReturn(Map.of(
+                "WB1", WaybillStatus.CREATED, "WB2", WaybillStatus.CREATED, "WB4", WaybillStatus.PICKED));
+        when(waybillJdbcRepository.batchUpdateStatus(anyList())).thenReturn(new int[]{1});
+
+        // 3. 执行批量更新
+        WaybillBatchResult result = waybillService.batchUpdateWaybillStatus(events);
+
+        // 4. 验证逐条结果
+        assertEquals(7, result.getTotal());
+        assertEquals(3, result.getSuccessCount());
+        assertEquals(4, result.getFailureCount());
+        assertTrue(result.getItems().get(0).isSuccess());
+        assertTrue(result.getItems().get(1).isSuccess());
+        assertEquals("运单状态不允许从CREATED变更为DELIVERED", result.getItems().get(2).getMessage());
+        assertEquals("运单不存在：WB3", result.getItems().get(3).getMessage());
+        assertEquals("无效的运单状态：LOST", result.getItems().get(4).getMessage());
+        assertEquals("运单号不能为空", result.getItems().get(5).getMessage());
+        assertTrue(result.getItems().get(6).isSuccess());
+
+        // 5. 验证只有WB1写库一次：CREATED→DELIVERING，实际送达时间取配送事件的扫描时间
+        ArgumentCaptor<List<StatusChange>> changes = ArgumentCaptor.forClass(List.class);
+        verify(waybillJdbcRepository, times(1)).batchUpdateStatus(changes.capture());
+        assertEquals(1, changes.getValue().size());
+        StatusChange change = changes.getValue().get(0);
+        assertEquals("WB1", change.getWaybillNo());
+        assertEquals(WaybillStatus.CREATED, change.getExpected());
+        assertEquals(WaybillStatus.DELIVERING, change.getTarget());
+        assertEquals(t0.plusMinutes(5), change.getActualArrivalTime());
+
+        // 6. 验证状态日志按扫描顺序记录了每一步变更
+        ArgumentCaptor<List<WaybillStatusLog>> logs = ArgumentCaptor.forClass(List.class);
+        verify(waybillStatusLogRepository, times(1)).batchAppend(logs.capture());
+        assertEquals(2, logs.getValue().size());
+        assertEquals(WaybillStatus.CREATED, logs.getValue().get(0).getFromStatus());
+        assertEquals(WaybillStatus.PICKED, logs.getValue().get(0).getToStatus());
+        assertEquals(t0, logs.getValue().get(0).getEventTime());
+        assertEquals(WaybillStatus.DELIVERING, logs.getValue().get(1).getToStatus());
+        assertEquals(t0.plusMinutes(5), logs.getValue().get(1).getEventTime());
+        verify(waybillOutbox, times(1)).statusChanged(logs.getValue());
+
+        // 7. 验证一次批量删除缓存，不走逐条路径
+        verify(waybillCache, times(1)).evictAll(List.of("WB1"));
+        verify(waybillCache, never()).get(any(), any());
         verify(waybillRepository, never()).save(any(Waybill.class));
     }
 
+    /**
+     * 测试：批量更新时运单被并发修改，下一轮按最新状态重新推演
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBatchUpdateWaybillStatus_RetryConflicted() {
+        List<WaybillStatusEvent> events = List.of(new WaybillStatusEvent("WB1", "CANCELLED", null));
+        when(waybillJdbcRepository.findStatuses(anyCollection()))
+                .thenReturn(Map.of("WB1", WaybillStatus.CREATED))
+                .thenReturn(Map.of("WB1", WaybillStatus.PICKED));
+        when(waybillJdbcRepository.batchUpdateStatus(anyList())).thenReturn(new int[]{0}).thenReturn(new int[]{1});
+
+        WaybillBatchResult result = waybillService.batchUpdateWaybillStatus(events);
+
+        assertEquals(1, result.getSuccessCount());
+        ArgumentCaptor<List<StatusChange>> changes = ArgumentCaptor.forClass(List.class);
+        verify(waybillJdbcRepository, times(2)).batchUpdateStatus(changes.capture());
+        assertEquals(WaybillStatus.PICKED, changes.getAllValues().get(1).get(0).getExpected());
+        verify(waybillCache, times(1)).evictAll(List.of("WB1"));
+    }
+
+    /**
+     * 测试：多轮重试仍冲突时该运单的事件记为失败
+     */
+    @Test
+    public void testBatchUpdateWaybillStatus_ConflictAfterRetries() {
+        List<WaybillStatusEvent> events = List.of(new WaybillStatusEvent("WB1", "PICKED", null));
+        when(waybillJdbcRepository.findStatuses(anyCollection())).thenReturn(Map.of("WB1", WaybillStatus.CREATED));
+        when(waybillJdbcRepository.batchUpdateStatus(anyList())).thenReturn(new int[]{0});
+
+        WaybillBatchResult result = waybillService.batchUpdateWaybillStatus(events);
+
+        assertEquals(1, result.getFailureCount());
+        assertEquals("运单状态被并发修改，请稍后重试", result.getItems().get(0).getMessage());
+        verify(waybillJdbcRepository, times(4)).batchUpdateStatus(anyList());
+        verify(waybillStatusLogRepository, never()).batchAppend(anyList());
+        verify(waybillOutbox, never()).statusChanged(anyList());
+        verify(waybillCache, times(1)).evictAll(List.of());
+    }
+
     /**
      * 测试：按运单号查询（缓存命中）
      */
@@ -214,8 +457,7 @@ public class WaybillServiceImplTest {
         Waybill cachedWaybill = new Waybill();
         cachedWaybill.setWaybillNo(waybillNo);
         cachedWaybill.setSenderName("张三");
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get(WAYBILL_KEY + waybillNo)).thenReturn(cachedWaybill);
+        when(waybillCache.get(eq(waybillNo), any())).thenReturn(Optional.of(cachedWaybill));
 
         // 3. 执行查询方法
         Optional<Waybill> result = waybillService.getByWaybillNo(waybillNo);
@@ -238,8 +480,7 @@ public class WaybillServiceImplTest {
         String waybillNo = "WB20251204153000123";
 
         // 2. Mock缓存未命中，数据库命中
-        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
-        when(valueOperations.get(WAYBILL_KEY + waybillNo)).thenReturn(null);
+        mockCacheMiss(waybillNo);
 
         Waybill dbWaybill = new Waybill();
         dbWaybill.setWaybillNo(waybillNo);
@@ -254,39 +495,239 @@ public class WaybillServiceImplTest {
         assertEquals(waybillNo, result.get().getWaybillNo());
         assertEquals("李四", result.get().getReceiverName());
 
-        // 5. 验证数据库查询和缓存写入
+        // 5. 验证缓存未命中时由缓存回调查询数据库
         verify(waybillRepository, times(1)).findByWaybillNo(waybillNo);
-        verify(valueOperations, times(1)).set(
-                eq(WAYBILL_KEY + waybillNo),
-                eq(dbWaybill),
-                eq(30L),
-                eq(java.util.concurrent.TimeUnit.MINUTES)
-        );
     }
 
     /**
-     * 测试：查询所有运单
+     * 测试：批量查询（本地缓存、Redis命中的不查库，其余一次批量查库并回填缓存，刚修改过的查主库，
+     * 批量中没有的逐条查询；按请求顺序去重返回）
      */
     @Test
-    public void testGetAllWaybills() {
-        // 1. Mock数据库返回运单列表
-        Waybill waybill1 = new Waybill();
-        waybill1.setWaybillNo("WB20251204153000123");
-        Waybill waybill2 = new Waybill();
-        waybill2.setWaybillNo("WB20251204153000456");
-        List<Waybill> mockWaybillList = List.of(waybill1, waybill2);
-        when(waybillRepository.findAll()).thenReturn(mockWaybillList);
+    public void testGetByWaybillNos() {
+        Waybill local = new Waybill();
+        local.setWaybillNo("WB1");
+        Waybill loaded = new Waybill();
+        loaded.setWaybillNo("WB3");
+        Waybill archived = new Waybill();
+        archived.setWaybillNo("WB4");
+        Waybill remote = new Waybill();
+        remote.setWaybillNo("WB5");
+        Waybill recent = new Waybill();
+        recent.setWaybillNo("WB6");
+        //其余运单号本地缓存未命中（返回null）
+        lenient().when(waybillCache.getLocal(eq("WB1"), any())).thenReturn(CachedWaybill.of(local, Long.MAX_VALUE, 0));
+        lenient().when(waybillCache.getLocal(eq("WB2"), any())).thenReturn(CachedWaybill.absent());
+        when(waybillCache.getRemoteAll(List.of("WB3", "WB4", "WB5", "WB6", "WB7"))).thenReturn(Map.of(
+                "WB5", CachedWaybill.of(remote, Long.MAX_VALUE, 0), "WB7", CachedWaybill.absent()));
+        lenient().when(waybillCache.isRecentlyWritten("WB6")).thenReturn(true);
+        lenient().when(waybillJdbcRepository.findByWaybillNos(List.of("WB3", "WB4"))).thenAnswer(invocation -> {
+            assertFalse(ReadRouting.isPrimaryForced());
+            return List.of(loaded);
+        });
+        lenient().when(waybillJdbcRepository.findByWaybillNos(List.of("WB6"))).thenAnswer(invocation -> {
+            assertTrue(ReadRouting.isPrimaryForced());
+            return List.of(recent);
+        });
+        when(waybillCache.get(eq("WB4"), any())).thenReturn(Optional.of(archived));
+
+        List<Waybill> result = waybillService.getByWaybillNos(
+                List.of("WB3", "WB1", "WB2", "WB4", "WB3", "WB5", "WB6", "WB7"));
+
+        assertEquals(List.of("WB3", "WB1", "WB4", "WB5", "WB6"), result.stream().map(Waybill::getWaybillNo).toList());
+        verify(waybillCache).fillAll(List.of(recent, loaded));
+        verify(waybillCache, never()).get(eq("WB3"), any());
+        verify(waybillCache, never()).get(eq("WB7"), any());
+        assertTrue(waybillService.getByWaybillNos(List.of()).isEmpty());
+    }
+
+    /**
+     * 测试：分页查询（多查一条判断是否有下一页，nextCursor为本页最后一条的ID）
+     */
+    @Test
+    public void testListWaybills() {
+        // 1. 每页2条，Mock数据库返回3条
+        WaybillQuery query = new WaybillQuery();
+        query.setStatus(WaybillStatus.CREATED);
+        query.setSize(2);
+        when(waybillJdbcRepository.findPage(query, 3)).thenReturn(List.of(
+                pageWaybill(11L), pageWaybill(12L), pageWaybill(13L)));
 
         // 2. 执行查询方法
-        List<Waybill> result = waybillService.getAllWaybills();
+        WaybillPage page = waybillService.listWaybills(query);
 
         // 3. 验证结果
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals("WB20251204153000123", result.get(0).getWaybillNo());
-        assertEquals("WB20251204153000456", result.get(1).getWaybillNo());
+        assertEquals(2, page.getItems().size());
+        assertTrue(page.isHasMore());
+        assertEquals(12L, page.getNextCursor());
+
+        // 4. 最后一页不返回游标
+        query.setCursor(12L);
+        when(waybillJdbcRepository.findPage(query, 3)).thenReturn(List.of(pageWaybill(13L)));
+        WaybillPage last = waybillService.listWaybills(query);
+        assertEquals(1, last.getItems().size());
+        assertFalse(last.isHasMore());
+        assertNull(last.getNextCursor());
+    }
+
+    /**
+     * 测试：每页条数超过上限时按上限查询
+     */
+    @Test
+    public void testListWaybills_SizeCapped() {
+        WaybillQuery query = new WaybillQuery();
+        query.setSize(100000);
+        when(waybillJdbcRepository.findPage(query, WaybillQuery.MAX_SIZE + 1)).thenReturn(List.of());
+
+        WaybillPage page = waybillService.listWaybills(query);
+
+        assertTrue(page.getItems().isEmpty());
+        verify(waybillRepository, never()).findAll();
+    }
+
+    /**
+     * 测试：导出NDJSON，每行一个运单
+     */
+    @Test
+    public void testExportWaybills_Ndjson() {
+        mockStream(pageWaybill(11L), pageWaybill(12L));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = waybillService.exportWaybills(new WaybillQuery(), WaybillExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, count);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{") && lines[0].contains("\"waybillNo\":\"WB11\""));
+        assertTrue(lines[1].contains("\"createTime\":\"2025-12-04T15:30:00\""));
+    }
+
+    /**
+     * 测试：导出CSV，含逗号和引号的值按RFC 4180转义
+     */
+    @Test
+    public void testExportWaybills_Csv() {
+        Waybill waybill = pageWaybill(11L);
+        waybill.setReceiverAddress("上海市浦东新区\"世纪大道\",100号");
+        mockStream(waybill);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        waybillService.exportWaybills(new WaybillQuery(), WaybillExportFormat.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("\uFEFFid,waybillNo,"));
+        assertTrue(lines[1].startsWith("11,WB11,"));
+        assertTrue(lines[1].contains(",\"上海市浦东新区\"\"世纪大道\"\",100号\","));
+    }
+
+    private void mockStream(Waybill... waybills) {
+        doAnswer(invocation -> {
+            Consumer<Waybill> consumer = invocation.getArgument(1);
+            for (Waybill waybill : waybills) {
+                consumer.accept(waybill);
+            }
+            return null;
+        }).when(waybillJdbcRepository).stream(any(WaybillQuery.class), any());
+    }
+
+    private Waybill pageWaybill(long id) {
+        Waybill waybill = new Waybill();
+        waybill.setId(id);
+        waybill.setWaybillNo("WB" + id);
+        waybill.setReceiverAddress("上海市浦东新区世纪大道100号");
+        waybill.setStatus(WaybillStatus.CREATED);
+        waybill.setCreateTime(LocalDateTime.of(2025, 12, 4, 15, 30));
+        return waybill;
+    }
+
+    /**
+     * 测试：批量创建运单（校验失败的不入库，其余一次批量写入、一次管道写缓存）
+     */
+    @Test
+    public void testBatchCreateWaybills() {
+        // 1. 构造3条运单，第2条缺少收件人信息
+        List<Waybill> waybills = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            waybills.add(newBatchWaybill());
+        }
+        waybills.get(1).setReceiverName(null);
+
+        when(waybillNoGenerator.nextId()).thenReturn(1L, 2L);
+        when(waybillJdbcRepository.batchInsert(anyList())).thenReturn(new int[]{1, 1});
+
+        // 2. 执行批量创建
+        WaybillBatchResult result = waybillService.batchCreateWaybills(waybills);
+
+        // 3. 验证逐条结果（按请求下标排序）
+        assertEquals(3, result.getTotal());
+        assertEquals(2, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        assertTrue(result.getItems().get(0).isSuccess());
+        assertEquals("WB1", result.getItems().get(0).getWaybillNo());
+        assertFalse(result.getItems().get(1).isSuccess());
+        assertTrue(result.getItems().get(2).isSuccess());
+        assertEquals("WB2", result.getItems().get(2).getWaybillNo());
+
+        // 4. 验证只走一次批量写入和一次管道，没有逐条save
+        verify(waybillJdbcRepository, times(1)).batchInsert(argThat(list -> list.size() == 2));
+        verify(waybillCache, times(1)).putAll(argThat(list -> list.size() == 2));
+        verify(waybillRepository, never()).save(any(Waybill.class));
+        verify(waybillOutbox, times(1)).created(argThat(list -> list.size() == 2));
+    }
+
+    /**
+     * 测试：批量写入失败时逐条重试，只有出错的运单记为失败
+     */
+    @Test
+    public void testBatchCreateWaybills_FallbackToSingleInsert() {
+        List<Waybill> waybills = List.of(newBatchWaybill(), newBatchWaybill());
+        when(waybillNoGenerator.nextId()).thenReturn(1L, 2L);
+        when(waybillJdbcRepository.batchInsert(anyList())).thenThrow(new DuplicateKeyException("duplicate"));
+        when(waybillJdbcRepository.insert(any(Waybill.class)))
+                .thenReturn(1)
+                .thenThrow(new DuplicateKeyException("duplicate"));
+
+        WaybillBatchResult result = waybillService.batchCreateWaybills(waybills);
+
+        assertEquals(1, result.getSuccessCount());
+        assertEquals(1, result.getFailureCount());
+        assertTrue(result.getItems().get(0).isSuccess());
+        assertFalse(result.getItems().get(1).isSuccess());
+        verify(waybillJdbcRepository, times(2)).insert(any(Waybill.class));
+        // 只有写入成功的运单产生创建事件
+        verify(waybillOutbox, times(1)).created(List.of(waybills.get(0)));
+    }
+
+    /**
+     * 测试：批量创建超出上限时直接拒绝
+     */
+    @Test
+    public void testBatchCreateWaybills_TooLarge() {
+        List<Waybill> waybills = new ArrayList<>();
+        for (int i = 0; i < 5001; i++) {
+            waybills.add(new Waybill());
+        }
+        assertThrows(IllegalArgumentException.class, () -> waybillService.batchCreateWaybills(waybills));
+        verifyNoInteractions(waybillJdbcRepository);
+    }
+
+    // 缓存未命中：直接执行Service传入的查库回调
+    @SuppressWarnings("unchecked")
+    private void mockCacheMiss(String waybillNo) {
+        when(waybillCache.get(eq(waybillNo), any())).thenAnswer(invocation ->
+                ((Function<String, Optional<Waybill>>) invocation.getArgument(1)).apply(waybillNo));
+    }
 
-        // 4. 验证数据库查询
-        verify(waybillRepository, times(1)).findAll();
+    private Waybill newBatchWaybill() {
+        Waybill waybill = new Waybill();
+        waybill.setCustomerId(1001L);
+        waybill.setSenderName("张三");
+        waybill.setSenderPhone("13800138000");
+        waybill.setReceiverName("李四");
+        waybill.setReceiverPhone("13900139000");
+        waybill.setReceiverAddress("上海市浦东新区XX路XX号");
+        waybill.setWeight(new BigDecimal("1.2"));
+        return waybill;
     }
-}
\ No newline at end of file
+}
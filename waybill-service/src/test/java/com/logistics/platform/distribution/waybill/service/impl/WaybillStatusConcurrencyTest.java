@@ -0,0 +1,186 @@
+package com.logistics.platform.distribution.waybill.service.impl;
+
+import com.logistics.platform.distribution.waybill.cache.WaybillCache;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.exception.WaybillStatusConflictException;
+import com.logistics.platform.distribution.waybill.outbox.WaybillOutbox;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillStatusLogRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 状态变更并发压力测试：多个线程对同一批运单随机发起状态变更，
+ * 数据库用内存中的条件更新模拟，缓存始终返回过期的CREATED状态以制造冲突
+ */
+public class WaybillStatusConcurrencyTest {
+
+    private static final int WAYBILLS = 50;
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+    private static final WaybillStatus[] STATUSES = WaybillStatus.values();
+
+    //数据库中每个运单的当前状态
+    private final Map<String, WaybillStatus> table = new ConcurrentHashMap<>();
+    //按提交顺序记录每个运单实际生效的状态变更 [from, to]
+    private final Map<String, List<WaybillStatus[]>> history = new ConcurrentHashMap<>();
+    //服务写入的状态日志
+    private final Map<String, List<WaybillStatus[]>> statusLog = new ConcurrentHashMap<>();
+
+    @Test
+    public void testConcurrentTransitionsNoLostUpdates() throws Exception {
+        for (int i = 0; i < WAYBILLS; i++) {
+            String waybillNo = "WB" + (1000 + i);
+            table.put(waybillNo, WaybillStatus.CREATED);
+            history.put(waybillNo, Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        WaybillRepository waybillRepository = mock(WaybillRepository.class);
+        when(waybillRepository.findByWaybillNo(anyString()))
+                .thenAnswer(invocation -> Optional.of(row(invocation.getArgument(0), table.get(invocation.<String>getArgument(0)))));
+        WaybillCache waybillCache = mock(WaybillCache.class);
+        when(waybillCache.get(anyString(), any()))
+                .thenAnswer(invocation -> Optional.of(row(invocation.getArgument(0), WaybillStatus.CREATED)));
+        AtomicInteger evictions = new AtomicInteger();
+        doAnswer(invocation -> evictions.incrementAndGet()).when(waybillCache).evict(anyString());
+
+        WaybillServiceImpl waybillService = new WaybillServiceImpl(waybillRepository, new InMemoryJdbcRepository(),
+                waybillCache, null, null, new InMemoryStatusLogRepository(), new LockingTransactionOperations(),
+                mock(WaybillOutbox.class, withSettings().stubOnly()));
+
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<String[]> returned = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        String waybillNo = "WB" + (1000 + random.nextInt(WAYBILLS));
+                        WaybillStatus target = STATUSES[random.nextInt(STATUSES.length)];
+                        try {
+                            Waybill result = waybillService.updateWaybillStatus(waybillNo, target.name());
+                            assertEquals(target, result.getStatus());
+                            returned.add(new String[]{waybillNo, target.name()});
+                            successes.incrementAndGet();
+                        } catch (WaybillStatusConflictException e) {
+                            conflicts.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int applied = 0;
+        for (Map.Entry<String, List<WaybillStatus[]>> entry : history.entrySet()) {
+            WaybillStatus expectedFrom = WaybillStatus.CREATED;
+            for (WaybillStatus[] transition : entry.getValue()) {
+                // 每次变更都符合流转规则，且从上一次变更的结果出发（没有基于过期状态的写入）
+                assertEquals(expectedFrom, transition[0], entry.getKey());
+                assertTrue(transition[0].canTransitionTo(transition[1]), entry.getKey() + " " + transition[0] + "->" + transition[1]);
+                expectedFrom = transition[1];
+                applied++;
+            }
+            assertEquals(expectedFrom, table.get(entry.getKey()));
+            // 状态日志与实际生效的变更一一对应
+            List<WaybillStatus[]> logged = statusLog.getOrDefault(entry.getKey(), List.of());
+            assertEquals(entry.getValue().size(), logged.size(), entry.getKey());
+            for (int i = 0; i < logged.size(); i++) {
+                assertArrayEquals(entry.getValue().get(i), logged.get(i), entry.getKey());
+            }
+        }
+        // 每次成功的条件更新都删除了缓存；返回成功的目标状态都确实在数据库中出现过（CREATED为初始状态）
+        assertEquals(applied, evictions.get());
+        for (String[] item : returned) {
+            boolean seen = WaybillStatus.CREATED.name().equals(item[1])
+                    || history.get(item[0]).stream().anyMatch(t -> t[1].name().equals(item[1]));
+            assertTrue(seen, item[0] + " " + item[1]);
+        }
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, successes.get() + conflicts.get());
+        assertTrue(applied > 0 && conflicts.get() > 0);
+    }
+
+    private static Waybill row(String waybillNo, WaybillStatus status) {
+        Waybill waybill = new Waybill();
+        waybill.setWaybillNo(waybillNo);
+        waybill.setStatus(status);
+        return waybill;
+    }
+
+    //模拟数据库行锁：事务提交前其他事务的条件更新需等待，日志顺序因此与条件更新顺序一致（这里简化为全局锁）
+    private static class LockingTransactionOperations implements TransactionOperations {
+        @Override
+        public synchronized <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+
+    private class InMemoryStatusLogRepository extends WaybillStatusLogRepository {
+        InMemoryStatusLogRepository() {
+            super(null);
+        }
+
+        @Override
+        public int append(WaybillStatusLog log) {
+            statusLog.computeIfAbsent(log.getWaybillNo(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(new WaybillStatus[]{log.getFromStatus(), log.getToStatus()});
+            return 1;
+        }
+    }
+
+    //用ConcurrentHashMap.compute模拟 UPDATE ... WHERE waybill_no = ? AND status = ?
+    private class InMemoryJdbcRepository extends WaybillJdbcRepository {
+        InMemoryJdbcRepository() {
+            super(null);
+        }
+
+        @Override
+        public int updateStatus(String waybillNo, WaybillStatus expected, WaybillStatus target,
+                                LocalDateTime updateTime, LocalDateTime actualArrivalTime) {
+            int[] rows = new int[1];
+            table.computeIfPresent(waybillNo, (key, current) -> {
+                if (current != expected) {
+                    return current;
+                }
+                history.get(key).add(new WaybillStatus[]{expected, target});
+                rows[0] = 1;
+                return target;
+            });
+            return rows[0];
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.logistics.platform.distribution.waybill.service.impl;
+
+import com.logistics.platform.distribution.waybill.cache.WaybillCache;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatusLog;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository.StatusProjection;
+import com.logistics.platform.distribution.waybill.repository.WaybillStatusLogRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WaybillStatusLogServiceImplTest {
+
+    @Mock
+    private WaybillStatusLogRepository waybillStatusLogRepository;
+
+    @Mock
+    private WaybillJdbcRepository waybillJdbcRepository;
+
+    @Mock
+    private WaybillCache waybillCache;
+
+    @Mock
+    private TransactionOperations transactionOperations;
+
+    @InjectMocks
+    private WaybillStatusLogServiceImpl waybillStatusLogService;
+
+    /**
+     * 测试：重放时每个运单折叠出最后状态、最后变更时间和配送开始时间，写回以事务中读取到的状态为条件；
+     * 已不存在的运单不写回
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReplay() {
+        // 1. 两个运单的日志按 (运单号, id) 顺序流出
+        LocalDateTime t0 = LocalDateTime.of(2025, 12, 4, 10, 0);
+        List<WaybillStatusLog> logs = List.of(
+                new WaybillStatusLog(1L, "WB1", WaybillStatus.CREATED, WaybillStatus.PICKED, t0, t0),
+                new WaybillStatusLog(5L, "WB1", WaybillStatus.PICKED, WaybillStatus.DELIVERING, t0.plusHours(1), t0.plusHours(1)),
+                new WaybillStatusLog(9L, "WB1", WaybillStatus.DELIVERING, WaybillStatus.DELIVERED, t0.plusHours(3), t0.plusHours(3)),
+                new WaybillStatusLog(2L, "WB2", WaybillStatus.CREATED, WaybillStatus.CANCELLED, t0, t0.plusMinutes(1)),
+                new WaybillStatusLog(3L, "WB3", WaybillStatus.CREATED, WaybillStatus.PICKED, t0, t0));
+        doAnswer(invocation -> {
+            Consumer<WaybillStatusLog> consumer = invocation.getArgument(0);
+            logs.forEach(consumer);
+            return null;
+        }).when(waybillStatusLogRepository).streamAll(any());
+        when(transactionOperations.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        when(waybillJdbcRepository.findStatuses(List.of("WB1", "WB2", "WB3"))).thenReturn(
+                Map.of("WB1", WaybillStatus.DELIVERING, "WB2", WaybillStatus.CREATED));
+        List<StatusProjection> projections = new ArrayList<>();
+        when(waybillJdbcRepository.batchProjectStatus(anyList())).thenAnswer(invocation -> {
+            List<StatusProjection> chunk = invocation.getArgument(0);
+            projections.addAll(chunk);
+            return new int[]{1, 1};
+        });
+
+        // 2. 执行重放
+        long waybills = waybillStatusLogService.replay();
+
+        // 3. 验证投影结果
+        assertEquals(3, waybills);
+        assertEquals(2, projections.size());
+        StatusProjection wb1 = projections.get(0);
+        assertEquals("WB1", wb1.getWaybillNo());
+        assertEquals(WaybillStatus.DELIVERING, wb1.getExpected());
+        assertEquals(WaybillStatus.DELIVERED, wb1.getStatus());
+        assertEquals(t0.plusHours(3), wb1.getUpdateTime());
+        assertEquals(t0.plusHours(1), wb1.getActualArrivalTime());
+        assertEquals(9L, wb1.getLastLogId());
+        StatusProjection wb2 = projections.get(1);
+        assertEquals(WaybillStatus.CREATED, wb2.getExpected());
+        assertEquals(WaybillStatus.CANCELLED, wb2.getStatus());
+        assertNull(wb2.getActualArrivalTime());
+
+        // 4. 验证写回后删除缓存
+        ArgumentCaptor<List<String>> evicted = ArgumentCaptor.forClass(List.class);
+        verify(waybillCache, times(1)).evictAll(evicted.capture());
+        assertEquals(List.of("WB1", "WB2", "WB3"), evicted.getValue());
+    }
+
+    /**
+     * 测试：查询时间线直接按日志顺序返回
+     */
+    @Test
+    public void testGetTimeline() {
+        List<WaybillStatusLog> timeline = List.of(WaybillStatusLog.of("WB1", WaybillStatus.CREATED,
+                WaybillStatus.PICKED, LocalDateTime.now(), LocalDateTime.now()));
+        when(waybillStatusLogRepository.findTimeline("WB1")).thenReturn(timeline);
+
+        assertSame(timeline, waybillStatusLogService.getTimeline("WB1"));
+    }
+}
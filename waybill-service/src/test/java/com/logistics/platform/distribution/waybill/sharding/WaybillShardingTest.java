@@ -0,0 +1,228 @@
+package com.logistics.platform.distribution.waybill.sharding;
+
+import com.logistics.platform.distribution.waybill.dto.WaybillQuery;
+import com.logistics.platform.distribution.waybill.entity.Waybill;
+import com.logistics.platform.distribution.waybill.entity.WaybillStatus;
+import com.logistics.platform.distribution.waybill.generator.WaybillNoGenerator;
+import com.logistics.platform.distribution.waybill.repository.WaybillJdbcRepository;
+import com.logistics.platform.distribution.waybill.repository.WaybillShardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分表：H2内存库（MySQL模式）中建3张分表和桶映射表
+ */
+public class WaybillShardingTest {
+
+    private static final int TABLES = 3;
+
+    private final WaybillNoGenerator generator = new WaybillNoGenerator(1);
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private WaybillShardRepository shardRepository;
+
+    @BeforeEach
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:sharding;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        for (int shard = 0; shard < TABLES; shard++) {
+            jdbcTemplate.execute("CREATE TABLE " + WaybillShardRouter.tableName(shard) + " (id BIGINT PRIMARY KEY, " +
+                    "waybill_no VARCHAR(32) NOT NULL UNIQUE, customer_id BIGINT, sender_name VARCHAR(64), " +
+                    "sender_phone VARCHAR(32), sender_address VARCHAR(255), receiver_name VARCHAR(64), " +
+                    "receiver_phone VARCHAR(32), receiver_address VARCHAR(255), goods_type VARCHAR(32), " +
+                    "weight DECIMAL(10,2), volume DECIMAL(10,2), amount DECIMAL(10,2), status INT, warehouse_id BIGINT, " +
+                    "deliveryman_id BIGINT, estimated_arrival_time TIMESTAMP, actual_arrival_time TIMESTAMP, " +
+                    "create_time TIMESTAMP, update_time TIMESTAMP, " +
+                    "shard_bucket SMALLINT GENERATED ALWAYS AS (MOD(id, " + WaybillShardRouter.BUCKETS + ")))");
+        }
+        jdbcTemplate.execute("CREATE TABLE waybill_shard_bucket (bucket SMALLINT PRIMARY KEY, shard SMALLINT NOT NULL, " +
+                "target_shard SMALLINT)");
+        shardRepository = new WaybillShardRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    private List<Waybill> newWaybills(int count) {
+        List<Waybill> waybills = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = generator.nextId();
+            Waybill waybill = new Waybill();
+            waybill.setId(id);
+            waybill.setWaybillNo(WaybillNoGenerator.toWaybillNo(id));
+            waybill.setStatus(WaybillStatus.CREATED);
+            waybill.setWarehouseId(id % 2);
+            waybill.setCreateTime(LocalDateTime.now());
+            waybill.setUpdateTime(LocalDateTime.now());
+            waybills.add(waybill);
+        }
+        return waybills;
+    }
+
+    private int count(int shard) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + WaybillShardRouter.tableName(shard), Integer.class);
+    }
+
+    /**
+     * 测试：批量插入按桶分到各分表，按运单号查询、批量查状态、条件更新都只访问所在分表
+     */
+    @Test
+    public void testSingleKeyOperationsHitOneShard() {
+        WaybillJdbcRepository repository = new WaybillJdbcRepository(jdbcTemplate, WaybillShardRouter.modulo(TABLES),
+                shardRepository);
+        List<Waybill> waybills = newWaybills(300);
+        repository.batchInsert(waybills);
+
+        int[] expected = new int[TABLES];
+        for (Waybill waybill : waybills) {
+            expected[WaybillShardRouter.bucketOf(waybill.getId()) % TABLES]++;
+        }
+        for (int shard = 0; shard < TABLES; shard++) {
+            assertEquals(expected[shard], count(shard));
+            assertTrue(expected[shard] > 0);
+        }
+        for (Waybill waybill : waybills) {
+            assertEquals(waybill.getId(), repository.findByWaybillNo(waybill.getWaybillNo()).orElseThrow().getId());
+        }
+
+        List<String> waybillNos = waybills.stream().map(Waybill::getWaybillNo).toList();
+        assertEquals(300, repository.findStatuses(waybillNos).size());
+        String waybillNo = waybills.get(7).getWaybillNo();
+        assertEquals(1, repository.updateStatus(waybillNo, WaybillStatus.CREATED, WaybillStatus.PICKED,
+                LocalDateTime.now(), null));
+        assertEquals(WaybillStatus.PICKED, repository.findStatuses(List.of(waybillNo)).get(waybillNo));
+    }
+
+    /**
+     * 测试：列表查询各分表取一页后按ID归并，逐页翻完与全局按ID排序一致；导出归并结果相同
+     */
+    @Test
+    public void testScatterGatherKeepsIdOrder() {
+        WaybillJdbcRepository repository = new WaybillJdbcRepository(jdbcTemplate, WaybillShardRouter.modulo(TABLES),
+                shardRepository);
+        List<Waybill> waybills = newWaybills(250);
+        repository.batchInsert(waybills);
+        List<Long> expected = waybills.stream().filter(w -> w.getWarehouseId() == 1).map(Waybill::getId).sorted().toList();
+
+        WaybillQuery query = new WaybillQuery();
+        query.setWarehouseId(1L);
+        List<Long> paged = new ArrayList<>();
+        List<Waybill> page;
+        do {
+            page = repository.findPage(query, 20);
+            page.forEach(w -> paged.add(w.getId()));
+            query.setCursor(page.isEmpty() ? null : page.get(page.size() - 1).getId());
+        } while (page.size() == 20);
+        assertEquals(expected, paged);
+
+        query.setCursor(null);
+        List<Long> streamed = new ArrayList<>();
+        repository.stream(query, w -> streamed.add(w.getId()));
+        assertEquals(expected, streamed);
+    }
+
+    /**
+     * 测试：从单表在线重新分片到3张分表，迁移后数据分布正确且都能按运单号查到
+     */
+    @Test
+    public void testReshardMovesBuckets() {
+        WaybillShardRouter router = new WaybillShardRouter(TABLES);
+        WaybillResharder resharder = new WaybillResharder(router, shardRepository, transactionTemplate, Duration.ZERO);
+        resharder.initialize();
+        WaybillJdbcRepository repository = new WaybillJdbcRepository(jdbcTemplate, router, shardRepository);
+        List<Waybill> waybills = newWaybills(500);
+        repository.batchInsert(waybills);
+        assertEquals(500, count(0));
+
+        WaybillResharder.ReshardResult result = resharder.reshard(TABLES);
+
+        assertEquals(500, count(0) + count(1) + count(2));
+        assertTrue(count(1) > 0 && count(2) > 0);
+        assertEquals(500 - count(0), result.waybills());
+        for (Waybill waybill : waybills) {
+            int bucket = WaybillShardRouter.bucketOf(waybill.getId());
+            assertEquals(bucket % TABLES, router.shardOf(bucket));
+            assertTrue(repository.findByWaybillNo(waybill.getWaybillNo()).isPresent());
+        }
+        //已分布好的桶不再迁移
+        assertEquals(0, resharder.reshard(TABLES).buckets());
+    }
+
+    /**
+     * 测试：其他实例已完成迁移而本实例仍为迁移中状态，读取回退到目标分表，写入以映射表为准
+     */
+    @Test
+    public void testMovingBucketReadsAndWritesFollowMappingTable() {
+        WaybillShardRouter router = new WaybillShardRouter(TABLES);
+        WaybillResharder resharder = new WaybillResharder(router, shardRepository, transactionTemplate, Duration.ZERO);
+        resharder.initialize();
+        WaybillJdbcRepository repository = new WaybillJdbcRepository(jdbcTemplate, router, shardRepository);
+        Waybill waybill = newWaybills(1).get(0);
+        repository.insert(waybill);
+        int bucket = WaybillShardRouter.bucketOf(waybill.getId());
+
+        shardRepository.markMoving(List.of(bucket), 2);
+        resharder.refresh();
+        assertTrue(router.isMoving(bucket));
+        transactionTemplate.execute(tx -> shardRepository.moveBucket(bucket, 0, 2));
+
+        assertEquals(0, router.shardOf(bucket));
+        assertTrue(repository.findByWaybillNo(waybill.getWaybillNo()).isPresent());
+        Integer updated = transactionTemplate.execute(tx -> repository.updateStatus(waybill.getWaybillNo(),
+                WaybillStatus.CREATED, WaybillStatus.PICKED, LocalDateTime.now(), null));
+        assertEquals(1, updated);
+        Map<String, WaybillStatus> statuses = repository.findStatuses(List.of(waybill.getWaybillNo()));
+        assertEquals(WaybillStatus.PICKED, statuses.get(waybill.getWaybillNo()));
+        assertEquals(0, count(0));
+        assertEquals(1, count(2));
+    }
+
+    /**
+     * 测试：本实例的映射长时间未刷新、错过了迁移标记，过期后写入以映射表为准，不写入已迁走的分表
+     */
+    @Test
+    public void testStaleRouterWritesFollowMappingTable() throws InterruptedException {
+        WaybillShardRouter router = new WaybillShardRouter(TABLES, Duration.ofMillis(500));
+        WaybillResharder resharder = new WaybillResharder(router, shardRepository, transactionTemplate, Duration.ZERO);
+        resharder.initialize();
+        WaybillJdbcRepository repository = new WaybillJdbcRepository(jdbcTemplate, router, shardRepository);
+        Waybill waybill = newWaybills(1).get(0);
+        repository.insert(waybill);
+        int bucket = WaybillShardRouter.bucketOf(waybill.getId());
+
+        //其他实例标记并完成迁移，本实例未刷新
+        shardRepository.markMoving(List.of(bucket), 2);
+        transactionTemplate.execute(tx -> shardRepository.moveBucket(bucket, 0, 2));
+        Thread.sleep(600);
+
+        assertTrue(router.isStale());
+        assertFalse(router.isMoving(bucket));
+        Integer updated = transactionTemplate.execute(tx -> repository.updateStatus(waybill.getWaybillNo(),
+                WaybillStatus.CREATED, WaybillStatus.PICKED, LocalDateTime.now(), null));
+        assertEquals(1, updated);
+        assertEquals(WaybillStatus.PICKED.ordinal(), jdbcTemplate.queryForObject(
+                "SELECT status FROM " + WaybillShardRouter.tableName(2) + " WHERE waybill_no = ?", Integer.class,
+                waybill.getWaybillNo()));
+
+        resharder.refresh();
+        assertFalse(router.isStale());
+        assertEquals(2, router.shardOf(bucket));
+    }
+}